@@ -2,8 +2,10 @@ package br.com.dasa.analisepatologica;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class AnalisepatologicaApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,117 @@
+package br.com.dasa.analisepatologica.cache;
+
+import br.com.dasa.analisepatologica.dto.CacheStatsDTO;
+import br.com.dasa.analisepatologica.entity.AmostraId;
+import br.com.dasa.analisepatologica.exception.ResourceNotFoundException;
+import br.com.dasa.analisepatologica.repository.AmostraRepository;
+import br.com.dasa.analisepatologica.util.TransacaoUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-process LRU cache from tracking code (codigoRastreio) to the sample composite key.
+ * Lets child resources (medições, imagens, laudo) resolve their sample by primary key
+ * without a unique-index lookup on AMOSTRA for every request.
+ *
+ * Tracking codes are immutable once the sample is created, so entries only have to be
+ * removed when the sample is deleted.
+ */
+@Component
+@Slf4j
+public class AmostraIdCache {
+
+    private final AmostraRepository amostraRepository;
+    private final int capacidade;
+    private final Map<String, AmostraId> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public AmostraIdCache(AmostraRepository amostraRepository,
+                          @Value("${analisepatologica.cache.codigo-rastreio.capacidade:100000}") int capacidade) {
+        this.amostraRepository = amostraRepository;
+        this.capacidade = capacidade;
+        // Access-ordered LinkedHashMap evicting the least recently used entry once full
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AmostraId> eldest) {
+                if (size() > AmostraIdCache.this.capacidade) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Resolves the composite key of a sample by tracking code, hitting the database only on a miss.
+     *
+     * @throws ResourceNotFoundException if no sample exists with the given code
+     */
+    public AmostraId resolver(String codigoRastreio) {
+        AmostraId cached;
+        synchronized (entries) {
+            cached = entries.get(codigoRastreio);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        AmostraId amostraId = amostraRepository.findIdByCodigoRastreio(codigoRastreio)
+                .orElseThrow(() -> new ResourceNotFoundException("Amostra", "codigo_rastreio", codigoRastreio));
+        put(codigoRastreio, amostraId);
+        return amostraId;
+    }
+
+    /**
+     * Registers the key of a sample that is already known (e.g. right after it was created).
+     * Inside a transaction the entry is only added after commit, so a rolled-back insert
+     * never leaves a key for a row that does not exist.
+     */
+    public void put(String codigoRastreio, AmostraId amostraId) {
+        TransacaoUtils.aposCommit(() -> {
+            synchronized (entries) {
+                entries.put(codigoRastreio, amostraId);
+            }
+        });
+    }
+
+    /**
+     * Removes a tracking code from the cache. When called inside a transaction the entry is
+     * removed again after commit, so a concurrent reader cannot re-populate it with a deleted key.
+     */
+    public void invalidar(String codigoRastreio) {
+        remover(codigoRastreio);
+        TransacaoUtils.aposCommit(() -> remover(codigoRastreio));
+    }
+
+    /**
+     * Returns the current size and hit/miss/eviction counters.
+     */
+    public CacheStatsDTO stats() {
+        int tamanho;
+        synchronized (entries) {
+            tamanho = entries.size();
+        }
+        long totalHits = hits.get();
+        long totalMisses = misses.get();
+        long requisicoes = totalHits + totalMisses;
+        double hitRate = requisicoes == 0 ? 0.0 : (double) totalHits / requisicoes;
+        return new CacheStatsDTO(tamanho, capacidade, totalHits, totalMisses, evictions.get(), hitRate);
+    }
+
+    private void remover(String codigoRastreio) {
+        synchronized (entries) {
+            entries.remove(codigoRastreio);
+        }
+    }
+}
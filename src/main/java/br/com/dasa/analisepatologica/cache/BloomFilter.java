@@ -0,0 +1,120 @@
+package br.com.dasa.analisepatologica.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter for strings.
+ * Answers "definitely absent" or "possibly present"; never produces false negatives.
+ *
+ * Bits are set lock-free with CAS on an {@link AtomicLongArray}, and the k probe
+ * positions are derived from two 64-bit hashes (Kirsch-Mitzenmacher double hashing).
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long totalBits;
+    private final int funcoesHash;
+    private final AtomicLong insercoes = new AtomicLong();
+
+    /**
+     * Creates a filter sized for the expected number of insertions and target false positive rate.
+     */
+    public BloomFilter(long capacidadeEsperada, double taxaFalsoPositivo) {
+        if (capacidadeEsperada < 1) {
+            throw new IllegalArgumentException("Capacidade esperada deve ser maior que zero");
+        }
+        if (taxaFalsoPositivo <= 0 || taxaFalsoPositivo >= 1) {
+            throw new IllegalArgumentException("Taxa de falso positivo deve estar entre 0 e 1");
+        }
+
+        // m = -n ln(p) / (ln 2)^2 and k = (m / n) ln 2
+        long m = (long) Math.ceil(-capacidadeEsperada * Math.log(taxaFalsoPositivo) / (Math.log(2) * Math.log(2)));
+        int palavras = (int) Math.min(Integer.MAX_VALUE, (m + Long.SIZE - 1) / Long.SIZE);
+
+        this.bits = new AtomicLongArray(palavras);
+        this.totalBits = (long) palavras * Long.SIZE;
+        this.funcoesHash = Math.max(1, (int) Math.round((double) totalBits / capacidadeEsperada * Math.log(2)));
+    }
+
+    /**
+     * Adds a value to the filter.
+     */
+    public void adicionar(String valor) {
+        long hash1 = hash(valor, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(valor, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < funcoesHash; i++) {
+            long indice = Math.floorMod(hash1 + i * hash2, totalBits);
+            setBit(indice);
+        }
+        insercoes.incrementAndGet();
+    }
+
+    /**
+     * Returns false if the value was definitely never added; true if it may have been.
+     */
+    public boolean podeConter(String valor) {
+        long hash1 = hash(valor, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(valor, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < funcoesHash; i++) {
+            long indice = Math.floorMod(hash1 + i * hash2, totalBits);
+            if ((bits.get((int) (indice >>> 6)) & (1L << indice)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the current false positive rate from the number of insertions.
+     */
+    public double taxaFalsoPositivoEstimada() {
+        double n = insercoes.get();
+        return Math.pow(1 - Math.exp(-funcoesHash * n / totalBits), funcoesHash);
+    }
+
+    public long getTotalBits() {
+        return totalBits;
+    }
+
+    public long getTamanhoBytes() {
+        return (long) bits.length() * Long.BYTES;
+    }
+
+    public int getFuncoesHash() {
+        return funcoesHash;
+    }
+
+    public long getInsercoes() {
+        return insercoes.get();
+    }
+
+    private void setBit(long indice) {
+        int palavra = (int) (indice >>> 6);
+        long mascara = 1L << indice;
+        long atual;
+        do {
+            atual = bits.get(palavra);
+            if ((atual & mascara) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(palavra, atual, atual | mascara));
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3 fmix64 avalanche step.
+     */
+    private static long hash(String valor, long seed) {
+        long h = 0xCBF29CE484222325L ^ seed;
+        for (int i = 0; i < valor.length(); i++) {
+            h ^= valor.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,107 @@
+package br.com.dasa.analisepatologica.cache;
+
+import br.com.dasa.analisepatologica.dto.BloomFilterStatsDTO;
+import br.com.dasa.analisepatologica.repository.AmostraRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Membership pre-check for sample tracking codes (AMOSTRA.codigo_rastreio).
+ * When the filter says a code is definitely absent, intake can skip the uniqueness
+ * query; the database unique constraint remains the final guard.
+ *
+ * The filter is populated from the database once the application is ready. Until
+ * then every code is reported as "possibly present", so callers fall back to the database.
+ * Bloom filters cannot forget values: deleted codes keep answering "possibly present",
+ * which only costs a database round-trip. The filter is only built at startup, so deleted codes
+ * are dropped when the application restarts; {@code removidos} in the stats tells how many are pending.
+ */
+@Component
+@Slf4j
+public class CodigoRastreioBloomFilter {
+
+    private final AmostraRepository amostraRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final BloomFilter filtro;
+    private final double taxaFalsoPositivoConfigurada;
+    private final AtomicLong removidos = new AtomicLong();
+
+    private volatile boolean pronto;
+
+    public CodigoRastreioBloomFilter(AmostraRepository amostraRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${analisepatologica.bloom-filter.codigo-rastreio.capacidade-esperada:10000000}") long capacidadeEsperada,
+                                     @Value("${analisepatologica.bloom-filter.codigo-rastreio.taxa-falso-positivo:0.01}") double taxaFalsoPositivo) {
+        this.amostraRepository = amostraRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.filtro = new BloomFilter(capacidadeEsperada, taxaFalsoPositivo);
+        this.taxaFalsoPositivoConfigurada = taxaFalsoPositivo;
+    }
+
+    /**
+     * Loads every existing tracking code into the filter.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        long inicio = System.currentTimeMillis();
+        Long carregados = readOnlyTransaction.execute(status -> {
+            try (Stream<String> codigos = amostraRepository.streamCodigosRastreio()) {
+                AtomicLong total = new AtomicLong();
+                codigos.forEach(codigo -> {
+                    filtro.adicionar(codigo);
+                    total.incrementAndGet();
+                });
+                return total.get();
+            }
+        });
+        pronto = true;
+        log.info("Tracking code Bloom filter built with {} codes in {} ms ({} bytes, {} hash functions)",
+                carregados, System.currentTimeMillis() - inicio, filtro.getTamanhoBytes(), filtro.getFuncoesHash());
+    }
+
+    /**
+     * Returns false only if the code is definitely not registered.
+     */
+    public boolean podeExistir(String codigoRastreio) {
+        return !pronto || filtro.podeConter(codigoRastreio);
+    }
+
+    /**
+     * Registers a newly created tracking code.
+     */
+    public void adicionar(String codigoRastreio) {
+        filtro.adicionar(codigoRastreio);
+    }
+
+    /**
+     * Records that a tracking code was deleted (its bits stay set until the filter is built again on restart).
+     */
+    public void registrarRemocao(String codigoRastreio) {
+        removidos.incrementAndGet();
+    }
+
+    /**
+     * Returns sizing, memory usage and saturation of the filter.
+     */
+    public BloomFilterStatsDTO stats() {
+        return new BloomFilterStatsDTO(
+                pronto,
+                filtro.getInsercoes(),
+                removidos.get(),
+                filtro.getTotalBits(),
+                filtro.getTamanhoBytes(),
+                filtro.getFuncoesHash(),
+                taxaFalsoPositivoConfigurada,
+                filtro.taxaFalsoPositivoEstimada()
+        );
+    }
+}
@@ -0,0 +1,232 @@
+package br.com.dasa.analisepatologica.cache;
+
+import br.com.dasa.analisepatologica.enums.Sexo;
+import br.com.dasa.analisepatologica.enums.StatusLaudo;
+import br.com.dasa.analisepatologica.enums.StatusProcessamento;
+import br.com.dasa.analisepatologica.enums.TipoMedico;
+import br.com.dasa.analisepatologica.repository.projection.ContagemProjection;
+import br.com.dasa.analisepatologica.util.TransacaoUtils;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-memory counters backing the dashboard statistics.
+ *
+ * Write paths report every change that moves a record between buckets (creation, deletion,
+ * status/type change). Deltas are applied only after the surrounding transaction commits,
+ * so rolled-back writes never show up. Counters are periodically overwritten with the
+ * result of GROUP BY queries, which corrects any drift (e.g. writes made outside the services).
+ */
+@Component
+public class ContadoresEstatisticas {
+
+    private final Contador<StatusProcessamento> amostrasPorStatus = new Contador<>(() -> new EnumMap<>(StatusProcessamento.class));
+    private final Contador<Long> amostrasPorMedico = new Contador<>(TreeMap::new);
+    private final Contador<StatusLaudo> laudosPorStatus = new Contador<>(() -> new EnumMap<>(StatusLaudo.class));
+    private final Contador<TipoMedico> medicosPorTipo = new Contador<>(() -> new EnumMap<>(TipoMedico.class));
+    private final Contador<Sexo> pacientesPorSexo = new Contador<>(() -> new EnumMap<>(Sexo.class));
+
+    private volatile LocalDateTime ultimaReconciliacao;
+
+    public Contador<StatusProcessamento> amostrasPorStatus() {
+        return amostrasPorStatus;
+    }
+
+    public Contador<Long> amostrasPorMedico() {
+        return amostrasPorMedico;
+    }
+
+    public Contador<StatusLaudo> laudosPorStatus() {
+        return laudosPorStatus;
+    }
+
+    public Contador<TipoMedico> medicosPorTipo() {
+        return medicosPorTipo;
+    }
+
+    public Contador<Sexo> pacientesPorSexo() {
+        return pacientesPorSexo;
+    }
+
+    public LocalDateTime getUltimaReconciliacao() {
+        return ultimaReconciliacao;
+    }
+
+    /**
+     * Records a new sample.
+     */
+    public void amostraCriada(StatusProcessamento status, Long medicoId) {
+        TransacaoUtils.aposCommit(() -> {
+            amostrasPorStatus.adicionar(status, 1);
+            amostrasPorMedico.adicionar(medicoId, 1);
+        });
+    }
+
+    /**
+     * Records a deleted sample.
+     */
+    public void amostraExcluida(StatusProcessamento status, Long medicoId) {
+        TransacaoUtils.aposCommit(() -> {
+            amostrasPorStatus.adicionar(status, -1);
+            amostrasPorMedico.adicionar(medicoId, -1);
+        });
+    }
+
+    /**
+     * Records a sample moving from one processing status to another.
+     */
+    public void statusAmostraAlterado(StatusProcessamento anterior, StatusProcessamento atual) {
+        TransacaoUtils.aposCommit(() -> amostrasPorStatus.mover(anterior, atual));
+    }
+
+    /**
+     * Records a new report.
+     */
+    public void laudoCriado(StatusLaudo status) {
+        TransacaoUtils.aposCommit(() -> laudosPorStatus.adicionar(status, 1));
+    }
+
+    /**
+     * Records a deleted report.
+     */
+    public void laudoExcluido(StatusLaudo status) {
+        TransacaoUtils.aposCommit(() -> laudosPorStatus.adicionar(status, -1));
+    }
+
+    /**
+     * Records a report moving from one status to another.
+     */
+    public void statusLaudoAlterado(StatusLaudo anterior, StatusLaudo atual) {
+        TransacaoUtils.aposCommit(() -> laudosPorStatus.mover(anterior, atual));
+    }
+
+    /**
+     * Records a new doctor.
+     */
+    public void medicoCriado(TipoMedico tipo) {
+        TransacaoUtils.aposCommit(() -> medicosPorTipo.adicionar(tipo, 1));
+    }
+
+    /**
+     * Records a deleted doctor.
+     */
+    public void medicoExcluido(TipoMedico tipo) {
+        TransacaoUtils.aposCommit(() -> medicosPorTipo.adicionar(tipo, -1));
+    }
+
+    /**
+     * Records a doctor whose type changed.
+     */
+    public void tipoMedicoAlterado(TipoMedico anterior, TipoMedico atual) {
+        TransacaoUtils.aposCommit(() -> medicosPorTipo.mover(anterior, atual));
+    }
+
+    /**
+     * Records a new patient.
+     */
+    public void pacienteCriado(Sexo sexo) {
+        TransacaoUtils.aposCommit(() -> pacientesPorSexo.adicionar(sexo, 1));
+    }
+
+    /**
+     * Records a deleted patient.
+     */
+    public void pacienteExcluido(Sexo sexo) {
+        TransacaoUtils.aposCommit(() -> pacientesPorSexo.adicionar(sexo, -1));
+    }
+
+    /**
+     * Records a patient whose sex changed.
+     */
+    public void sexoPacienteAlterado(Sexo anterior, Sexo atual) {
+        TransacaoUtils.aposCommit(() -> pacientesPorSexo.mover(anterior, atual));
+    }
+
+    /**
+     * Marks the end of a reconciliation against the database.
+     */
+    public void reconciliado(LocalDateTime momento) {
+        this.ultimaReconciliacao = momento;
+    }
+
+    /**
+     * Thread-safe counter of records per key plus a total (records with a null key only count in the total).
+     *
+     * @param <K> bucket key
+     */
+    public static class Contador<K> {
+
+        private final Supplier<Map<K, Long>> fabricaSnapshot;
+        private final Map<K, AtomicLong> valores = new ConcurrentHashMap<>();
+        private final AtomicLong total = new AtomicLong();
+
+        Contador(Supplier<Map<K, Long>> fabricaSnapshot) {
+            this.fabricaSnapshot = fabricaSnapshot;
+        }
+
+        void adicionar(K chave, long delta) {
+            total.addAndGet(delta);
+            if (chave != null) {
+                valores.computeIfAbsent(chave, k -> new AtomicLong()).addAndGet(delta);
+            }
+        }
+
+        void mover(K anterior, K atual) {
+            if (Objects.equals(anterior, atual)) {
+                return;
+            }
+            if (anterior != null) {
+                valores.computeIfAbsent(anterior, k -> new AtomicLong()).decrementAndGet();
+            }
+            if (atual != null) {
+                valores.computeIfAbsent(atual, k -> new AtomicLong()).incrementAndGet();
+            }
+        }
+
+        /**
+         * Overwrites the counters with the rows of a GROUP BY query.
+         * Keys absent from the result are reset to zero.
+         */
+        public void substituir(List<? extends ContagemProjection<K>> contagens) {
+            Map<K, Long> novos = new HashMap<>();
+            long novoTotal = 0;
+            for (ContagemProjection<K> contagem : contagens) {
+                novoTotal += contagem.getTotal();
+                if (contagem.getChave() != null) {
+                    novos.put(contagem.getChave(), contagem.getTotal());
+                }
+            }
+            valores.keySet().retainAll(novos.keySet());
+            novos.forEach((chave, valor) -> valores.computeIfAbsent(chave, k -> new AtomicLong()).set(valor));
+            total.set(novoTotal);
+        }
+
+        /**
+         * Returns a sorted copy of the non-zero counters.
+         */
+        public Map<K, Long> snapshot() {
+            Map<K, Long> copia = fabricaSnapshot.get();
+            valores.forEach((chave, valor) -> {
+                long atual = valor.get();
+                if (atual != 0) {
+                    copia.put(chave, atual);
+                }
+            });
+            return copia;
+        }
+
+        public long total() {
+            return total.get();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package br.com.dasa.analisepatologica.cache;
+
+import br.com.dasa.analisepatologica.repository.ImagemAmostraRepository;
+import br.com.dasa.analisepatologica.repository.projection.HashPerceptualProjection;
+import br.com.dasa.analisepatologica.util.TransacaoUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of the perceptual hashes of the images (IMAGEM_AMOSTRA.hash_perceptual), for finding
+ * re-scans and re-exports of the same slide: images whose hashes are within a small Hamming distance.
+ *
+ * The hashes are loaded at startup with one streamed query into an {@link IndiceHamming} and kept up to date
+ * by the image write paths after each commit. Until the index is loaded, {@link #buscar(long, int)} returns null.
+ */
+@Component
+@Slf4j
+public class HashPerceptualIndex {
+
+    private final ImagemAmostraRepository imagemAmostraRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final IndiceHamming indice = new IndiceHamming();
+    /** Distance up to which two images are taken as the same slide when the caller gives none. */
+    @Getter
+    private final int distanciaPadrao;
+
+    private volatile boolean pronto;
+
+    public HashPerceptualIndex(ImagemAmostraRepository imagemAmostraRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${analisepatologica.hash-perceptual.distancia-padrao:5}") int distanciaPadrao) {
+        if (distanciaPadrao < 0 || distanciaPadrao > IndiceHamming.DISTANCIA_MAXIMA) {
+            throw new IllegalArgumentException("Distância padrão deve estar entre 0 e " + IndiceHamming.DISTANCIA_MAXIMA);
+        }
+        this.imagemAmostraRepository = imagemAmostraRepository;
+        this.distanciaPadrao = distanciaPadrao;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Loads the hash of every analyzed image.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        long inicio = System.currentTimeMillis();
+        Long carregados = readOnlyTransaction.execute(status -> {
+            try (Stream<HashPerceptualProjection> hashes = imagemAmostraRepository.streamHashesPerceptuais()) {
+                AtomicLong total = new AtomicLong();
+                hashes.forEach(hash -> {
+                    adicionar(hash.getImagemId(), hash.getHashPerceptual());
+                    total.incrementAndGet();
+                });
+                return total.get();
+            }
+        });
+        pronto = true;
+        log.info("Perceptual hash index built with {} imagens in {} ms", carregados, System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Finds the images whose hash is within a Hamming distance of the given one, closest first.
+     *
+     * @return matching images (possibly empty), or null if the index is not loaded yet
+     * @throws IllegalArgumentException if the distance is outside 0..{@value IndiceHamming#DISTANCIA_MAXIMA}
+     */
+    public List<IndiceHamming.Vizinho> buscar(long hashPerceptual, int distancia) {
+        if (!pronto) {
+            return null;
+        }
+        return indice.buscar(hashPerceptual, distancia);
+    }
+
+    /**
+     * Records the hash of an image (applied after commit).
+     */
+    public void registrar(Long imagemId, Long hashPerceptual) {
+        if (hashPerceptual != null) {
+            TransacaoUtils.aposCommit(() -> adicionar(imagemId, hashPerceptual));
+        }
+    }
+
+    /**
+     * Forgets the hash of an image that was deleted or re-pointed at another file (applied after commit).
+     */
+    public void remover(Long imagemId, Long hashPerceptual) {
+        if (hashPerceptual != null) {
+            TransacaoUtils.aposCommit(() -> indice.remover(hashPerceptual, imagemId));
+        }
+    }
+
+    /**
+     * Adds a hash, replacing the entry if the startup load and a commit both delivered it.
+     */
+    private synchronized void adicionar(long imagemId, long hashPerceptual) {
+        indice.remover(hashPerceptual, imagemId);
+        indice.adicionar(hashPerceptual, imagemId);
+    }
+}
@@ -0,0 +1,198 @@
+package br.com.dasa.analisepatologica.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe multi-index hash table of 64-bit hashes, answering "every entry within Hamming distance r".
+ *
+ * Each hash is split into its 8 bytes and filed under each of them, in 8 tables of 256 buckets. Two hashes
+ * within distance r differ in at most floor(r / 8) bits in at least one byte (pigeonhole), so a search reads
+ * only the buckets of the query bytes and of their neighbours within that many bits, and checks each candidate
+ * with a popcount. Up to distance 7 that is 8 buckets, about n / 32 candidates when the hashes are well spread,
+ * instead of the n comparisons of a linear scan.
+ *
+ * Entries live in parallel arrays and buckets hold their slots (48 bytes per entry), so millions of hashes fit
+ * in a few hundred MB. Searches run concurrently; insertions and removals take the write lock.
+ */
+public class IndiceHamming {
+
+    public static final int DISTANCIA_MAXIMA = 15;
+
+    private static final int BLOCOS = Long.BYTES;
+    private static final int BALDES = 256;
+
+    /**
+     * Entry found by a search.
+     *
+     * @param valor Value stored with the hash
+     * @param hash Hash the value was filed under
+     * @param distancia Hamming distance to the searched hash
+     */
+    public record Vizinho(long valor, long hash, int distancia) {
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int[][][] baldes = new int[BLOCOS][BALDES][];
+    private final int[][] tamanhoBaldes = new int[BLOCOS][BALDES];
+    private long[] hashes = new long[1024];
+    private long[] valores = new long[1024];
+    private int slotsUsados;
+    private int[] slotsLivres = new int[64];
+    private int totalLivres;
+
+    public IndiceHamming() {
+        for (int bloco = 0; bloco < BLOCOS; bloco++) {
+            for (int balde = 0; balde < BALDES; balde++) {
+                baldes[bloco][balde] = new int[4];
+            }
+        }
+    }
+
+    /**
+     * Adds a value under a hash. The same value may be added under several hashes and vice versa.
+     */
+    public void adicionar(long hash, long valor) {
+        lock.writeLock().lock();
+        try {
+            int slot = alocarSlot();
+            hashes[slot] = hash;
+            valores[slot] = valor;
+            for (int bloco = 0; bloco < BLOCOS; bloco++) {
+                int balde = byteDe(hash, bloco);
+                int tamanho = tamanhoBaldes[bloco][balde];
+                if (tamanho == baldes[bloco][balde].length) {
+                    baldes[bloco][balde] = Arrays.copyOf(baldes[bloco][balde], tamanho * 2);
+                }
+                baldes[bloco][balde][tamanho] = slot;
+                tamanhoBaldes[bloco][balde] = tamanho + 1;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a value filed under a hash.
+     *
+     * @return false if the pair was not in the index
+     */
+    public boolean remover(long hash, long valor) {
+        lock.writeLock().lock();
+        try {
+            int slot = -1;
+            int[] candidatos = baldes[0][byteDe(hash, 0)];
+            for (int i = 0; i < tamanhoBaldes[0][byteDe(hash, 0)]; i++) {
+                if (hashes[candidatos[i]] == hash && valores[candidatos[i]] == valor) {
+                    slot = candidatos[i];
+                    break;
+                }
+            }
+            if (slot < 0) {
+                return false;
+            }
+            for (int bloco = 0; bloco < BLOCOS; bloco++) {
+                int balde = byteDe(hash, bloco);
+                int[] slots = baldes[bloco][balde];
+                int ultimo = --tamanhoBaldes[bloco][balde];
+                for (int i = 0; i <= ultimo; i++) {
+                    if (slots[i] == slot) {
+                        slots[i] = slots[ultimo];
+                        break;
+                    }
+                }
+            }
+            if (totalLivres == slotsLivres.length) {
+                slotsLivres = Arrays.copyOf(slotsLivres, totalLivres * 2);
+            }
+            slotsLivres[totalLivres++] = slot;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the entries whose hash is within a Hamming distance of the given one, closest first.
+     *
+     * @throws IllegalArgumentException if the distance is outside 0..{@value #DISTANCIA_MAXIMA}
+     */
+    public List<Vizinho> buscar(long hash, int distancia) {
+        if (distancia < 0 || distancia > DISTANCIA_MAXIMA) {
+            throw new IllegalArgumentException("Distância deve estar entre 0 e " + DISTANCIA_MAXIMA);
+        }
+        int bitsPorBloco = distancia / BLOCOS;
+        List<Vizinho> encontrados = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int bloco = 0; bloco < BLOCOS; bloco++) {
+                int byteBuscado = byteDe(hash, bloco);
+                coletar(hash, distancia, bitsPorBloco, bloco, byteBuscado, encontrados);
+                if (bitsPorBloco > 0) {
+                    for (int bit = 0; bit < Byte.SIZE; bit++) {
+                        coletar(hash, distancia, bitsPorBloco, bloco, byteBuscado ^ (1 << bit), encontrados);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        encontrados.sort(Comparator.comparingInt(Vizinho::distancia).thenComparingLong(Vizinho::valor));
+        return encontrados;
+    }
+
+    /**
+     * Number of entries in the index.
+     */
+    public int tamanho() {
+        lock.readLock().lock();
+        try {
+            return slotsUsados - totalLivres;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks the candidates of one bucket. An entry sits in the buckets of all its bytes, so it is only
+     * reported from the first block whose byte is close enough to the query to be searched.
+     */
+    private void coletar(long hash, int distancia, int bitsPorBloco, int bloco, int balde, List<Vizinho> encontrados) {
+        int[] slots = baldes[bloco][balde];
+        for (int i = 0, tamanho = tamanhoBaldes[bloco][balde]; i < tamanho; i++) {
+            long candidato = hashes[slots[i]];
+            int distanciaCandidato = Long.bitCount(candidato ^ hash);
+            if (distanciaCandidato <= distancia && primeiroBlocoProximo(candidato ^ hash, bitsPorBloco) == bloco) {
+                encontrados.add(new Vizinho(valores[slots[i]], candidato, distanciaCandidato));
+            }
+        }
+    }
+
+    private static int primeiroBlocoProximo(long diferenca, int bitsPorBloco) {
+        for (int bloco = 0; bloco < BLOCOS; bloco++) {
+            if (Integer.bitCount(byteDe(diferenca, bloco)) <= bitsPorBloco) {
+                return bloco;
+            }
+        }
+        return -1;
+    }
+
+    private int alocarSlot() {
+        if (totalLivres > 0) {
+            return slotsLivres[--totalLivres];
+        }
+        if (slotsUsados == hashes.length) {
+            hashes = Arrays.copyOf(hashes, slotsUsados * 2);
+            valores = Arrays.copyOf(valores, slotsUsados * 2);
+        }
+        return slotsUsados++;
+    }
+
+    private static int byteDe(long valor, int bloco) {
+        return (int) (valor >>> (bloco * Byte.SIZE)) & 0xFF;
+    }
+}
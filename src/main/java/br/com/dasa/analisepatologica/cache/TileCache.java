@@ -0,0 +1,67 @@
+package br.com.dasa.analisepatologica.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-process LRU cache of encoded image pyramid tiles, keyed by content hash and tile position.
+ * Pan and zoom keep requesting the same neighbouring tiles, which are then served without touching the disk.
+ *
+ * The bound is the total size of the cached tiles rather than their number, since tiles of
+ * plain background are a few hundred bytes and tiles of dense tissue tens of KB.
+ */
+@Component
+public class TileCache {
+
+    private final long capacidadeBytes;
+    private final Map<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long tamanhoBytes;
+
+    /**
+     * Reads a tile that is not cached.
+     */
+    @FunctionalInterface
+    public interface Carregador {
+        byte[] carregar() throws IOException;
+    }
+
+    public TileCache(@Value("${analisepatologica.cache.tiles.capacidade:64MB}") DataSize capacidade) {
+        this.capacidadeBytes = capacidade.toBytes();
+    }
+
+    /**
+     * Returns a cached tile, loading and caching it on a miss. Tiles are immutable (the key includes
+     * the content hash), so concurrent misses on the same key may both load it without harm.
+     */
+    public byte[] obter(String sha256, int nivel, int x, int y, Carregador carregador) throws IOException {
+        String chave = sha256 + "/" + nivel + "/" + x + "/" + y;
+        byte[] cached;
+        synchronized (entries) {
+            cached = entries.get(chave);
+        }
+        if (cached != null) {
+            return cached;
+        }
+
+        byte[] tile = carregador.carregar();
+        if (tile.length <= capacidadeBytes) {
+            synchronized (entries) {
+                byte[] anterior = entries.put(chave, tile);
+                tamanhoBytes += tile.length - (anterior != null ? anterior.length : 0);
+                // Evict the least recently used tiles until the new one fits
+                Iterator<byte[]> maisAntigos = entries.values().iterator();
+                while (tamanhoBytes > capacidadeBytes) {
+                    tamanhoBytes -= maisAntigos.next().length;
+                    maisAntigos.remove();
+                }
+            }
+        }
+        return tile;
+    }
+}
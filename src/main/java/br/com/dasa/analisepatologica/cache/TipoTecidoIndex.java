@@ -0,0 +1,243 @@
+package br.com.dasa.analisepatologica.cache;
+
+import br.com.dasa.analisepatologica.dto.TipoTecidoSugestaoDTO;
+import br.com.dasa.analisepatologica.repository.AmostraRepository;
+import br.com.dasa.analisepatologica.repository.projection.ContagemProjection;
+import br.com.dasa.analisepatologica.util.TransacaoUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory trigram index over the distinct tissue types (AMOSTRA.tipo_tecido).
+ *
+ * Substring searches are resolved to the set of matching tissue type values, so the database
+ * query becomes an indexable {@code tipo_tecido IN (...)} instead of {@code lower(tipo_tecido) LIKE '%x%'}.
+ * Values are normalized (lower case, accents stripped) before being split into trigrams, making
+ * searches case- and accent-insensitive.
+ *
+ * The index is loaded at startup with one GROUP BY query and kept up to date by the sample
+ * write paths after each commit. Until it is loaded, {@link #buscar(String)} returns null and
+ * callers fall back to the LIKE predicate. Updates committed while it loads are buffered: the
+ * tissue types they touch are counted again once the load is done, and any update arriving
+ * during that recount is replayed on top.
+ */
+@Component
+@Slf4j
+public class TipoTecidoIndex {
+
+    private static final int TAMANHO_NGRAMA = 3;
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+
+    private final AmostraRepository amostraRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    // Tissue type -> number of samples using it
+    private final Map<String, AtomicLong> totalPorTipo = new ConcurrentHashMap<>();
+    // Normalized trigram -> tissue types containing it
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+
+    // Updates received while the index is being built, or null when it is not
+    private List<Map.Entry<String, Long>> pendentes;
+
+    private volatile boolean pronto;
+
+    public TipoTecidoIndex(AmostraRepository amostraRepository, PlatformTransactionManager transactionManager) {
+        this.amostraRepository = amostraRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Loads the distinct tissue types and their sample counts.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        long inicio = System.currentTimeMillis();
+        synchronized (this) {
+            pendentes = new ArrayList<>();
+        }
+        Map<String, Long> totais = new HashMap<>();
+        readOnlyTransaction.execute(status -> amostraRepository.countGroupByTipoTecido())
+                .forEach(contagem -> totais.put(contagem.getChave(), contagem.getTotal()));
+
+        // Updates committed during the load may or may not be in it: count those tissue types again
+        Set<String> alterados;
+        synchronized (this) {
+            alterados = pendentes.stream().map(Map.Entry::getKey).collect(Collectors.toSet());
+            pendentes = new ArrayList<>();
+        }
+        if (!alterados.isEmpty()) {
+            alterados.forEach(totais::remove);
+            readOnlyTransaction.execute(status -> amostraRepository.countGroupByTipoTecidoIn(alterados))
+                    .forEach(contagem -> totais.put(contagem.getChave(), contagem.getTotal()));
+        }
+
+        synchronized (this) {
+            totalPorTipo.clear();
+            postings.clear();
+            totais.forEach(this::aplicar);
+            pendentes.forEach(pendente -> aplicar(pendente.getKey(), pendente.getValue()));
+            pendentes = null;
+            pronto = true;
+        }
+        log.info("Tissue type index built with {} distinct values and {} trigrams in {} ms",
+                totalPorTipo.size(), postings.size(), System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Resolves a substring search to the tissue type values containing the term.
+     *
+     * @return matching values (possibly empty), or null if the index is not loaded yet
+     */
+    public Set<String> buscar(String termo) {
+        if (!pronto) {
+            return null;
+        }
+        String termoNormalizado = normalizar(termo);
+        return candidatos(termoNormalizado).stream()
+                .filter(tipo -> normalizar(tipo).contains(termoNormalizado))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Suggests tissue types containing the term: prefix matches first, then the most used ones.
+     */
+    public List<TipoTecidoSugestaoDTO> autocompletar(String termo, int limite) {
+        String termoNormalizado = normalizar(termo);
+        Comparator<String> relevancia = Comparator
+                .comparing((String tipo) -> !normalizar(tipo).startsWith(termoNormalizado))
+                .thenComparing(tipo -> -total(tipo))
+                .thenComparing(Comparator.naturalOrder());
+
+        return candidatos(termoNormalizado).stream()
+                .filter(tipo -> normalizar(tipo).contains(termoNormalizado))
+                .sorted(relevancia)
+                .limit(limite)
+                .map(tipo -> new TipoTecidoSugestaoDTO(tipo, total(tipo)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Records a new sample with the given tissue type (applied after commit).
+     */
+    public void registrar(String tipoTecido) {
+        TransacaoUtils.aposCommit(() -> adicionar(tipoTecido, 1));
+    }
+
+    /**
+     * Records the removal of a sample with the given tissue type (applied after commit).
+     */
+    public void remover(String tipoTecido) {
+        TransacaoUtils.aposCommit(() -> adicionar(tipoTecido, -1));
+    }
+
+    /**
+     * Records a sample whose tissue type changed (applied after commit).
+     */
+    public void alterar(String anterior, String atual) {
+        if (Objects.equals(anterior, atual)) {
+            return;
+        }
+        TransacaoUtils.aposCommit(() -> {
+            adicionar(anterior, -1);
+            adicionar(atual, 1);
+        });
+    }
+
+    /**
+     * Normalizes a value for indexing and search: trimmed, lower case and without accents.
+     */
+    public static String normalizar(String valor) {
+        String semAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(valor.trim(), Normalizer.Form.NFD))
+                .replaceAll("");
+        return semAcentos.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the tissue types that contain every trigram of the term.
+     * Terms shorter than a trigram are checked against all distinct values, which stay few.
+     */
+    private Set<String> candidatos(String termoNormalizado) {
+        if (termoNormalizado.length() < TAMANHO_NGRAMA) {
+            return totalPorTipo.keySet();
+        }
+
+        Set<String> resultado = null;
+        for (String trigrama : trigramas(termoNormalizado)) {
+            Set<String> tipos = postings.get(trigrama);
+            if (tipos == null) {
+                return Set.of();
+            }
+            if (resultado == null) {
+                resultado = new HashSet<>(tipos);
+            } else {
+                resultado.retainAll(tipos);
+            }
+            if (resultado.isEmpty()) {
+                break;
+            }
+        }
+        return resultado;
+    }
+
+    private synchronized void adicionar(String tipoTecido, long delta) {
+        if (tipoTecido == null) {
+            return;
+        }
+        if (pendentes != null) {
+            pendentes.add(Map.entry(tipoTecido, delta));
+            return;
+        }
+        aplicar(tipoTecido, delta);
+    }
+
+    private void aplicar(String tipoTecido, long delta) {
+        if (tipoTecido == null) {
+            return;
+        }
+        long total = totalPorTipo.computeIfAbsent(tipoTecido, tipo -> new AtomicLong()).addAndGet(delta);
+        Set<String> trigramas = trigramas(normalizar(tipoTecido));
+        if (total > 0) {
+            trigramas.forEach(trigrama -> postings.computeIfAbsent(trigrama, t -> ConcurrentHashMap.newKeySet())
+                    .add(tipoTecido));
+        } else {
+            totalPorTipo.remove(tipoTecido);
+            trigramas.forEach(trigrama -> postings.computeIfPresent(trigrama, (t, tipos) -> {
+                tipos.remove(tipoTecido);
+                return tipos.isEmpty() ? null : tipos;
+            }));
+        }
+    }
+
+    private long total(String tipoTecido) {
+        AtomicLong total = totalPorTipo.get(tipoTecido);
+        return total != null ? total.get() : 0;
+    }
+
+    private static Set<String> trigramas(String valorNormalizado) {
+        Set<String> trigramas = new HashSet<>();
+        for (int i = 0; i + TAMANHO_NGRAMA <= valorNormalizado.length(); i++) {
+            trigramas.add(valorNormalizado.substring(i, i + TAMANHO_NGRAMA));
+        }
+        return trigramas;
+    }
+}
@@ -1,9 +1,14 @@
 package br.com.dasa.analisepatologica.controller;
 
 import br.com.dasa.analisepatologica.controller.openapi.AmostraControllerOpenApi;
+import br.com.dasa.analisepatologica.dto.AmostraBatchResponseDTO;
 import br.com.dasa.analisepatologica.dto.AmostraFilterDTO;
+import br.com.dasa.analisepatologica.dto.AmostraPageResponseDTO;
 import br.com.dasa.analisepatologica.dto.AmostraRequestDTO;
 import br.com.dasa.analisepatologica.dto.AmostraResponseDTO;
+import br.com.dasa.analisepatologica.dto.BloomFilterStatsDTO;
+import br.com.dasa.analisepatologica.dto.CacheStatsDTO;
+import br.com.dasa.analisepatologica.dto.TipoTecidoSugestaoDTO;
 import br.com.dasa.analisepatologica.enums.StatusProcessamento;
 import br.com.dasa.analisepatologica.service.AmostraService;
 import jakarta.validation.Valid;
@@ -47,6 +52,21 @@ public class AmostraController implements AmostraControllerOpenApi {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /**
+     * POST /api/amostras/batch - Creates samples in bulk.
+     * Each item is validated individually; invalid items are reported without
+     * preventing the creation of the others.
+     *
+     * @param requestDTOs Samples to create (up to 1000)
+     * @return Per-item result with HTTP 200
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<AmostraBatchResponseDTO> createBatch(@RequestBody List<AmostraRequestDTO> requestDTOs) {
+        log.info("POST /api/amostras/batch - Creating {} amostras", requestDTOs.size());
+        AmostraBatchResponseDTO response = amostraService.createBatch(requestDTOs);
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * GET /api/amostras/{codigo} - Retrieves a sample by tracking code.
      *
@@ -61,7 +81,7 @@ public class AmostraController implements AmostraControllerOpenApi {
     }
 
     /**
-     * GET /api/amostras - Retrieves samples with optional filtering.
+     * GET /api/amostras - Retrieves a page of samples with optional filtering.
      *
      * Query parameters:
      * - pacienteId: Filter by patient ID
@@ -72,17 +92,40 @@ public class AmostraController implements AmostraControllerOpenApi {
      * - dataColetaFim: Filter by collection date end
      * - prontaParaAnalise: Filter samples ready for analysis (true/false)
      * - semLaudo: Filter samples without report (true/false)
+     * - cursor: Opaque cursor returned as nextCursor by the previous page
+     * - size: Page size (default 50, max 500)
      *
      * @param filter Filter criteria as query parameters
-     * @return List of samples with HTTP 200
+     * @param cursor Cursor of the previous page (optional)
+     * @param size Page size
+     * @return Page of samples with HTTP 200
      */
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<AmostraResponseDTO>> findAll(AmostraFilterDTO filter) {
-        log.info("GET /api/amostras - Finding amostras with filters: {}", filter);
-        List<AmostraResponseDTO> response = amostraService.findByFilters(filter);
+    public ResponseEntity<AmostraPageResponseDTO> findAll(
+            AmostraFilterDTO filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        log.info("GET /api/amostras - Finding amostras with filters: {}, cursor: {}, size: {}", filter, cursor, size);
+        AmostraPageResponseDTO response = amostraService.findByFilters(filter, cursor, size);
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * GET /api/amostras/tipos-tecido - Suggests distinct tissue types for autocomplete.
+     * Matching is case- and accent-insensitive; prefix matches come first, then the most used types.
+     *
+     * @param termo Text contained in the tissue type (optional)
+     * @param limite Maximum number of suggestions (default 10, max 50)
+     * @return Suggestions with HTTP 200
+     */
+    @GetMapping(value = "/tipos-tecido", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<TipoTecidoSugestaoDTO>> autocompletarTipoTecido(
+            @RequestParam(required = false) String termo,
+            @RequestParam(defaultValue = "10") int limite) {
+        log.info("GET /api/amostras/tipos-tecido - termo: {}, limite: {}", termo, limite);
+        return ResponseEntity.ok(amostraService.autocompletarTipoTecido(termo, limite));
+    }
+
     /**
      * PATCH /api/amostras/{codigo}/status - Updates sample status.
      * Uses PATCH since we're partially updating the resource (status only).
@@ -155,4 +198,26 @@ public class AmostraController implements AmostraControllerOpenApi {
         long count = amostraService.count(status, pacienteId, medicoId);
         return ResponseEntity.ok(count);
     }
+
+    /**
+     * GET /api/amostras/stats/cache - Returns statistics of the tracking code resolution cache.
+     *
+     * @return Cache size and hit/miss counters with HTTP 200
+     */
+    @GetMapping(value = "/stats/cache", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<CacheStatsDTO> cacheStats() {
+        log.info("GET /api/amostras/stats/cache - Getting tracking code cache statistics");
+        return ResponseEntity.ok(amostraService.cacheStats());
+    }
+
+    /**
+     * GET /api/amostras/stats/bloom-filter - Returns memory usage and saturation of the tracking code Bloom filter.
+     *
+     * @return Bloom filter statistics with HTTP 200
+     */
+    @GetMapping(value = "/stats/bloom-filter", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BloomFilterStatsDTO> bloomFilterStats() {
+        log.info("GET /api/amostras/stats/bloom-filter - Getting tracking code Bloom filter statistics");
+        return ResponseEntity.ok(amostraService.bloomFilterStats());
+    }
 }
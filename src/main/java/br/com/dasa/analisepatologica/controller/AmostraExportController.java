@@ -0,0 +1,162 @@
+package br.com.dasa.analisepatologica.controller;
+
+import br.com.dasa.analisepatologica.controller.openapi.AmostraExportControllerOpenApi;
+import br.com.dasa.analisepatologica.dto.AmostraFilterDTO;
+import br.com.dasa.analisepatologica.dto.AmostraResponseDTO;
+import br.com.dasa.analisepatologica.enums.FormatoExportacao;
+import br.com.dasa.analisepatologica.service.AmostraService;
+import br.com.dasa.analisepatologica.service.PacoteCasoService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * REST Controller for bulk Sample (Amostra) exports.
+ * Base path: /api/amostras/export
+ *
+ * Rows are written to the response as they are read from the database,
+ * so exports of any size never get buffered in memory. Case bundles are
+ * ZIP archives built on the response stream the same way.
+ */
+@RestController
+@RequestMapping("/api/amostras/export")
+@RequiredArgsConstructor
+@Slf4j
+public class AmostraExportController implements AmostraExportControllerOpenApi {
+
+    private static final String CSV_HEADER = "amostraId,codigoRastreio,pacienteId,pacienteNome,medicoId,medicoNome,"
+            + "tipoTecido,localizacaoAnatomica,dataColeta,dataRecebimento,statusProcessamento,observacoes,"
+            + "totalMedicoes,totalImagens,temLaudo,prontaParaAnalise,createdAt,updatedAt";
+
+    private final AmostraService amostraService;
+    private final PacoteCasoService pacoteCasoService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * GET /api/amostras/export - Streams all samples matching the filters as NDJSON or CSV.
+     *
+     * Accepts the same filter query parameters as GET /api/amostras, plus:
+     * - formato: NDJSON (default) or CSV
+     *
+     * @param filter Filter criteria as query parameters
+     * @param formato Output format
+     * @return Streamed export with HTTP 200
+     */
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> exportar(
+            AmostraFilterDTO filter,
+            @RequestParam(defaultValue = "NDJSON") FormatoExportacao formato) {
+        log.info("GET /api/amostras/export - Exporting amostras as {} with filters: {}", formato, filter);
+
+        // Unknown patient or doctor is a 404, as on GET /api/amostras, not an empty file
+        amostraService.validarFiltros(filter);
+
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            if (formato == FormatoExportacao.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+
+            Consumer<AmostraResponseDTO> linhaWriter = amostra -> {
+                try {
+                    writer.write(formato == FormatoExportacao.CSV ? toCsv(amostra) : objectMapper.writeValueAsString(amostra));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+
+            long total = amostraService.exportar(filter, linhaWriter);
+            writer.flush();
+            log.info("GET /api/amostras/export - {} amostras exported", total);
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(formato.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"amostras." + formato.getExtensao() + "\"")
+                .body(body);
+    }
+
+    /**
+     * GET /api/amostras/export/{codigo}/caso - Streams the case bundle of a sample as a ZIP archive.
+     *
+     * The archive holds laudo.json, medicao.json (active measurement), imagens.json and
+     * imagens/{imagemId}-{nomeArquivo} for every active image with a stored file.
+     *
+     * @param codigo Sample tracking code
+     * @return Streamed ZIP archive with HTTP 200
+     */
+    @GetMapping("/{codigo}/caso")
+    public ResponseEntity<StreamingResponseBody> exportarCaso(@PathVariable String codigo) {
+        log.info("GET /api/amostras/export/{}/caso - Exporting case bundle", codigo);
+
+        PacoteCasoService.PacoteCaso pacote = pacoteCasoService.preparar(codigo);
+        StreamingResponseBody body = outputStream -> {
+            int imagens = pacoteCasoService.escrever(pacote, outputStream);
+            log.info("GET /api/amostras/export/{}/caso - {} imagens exported", codigo, imagens);
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("caso-" + codigo + ".zip")
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    private String toCsv(AmostraResponseDTO amostra) {
+        return String.join(",",
+                csv(amostra.amostraId()),
+                csv(amostra.codigoRastreio()),
+                csv(amostra.paciente() != null ? amostra.paciente().pacienteId() : null),
+                csv(amostra.paciente() != null ? amostra.paciente().nomeCompleto() : null),
+                csv(amostra.medicoSolicitante() != null ? amostra.medicoSolicitante().medicoId() : null),
+                csv(amostra.medicoSolicitante() != null ? amostra.medicoSolicitante().nomeCompleto() : null),
+                csv(amostra.tipoTecido()),
+                csv(amostra.localizacaoAnatomica()),
+                csv(amostra.dataColeta()),
+                csv(amostra.dataRecebimento()),
+                csv(amostra.statusProcessamento()),
+                csv(amostra.observacoes()),
+                csv(amostra.totalMedicoes()),
+                csv(amostra.totalImagens()),
+                csv(amostra.temLaudo()),
+                csv(amostra.prontaParaAnalise()),
+                csv(amostra.createdAt()),
+                csv(amostra.updatedAt()));
+    }
+
+    /**
+     * Formats a single CSV field, quoting it when it contains separators, quotes or line breaks (RFC 4180).
+     */
+    private String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
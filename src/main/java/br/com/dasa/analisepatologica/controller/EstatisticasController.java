@@ -0,0 +1,36 @@
+package br.com.dasa.analisepatologica.controller;
+
+import br.com.dasa.analisepatologica.controller.openapi.EstatisticasControllerOpenApi;
+import br.com.dasa.analisepatologica.dto.EstatisticasResponseDTO;
+import br.com.dasa.analisepatologica.service.EstatisticasService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST Controller for dashboard statistics.
+ * Base path: /api/estatisticas
+ */
+@RestController
+@RequestMapping(value = "/api/estatisticas", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequiredArgsConstructor
+@Slf4j
+public class EstatisticasController implements EstatisticasControllerOpenApi {
+
+    private final EstatisticasService estatisticasService;
+
+    /**
+     * GET /api/estatisticas - Returns every dashboard breakdown in a single call.
+     *
+     * @return Statistics with HTTP 200
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<EstatisticasResponseDTO> obter() {
+        log.info("GET /api/estatisticas - Getting consolidated statistics");
+        return ResponseEntity.ok(estatisticasService.obter());
+    }
+}
@@ -1,18 +1,41 @@
 package br.com.dasa.analisepatologica.controller;
 
 import br.com.dasa.analisepatologica.controller.openapi.ImagemAmostraControllerOpenApi;
+import br.com.dasa.analisepatologica.dto.ArmazenamentoStatsDTO;
+import br.com.dasa.analisepatologica.dto.ImagemAmostraFilterDTO;
 import br.com.dasa.analisepatologica.dto.ImagemAmostraRequestDTO;
 import br.com.dasa.analisepatologica.dto.ImagemAmostraResponseDTO;
+import br.com.dasa.analisepatologica.dto.ImagemSemelhanteDTO;
+import br.com.dasa.analisepatologica.dto.ImagemUploadRequestDTO;
+import br.com.dasa.analisepatologica.dto.ImagemUploadResponseDTO;
+import br.com.dasa.analisepatologica.dto.IntegridadeArmazenamentoDTO;
+import br.com.dasa.analisepatologica.dto.PiramideImagemDTO;
+import br.com.dasa.analisepatologica.service.ConteudoImagemService;
 import br.com.dasa.analisepatologica.service.ImagemAmostraService;
+import br.com.dasa.analisepatologica.service.ImagemUploadService;
+import br.com.dasa.analisepatologica.service.PiramideImagemService;
+import br.com.dasa.analisepatologica.service.VerificacaoIntegridadeService;
+import br.com.dasa.analisepatologica.storage.EnvioArquivo;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * REST Controller for Sample Image (ImagemAmostra) operations.
@@ -24,24 +47,102 @@ import java.util.List;
 @Slf4j
 public class ImagemAmostraController implements ImagemAmostraControllerOpenApi {
 
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
     private final ImagemAmostraService imagemAmostraService;
+    private final ImagemUploadService imagemUploadService;
+    private final PiramideImagemService piramideImagemService;
+    private final ConteudoImagemService conteudoImagemService;
+    private final VerificacaoIntegridadeService verificacaoIntegridadeService;
+    private final EnvioArquivo envioArquivo;
 
     /**
      * POST /api/imagens/amostra/{codigo} - Creates a new image for a sample.
      *
      * @param codigo Sample tracking code
+     * @param verificarSemelhantes Whether to reject the image if another sample has a similar one
      * @param requestDTO Image data
      * @return Created image with HTTP 201
      */
     @PostMapping(value = "/amostra/{codigo}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<ImagemAmostraResponseDTO> create(
             @PathVariable String codigo,
+            @RequestParam(defaultValue = "false") boolean verificarSemelhantes,
             @Valid @RequestBody ImagemAmostraRequestDTO requestDTO) {
         log.info("POST /api/imagens/amostra/{} - Creating new imagem", codigo);
-        ImagemAmostraResponseDTO response = imagemAmostraService.create(codigo, requestDTO);
+        ImagemAmostraResponseDTO response = imagemAmostraService.create(codigo, requestDTO, verificarSemelhantes);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    /**
+     * POST /api/imagens/amostra/{codigo}/uploads - Starts a chunked upload of an image file.
+     *
+     * @param codigo Sample tracking code
+     * @param requestDTO Image metadata and total size
+     * @return Upload ID and progress with HTTP 201
+     */
+    @PostMapping(value = "/amostra/{codigo}/uploads", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImagemUploadResponseDTO> iniciarUpload(
+            @PathVariable String codigo,
+            @Valid @RequestBody ImagemUploadRequestDTO requestDTO) {
+        log.info("POST /api/imagens/amostra/{}/uploads - Starting upload", codigo);
+        ImagemUploadResponseDTO response = imagemUploadService.iniciar(codigo, requestDTO);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /**
+     * PUT /api/imagens/uploads/{uploadId} - Receives one part of an upload.
+     * The body is the raw bytes of the part, located by the Content-Range header
+     * ("bytes inicio-fim/total"); it is streamed to disk, never buffered whole.
+     *
+     * @param uploadId Upload ID
+     * @param contentRange Position of the part in the file
+     * @return Upload progress (with the created image after the last part) and HTTP 200
+     */
+    @PutMapping(value = "/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImagemUploadResponseDTO> receberParteUpload(
+            @PathVariable String uploadId,
+            @RequestHeader(value = HttpHeaders.CONTENT_RANGE, required = false) String contentRange,
+            HttpServletRequest request) throws IOException {
+        log.info("PUT /api/imagens/uploads/{} - Receiving part {}", uploadId, contentRange);
+
+        Matcher intervalo = contentRange != null ? CONTENT_RANGE.matcher(contentRange) : null;
+        if (intervalo == null || !intervalo.matches()) {
+            throw new IllegalArgumentException("Cabeçalho Content-Range obrigatório no formato 'bytes inicio-fim/total'");
+        }
+
+        try (InputStream conteudo = request.getInputStream()) {
+            return ResponseEntity.ok(imagemUploadService.receberParte(uploadId,
+                    Long.parseLong(intervalo.group(1)), Long.parseLong(intervalo.group(2)), Long.parseLong(intervalo.group(3)),
+                    conteudo));
+        }
+    }
+
+    /**
+     * GET /api/imagens/uploads/{uploadId} - Retrieves the progress of an upload, to resume it.
+     *
+     * @param uploadId Upload ID
+     * @return Upload progress with HTTP 200
+     */
+    @GetMapping(value = "/uploads/{uploadId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImagemUploadResponseDTO> statusUpload(@PathVariable String uploadId) {
+        log.info("GET /api/imagens/uploads/{} - Finding upload status", uploadId);
+        return ResponseEntity.ok(imagemUploadService.status(uploadId));
+    }
+
+    /**
+     * DELETE /api/imagens/uploads/{uploadId} - Cancels an upload and discards the bytes received.
+     *
+     * @param uploadId Upload ID
+     * @return HTTP 204 No Content
+     */
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<Void> cancelarUpload(@PathVariable String uploadId) {
+        log.info("DELETE /api/imagens/uploads/{} - Cancelling upload", uploadId);
+        imagemUploadService.cancelar(uploadId);
+        return ResponseEntity.noContent().build();
+    }
+
     /**
      * GET /api/imagens/{id} - Retrieves an image by ID.
      *
@@ -56,15 +157,127 @@ public class ImagemAmostraController implements ImagemAmostraControllerOpenApi {
     }
 
     /**
-     * GET /api/imagens/amostra/{codigo} - Retrieves all images for a sample.
+     * GET /api/imagens/{id}/conteudo - Downloads the stored image file.
+     * Supports Range requests (206 Partial Content) and revalidation with If-None-Match against
+     * the ETag, which is the SHA-256 of the content. The file is sent without passing through the heap.
+     *
+     * @param id Image ID
+     */
+    @GetMapping(value = "/{id}/conteudo", produces = MediaType.ALL_VALUE)
+    public void download(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.info("GET /api/imagens/{}/conteudo - Downloading imagem (Range: {})", id, request.getHeader(HttpHeaders.RANGE));
+        ImagemAmostraService.ArquivoImagem arquivo = imagemAmostraService.localizarArquivo(id);
+
+        response.setContentType(arquivo.tipoArquivo().getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                .filename(arquivo.nomeArquivo(), StandardCharsets.UTF_8)
+                .build()
+                .toString());
+        // The same ID may point to new content after an update, so caches must revalidate (cheap with the ETag)
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+
+        envioArquivo.enviar(arquivo.arquivo(), arquivo.tamanhoBytes(), "\"" + arquivo.sha256() + "\"", request, response);
+    }
+
+    /**
+     * GET /api/imagens/{id}/tiles - Retrieves the state and geometry of the tile pyramid of a TIFF image.
+     * Schedules the pyramid if it was never built.
+     *
+     * @param id Image ID
+     * @return Pyramid state, dimensions and zoom levels with HTTP 200
+     */
+    @GetMapping(value = "/{id}/tiles", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<PiramideImagemDTO> piramide(@PathVariable Long id) {
+        log.info("GET /api/imagens/{}/tiles - Finding tile pyramid", id);
+        return ResponseEntity.ok(piramideImagemService.piramide(id));
+    }
+
+    /**
+     * GET /api/imagens/{id}/semelhantes - Finds images whose perceptual hash is close to this image's.
+     *
+     * @param id Image ID
+     * @param distancia Maximum Hamming distance (optional, 0 to 15)
+     * @return Similar images, closest first, with HTTP 200
+     */
+    @GetMapping(value = "/{id}/semelhantes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ImagemSemelhanteDTO>> findSemelhantes(
+            @PathVariable Long id,
+            @RequestParam(required = false) Integer distancia) {
+        log.info("GET /api/imagens/{}/semelhantes - Finding similar imagens (distancia: {})", id, distancia);
+        return ResponseEntity.ok(imagemAmostraService.findSemelhantes(id, distancia));
+    }
+
+    /**
+     * GET /api/imagens/{id}/tiles/{z}/{x}/{y} - Retrieves a 256x256 JPEG tile of the pyramid of a TIFF image.
+     * Tiles are served from an in-memory LRU cache and revalidated with If-None-Match.
+     *
+     * @param id Image ID
+     * @param z Zoom level, from 0 (whole image in one tile) to the full resolution
+     * @param x Tile column
+     * @param y Tile row
+     * @return JPEG tile with HTTP 200, or 304 if unchanged
+     */
+    @GetMapping(value = "/{id}/tiles/{z}/{x}/{y}", produces = MediaType.ALL_VALUE)
+    public ResponseEntity<byte[]> tile(@PathVariable Long id, @PathVariable int z, @PathVariable int x, @PathVariable int y,
+                                       WebRequest request) throws IOException {
+        log.debug("GET /api/imagens/{}/tiles/{}/{}/{} - Finding tile", id, z, x, y);
+        PiramideImagemService.Tile tile = piramideImagemService.tile(id, z, x, y);
+
+        String etag = "\"" + tile.sha256() + "-" + z + "-" + x + "-" + y + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .eTag(etag)
+                // The same ID may point to new content after an update, so caches must revalidate (cheap with the ETag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(tile.conteudo());
+    }
+
+    /**
+     * GET /api/imagens/armazenamento/stats - Returns the usage of the image store and the space saved by deduplication.
+     *
+     * @return Stored versus referenced bytes with HTTP 200
+     */
+    @GetMapping(value = "/armazenamento/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ArmazenamentoStatsDTO> armazenamentoStats() {
+        log.info("GET /api/imagens/armazenamento/stats - Getting image store statistics");
+        return ResponseEntity.ok(conteudoImagemService.stats());
+    }
+
+    /**
+     * GET /api/imagens/armazenamento/integridade - Returns the progress of the integrity scrub of the stored files.
+     *
+     * @return Current cycle, checkpoint and outcome counts with HTTP 200
+     */
+    @GetMapping(value = "/armazenamento/integridade", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<IntegridadeArmazenamentoDTO> integridadeArmazenamento() {
+        log.info("GET /api/imagens/armazenamento/integridade - Getting integrity scrub progress");
+        return ResponseEntity.ok(verificacaoIntegridadeService.progresso());
+    }
+
+    /**
+     * GET /api/imagens/amostra/{codigo} - Retrieves the images of a sample, optionally filtered.
+     *
+     * Query parameters (all optional):
+     * - ativa: Filter by active status (true/false)
+     * - altaResolucao: Filter images of at least 1920x1080 (true/false)
+     * - qualidadeValida: Filter images that pass the quality check (true/false)
+     * - larguraMinima: Minimum width in pixels
+     * - alturaMinima: Minimum height in pixels
+     * - analiseQualidade: Outcome of the focus/stain/tissue analysis (e.g. REPROVADA)
      *
      * @param codigo Sample tracking code
+     * @param filter Filter criteria as query parameters
      * @return List of images with HTTP 200
      */
     @GetMapping(value = "/amostra/{codigo}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<ImagemAmostraResponseDTO>> findByAmostra(@PathVariable String codigo) {
-        log.info("GET /api/imagens/amostra/{} - Finding imagens for amostra", codigo);
-        List<ImagemAmostraResponseDTO> response = imagemAmostraService.findByAmostra(codigo);
+    public ResponseEntity<List<ImagemAmostraResponseDTO>> findByAmostra(
+            @PathVariable String codigo,
+            @Valid ImagemAmostraFilterDTO filter) {
+        log.info("GET /api/imagens/amostra/{} - Finding imagens for amostra with filters: {}", codigo, filter);
+        List<ImagemAmostraResponseDTO> response = imagemAmostraService.findByAmostra(codigo, filter);
         return ResponseEntity.ok(response);
     }
 
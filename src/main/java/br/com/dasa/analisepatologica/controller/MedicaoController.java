@@ -1,8 +1,11 @@
 package br.com.dasa.analisepatologica.controller;
 
 import br.com.dasa.analisepatologica.controller.openapi.MedicaoControllerOpenApi;
+import br.com.dasa.analisepatologica.dto.EstatisticasVolumeResponseDTO;
+import br.com.dasa.analisepatologica.dto.MedicaoImportacaoResponseDTO;
 import br.com.dasa.analisepatologica.dto.MedicaoRequestDTO;
 import br.com.dasa.analisepatologica.dto.MedicaoResponseDTO;
+import br.com.dasa.analisepatologica.service.MedicaoImportacaoService;
 import br.com.dasa.analisepatologica.service.MedicaoService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -11,7 +14,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -25,6 +31,7 @@ import java.util.List;
 public class MedicaoController implements MedicaoControllerOpenApi {
 
     private final MedicaoService medicaoService;
+    private final MedicaoImportacaoService medicaoImportacaoService;
 
     /**
      * POST /api/medicoes/amostra/{codigo} - Creates a new measurement for a sample.
@@ -42,6 +49,26 @@ public class MedicaoController implements MedicaoControllerOpenApi {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /**
+     * POST /api/medicoes/importacao - Imports measurements from a CSV file exported by instruments.
+     * The file is processed as a stream; invalid lines are reported without preventing the import of the others.
+     *
+     * @param arquivo CSV file (multipart field "arquivo")
+     * @return Import summary with rejected lines and HTTP 200
+     */
+    @PostMapping(value = "/importacao", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<MedicaoImportacaoResponseDTO> importar(@RequestParam("arquivo") MultipartFile arquivo) throws IOException {
+        log.info("POST /api/medicoes/importacao - Importing medicoes from {} ({} bytes)", arquivo.getOriginalFilename(), arquivo.getSize());
+
+        if (arquivo.isEmpty()) {
+            throw new IllegalArgumentException("Arquivo CSV vazio");
+        }
+
+        try (InputStream csv = arquivo.getInputStream()) {
+            return ResponseEntity.ok(medicaoImportacaoService.importar(csv));
+        }
+    }
+
     /**
      * GET /api/medicoes/amostra/{codigo} - Retrieves all measurements for a sample.
      *
@@ -83,4 +110,16 @@ public class MedicaoController implements MedicaoControllerOpenApi {
         MedicaoResponseDTO response = medicaoService.ativarVersao(codigo, versao);
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * GET /api/medicoes/estatisticas/volume - Returns the volume distribution of active measurements
+     * (min/max/mean/p50/p95) by tissue type and by measurement method.
+     *
+     * @return Volume distribution with HTTP 200
+     */
+    @GetMapping(value = "/estatisticas/volume", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<EstatisticasVolumeResponseDTO> estatisticasVolume() {
+        log.info("GET /api/medicoes/estatisticas/volume - Getting volume distribution");
+        return ResponseEntity.ok(medicaoService.estatisticasVolume());
+    }
 }
@@ -1,8 +1,13 @@
 package br.com.dasa.analisepatologica.controller.openapi;
 
+import br.com.dasa.analisepatologica.dto.AmostraBatchResponseDTO;
 import br.com.dasa.analisepatologica.dto.AmostraFilterDTO;
+import br.com.dasa.analisepatologica.dto.AmostraPageResponseDTO;
 import br.com.dasa.analisepatologica.dto.AmostraRequestDTO;
 import br.com.dasa.analisepatologica.dto.AmostraResponseDTO;
+import br.com.dasa.analisepatologica.dto.BloomFilterStatsDTO;
+import br.com.dasa.analisepatologica.dto.CacheStatsDTO;
+import br.com.dasa.analisepatologica.dto.TipoTecidoSugestaoDTO;
 import br.com.dasa.analisepatologica.enums.StatusProcessamento;
 import br.com.dasa.analisepatologica.exception.ErrorResponse;
 import io.swagger.v3.oas.annotations.Operation;
@@ -56,6 +61,33 @@ public interface AmostraControllerOpenApi {
             @Valid AmostraRequestDTO requestDTO
     );
 
+    @Operation(
+            summary = "Criar amostras em lote",
+            description = "Cria até 1000 amostras em uma única requisição. Cada item é validado individualmente "
+                    + "e o resultado informa, na mesma ordem, quais amostras foram criadas e quais foram rejeitadas"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Lote processado (verifique o resultado de cada item)",
+                    content = @Content(schema = @Schema(implementation = AmostraBatchResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Lote vazio ou acima do tamanho máximo",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<AmostraBatchResponseDTO> createBatch(
+            @RequestBody(description = "Lista de amostras a serem criadas")
+            List<AmostraRequestDTO> requestDTOs
+    );
+
     @Operation(
             summary = "Buscar amostra por código de rastreio",
             description = "Retorna os detalhes de uma amostra específica pelo código de rastreio"
@@ -83,18 +115,19 @@ public interface AmostraControllerOpenApi {
     );
 
     @Operation(
-            summary = "Listar amostras com filtros",
-            description = "Retorna uma lista de amostras aplicando filtros opcionais (pacienteId, medicoId, status, tipoTecido, dataColeta, etc)"
+            summary = "Listar amostras com filtros (paginação por cursor)",
+            description = "Retorna uma página de amostras aplicando filtros opcionais (pacienteId, medicoId, status, tipoTecido, dataColeta, etc). "
+                    + "Use o nextCursor da resposta para buscar a próxima página"
     )
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "200",
-                    description = "Lista de amostras retornada com sucesso",
-                    content = @Content(schema = @Schema(implementation = AmostraResponseDTO.class))
+                    description = "Página de amostras retornada com sucesso",
+                    content = @Content(schema = @Schema(implementation = AmostraPageResponseDTO.class))
             ),
             @ApiResponse(
                     responseCode = "400",
-                    description = "Parâmetros de filtro inválidos",
+                    description = "Parâmetros de filtro, cursor ou tamanho de página inválidos",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class))
             ),
             @ApiResponse(
@@ -103,9 +136,42 @@ public interface AmostraControllerOpenApi {
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class))
             )
     })
-    ResponseEntity<List<AmostraResponseDTO>> findAll(
+    ResponseEntity<AmostraPageResponseDTO> findAll(
             @Parameter(description = "Critérios de filtro para busca de amostras")
-            AmostraFilterDTO filter
+            AmostraFilterDTO filter,
+            @Parameter(description = "Cursor opaco retornado em nextCursor pela página anterior (opcional)")
+            String cursor,
+            @Parameter(description = "Quantidade de amostras por página (1 a 500)", example = "50")
+            int size
+    );
+
+    @Operation(
+            summary = "Autocompletar tipo de tecido",
+            description = "Sugere tipos de tecido distintos que contêm o termo informado, sem diferenciar maiúsculas "
+                    + "e acentos. Sugestões que começam com o termo vêm primeiro, seguidas das mais utilizadas"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Sugestões retornadas com sucesso",
+                    content = @Content(schema = @Schema(implementation = TipoTecidoSugestaoDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Limite inválido",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<List<TipoTecidoSugestaoDTO>> autocompletarTipoTecido(
+            @Parameter(description = "Texto contido no tipo de tecido (opcional)", example = "mama")
+            String termo,
+            @Parameter(description = "Quantidade máxima de sugestões (1 a 50)", example = "10")
+            int limite
     );
 
     @Operation(
@@ -240,4 +306,40 @@ public interface AmostraControllerOpenApi {
             @Parameter(description = "ID do médico para filtro (opcional)")
             Long medicoId
     );
+
+    @Operation(
+            summary = "Estatísticas do cache de códigos de rastreio",
+            description = "Retorna tamanho, capacidade e contadores de acertos/falhas do cache que resolve códigos de rastreio para a chave da amostra"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Estatísticas retornadas com sucesso",
+                    content = @Content(schema = @Schema(implementation = CacheStatsDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<CacheStatsDTO> cacheStats();
+
+    @Operation(
+            summary = "Estatísticas do filtro de Bloom de códigos de rastreio",
+            description = "Retorna dimensionamento, memória ocupada e taxa de falso positivo estimada do filtro usado na validação de unicidade"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Estatísticas retornadas com sucesso",
+                    content = @Content(schema = @Schema(implementation = BloomFilterStatsDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<BloomFilterStatsDTO> bloomFilterStats();
 }
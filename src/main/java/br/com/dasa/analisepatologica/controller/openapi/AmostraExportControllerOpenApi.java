@@ -0,0 +1,85 @@
+package br.com.dasa.analisepatologica.controller.openapi;
+
+import br.com.dasa.analisepatologica.dto.AmostraFilterDTO;
+import br.com.dasa.analisepatologica.enums.FormatoExportacao;
+import br.com.dasa.analisepatologica.exception.ErrorResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * OpenAPI specification for Sample (Amostra) export operations.
+ */
+@Tag(name = "Exportação de Amostras", description = "API para exportação em lote de amostras patológicas")
+public interface AmostraExportControllerOpenApi {
+
+    @Operation(
+            summary = "Exportar amostras",
+            description = "Exporta, em streaming, todas as amostras que atendem aos filtros opcionais, "
+                    + "uma amostra por linha em NDJSON ou CSV"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Exportação iniciada com sucesso",
+                    content = {
+                            @Content(mediaType = "application/x-ndjson"),
+                            @Content(mediaType = "text/csv")
+                    }
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Parâmetros de filtro ou formato inválidos",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Paciente ou médico do filtro não encontrado",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<StreamingResponseBody> exportar(
+            @Parameter(description = "Critérios de filtro para exportação de amostras")
+            AmostraFilterDTO filter,
+            @Parameter(description = "Formato de saída (NDJSON ou CSV)", example = "NDJSON")
+            FormatoExportacao formato
+    );
+
+    @Operation(
+            summary = "Exportar caso da amostra",
+            description = "Gera, em streaming, um arquivo ZIP com o laudo, a medição ativa e os arquivos das imagens ativas "
+                    + "da amostra. Imagens já comprimidas são armazenadas sem recompressão"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Exportação iniciada com sucesso",
+                    content = @Content(mediaType = "application/zip")
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Amostra não encontrada",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<StreamingResponseBody> exportarCaso(
+            @Parameter(description = "Código de rastreio da amostra", required = true)
+            String codigo
+    );
+}
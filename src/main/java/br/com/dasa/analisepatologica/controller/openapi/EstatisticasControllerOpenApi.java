@@ -0,0 +1,38 @@
+package br.com.dasa.analisepatologica.controller.openapi;
+
+import br.com.dasa.analisepatologica.dto.EstatisticasResponseDTO;
+import br.com.dasa.analisepatologica.exception.ErrorResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * OpenAPI specification for dashboard statistics operations.
+ */
+@Tag(name = "Estatísticas", description = "API de estatísticas consolidadas para o painel do laboratório")
+public interface EstatisticasControllerOpenApi {
+
+    @Operation(
+            summary = "Obter estatísticas consolidadas",
+            description = "Retorna, em uma única chamada, as quantidades de amostras por status e por médico, "
+                    + "laudos por status, médicos por tipo e pacientes por sexo. Os valores vêm de contadores "
+                    + "em memória reconciliados periodicamente com o banco de dados"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Estatísticas retornadas com sucesso",
+                    content = @Content(schema = @Schema(implementation = EstatisticasResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<EstatisticasResponseDTO> obter();
+}
@@ -1,7 +1,14 @@
 package br.com.dasa.analisepatologica.controller.openapi;
 
+import br.com.dasa.analisepatologica.dto.ArmazenamentoStatsDTO;
+import br.com.dasa.analisepatologica.dto.ImagemAmostraFilterDTO;
 import br.com.dasa.analisepatologica.dto.ImagemAmostraRequestDTO;
 import br.com.dasa.analisepatologica.dto.ImagemAmostraResponseDTO;
+import br.com.dasa.analisepatologica.dto.ImagemSemelhanteDTO;
+import br.com.dasa.analisepatologica.dto.ImagemUploadRequestDTO;
+import br.com.dasa.analisepatologica.dto.ImagemUploadResponseDTO;
+import br.com.dasa.analisepatologica.dto.IntegridadeArmazenamentoDTO;
+import br.com.dasa.analisepatologica.dto.PiramideImagemDTO;
 import br.com.dasa.analisepatologica.exception.ErrorResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,9 +18,13 @@ import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -24,7 +35,9 @@ public interface ImagemAmostraControllerOpenApi {
 
     @Operation(
             summary = "Criar nova imagem para amostra",
-            description = "Adiciona uma nova imagem a uma amostra existente"
+            description = "Adiciona uma nova imagem a uma amostra existente. Com verificarSemelhantes = true, o arquivo "
+                    + "armazenado é decodificado e a imagem é recusada se outra amostra tiver uma imagem com hash "
+                    + "perceptual próximo (possível redigitalização da mesma lâmina anexada à amostra errada)"
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -42,9 +55,14 @@ public interface ImagemAmostraControllerOpenApi {
                     description = "Amostra não encontrada",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class))
             ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Verificação de imagens semelhantes solicitada com o índice ainda em carga",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
             @ApiResponse(
                     responseCode = "422",
-                    description = "Erro de negócio",
+                    description = "Erro de negócio ou imagem semelhante encontrada em outra amostra",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class))
             ),
             @ApiResponse(
@@ -56,10 +74,151 @@ public interface ImagemAmostraControllerOpenApi {
     ResponseEntity<ImagemAmostraResponseDTO> create(
             @Parameter(description = "Código de rastreio da amostra", required = true)
             String codigo,
+            @Parameter(description = "Recusa a imagem se outra amostra tiver uma imagem semelhante (exige o arquivo no armazenamento)")
+            boolean verificarSemelhantes,
             @RequestBody(description = "Dados da imagem a ser criada")
             @Valid ImagemAmostraRequestDTO requestDTO
     );
 
+    @Operation(
+            summary = "Iniciar upload de arquivo de imagem",
+            description = "Registra os metadados e o tamanho total de um arquivo de imagem e retorna o identificador do "
+                    + "upload. Os bytes são enviados em seguida, em uma ou mais partes, por PUT /api/imagens/uploads/{uploadId}. "
+                    + "Se o sha256 informado corresponder a um arquivo já armazenado com o mesmo tamanho, a resposta indica um "
+                    + "trecho sorteado (provaInicio-provaFim): enviar só esses bytes prova a posse do arquivo e cria a imagem "
+                    + "referenciando o arquivo existente"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Upload iniciado",
+                    content = @Content(schema = @Schema(implementation = ImagemUploadResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Dados inválidos (erro de validação)",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Amostra não encontrada",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "Arquivo maior que o tamanho máximo permitido",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<ImagemUploadResponseDTO> iniciarUpload(
+            @Parameter(description = "Código de rastreio da amostra", required = true)
+            String codigo,
+            @RequestBody(description = "Metadados e tamanho total do arquivo")
+            @Valid ImagemUploadRequestDTO requestDTO
+    );
+
+    @Operation(
+            summary = "Enviar parte do arquivo de imagem",
+            description = "Recebe os bytes de uma parte do arquivo (corpo application/octet-stream), localizada pelo "
+                    + "cabeçalho Content-Range no formato 'bytes inicio-fim/total'. Cada parte deve começar em bytesRecebidos; "
+                    + "após uma interrupção, consulte o upload e continue desse byte. Ao receber o último byte, o arquivo é "
+                    + "armazenado pelo seu hash SHA-256 e a imagem é criada. Se a parte for o trecho de prova do upload, seus "
+                    + "bytes são comparados com o arquivo já armazenado e a imagem é criada sem o restante do envio"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Parte recebida; quando concluído, inclui a imagem criada",
+                    content = @Content(schema = @Schema(implementation = ImagemUploadResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Content-Range ausente, inválido ou incompatível com o tamanho declarado",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Upload não encontrado",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "A parte não começa em bytesRecebidos, ou outra parte está sendo recebida",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "Os bytes do trecho de prova não conferem com o arquivo armazenado",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<ImagemUploadResponseDTO> receberParteUpload(
+            @Parameter(description = "Identificador do upload", required = true)
+            String uploadId,
+            @Parameter(description = "Posição da parte no arquivo", example = "bytes 0-8388607/734003200", required = true)
+            String contentRange,
+            @Parameter(hidden = true)
+            HttpServletRequest request
+    ) throws IOException;
+
+    @Operation(
+            summary = "Consultar upload de imagem",
+            description = "Retorna quantos bytes do arquivo já foram recebidos, para retomar um upload interrompido"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Upload encontrado",
+                    content = @Content(schema = @Schema(implementation = ImagemUploadResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Upload não encontrado ou já concluído",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<ImagemUploadResponseDTO> statusUpload(
+            @Parameter(description = "Identificador do upload", required = true)
+            String uploadId
+    );
+
+    @Operation(
+            summary = "Cancelar upload de imagem",
+            description = "Cancela um upload em andamento e descarta os bytes recebidos"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Upload cancelado"),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Upload não encontrado",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<Void> cancelarUpload(
+            @Parameter(description = "Identificador do upload", required = true)
+            String uploadId
+    );
+
     @Operation(
             summary = "Buscar imagem por ID",
             description = "Retorna os detalhes de uma imagem específica"
@@ -86,9 +245,200 @@ public interface ImagemAmostraControllerOpenApi {
             Long id
     );
 
+    @Operation(
+            summary = "Baixar arquivo da imagem",
+            description = "Retorna o arquivo armazenado da imagem. Aceita o cabeçalho Range ('bytes=inicio-fim') para "
+                    + "baixar apenas parte do arquivo (206 Partial Content). O ETag é o hash SHA-256 do conteúdo: envie-o "
+                    + "em If-None-Match para revalidar uma cópia em cache (304 Not Modified) ou em If-Range para continuar "
+                    + "um download interrompido"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Arquivo completo"),
+            @ApiResponse(responseCode = "206", description = "Parte do arquivo indicada em Content-Range"),
+            @ApiResponse(responseCode = "304", description = "Conteúdo não mudou desde o ETag informado"),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Imagem não encontrada ou sem arquivo no armazenamento",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(responseCode = "416", description = "Intervalo fora do tamanho do arquivo"),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    void download(
+            @Parameter(description = "ID da imagem", required = true)
+            Long id,
+            @Parameter(hidden = true)
+            HttpServletRequest request,
+            @Parameter(hidden = true)
+            HttpServletResponse response
+    ) throws IOException;
+
+    @Operation(
+            summary = "Consultar pirâmide de tiles da imagem",
+            description = "Retorna a situação da pirâmide de tiles de uma imagem TIFF e, quando concluída, suas dimensões "
+                    + "e níveis de zoom. A pirâmide é gerada em segundo plano ao registrar a imagem; se ainda não "
+                    + "existir, a geração é agendada"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Situação da pirâmide retornada com sucesso",
+                    content = @Content(schema = @Schema(implementation = PiramideImagemDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Imagem não encontrada ou sem arquivo no armazenamento",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "Imagem não é TIFF",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<PiramideImagemDTO> piramide(
+            @Parameter(description = "ID da imagem", required = true)
+            Long id
+    );
+
+    @Operation(
+            summary = "Buscar imagens semelhantes",
+            description = "Retorna as imagens, de qualquer amostra, cujo hash perceptual está a até a distância de Hamming "
+                    + "informada do hash da imagem, da mais próxima para a mais distante (no máximo 100). Encontra "
+                    + "redigitalizações e reexportações da mesma lâmina, mesmo com outra compressão ou resolução. "
+                    + "O hash é calculado na análise de qualidade da imagem"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Imagens semelhantes retornadas com sucesso",
+                    content = @Content(schema = @Schema(implementation = ImagemSemelhanteDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Distância fora do intervalo de 0 a 15",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Imagem não encontrada",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Imagem ainda sem hash perceptual ou índice ainda em carga",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<List<ImagemSemelhanteDTO>> findSemelhantes(
+            @Parameter(description = "ID da imagem", required = true)
+            Long id,
+            @Parameter(description = "Distância de Hamming máxima, de 0 a 15 (padrão: analisepatologica.hash-perceptual.distancia-padrao)")
+            Integer distancia
+    );
+
+    @Operation(
+            summary = "Obter tile da imagem",
+            description = "Retorna um tile JPEG de 256x256 pixels (menor nas bordas) da pirâmide de uma imagem TIFF. "
+                    + "O nível 0 mostra a imagem inteira em um tile e cada nível seguinte dobra a resolução até o "
+                    + "nível máximo, informado em GET /api/imagens/{id}/tiles. Envie o ETag em If-None-Match para "
+                    + "revalidar um tile em cache (304 Not Modified)"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tile JPEG"),
+            @ApiResponse(responseCode = "304", description = "Tile não mudou desde o ETag informado"),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Imagem não encontrada, sem arquivo no armazenamento ou tile fora da imagem",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Pirâmide ainda em geração; tente novamente em instantes",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "Imagem não é TIFF ou a geração da pirâmide falhou",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<byte[]> tile(
+            @Parameter(description = "ID da imagem", required = true)
+            Long id,
+            @Parameter(description = "Nível de zoom", required = true, example = "0")
+            int z,
+            @Parameter(description = "Coluna do tile", required = true, example = "0")
+            int x,
+            @Parameter(description = "Linha do tile", required = true, example = "0")
+            int y,
+            @Parameter(hidden = true)
+            WebRequest request
+    ) throws IOException;
+
+    @Operation(
+            summary = "Estatísticas do armazenamento de imagens",
+            description = "Retorna os arquivos distintos armazenados, as imagens que os referenciam e o espaço "
+                    + "economizado por armazenar uma única cópia de arquivos idênticos"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Estatísticas retornadas com sucesso",
+                    content = @Content(schema = @Schema(implementation = ArmazenamentoStatsDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<ArmazenamentoStatsDTO> armazenamentoStats();
+
+    @Operation(
+            summary = "Progresso da varredura de integridade do armazenamento",
+            description = "Retorna o ciclo atual da varredura em segundo plano que relê cada arquivo armazenado, em "
+                    + "ordem de hash e com taxa de leitura limitada, conferindo tamanho e SHA-256 com o registrado: "
+                    + "ponto de retomada, bytes verificados, falhas do ciclo e a contagem de conteúdos por resultado "
+                    + "(INTEGRO, AUSENTE, TAMANHO_DIVERGENTE, CORROMPIDO, FALHA_LEITURA, PENDENTE)"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Progresso retornado com sucesso",
+                    content = @Content(schema = @Schema(implementation = IntegridadeArmazenamentoDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<IntegridadeArmazenamentoDTO> integridadeArmazenamento();
+
     @Operation(
             summary = "Listar imagens de uma amostra",
-            description = "Retorna todas as imagens associadas a uma amostra específica"
+            description = "Retorna as imagens associadas a uma amostra específica. Os filtros opcionais "
+                    + "(ativa, alta resolução, qualidade válida, dimensões mínimas, situação da análise de qualidade) são aplicados no banco de dados"
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -96,6 +446,11 @@ public interface ImagemAmostraControllerOpenApi {
                     description = "Lista de imagens retornada com sucesso",
                     content = @Content(schema = @Schema(implementation = ImagemAmostraResponseDTO.class))
             ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Filtros inválidos",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
             @ApiResponse(
                     responseCode = "404",
                     description = "Amostra não encontrada",
@@ -109,7 +464,9 @@ public interface ImagemAmostraControllerOpenApi {
     })
     ResponseEntity<List<ImagemAmostraResponseDTO>> findByAmostra(
             @Parameter(description = "Código de rastreio da amostra", required = true)
-            String codigo
+            String codigo,
+            @Parameter(description = "Critérios de filtro para busca de imagens")
+            @Valid ImagemAmostraFilterDTO filter
     );
 
     @Operation(
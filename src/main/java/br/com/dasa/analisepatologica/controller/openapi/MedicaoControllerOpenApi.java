@@ -1,5 +1,7 @@
 package br.com.dasa.analisepatologica.controller.openapi;
 
+import br.com.dasa.analisepatologica.dto.EstatisticasVolumeResponseDTO;
+import br.com.dasa.analisepatologica.dto.MedicaoImportacaoResponseDTO;
 import br.com.dasa.analisepatologica.dto.MedicaoRequestDTO;
 import br.com.dasa.analisepatologica.dto.MedicaoResponseDTO;
 import br.com.dasa.analisepatologica.exception.ErrorResponse;
@@ -13,7 +15,9 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -112,6 +116,41 @@ public interface MedicaoControllerOpenApi {
             String codigo
     );
 
+    @Operation(
+            summary = "Importar medições de arquivo CSV",
+            description = "Importa medições exportadas pelos equipamentos das estações de macroscopia. O cabeçalho "
+                    + "deve nomear as colunas codigoRastreio, larguraMm, alturaMm, metodoMedicao e responsavelMedicao "
+                    + "(obrigatórias) e, opcionalmente, profundidadeMm, equipamentoUtilizado e observacoes. O separador "
+                    + "é ';' (com vírgula decimal) ou ','. Várias linhas da mesma amostra viram versões consecutivas e "
+                    + "a última fica ativa. Linhas inválidas são rejeitadas individualmente"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Arquivo processado; consulte as linhas rejeitadas na resposta",
+                    content = @Content(schema = @Schema(implementation = MedicaoImportacaoResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Arquivo vazio ou cabeçalho inválido",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "413",
+                    description = "Arquivo maior que o limite de upload",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<MedicaoImportacaoResponseDTO> importar(
+            @Parameter(description = "Arquivo CSV com as medições", required = true)
+            MultipartFile arquivo
+    ) throws IOException;
+
     @Operation(
             summary = "Ativar versão de medição",
             description = "Ativa uma versão específica de medição, tornando-a a versão corrente"
@@ -144,4 +183,24 @@ public interface MedicaoControllerOpenApi {
             @Parameter(description = "Número da versão a ser ativada", required = true)
             Integer versao
     );
+
+    @Operation(
+            summary = "Obter distribuição de volume das medições",
+            description = "Retorna mínimo, máximo, média, mediana (p50) e percentil 95 do volume das medições ativas, "
+                    + "agrupados por tipo de tecido da amostra e por método de medição. A agregação é feita no banco "
+                    + "de dados sobre o volume gravado em cada medição"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Distribuição retornada com sucesso",
+                    content = @Content(schema = @Schema(implementation = EstatisticasVolumeResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Erro interno do servidor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))
+            )
+    })
+    ResponseEntity<EstatisticasVolumeResponseDTO> estatisticasVolume();
 }
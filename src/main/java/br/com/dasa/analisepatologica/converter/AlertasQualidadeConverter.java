@@ -0,0 +1,47 @@
+package br.com.dasa.analisepatologica.converter;
+
+import br.com.dasa.analisepatologica.enums.AlertaQualidade;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * JPA Converter for the quality alerts of an image.
+ * Converts between database format (comma-separated names, null when empty) and a set of AlertaQualidade.
+ */
+@Converter
+public class AlertasQualidadeConverter implements AttributeConverter<Set<AlertaQualidade>, String> {
+
+    @Override
+    public String convertToDatabaseColumn(Set<AlertaQualidade> attribute) {
+        if (attribute == null || attribute.isEmpty()) {
+            return null;
+        }
+        // EnumSet iterates in declaration order, so the same alerts always give the same text
+        return EnumSet.copyOf(attribute).stream()
+                .map(Enum::name)
+                .collect(Collectors.joining(","));
+    }
+
+    @Override
+    public Set<AlertaQualidade> convertToEntityAttribute(String dbData) {
+        Set<AlertaQualidade> alertas = EnumSet.noneOf(AlertaQualidade.class);
+        if (dbData == null || dbData.trim().isEmpty()) {
+            return alertas;
+        }
+
+        try {
+            Arrays.stream(dbData.split(","))
+                    .map(String::trim)
+                    .map(AlertaQualidade::valueOf)
+                    .forEach(alertas::add);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid AlertaQualidade value in database: " + dbData, e);
+        }
+        return alertas;
+    }
+}
@@ -0,0 +1,32 @@
+package br.com.dasa.analisepatologica.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO with the outcome of a single item of a bulk sample intake, using Java record.
+ */
+@Schema(description = "Resultado do processamento de um item do lote de amostras")
+public record AmostraBatchItemResultDTO(
+    @Schema(description = "Posição do item na requisição (iniciando em 0)", example = "0")
+    int indice,
+
+    @Schema(description = "Código de rastreio informado no item", example = "AMST-2024-001234")
+    String codigoRastreio,
+
+    @Schema(description = "Indica se a amostra foi criada", example = "true")
+    boolean sucesso,
+
+    @Schema(description = "Identificador da amostra criada (nulo em caso de erro)", example = "1")
+    Long amostraId,
+
+    @Schema(description = "Motivo da rejeição do item (nulo em caso de sucesso)", example = "Código de rastreio já cadastrado")
+    String erro
+) {
+    public static AmostraBatchItemResultDTO sucesso(int indice, String codigoRastreio, Long amostraId) {
+        return new AmostraBatchItemResultDTO(indice, codigoRastreio, true, amostraId, null);
+    }
+
+    public static AmostraBatchItemResultDTO erro(int indice, String codigoRastreio, String erro) {
+        return new AmostraBatchItemResultDTO(indice, codigoRastreio, false, null, erro);
+    }
+}
@@ -0,0 +1,24 @@
+package br.com.dasa.analisepatologica.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * DTO for the bulk sample intake response using Java record.
+ */
+@Schema(description = "Resultado do cadastro de amostras em lote")
+public record AmostraBatchResponseDTO(
+    @Schema(description = "Quantidade de itens recebidos", example = "200")
+    int total,
+
+    @Schema(description = "Quantidade de amostras criadas", example = "198")
+    int criadas,
+
+    @Schema(description = "Quantidade de itens rejeitados", example = "2")
+    int rejeitadas,
+
+    @Schema(description = "Resultado de cada item, na mesma ordem da requisição")
+    List<AmostraBatchItemResultDTO> itens
+) {
+}
@@ -0,0 +1,55 @@
+package br.com.dasa.analisepatologica.dto;
+
+import br.com.dasa.analisepatologica.entity.Amostra;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position used to page through samples ordered by (createdAt, amostraId).
+ * Clients only see the opaque Base64 token produced by {@link #encode()}.
+ */
+public record AmostraCursor(
+    LocalDateTime createdAt,
+    Long amostraId
+) {
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Builds the cursor pointing right after the given sample.
+     */
+    public static AmostraCursor of(Amostra amostra) {
+        return new AmostraCursor(amostra.getCreatedAt(), amostra.getAmostraId());
+    }
+
+    /**
+     * Encodes this cursor as an opaque, URL-safe token.
+     */
+    public String encode() {
+        String raw = createdAt + SEPARATOR + amostraId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static AmostraCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIndex = raw.lastIndexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new IllegalArgumentException("Cursor inválido: " + token);
+            }
+            return new AmostraCursor(
+                LocalDateTime.parse(raw.substring(0, separatorIndex)),
+                Long.valueOf(raw.substring(separatorIndex + 1))
+            );
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package br.com.dasa.analisepatologica.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * DTO for a keyset-paginated page of samples using Java record.
+ */
+@Schema(description = "Página de amostras paginada por cursor")
+public record AmostraPageResponseDTO(
+    @Schema(description = "Amostras desta página, ordenadas por data de criação")
+    List<AmostraResponseDTO> content,
+
+    @Schema(description = "Quantidade máxima de itens solicitada por página", example = "50")
+    int size,
+
+    @Schema(description = "Indica se existem mais amostras após esta página", example = "true")
+    boolean hasNext,
+
+    @Schema(description = "Cursor opaco para buscar a próxima página (nulo na última página)",
+            example = "MjAyMy0xMC0xNVQxMDozMDowMHwxMjM")
+    String nextCursor
+) {
+}
@@ -45,7 +45,7 @@ public record AmostraResponseDTO(
     @Schema(description = "Total de medições registradas para esta amostra", example = "3")
     int totalMedicoes,
 
-    @Schema(description = "Total de imagens associadas a esta amostra", example = "5")
+    @Schema(description = "Total de imagens ativas associadas a esta amostra", example = "5")
     int totalImagens,
 
     @Schema(description = "Indica se a amostra possui laudo médico", example = "true")
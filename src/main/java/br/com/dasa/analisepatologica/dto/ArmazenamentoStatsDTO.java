@@ -0,0 +1,28 @@
+package br.com.dasa.analisepatologica.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO with the usage of the image content store and the space saved by deduplication using Java record.
+ */
+@Schema(description = "Uso do armazenamento de imagens e espaço economizado pela deduplicação")
+public record ArmazenamentoStatsDTO(
+    @Schema(description = "Arquivos distintos armazenados", example = "1200")
+    long objetos,
+
+    @Schema(description = "Imagens que apontam para esses arquivos", example = "1450")
+    long referencias,
+
+    @Schema(description = "Bytes ocupados no armazenamento", example = "880803840000")
+    long bytesArmazenados,
+
+    @Schema(description = "Bytes que seriam ocupados com uma cópia por imagem", example = "1064304640000")
+    long bytesReferenciados,
+
+    @Schema(description = "Bytes não gravados graças à deduplicação", example = "183500800000")
+    long bytesEconomizados,
+
+    @Schema(description = "Proporção do espaço economizado (0 a 1)", example = "0.17")
+    double taxaEconomia
+) {
+}
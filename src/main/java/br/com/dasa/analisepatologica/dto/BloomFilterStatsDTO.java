@@ -0,0 +1,34 @@
+package br.com.dasa.analisepatologica.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO with sizing and usage statistics of a Bloom filter using Java record.
+ */
+@Schema(description = "Estatísticas do filtro de Bloom de códigos de rastreio")
+public record BloomFilterStatsDTO(
+    @Schema(description = "Indica se o filtro já foi carregado a partir do banco de dados", example = "true")
+    boolean pronto,
+
+    @Schema(description = "Quantidade de códigos inseridos no filtro", example = "2500000")
+    long insercoes,
+
+    @Schema(description = "Quantidade de códigos excluídos desde a última carga (continuam marcados no filtro)", example = "120")
+    long removidos,
+
+    @Schema(description = "Tamanho do filtro em bits", example = "95850624")
+    long totalBits,
+
+    @Schema(description = "Memória ocupada pelo filtro em bytes", example = "11981328")
+    long tamanhoBytes,
+
+    @Schema(description = "Quantidade de funções de hash", example = "7")
+    int funcoesHash,
+
+    @Schema(description = "Taxa de falso positivo configurada para a capacidade esperada", example = "0.01")
+    double taxaFalsoPositivoConfigurada,
+
+    @Schema(description = "Taxa de falso positivo estimada com a ocupação atual", example = "0.0001")
+    double taxaFalsoPositivoEstimada
+) {
+}
@@ -0,0 +1,28 @@
+package br.com.dasa.analisepatologica.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO with the usage statistics of an in-process cache using Java record.
+ */
+@Schema(description = "Estatísticas de uso de um cache em memória")
+public record CacheStatsDTO(
+    @Schema(description = "Quantidade de entradas atualmente em cache", example = "15230")
+    int tamanho,
+
+    @Schema(description = "Quantidade máxima de entradas", example = "100000")
+    int capacidade,
+
+    @Schema(description = "Consultas atendidas pelo cache", example = "98211")
+    long hits,
+
+    @Schema(description = "Consultas que precisaram acessar o banco de dados", example = "15230")
+    long misses,
+
+    @Schema(description = "Entradas removidas por falta de espaço", example = "0")
+    long evictions,
+
+    @Schema(description = "Proporção de consultas atendidas pelo cache (0 a 1)", example = "0.87")
+    double hitRate
+) {
+}
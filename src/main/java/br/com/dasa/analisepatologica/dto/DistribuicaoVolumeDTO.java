@@ -0,0 +1,33 @@
+package br.com.dasa.analisepatologica.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO with the volume distribution of the active measurements of one group using Java record.
+ */
+@Schema(description = "Distribuição do volume das medições ativas de um grupo")
+public record DistribuicaoVolumeDTO(
+    @Schema(description = "Valor do agrupamento (tipo de tecido ou método de medição)", example = "Pele")
+    String grupo,
+
+    @Schema(description = "Quantidade de medições ativas no grupo", example = "1520")
+    long totalMedicoes,
+
+    @Schema(description = "Menor volume em milímetros cúbicos", example = "12.50", type = "number", format = "decimal")
+    BigDecimal minimo,
+
+    @Schema(description = "Maior volume em milímetros cúbicos", example = "98234.10", type = "number", format = "decimal")
+    BigDecimal maximo,
+
+    @Schema(description = "Volume médio em milímetros cúbicos", example = "1668.56", type = "number", format = "decimal")
+    BigDecimal media,
+
+    @Schema(description = "Mediana do volume em milímetros cúbicos", example = "1320.00", type = "number", format = "decimal")
+    BigDecimal p50,
+
+    @Schema(description = "Percentil 95 do volume em milímetros cúbicos", example = "5230.75", type = "number", format = "decimal")
+    BigDecimal p95
+) {
+}
@@ -0,0 +1,47 @@
+package br.com.dasa.analisepatologica.dto;
+
+import br.com.dasa.analisepatologica.enums.Sexo;
+import br.com.dasa.analisepatologica.enums.StatusLaudo;
+import br.com.dasa.analisepatologica.enums.StatusProcessamento;
+import br.com.dasa.analisepatologica.enums.TipoMedico;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * DTO with every dashboard breakdown in a single response using Java record.
+ */
+@Schema(description = "Estatísticas consolidadas de amostras, laudos, médicos e pacientes")
+public record EstatisticasResponseDTO(
+    @Schema(description = "Total de amostras", example = "1520")
+    long totalAmostras,
+
+    @Schema(description = "Quantidade de amostras por status de processamento")
+    Map<StatusProcessamento, Long> amostrasPorStatus,
+
+    @Schema(description = "Quantidade de amostras por ID do médico solicitante")
+    Map<Long, Long> amostrasPorMedico,
+
+    @Schema(description = "Total de laudos", example = "830")
+    long totalLaudos,
+
+    @Schema(description = "Quantidade de laudos por status")
+    Map<StatusLaudo, Long> laudosPorStatus,
+
+    @Schema(description = "Total de médicos", example = "45")
+    long totalMedicos,
+
+    @Schema(description = "Quantidade de médicos por tipo")
+    Map<TipoMedico, Long> medicosPorTipo,
+
+    @Schema(description = "Total de pacientes", example = "1200")
+    long totalPacientes,
+
+    @Schema(description = "Quantidade de pacientes por sexo")
+    Map<Sexo, Long> pacientesPorSexo,
+
+    @Schema(description = "Data/hora da última reconciliação dos contadores com o banco de dados", example = "2023-10-15T10:30:00")
+    LocalDateTime ultimaReconciliacao
+) {
+}
@@ -0,0 +1,18 @@
+package br.com.dasa.analisepatologica.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * DTO with the volume distribution of the active measurements grouped by tissue type and by method using Java record.
+ */
+@Schema(description = "Distribuição do volume das medições ativas por tipo de tecido e por método de medição")
+public record EstatisticasVolumeResponseDTO(
+    @Schema(description = "Distribuição por tipo de tecido da amostra, em ordem alfabética")
+    List<DistribuicaoVolumeDTO> porTipoTecido,
+
+    @Schema(description = "Distribuição por método de medição, em ordem alfabética")
+    List<DistribuicaoVolumeDTO> porMetodoMedicao
+) {
+}
@@ -0,0 +1,43 @@
+package br.com.dasa.analisepatologica.dto;
+
+import br.com.dasa.analisepatologica.enums.StatusAnaliseQualidade;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
+
+/**
+ * DTO for filtering the images of a sample using Java record.
+ */
+@Schema(description = "Critérios de filtro para busca de imagens de uma amostra")
+public record ImagemAmostraFilterDTO(
+    @Schema(description = "Filtrar por imagens ativas (true) ou inativas (false)", example = "true")
+    Boolean ativa,
+
+    @Schema(description = "Filtrar por imagens de alta resolução (mínimo 1920x1080)", example = "true")
+    Boolean altaResolucao,
+
+    @Schema(description = "Filtrar por imagens com qualidade válida (tamanho e resolução mínima)", example = "true")
+    Boolean qualidadeValida,
+
+    @Schema(description = "Largura mínima em pixels", example = "4096")
+    @Min(value = 1, message = "Largura mínima deve ser maior que zero")
+    Integer larguraMinima,
+
+    @Schema(description = "Altura mínima em pixels", example = "3072")
+    @Min(value = 1, message = "Altura mínima deve ser maior que zero")
+    Integer alturaMinima,
+
+    @Schema(description = "Filtrar pela situação da análise de foco, coloração e tecido", example = "REPROVADA")
+    StatusAnaliseQualidade analiseQualidade
+) {
+    /**
+     * Checks if any filter criteria is set.
+     */
+    public boolean hasAnyFilter() {
+        return ativa != null
+            || altaResolucao != null
+            || qualidadeValida != null
+            || larguraMinima != null
+            || alturaMinima != null
+            || analiseQualidade != null;
+    }
+}
@@ -1,10 +1,15 @@
 package br.com.dasa.analisepatologica.dto;
 
+import br.com.dasa.analisepatologica.enums.AlertaQualidade;
+import br.com.dasa.analisepatologica.enums.StatusAnaliseQualidade;
+import br.com.dasa.analisepatologica.enums.StatusMetadados;
 import br.com.dasa.analisepatologica.enums.TipoArquivo;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.*;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Set;
 
 /**
  * DTO for sample image response.
@@ -51,6 +56,12 @@ public class ImagemAmostraResponseDTO {
     @Schema(description = "Resolução da imagem", example = "4096x3072")
     private String resolucao;
 
+    @Schema(description = "Largura da imagem em pixels", example = "4096")
+    private Integer larguraPx;
+
+    @Schema(description = "Altura da imagem em pixels", example = "3072")
+    private Integer alturaPx;
+
     @Schema(description = "Indica se a imagem está ativa", example = "true")
     private boolean ativa;
 
@@ -60,6 +71,38 @@ public class ImagemAmostraResponseDTO {
     @Schema(description = "Indica se a qualidade da imagem é válida", example = "true")
     private boolean qualidadeValida;
 
+    @Schema(description = "Situação da verificação dos metadados no cabeçalho do arquivo", example = "CONFIRMADO")
+    private StatusMetadados statusMetadados;
+
+    @Schema(description = "Divergências corrigidas ou motivo da falha na leitura do cabeçalho",
+            example = "resolucao informada 4096x3072, arquivo 4000x3000")
+    private String motivoMetadados;
+
+    @Schema(description = "Situação da análise de foco, coloração e tecido", example = "APROVADA")
+    private StatusAnaliseQualidade statusAnaliseQualidade;
+
+    @Schema(description = "Mediana da variância do Laplaciano nos tiles com tecido (baixa indica desfoque)", example = "842.17")
+    private BigDecimal nitidez;
+
+    @Schema(description = "Fração dos tiles com tecido abaixo do limite de nitidez", example = "0.0450")
+    private BigDecimal fracaoDesfocada;
+
+    @Schema(description = "Fração da imagem coberta por tecido", example = "0.4120")
+    private BigDecimal coberturaTecido;
+
+    @Schema(description = "Saturação média do tecido, de 0 a 1 (baixa indica coloração fraca)", example = "0.3510")
+    private BigDecimal saturacaoMedia;
+
+    @Schema(description = "Brilho médio do tecido, de 0 a 1 (baixo indica coloração excessiva)", example = "0.6230")
+    private BigDecimal brilhoMedio;
+
+    @Schema(description = "Motivos da sinalização para nova digitalização", example = "[\"DESFOCADA\"]")
+    private Set<AlertaQualidade> alertasQualidade;
+
+    @Schema(description = "Hash perceptual (dHash de 64 bits, em hexadecimal) usado na busca de imagens semelhantes",
+            example = "3c7e1f0f8f87c3e1")
+    private String hashPerceptual;
+
     @Schema(description = "Data e hora de criação do registro", example = "2023-10-15T14:35:00")
     private LocalDateTime createdAt;
 }
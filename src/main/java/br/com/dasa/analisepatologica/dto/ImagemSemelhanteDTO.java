@@ -0,0 +1,31 @@
+package br.com.dasa.analisepatologica.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO for an image whose perceptual hash is close to another one's, using Java record.
+ */
+@Schema(description = "Imagem com hash perceptual próximo ao da imagem consultada (possível redigitalização da mesma lâmina)")
+public record ImagemSemelhanteDTO(
+    @Schema(description = "ID da imagem", example = "1042")
+    Long imagemId,
+
+    @Schema(description = "Código de rastreio da amostra da imagem", example = "AMOSTRA-2023-001234")
+    String codigoRastreio,
+
+    @Schema(description = "Nome do arquivo de imagem", example = "amostra_mama_20240115_001.jpg")
+    String nomeArquivo,
+
+    @Schema(description = "Indica se a imagem está ativa", example = "true")
+    boolean ativa,
+
+    @Schema(description = "Hash perceptual da imagem, em hexadecimal", example = "3c7e1f0f8f87c3e3")
+    String hashPerceptual,
+
+    @Schema(description = "Distância de Hamming entre os hashes (0 a 64; quanto menor, mais semelhantes)", example = "1")
+    int distancia,
+
+    @Schema(description = "Indica se a imagem pertence a outra amostra", example = "true")
+    boolean outraAmostra
+) {
+}
@@ -0,0 +1,71 @@
+package br.com.dasa.analisepatologica.dto;
+
+import br.com.dasa.analisepatologica.enums.TipoArquivo;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for starting a chunked image upload using Java record.
+ * Path and size of the stored file are filled in from the uploaded content.
+ */
+@Schema(description = "Dados para iniciar o upload em partes de uma imagem de amostra")
+public record ImagemUploadRequestDTO(
+    @Schema(description = "Nome original do arquivo de imagem",
+            example = "lamina_mama_20240115_001.tiff",
+            required = true,
+            maxLength = 255)
+    @NotBlank(message = "Nome do arquivo é obrigatório")
+    @Size(max = 255, message = "Nome do arquivo deve ter no máximo 255 caracteres")
+    String nomeArquivo,
+
+    @Schema(description = "Tipo de arquivo da imagem",
+            example = "TIFF",
+            required = true)
+    @NotNull(message = "Tipo de arquivo é obrigatório")
+    TipoArquivo tipoArquivo,
+
+    @Schema(description = "Tamanho total do arquivo em bytes",
+            example = "734003200",
+            required = true,
+            minimum = "1")
+    @NotNull(message = "Tamanho do arquivo é obrigatório")
+    @Min(value = 1, message = "Tamanho do arquivo deve ser maior que zero")
+    Long tamanhoBytes,
+
+    @Schema(description = "Descrição ou observações sobre a imagem",
+            example = "Lâmina digitalizada com coloração H&E, aumento de 40x",
+            maxLength = 500)
+    @Size(max = 500, message = "Descrição deve ter no máximo 500 caracteres")
+    String descricao,
+
+    @Schema(description = "Nome do equipamento utilizado para captura da imagem",
+            example = "Scanner de lâminas Leica Aperio GT 450",
+            maxLength = 200)
+    @Size(max = 200, message = "Equipamento de captura deve ter no máximo 200 caracteres")
+    String equipamentoCaptura,
+
+    @Schema(description = "Resolução da imagem no formato larguraxaltura",
+            example = "98304x75776",
+            maxLength = 50,
+            pattern = "\\d+x\\d+")
+    @Size(max = 50, message = "Resolução deve ter no máximo 50 caracteres")
+    @Pattern(regexp = "\\d+x\\d+", message = "Resolução deve estar no formato: larguraxaltura (ex: 1920x1080)")
+    String resolucao,
+
+    @Schema(description = "Data e hora em que a imagem foi capturada (padrão: agora)",
+            example = "2024-01-15T14:30:00",
+            type = "string",
+            format = "date-time")
+    @PastOrPresent(message = "Data de captura não pode ser futura")
+    LocalDateTime dataCaptura,
+
+    @Schema(description = "SHA-256 do arquivo em hexadecimal minúsculo (opcional). Se o mesmo conteúdo já estiver "
+                    + "armazenado, basta enviar o trecho de prova indicado na resposta em vez do arquivo inteiro",
+            example = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08",
+            pattern = "[0-9a-f]{64}")
+    @Pattern(regexp = "[0-9a-f]{64}", message = "SHA-256 deve ter 64 caracteres hexadecimais minúsculos")
+    String sha256
+) {
+}
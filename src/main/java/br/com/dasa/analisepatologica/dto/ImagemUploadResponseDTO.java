@@ -0,0 +1,38 @@
+package br.com.dasa.analisepatologica.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO with the progress of a chunked image upload using Java record.
+ */
+@Schema(description = "Situação de um upload em partes de imagem de amostra")
+public record ImagemUploadResponseDTO(
+    @Schema(description = "Identificador do upload, usado no envio das partes", example = "0f8e4b7a-6c1d-4c55-9f57-1b2c3d4e5f60")
+    String uploadId,
+
+    @Schema(description = "Código de rastreio da amostra associada", example = "AMST-2024-001234")
+    String codigoRastreioAmostra,
+
+    @Schema(description = "Nome original do arquivo", example = "lamina_mama_20240115_001.tiff")
+    String nomeArquivo,
+
+    @Schema(description = "Tamanho total do arquivo em bytes", example = "734003200")
+    long tamanhoBytes,
+
+    @Schema(description = "Bytes já recebidos; a próxima parte deve começar neste byte", example = "268435456")
+    long bytesRecebidos,
+
+    @Schema(description = "Indica se todos os bytes foram recebidos e a imagem foi criada", example = "false")
+    boolean concluido,
+
+    @Schema(description = "Início do trecho a enviar como prova de posse, quando o sha256 informado já está armazenado; "
+            + "enviar somente os bytes provaInicio-provaFim conclui o upload sem transferir o arquivo inteiro", example = "104857600")
+    Long provaInicio,
+
+    @Schema(description = "Fim (inclusive) do trecho a enviar como prova de posse", example = "104923135")
+    Long provaFim,
+
+    @Schema(description = "Imagem criada ao final do upload (somente quando concluído)")
+    ImagemAmostraResponseDTO imagem
+) {
+}
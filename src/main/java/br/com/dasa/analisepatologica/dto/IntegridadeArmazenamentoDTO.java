@@ -0,0 +1,58 @@
+package br.com.dasa.analisepatologica.dto;
+
+import br.com.dasa.analisepatologica.enums.StatusIntegridade;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * DTO with the progress of the integrity scrub of the image content store using Java record.
+ */
+@Schema(description = "Progresso da varredura de integridade dos arquivos de imagem armazenados")
+public record IntegridadeArmazenamentoDTO(
+    @Schema(description = "Indica se a varredura está lendo arquivos neste momento", example = "true")
+    boolean emExecucao,
+
+    @Schema(description = "Taxa de leitura permitida agora, em bytes por segundo (0 = pausada)", example = "5242880")
+    long taxaBytesPorSegundo,
+
+    @Schema(description = "Número do ciclo atual ou do último concluído (0 antes do primeiro)", example = "3")
+    int ciclo,
+
+    @Schema(description = "Início do ciclo", example = "2024-01-14T02:00:00")
+    LocalDateTime cicloIniciadoEm,
+
+    @Schema(description = "Conclusão do ciclo (nula enquanto em andamento)", example = "2024-01-15T09:12:44")
+    LocalDateTime cicloConcluidoEm,
+
+    @Schema(description = "Próximo ciclo, quando o atual já foi concluído", example = "2024-01-22T09:12:44")
+    LocalDateTime proximoCicloEm,
+
+    @Schema(description = "Último conteúdo verificado (ponto de retomada)",
+            example = "5e884898da28047151d0e56f8dc6292773603d0d6aabbdd62a11ef721d1542d8")
+    String ultimoSha256,
+
+    @Schema(description = "Arquivos verificados no ciclo", example = "842")
+    long objetosVerificados,
+
+    @Schema(description = "Bytes relidos no ciclo", example = "617401548800")
+    long bytesVerificados,
+
+    @Schema(description = "Arquivos ausentes, truncados ou corrompidos encontrados no ciclo", example = "1")
+    long falhas,
+
+    @Schema(description = "Arquivos distintos armazenados", example = "1200")
+    long totalObjetos,
+
+    @Schema(description = "Bytes ocupados no armazenamento", example = "880803840000")
+    long totalBytes,
+
+    @Schema(description = "Proporção dos bytes armazenados já verificados no ciclo (0 a 1)", example = "0.7010")
+    double progresso,
+
+    @Schema(description = "Conteúdos por resultado da última verificação",
+            example = "{\"INTEGRO\": 1190, \"PENDENTE\": 9, \"CORROMPIDO\": 1}")
+    Map<StatusIntegridade, Long> porStatus
+) {
+}
@@ -0,0 +1,19 @@
+package br.com.dasa.analisepatologica.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO with a rejected line of a CSV measurement import using Java record.
+ */
+@Schema(description = "Linha rejeitada na importação de medições")
+public record MedicaoImportacaoErroDTO(
+    @Schema(description = "Número da linha no arquivo (o cabeçalho é a linha 1)", example = "42")
+    long linha,
+
+    @Schema(description = "Código de rastreio informado na linha", example = "AMST-2024-001234")
+    String codigoRastreio,
+
+    @Schema(description = "Motivo da rejeição", example = "Amostra não encontrada: AMST-2024-001234")
+    String erro
+) {
+}
@@ -0,0 +1,24 @@
+package br.com.dasa.analisepatologica.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * DTO for the CSV measurement import response using Java record.
+ */
+@Schema(description = "Resultado da importação de medições a partir de arquivo CSV")
+public record MedicaoImportacaoResponseDTO(
+    @Schema(description = "Quantidade de linhas de dados lidas (sem cabeçalho e linhas em branco)", example = "100000")
+    long totalLinhas,
+
+    @Schema(description = "Quantidade de medições importadas", example = "99870")
+    long importadas,
+
+    @Schema(description = "Quantidade de linhas rejeitadas", example = "130")
+    long rejeitadas,
+
+    @Schema(description = "Linhas rejeitadas e seus motivos (limitado às primeiras 1000)")
+    List<MedicaoImportacaoErroDTO> erros
+) {
+}
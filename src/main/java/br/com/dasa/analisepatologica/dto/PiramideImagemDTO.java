@@ -0,0 +1,32 @@
+package br.com.dasa.analisepatologica.dto;
+
+import br.com.dasa.analisepatologica.enums.StatusPiramide;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO with the tile pyramid of an image using Java record.
+ */
+@Schema(description = "Pirâmide de tiles de uma imagem para visualização com zoom")
+public record PiramideImagemDTO(
+    @Schema(description = "ID da imagem", example = "1")
+    Long imagemId,
+
+    @Schema(description = "Situação da pirâmide", example = "CONCLUIDA")
+    StatusPiramide status,
+
+    @Schema(description = "Largura da imagem em pixels (somente quando concluída)", example = "98304")
+    Integer largura,
+
+    @Schema(description = "Altura da imagem em pixels (somente quando concluída)", example = "81920")
+    Integer altura,
+
+    @Schema(description = "Largura e altura de cada tile em pixels; tiles da borda podem ser menores", example = "256")
+    Integer tamanhoTile,
+
+    @Schema(description = "Nível de zoom da resolução original; o nível 0 cabe em um único tile", example = "9")
+    Integer nivelMaximo,
+
+    @Schema(description = "Motivo da falha na geração (somente quando FALHA)", example = "Formato de imagem não suportado")
+    String motivoFalha
+) {
+}
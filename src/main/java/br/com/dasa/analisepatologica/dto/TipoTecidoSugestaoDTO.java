@@ -0,0 +1,16 @@
+package br.com.dasa.analisepatologica.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO for a tissue type autocomplete suggestion using Java record.
+ */
+@Schema(description = "Sugestão de tipo de tecido para autocompletar")
+public record TipoTecidoSugestaoDTO(
+    @Schema(description = "Tipo de tecido", example = "Tecido mamário")
+    String tipoTecido,
+
+    @Schema(description = "Quantidade de amostras com este tipo de tecido", example = "342")
+    long totalAmostras
+) {
+}
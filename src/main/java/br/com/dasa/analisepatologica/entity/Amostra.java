@@ -4,7 +4,9 @@ import br.com.dasa.analisepatologica.enums.StatusProcessamento;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDate;
@@ -18,6 +20,10 @@ import java.util.List;
 @Entity
 @Table(name = "AMOSTRA", uniqueConstraints = {
     @UniqueConstraint(name = "AMOSTRA_codigo_rastreio_UN", columnNames = "codigo_rastreio")
+}, indexes = {
+    @Index(name = "AMOSTRA_created_at_IX", columnList = "created_at, amostra_id"),
+    @Index(name = "AMOSTRA_prontidao_IX", columnList = "total_medicoes, total_imagens_ativas"),
+    @Index(name = "AMOSTRA_tipo_tecido_IX", columnList = "tipo_tecido")
 })
 @Getter
 @Setter
@@ -25,11 +31,14 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 @IdClass(AmostraId.class)
+@DynamicUpdate
 public class Amostra {
 
+    // Pooled allocation lets bulk intake batch inserts without a sequence round-trip per row.
+    // Requires SEQ_AMOSTRA to be created with INCREMENT BY 50.
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_amostra")
-    @SequenceGenerator(name = "seq_amostra", sequenceName = "SEQ_AMOSTRA", allocationSize = 1)
+    @SequenceGenerator(name = "seq_amostra", sequenceName = "SEQ_AMOSTRA", allocationSize = 50)
     @Column(name = "amostra_id", nullable = false)
     private Long amostraId;
 
@@ -73,6 +82,24 @@ public class Amostra {
     @Column(name = "observacoes")
     private String observacoes;
 
+    // Denormalized readiness counters, maintained only through atomic UPDATEs in AmostraRepository.
+    // @DynamicUpdate keeps a stale in-memory copy from overwriting them when the sample is saved.
+    @Column(name = "total_medicoes", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer totalMedicoes = 0;
+
+    @Column(name = "total_imagens_ativas", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer totalImagensAtivas = 0;
+
+    // Last measurement version handed out for this sample; see AmostraRepository#alocarVersaoMedicao.
+    @Column(name = "ultima_versao_medicao", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer ultimaVersaoMedicao = 0;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -156,25 +183,12 @@ public class Amostra {
     }
 
     /**
-     * Checks if the sample is ready for analysis.
+     * Checks if the sample is ready for analysis (has measurements and active images).
+     * Reads the denormalized counters, so the collections are never initialized.
      */
     public boolean estaProntaParaAnalise() {
-        return medicoes != null && !medicoes.isEmpty() &&
-               imagens != null && !imagens.isEmpty();
-    }
-
-    /**
-     * Gets the total number of measurements.
-     */
-    public int getTotalMedicoes() {
-        return medicoes != null ? medicoes.size() : 0;
-    }
-
-    /**
-     * Gets the total number of images.
-     */
-    public int getTotalImagens() {
-        return imagens != null ? imagens.size() : 0;
+        return totalMedicoes != null && totalMedicoes > 0 &&
+               totalImagensAtivas != null && totalImagensAtivas > 0;
     }
 
     @PrePersist
@@ -0,0 +1,46 @@
+package br.com.dasa.analisepatologica.entity;
+
+import br.com.dasa.analisepatologica.enums.StatusIntegridade;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Image content in the content store, identified by its SHA-256.
+ * Counts the images that point at it, so identical files registered for several images
+ * (or samples) are stored once and only removed with the last image.
+ * Records the outcome of the last integrity check of the stored file (see VerificacaoIntegridadeService).
+ */
+@Entity
+@Table(name = "CONTEUDO_IMAGEM")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ConteudoImagem {
+
+    @Id
+    @Column(name = "sha256", nullable = false, length = 64)
+    private String sha256;
+
+    @Column(name = "tamanho_bytes", nullable = false)
+    private Long tamanhoBytes;
+
+    @Column(name = "referencias", nullable = false)
+    private Integer referencias;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status_integridade", nullable = false, length = 20)
+    @Builder.Default
+    private StatusIntegridade statusIntegridade = StatusIntegridade.PENDENTE;
+
+    @Column(name = "integridade_verificada_em")
+    private LocalDateTime integridadeVerificadaEm;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
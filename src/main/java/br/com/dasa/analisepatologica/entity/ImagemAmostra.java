@@ -1,12 +1,19 @@
 package br.com.dasa.analisepatologica.entity;
 
+import br.com.dasa.analisepatologica.converter.AlertasQualidadeConverter;
+import br.com.dasa.analisepatologica.enums.AlertaQualidade;
+import br.com.dasa.analisepatologica.enums.StatusAnaliseQualidade;
+import br.com.dasa.analisepatologica.enums.StatusMetadados;
 import br.com.dasa.analisepatologica.enums.TipoArquivo;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Sample image entity representing an image associated with a pathology sample.
@@ -68,6 +75,79 @@ public class ImagemAmostra {
     @Column(name = "resolucao", length = 50)
     private String resolucao;
 
+    /** Width in pixels parsed from {@link #resolucao}; null when the resolution is unknown. */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "largura_px")
+    private Integer larguraPx;
+
+    /** Height in pixels parsed from {@link #resolucao}; null when the resolution is unknown. */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "altura_px")
+    private Integer alturaPx;
+
+    /** Materialized {@link #isAltaResolucao()} ('S'/'N'), so it can be filtered and indexed. */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "alta_resolucao", nullable = false, length = 1)
+    @Builder.Default
+    private Character altaResolucao = 'N';
+
+    /** Materialized {@link #validarQualidade()} ('S'/'N'), so it can be filtered and indexed. */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "qualidade_valida", nullable = false, length = 1)
+    @Builder.Default
+    private Character qualidadeValida = 'N';
+
+    /** Whether the dimensions, format and equipment were checked against the header of the stored file. */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status_metadados", nullable = false, length = 20)
+    @Builder.Default
+    private StatusMetadados statusMetadados = StatusMetadados.PENDENTE;
+
+    @Size(max = 500, message = "Motivo deve ter no máximo 500 caracteres")
+    @Column(name = "motivo_metadados", length = 500)
+    private String motivoMetadados;
+
+    @Column(name = "metadados_verificados_em")
+    private LocalDateTime metadadosVerificadosEm;
+
+    @Column(name = "tentativas_metadados", nullable = false)
+    @Builder.Default
+    private Integer tentativasMetadados = 0;
+
+    /** Outcome of the focus, stain and tissue analysis of the stored file (see AnalisadorQualidade). */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status_analise_qualidade", nullable = false, length = 20)
+    @Builder.Default
+    private StatusAnaliseQualidade statusAnaliseQualidade = StatusAnaliseQualidade.PENDENTE;
+
+    /** Median variance of the Laplacian of the tissue tiles; low means blurred. */
+    @Column(name = "nitidez", precision = 12, scale = 2)
+    private BigDecimal nitidez;
+
+    @Column(name = "fracao_desfocada", precision = 5, scale = 4)
+    private BigDecimal fracaoDesfocada;
+
+    @Column(name = "cobertura_tecido", precision = 5, scale = 4)
+    private BigDecimal coberturaTecido;
+
+    @Column(name = "saturacao_media", precision = 5, scale = 4)
+    private BigDecimal saturacaoMedia;
+
+    @Column(name = "brilho_medio", precision = 5, scale = 4)
+    private BigDecimal brilhoMedio;
+
+    @Convert(converter = AlertasQualidadeConverter.class)
+    @Column(name = "alertas_qualidade", length = 100)
+    @Builder.Default
+    private Set<AlertaQualidade> alertasQualidade = EnumSet.noneOf(AlertaQualidade.class);
+
+    @Column(name = "qualidade_analisada_em")
+    private LocalDateTime qualidadeAnalisadaEm;
+
+    /** 64-bit difference hash of the stored file, for near-duplicate search (see HashPerceptualIndex). */
+    @Column(name = "hash_perceptual")
+    private Long hashPerceptual;
+
     @NotNull(message = "Status ativo é obrigatório")
     @Column(name = "ativa", nullable = false, length = 1)
     @Builder.Default
@@ -105,18 +185,8 @@ public class ImagemAmostra {
 
         // Check resolution if available
         if (resolucao != null && !resolucao.isEmpty()) {
-            String[] dimensions = resolucao.split("x");
-            if (dimensions.length == 2) {
-                try {
-                    int width = Integer.parseInt(dimensions[0]);
-                    int height = Integer.parseInt(dimensions[1]);
-
-                    // Minimum resolution: 640x480
-                    return width >= 640 && height >= 480;
-                } catch (NumberFormatException e) {
-                    return false;
-                }
-            }
+            // Minimum resolution: 640x480 (an unparseable resolution fails)
+            return larguraPx != null && larguraPx >= 640 && alturaPx >= 480;
         }
 
         return true;
@@ -126,21 +196,29 @@ public class ImagemAmostra {
      * Checks if the image is high resolution.
      */
     public boolean isAltaResolucao() {
-        if (resolucao != null && !resolucao.isEmpty()) {
+        // High resolution: >= 1920x1080
+        return larguraPx != null && larguraPx >= 1920 && alturaPx >= 1080;
+    }
+
+    /**
+     * Sets the resolution ("larguraxaltura") and the width and height parsed from it.
+     */
+    public void setResolucao(String resolucao) {
+        this.resolucao = resolucao;
+        this.larguraPx = null;
+        this.alturaPx = null;
+        if (resolucao != null) {
             String[] dimensions = resolucao.split("x");
             if (dimensions.length == 2) {
                 try {
-                    int width = Integer.parseInt(dimensions[0]);
-                    int height = Integer.parseInt(dimensions[1]);
-
-                    // High resolution: >= 1920x1080
-                    return width >= 1920 && height >= 1080;
+                    this.larguraPx = Integer.parseInt(dimensions[0]);
+                    this.alturaPx = Integer.parseInt(dimensions[1]);
                 } catch (NumberFormatException e) {
-                    return false;
+                    this.larguraPx = null;
+                    this.alturaPx = null;
                 }
             }
         }
-        return false;
     }
 
     /**
@@ -189,5 +267,21 @@ public class ImagemAmostra {
         if (ativa == null) {
             ativa = 'S';
         }
+        atualizarIndicadores();
+    }
+
+    @PreUpdate
+    private void preUpdate() {
+        atualizarIndicadores();
+    }
+
+    /**
+     * Parses the resolution once and materializes the quality flags before every write,
+     * whichever way the fields were set (builder or setters).
+     */
+    private void atualizarIndicadores() {
+        setResolucao(resolucao);
+        altaResolucao = isAltaResolucao() ? 'S' : 'N';
+        qualidadeValida = validarQualidade() ? 'S' : 'N';
     }
 }
@@ -0,0 +1,86 @@
+package br.com.dasa.analisepatologica.entity;
+
+import br.com.dasa.analisepatologica.enums.TipoArquivo;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Chunked upload of a sample image in progress.
+ * Holds the image metadata until every byte was received; the bytes themselves live in the
+ * content store, and the number already received is the size of the partial file.
+ * When the declared SHA-256 is already stored, only the range {@code provaInicio..provaFim} is requested,
+ * as proof that the client holds the file.
+ */
+@Entity
+@Table(name = "IMAGEM_UPLOAD")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImagemUpload {
+
+    @Id
+    @Column(name = "upload_id", nullable = false, length = 36)
+    private String uploadId;
+
+    @NotBlank(message = "Nome do arquivo é obrigatório")
+    @Size(max = 255, message = "Nome do arquivo deve ter no máximo 255 caracteres")
+    @Column(name = "nome_arquivo", nullable = false, length = 255)
+    private String nomeArquivo;
+
+    @NotNull(message = "Tipo de arquivo é obrigatório")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo_arquivo", nullable = false, length = 10)
+    private TipoArquivo tipoArquivo;
+
+    @NotNull(message = "Tamanho do arquivo é obrigatório")
+    @Min(value = 1, message = "Tamanho do arquivo deve ser maior que zero")
+    @Column(name = "tamanho_bytes", nullable = false)
+    private Long tamanhoBytes;
+
+    @Size(max = 500, message = "Descrição deve ter no máximo 500 caracteres")
+    @Column(name = "descricao", length = 500)
+    private String descricao;
+
+    @NotNull(message = "Data de captura é obrigatória")
+    @Column(name = "data_captura", nullable = false)
+    private LocalDateTime dataCaptura;
+
+    @Size(max = 200, message = "Equipamento de captura deve ter no máximo 200 caracteres")
+    @Column(name = "equipamento_captura", length = 200)
+    private String equipamentoCaptura;
+
+    @Size(max = 50, message = "Resolução deve ter no máximo 50 caracteres")
+    @Column(name = "resolucao", length = 50)
+    private String resolucao;
+
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    @Column(name = "prova_inicio")
+    private Long provaInicio;
+
+    @Column(name = "prova_fim")
+    private Long provaFim;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Size(max = 100, message = "Criado por deve ter no máximo 100 caracteres")
+    @Column(name = "created_by", length = 100)
+    private String createdBy;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumns({
+        @JoinColumn(name = "amostra_id", referencedColumnName = "amostra_id", nullable = false),
+        @JoinColumn(name = "paciente_id", referencedColumnName = "paciente_id", nullable = false),
+        @JoinColumn(name = "medico_id", referencedColumnName = "medico_id", nullable = false)
+    })
+    private Amostra amostra;
+}
@@ -23,7 +23,7 @@ public class Medicao {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_medicao")
-    @SequenceGenerator(name = "seq_medicao", sequenceName = "SEQ_MEDICAO", allocationSize = 1)
+    @SequenceGenerator(name = "seq_medicao", sequenceName = "SEQ_MEDICAO", allocationSize = 50)
     @Column(name = "medicao_id", nullable = false)
     private Long medicaoId;
 
@@ -48,6 +48,10 @@ public class Medicao {
     @Column(name = "profundidade_mm", precision = 8, scale = 2)
     private BigDecimal profundidadeMm;
 
+    // Derived from the dimensions on every write (see calcularVolume) so statistics can aggregate it in the database
+    @Column(name = "volume_mm3", nullable = false, precision = 20, scale = 2)
+    private BigDecimal volumeMm3;
+
     @NotBlank(message = "Método de medição é obrigatório")
     @Size(max = 100, message = "Método de medição deve ter no máximo 100 caracteres")
     @Column(name = "metodo_medicao", nullable = false, length = 100)
@@ -144,7 +148,9 @@ public class Medicao {
     }
 
     @PrePersist
+    @PreUpdate
     private void prePersist() {
+        volumeMm3 = calcularVolume();
         if (dataHoraMedicao == null) {
             dataHoraMedicao = LocalDateTime.now();
         }
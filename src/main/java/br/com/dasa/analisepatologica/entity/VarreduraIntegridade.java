@@ -0,0 +1,61 @@
+package br.com.dasa.analisepatologica.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Checkpoint and progress of the integrity scrub of the content store (single row).
+ * A cycle walks every stored content in hash order; {@code ultimoSha256} is the last content checked,
+ * so the scrub resumes after it when the application restarts.
+ */
+@Entity
+@Table(name = "VARREDURA_INTEGRIDADE")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VarreduraIntegridade {
+
+    public static final int ID = 1;
+
+    @Id
+    @Column(name = "id", nullable = false)
+    private Integer id;
+
+    /** Number of the current (or last) cycle; 0 before the first one. */
+    @Column(name = "ciclo", nullable = false)
+    private Integer ciclo;
+
+    @Column(name = "ultimo_sha256", length = 64)
+    private String ultimoSha256;
+
+    @Column(name = "ciclo_iniciado_em")
+    private LocalDateTime cicloIniciadoEm;
+
+    /** Null while the cycle is running. */
+    @Column(name = "ciclo_concluido_em")
+    private LocalDateTime cicloConcluidoEm;
+
+    @Column(name = "objetos_verificados", nullable = false)
+    private Long objetosVerificados;
+
+    @Column(name = "bytes_verificados", nullable = false)
+    private Long bytesVerificados;
+
+    /** Contents found missing, truncated or corrupted in the current cycle. */
+    @Column(name = "falhas", nullable = false)
+    private Long falhas;
+
+    @Column(name = "atualizado_em")
+    private LocalDateTime atualizadoEm;
+
+    /**
+     * Whether a cycle was started and has not reached the last content yet.
+     */
+    public boolean isEmAndamento() {
+        return cicloIniciadoEm != null && cicloConcluidoEm == null;
+    }
+}
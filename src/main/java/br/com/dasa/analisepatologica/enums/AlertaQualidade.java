@@ -0,0 +1,20 @@
+package br.com.dasa.analisepatologica.enums;
+
+import lombok.Getter;
+
+/**
+ * Enum representing the reasons a capture is flagged by the quality analysis.
+ */
+@Getter
+public enum AlertaQualidade {
+    DESFOCADA("Fração de tiles de tecido fora de foco acima do limite"),
+    POUCO_TECIDO("Cobertura de tecido abaixo do mínimo"),
+    COLORACAO_FRACA("Saturação média do tecido abaixo do mínimo"),
+    COLORACAO_EXCESSIVA("Brilho médio do tecido abaixo do mínimo");
+
+    private final String descricao;
+
+    AlertaQualidade(String descricao) {
+        this.descricao = descricao;
+    }
+}
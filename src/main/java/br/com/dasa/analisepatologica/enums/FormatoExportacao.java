@@ -0,0 +1,20 @@
+package br.com.dasa.analisepatologica.enums;
+
+import lombok.Getter;
+
+/**
+ * Enum representing the supported formats for sample exports.
+ */
+@Getter
+public enum FormatoExportacao {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extensao;
+
+    FormatoExportacao(String contentType, String extensao) {
+        this.contentType = contentType;
+        this.extensao = extensao;
+    }
+}
@@ -0,0 +1,21 @@
+package br.com.dasa.analisepatologica.enums;
+
+import lombok.Getter;
+
+/**
+ * Enum representing the outcome of the focus, stain and tissue analysis of a stored image.
+ */
+@Getter
+public enum StatusAnaliseQualidade {
+    PENDENTE("Aguardando análise"),
+    APROVADA("Foco, coloração e tecido dentro dos limites"),
+    REPROVADA("Captura sinalizada para nova digitalização"),
+    FALHA("Não foi possível analisar o arquivo"),
+    NAO_APLICAVEL("Arquivo fora do armazenamento ou ilegível");
+
+    private final String descricao;
+
+    StatusAnaliseQualidade(String descricao) {
+        this.descricao = descricao;
+    }
+}
@@ -0,0 +1,29 @@
+package br.com.dasa.analisepatologica.enums;
+
+import lombok.Getter;
+
+/**
+ * Enum representing the outcome of the last integrity check of a stored image content.
+ */
+@Getter
+public enum StatusIntegridade {
+    PENDENTE("Ainda não verificado pela varredura de integridade"),
+    INTEGRO("Tamanho e SHA-256 do arquivo conferem com o registrado"),
+    AUSENTE("Arquivo não encontrado no armazenamento"),
+    TAMANHO_DIVERGENTE("Tamanho do arquivo difere do registrado"),
+    CORROMPIDO("SHA-256 do arquivo difere do registrado"),
+    FALHA_LEITURA("Erro de E/S ao ler o arquivo");
+
+    private final String descricao;
+
+    StatusIntegridade(String descricao) {
+        this.descricao = descricao;
+    }
+
+    /**
+     * Whether the content can no longer be trusted for diagnosis.
+     */
+    public boolean isFalha() {
+        return this != PENDENTE && this != INTEGRO;
+    }
+}
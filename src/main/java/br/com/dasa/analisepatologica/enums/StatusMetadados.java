@@ -0,0 +1,21 @@
+package br.com.dasa.analisepatologica.enums;
+
+import lombok.Getter;
+
+/**
+ * Enum representing the state of the metadata read from the header of a stored image file.
+ */
+@Getter
+public enum StatusMetadados {
+    PENDENTE("Aguardando leitura do cabeçalho do arquivo"),
+    CONFIRMADO("Metadados informados conferem com o arquivo"),
+    CORRIGIDO("Metadados informados divergiam do arquivo e foram corrigidos"),
+    FALHA("Não foi possível ler o cabeçalho do arquivo"),
+    SEM_ARQUIVO("Arquivo fora do armazenamento; metadados informados não verificados");
+
+    private final String descricao;
+
+    StatusMetadados(String descricao) {
+        this.descricao = descricao;
+    }
+}
@@ -0,0 +1,19 @@
+package br.com.dasa.analisepatologica.enums;
+
+import lombok.Getter;
+
+/**
+ * Enum representing the state of the tile pyramid of an image.
+ */
+@Getter
+public enum StatusPiramide {
+    EM_GERACAO("Pirâmide na fila ou em geração"),
+    CONCLUIDA("Tiles disponíveis"),
+    FALHA("Não foi possível gerar a pirâmide");
+
+    private final String descricao;
+
+    StatusPiramide(String descricao) {
+        this.descricao = descricao;
+    }
+}
@@ -7,19 +7,24 @@ import lombok.Getter;
  */
 @Getter
 public enum TipoArquivo {
-    JPG("jpg", "JPEG Image"),
-    JPEG("jpeg", "JPEG Image"),
-    PNG("png", "PNG Image"),
-    TIFF("tiff", "TIFF Image"),
-    BMP("bmp", "Bitmap Image"),
-    GIF("gif", "GIF Image");
+    JPG("jpg", "JPEG Image", "image/jpeg", true),
+    JPEG("jpeg", "JPEG Image", "image/jpeg", true),
+    PNG("png", "PNG Image", "image/png", true),
+    TIFF("tiff", "TIFF Image", "image/tiff", true),
+    BMP("bmp", "Bitmap Image", "image/bmp", false),
+    GIF("gif", "GIF Image", "image/gif", true);
 
     private final String extensao;
     private final String descricao;
+    private final String contentType;
+    /** Whether the format already compresses its pixels (slide TIFFs store JPEG tiles), so deflating gains nothing. */
+    private final boolean comprimido;
 
-    TipoArquivo(String extensao, String descricao) {
+    TipoArquivo(String extensao, String descricao, String contentType, boolean comprimido) {
         this.extensao = extensao;
         this.descricao = descricao;
+        this.contentType = contentType;
+        this.comprimido = comprimido;
     }
 
     public static TipoArquivo fromExtensao(String extensao) {
@@ -0,0 +1,275 @@
+package br.com.dasa.analisepatologica.hl7;
+
+import java.nio.charset.Charset;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * HL7 v2 message in ER7 (pipe) encoding.
+ *
+ * Parsing only decodes the bytes once and records where each segment starts and ends; fields are located
+ * on demand by scanning the delimiters, so a String is created only for the fields actually read.
+ * Field, component and subcomponent positions are 1-based, as in the HL7 specification (MSH-1 is the
+ * field separator itself).
+ */
+public final class Hl7Mensagem {
+
+    private static final DateTimeFormatter FORMATO_DATA_HORA = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final String texto;
+    private final char separadorCampo;
+    private final char separadorComponente;
+    private final char separadorRepeticao;
+    private final char escape;
+    private final char separadorSubcomponente;
+    private final int[] inicioSegmentos;
+    private final int[] fimSegmentos;
+    private final int totalSegmentos;
+
+    private Hl7Mensagem(String texto, int[] inicioSegmentos, int[] fimSegmentos, int totalSegmentos) {
+        this.texto = texto;
+        this.separadorCampo = texto.charAt(3);
+        this.separadorComponente = texto.charAt(4);
+        this.separadorRepeticao = texto.charAt(5);
+        this.escape = texto.charAt(6);
+        this.separadorSubcomponente = texto.charAt(7);
+        this.inicioSegmentos = inicioSegmentos;
+        this.fimSegmentos = fimSegmentos;
+        this.totalSegmentos = totalSegmentos;
+    }
+
+    /**
+     * Parses the content of an MLLP frame. Segments may end with CR, LF or CRLF.
+     *
+     * @throws IllegalArgumentException if the message does not start with a valid MSH segment
+     */
+    public static Hl7Mensagem parse(byte[] conteudo, Charset charset) {
+        String texto = new String(conteudo, charset);
+        if (texto.length() < 8 || !texto.startsWith("MSH")) {
+            throw new IllegalArgumentException("Mensagem HL7 deve começar pelo segmento MSH");
+        }
+
+        int[] inicios = new int[16];
+        int[] fins = new int[16];
+        int total = 0;
+        int inicio = 0;
+        for (int i = 0; i <= texto.length(); i++) {
+            if (i == texto.length() || texto.charAt(i) == '\r' || texto.charAt(i) == '\n') {
+                if (i > inicio) {
+                    if (total == inicios.length) {
+                        inicios = Arrays.copyOf(inicios, total * 2);
+                        fins = Arrays.copyOf(fins, total * 2);
+                    }
+                    inicios[total] = inicio;
+                    fins[total] = i;
+                    total++;
+                }
+                inicio = i + 1;
+            }
+        }
+
+        return new Hl7Mensagem(texto, inicios, fins, total);
+    }
+
+    public int totalSegmentos() {
+        return totalSegmentos;
+    }
+
+    /**
+     * Checks whether a segment has the given name (e.g. "OBX") without creating a String.
+     */
+    public boolean segmentoE(int segmento, String nome) {
+        int inicio = inicioSegmentos[segmento];
+        int fimNome = inicio + nome.length();
+        return texto.startsWith(nome, inicio)
+                && (fimNome == fimSegmentos[segmento] || texto.charAt(fimNome) == separadorCampo);
+    }
+
+    /**
+     * Returns the index of the first segment with the given name, or -1 if there is none.
+     */
+    public int primeiroSegmento(String nome) {
+        for (int i = 0; i < totalSegmentos; i++) {
+            if (segmentoE(i, nome)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the first repetition of a field, or null if it is empty.
+     */
+    public String campo(int segmento, int campo) {
+        return subcomponente(segmento, campo, 0, 0);
+    }
+
+    /**
+     * Returns a component of the first repetition of a field, or null if it is empty.
+     */
+    public String componente(int segmento, int campo, int componente) {
+        return subcomponente(segmento, campo, componente, 0);
+    }
+
+    /**
+     * Returns a subcomponent of a component of the first repetition of a field, or null if it is empty.
+     * Component or subcomponent 0 means the whole field or component.
+     */
+    public String subcomponente(int segmento, int campo, int componente, int subcomponente) {
+        int fimSegmento = fimSegmentos[segmento];
+
+        // Field n starts after the n-th field separator, the first one right after the segment name.
+        // MSH-1 is that separator itself, so MSH fields start one separator earlier (MSH-1 cannot be read).
+        int separadoresAntes = segmentoE(segmento, "MSH") ? campo - 1 : campo;
+        int inicio = avancar(inicioSegmentos[segmento] + 3, fimSegmento, separadorCampo, separadoresAntes);
+        if (inicio < 0) {
+            return null;
+        }
+        int fim = proximo(inicio, fimSegmento, separadorCampo);
+        fim = proximo(inicio, fim, separadorRepeticao);
+
+        if (componente > 0) {
+            inicio = avancar(inicio - 1, fim, separadorComponente, componente);
+            if (inicio < 0) {
+                return null;
+            }
+            fim = proximo(inicio, fim, separadorComponente);
+        }
+        if (subcomponente > 0) {
+            inicio = avancar(inicio - 1, fim, separadorSubcomponente, subcomponente);
+            if (inicio < 0) {
+                return null;
+            }
+            fim = proximo(inicio, fim, separadorSubcomponente);
+        }
+
+        return inicio < fim ? desescapar(texto.substring(inicio, fim)) : null;
+    }
+
+    /**
+     * Returns the position right after the n-th separator, the first one being at {@code primeiro}
+     * (possibly a virtual separator just before a field or component), or -1 if the range ends first.
+     */
+    private int avancar(int primeiro, int fim, char separador, int n) {
+        int atual = primeiro;
+        for (int encontrados = 1; encontrados < n; encontrados++) {
+            atual = proximo(atual + 1, fim, separador);
+            if (atual >= fim) {
+                return -1;
+            }
+        }
+        return atual + 1 <= fim ? atual + 1 : -1;
+    }
+
+    private int proximo(int inicio, int fim, char separador) {
+        for (int i = inicio; i < fim; i++) {
+            if (texto.charAt(i) == separador) {
+                return i;
+            }
+        }
+        return fim;
+    }
+
+    private String desescapar(String valor) {
+        if (valor.indexOf(escape) < 0) {
+            return valor;
+        }
+        StringBuilder resultado = new StringBuilder(valor.length());
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            int fimSequencia = c == escape ? valor.indexOf(escape, i + 1) : -1;
+            if (fimSequencia == i + 2) {
+                char codigo = valor.charAt(i + 1);
+                switch (codigo) {
+                    case 'F' -> resultado.append(separadorCampo);
+                    case 'S' -> resultado.append(separadorComponente);
+                    case 'R' -> resultado.append(separadorRepeticao);
+                    case 'E' -> resultado.append(escape);
+                    case 'T' -> resultado.append(separadorSubcomponente);
+                    default -> resultado.append(valor, i, fimSequencia + 1);
+                }
+                i = fimSequencia;
+            } else {
+                resultado.append(c);
+            }
+        }
+        return resultado.toString();
+    }
+
+    private String escapar(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        StringBuilder resultado = new StringBuilder(valor.length());
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == escape) {
+                resultado.append(escape).append('E').append(escape);
+            } else if (c == separadorCampo) {
+                resultado.append(escape).append('F').append(escape);
+            } else if (c == separadorComponente) {
+                resultado.append(escape).append('S').append(escape);
+            } else if (c == separadorRepeticao) {
+                resultado.append(escape).append('R').append(escape);
+            } else if (c == separadorSubcomponente) {
+                resultado.append(escape).append('T').append(escape);
+            } else if (c == '\r' || c == '\n') {
+                resultado.append(' ');
+            } else {
+                resultado.append(c);
+            }
+        }
+        return resultado.toString();
+    }
+
+    /**
+     * Message type and trigger event (MSH-9.1^MSH-9.2), e.g. "ORU^R01".
+     */
+    public String tipo() {
+        return componente(0, 9, 1) + separadorComponente + componente(0, 9, 2);
+    }
+
+    /**
+     * Message control ID (MSH-10), echoed back in MSA-2.
+     */
+    public String idControle() {
+        return campo(0, 10);
+    }
+
+    /**
+     * Builds the acknowledgment of this message in original mode.
+     *
+     * @param codigo AA (accepted), AE (error) or AR (rejected)
+     * @param texto Text message for MSA-3 (optional)
+     * @param idControleAck Control ID of the acknowledgment itself
+     */
+    public String ack(String codigo, String texto, String idControleAck) {
+        char f = separadorCampo;
+        String versao = campo(0, 12);
+        return "MSH" + f + separadorComponente + separadorRepeticao + escape + separadorSubcomponente
+                + f + "ANALISEPATOLOGICA"
+                + f + "DASA"
+                + f + escapar(campo(0, 3))
+                + f + escapar(campo(0, 4))
+                + f + LocalDateTime.now().format(FORMATO_DATA_HORA)
+                + f
+                + f + "ACK" + separadorComponente + escapar(componente(0, 9, 2))
+                + f + idControleAck
+                + f + "P"
+                + f + (versao != null ? escapar(versao) : "2.5")
+                + '\r'
+                + "MSA" + f + codigo + f + escapar(idControle()) + f + escapar(texto)
+                + '\r';
+    }
+
+    /**
+     * Builds an AR acknowledgment for content that could not be parsed, using the default delimiters.
+     */
+    public static String rejeicao(String texto, String idControleAck) {
+        String textoSeguro = texto == null ? "" : texto.replaceAll("[|^~\\\\&\r\n]", " ");
+        return "MSH|^~\\&|ANALISEPATOLOGICA|DASA|||" + LocalDateTime.now().format(FORMATO_DATA_HORA)
+                + "||ACK|" + idControleAck + "|P|2.5\r"
+                + "MSA|AR||" + textoSeguro + '\r';
+    }
+}
@@ -0,0 +1,510 @@
+package br.com.dasa.analisepatologica.hl7;
+
+import br.com.dasa.analisepatologica.dto.AmostraBatchItemResultDTO;
+import br.com.dasa.analisepatologica.dto.AmostraRequestDTO;
+import br.com.dasa.analisepatologica.dto.MedicaoImportacaoErroDTO;
+import br.com.dasa.analisepatologica.dto.MedicaoRequestDTO;
+import br.com.dasa.analisepatologica.service.AmostraService;
+import br.com.dasa.analisepatologica.service.MedicaoImportacaoService;
+import br.com.dasa.analisepatologica.service.MedicaoImportacaoService.ItemImportacao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Applies HL7 v2 messages received by {@link MllpServer} in micro-batches.
+ *
+ * ORM^O01 orders create samples and ORU^R01 results create measurements. Messages are queued by the
+ * listener and drained by a single worker thread, up to {@code tamanho-lote} messages or {@code espera-lote}
+ * of waiting; each batch is written through the bulk paths of {@link AmostraService} and
+ * {@link MedicaoImportacaoService}, and every message is acknowledged only after its batch was committed:
+ * AA when fully applied, AE when some of its data was rejected, AR when it could not be processed.
+ */
+@Component
+@ConditionalOnProperty(prefix = "analisepatologica.hl7.mllp", name = "habilitado", havingValue = "true")
+@Slf4j
+public class Hl7MensagemProcessor implements SmartLifecycle {
+
+    private static final String ORDEM = "ORM^O01";
+    private static final String RESULTADO = "ORU^R01";
+
+    private final AmostraService amostraService;
+    private final MedicaoImportacaoService medicaoImportacaoService;
+    private final Charset charset;
+    private final int tamanhoLote;
+    private final long esperaLoteNanos;
+    private final BlockingQueue<MensagemRecebida> fila;
+    private final AtomicLong sequenciaAck = new AtomicLong();
+
+    private volatile boolean executando;
+    private Thread worker;
+
+    /**
+     * A queued message and where to write its acknowledgment.
+     */
+    private record MensagemRecebida(Hl7Mensagem mensagem, Consumer<byte[]> resposta) {
+    }
+
+    /**
+     * Segments of one order/observation group: the OBR and the PID, ORC, OBX and NTE segments that belong to it.
+     */
+    private static final class Grupo {
+        private final int pid;
+        private final int orc;
+        private final int obr;
+        private final List<Integer> obx = new ArrayList<>();
+        private final List<Integer> nte = new ArrayList<>();
+
+        private Grupo(int pid, int orc, int obr) {
+            this.pid = pid;
+            this.orc = orc;
+            this.obr = obr;
+        }
+    }
+
+    /**
+     * Outcome of each message of a batch.
+     */
+    private static final class Situacao {
+        private final List<String> erros = new ArrayList<>();
+        private String rejeicao;
+    }
+
+    public Hl7MensagemProcessor(AmostraService amostraService,
+                                MedicaoImportacaoService medicaoImportacaoService,
+                                @Value("${analisepatologica.hl7.mllp.charset:UTF-8}") Charset charset,
+                                @Value("${analisepatologica.hl7.mllp.tamanho-lote:200}") int tamanhoLote,
+                                @Value("${analisepatologica.hl7.mllp.espera-lote:PT0.05S}") Duration esperaLote,
+                                @Value("${analisepatologica.hl7.mllp.capacidade-fila:10000}") int capacidadeFila) {
+        this.amostraService = amostraService;
+        this.medicaoImportacaoService = medicaoImportacaoService;
+        this.charset = charset;
+        this.tamanhoLote = Math.min(tamanhoLote, AmostraService.MAX_BATCH_SIZE);
+        this.esperaLoteNanos = esperaLote.toNanos();
+        this.fila = new ArrayBlockingQueue<>(capacidadeFila);
+    }
+
+    /**
+     * Queues a framed message received by the listener. Called from the listener thread, so it only parses
+     * the segment boundaries; malformed messages and a full queue are answered immediately with AR.
+     */
+    public void receber(byte[] conteudo, Consumer<byte[]> resposta) {
+        Hl7Mensagem mensagem;
+        try {
+            mensagem = Hl7Mensagem.parse(conteudo, charset);
+        } catch (IllegalArgumentException e) {
+            log.warn("Discarding malformed HL7 message: {}", e.getMessage());
+            resposta.accept(Hl7Mensagem.rejeicao(e.getMessage(), proximoIdAck()).getBytes(charset));
+            return;
+        }
+
+        if (!executando || !fila.offer(new MensagemRecebida(mensagem, resposta))) {
+            log.warn("HL7 queue full or stopped, rejecting message {}", mensagem.idControle());
+            responder(new MensagemRecebida(mensagem, resposta), "AR", "Fila de processamento cheia, reenviar");
+        }
+    }
+
+    @Override
+    public void start() {
+        executando = true;
+        worker = new Thread(this::executar, "hl7-processor");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("HL7 processor started (batch size {}, wait {} ms)", tamanhoLote, TimeUnit.NANOSECONDS.toMillis(esperaLoteNanos));
+    }
+
+    @Override
+    public void stop() {
+        executando = false;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("HL7 processor stopped, {} queued messages left unacknowledged", fila.size());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return executando;
+    }
+
+    /**
+     * Starts before and stops after the MLLP listener, so no accepted message is left without a consumer.
+     */
+    @Override
+    public int getPhase() {
+        return MllpServer.FASE - 1;
+    }
+
+    private void executar() {
+        List<MensagemRecebida> lote = new ArrayList<>(tamanhoLote);
+        while (executando) {
+            try {
+                MensagemRecebida primeira = fila.poll(1, TimeUnit.SECONDS);
+                if (primeira == null) {
+                    continue;
+                }
+                lote.add(primeira);
+                long limite = System.nanoTime() + esperaLoteNanos;
+                while (lote.size() < tamanhoLote) {
+                    MensagemRecebida proxima = fila.poll(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (proxima == null) {
+                        break;
+                    }
+                    lote.add(proxima);
+                }
+                processarLote(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unexpected failure processing HL7 batch", e);
+                lote.forEach(recebida -> responder(recebida, "AR", "Falha ao processar mensagem: " + e.getMessage()));
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void processarLote(List<MensagemRecebida> lote) {
+        long inicio = System.currentTimeMillis();
+        Situacao[] situacoes = new Situacao[lote.size()];
+
+        List<AmostraRequestDTO> amostras = new ArrayList<>();
+        List<Integer> origemAmostras = new ArrayList<>();
+        List<ItemImportacao> medicoes = new ArrayList<>();
+        List<Integer> origemMedicoes = new ArrayList<>();
+
+        for (int i = 0; i < lote.size(); i++) {
+            situacoes[i] = new Situacao();
+            Hl7Mensagem mensagem = lote.get(i).mensagem();
+            String tipo = mensagem.tipo();
+            // Invalid OBR groups are answered in the AE; a message with no valid group is rejected as a whole
+            try {
+                if (ORDEM.equals(tipo)) {
+                    List<AmostraRequestDTO> validas = mapearOrdens(mensagem, situacoes[i].erros);
+                    for (AmostraRequestDTO dto : validas) {
+                        amostras.add(dto);
+                        origemAmostras.add(i);
+                    }
+                    if (validas.isEmpty()) {
+                        situacoes[i].rejeicao = String.join("; ", situacoes[i].erros);
+                    }
+                } else if (RESULTADO.equals(tipo)) {
+                    List<ItemImportacao> validos = mapearResultados(mensagem, medicoes.size(), situacoes[i].erros);
+                    for (ItemImportacao item : validos) {
+                        medicoes.add(item);
+                        origemMedicoes.add(i);
+                    }
+                    if (validos.isEmpty()) {
+                        situacoes[i].rejeicao = situacoes[i].erros.isEmpty()
+                                ? "Mensagem sem observações de LARGURA, ALTURA ou PROFUNDIDADE"
+                                : String.join("; ", situacoes[i].erros);
+                    }
+                } else {
+                    situacoes[i].rejeicao = "Tipo de mensagem não suportado: " + tipo;
+                }
+            } catch (IllegalArgumentException e) {
+                situacoes[i].rejeicao = e.getMessage();
+            }
+        }
+
+        // Orders first, so results for samples ordered in the same batch find them
+        gravarAmostras(amostras, origemAmostras, situacoes);
+        gravarMedicoes(medicoes, origemMedicoes, situacoes);
+
+        for (int i = 0; i < lote.size(); i++) {
+            Situacao situacao = situacoes[i];
+            if (situacao.rejeicao != null) {
+                responder(lote.get(i), "AR", situacao.rejeicao);
+            } else if (!situacao.erros.isEmpty()) {
+                responder(lote.get(i), "AE", String.join("; ", situacao.erros));
+            } else {
+                responder(lote.get(i), "AA", null);
+            }
+        }
+
+        log.debug("HL7 batch of {} messages applied in {} ms: {} amostras, {} medicoes",
+                lote.size(), System.currentTimeMillis() - inicio, amostras.size(), medicoes.size());
+    }
+
+    private void gravarAmostras(List<AmostraRequestDTO> amostras, List<Integer> origem, Situacao[] situacoes) {
+        for (int inicio = 0; inicio < amostras.size(); inicio += AmostraService.MAX_BATCH_SIZE) {
+            int fim = Math.min(amostras.size(), inicio + AmostraService.MAX_BATCH_SIZE);
+            try {
+                for (AmostraBatchItemResultDTO item : amostraService.createBatch(amostras.subList(inicio, fim)).itens()) {
+                    if (!item.sucesso()) {
+                        situacoes[origem.get(inicio + item.indice())].erros.add(item.codigoRastreio() + ": " + item.erro());
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to write HL7 orders", e);
+                origem.subList(inicio, fim).forEach(i -> situacoes[i].rejeicao = "Falha ao gravar amostras: " + e.getMessage());
+            }
+        }
+    }
+
+    private void gravarMedicoes(List<ItemImportacao> medicoes, List<Integer> origem, Situacao[] situacoes) {
+        for (int inicio = 0; inicio < medicoes.size(); inicio += MedicaoImportacaoService.TAMANHO_LOTE) {
+            List<ItemImportacao> parte = medicoes.subList(inicio, Math.min(medicoes.size(), inicio + MedicaoImportacaoService.TAMANHO_LOTE));
+            try {
+                for (MedicaoImportacaoErroDTO erro : medicaoImportacaoService.gravar(parte).erros()) {
+                    situacoes[origem.get((int) erro.linha())].erros.add(erro.codigoRastreio() + ": " + erro.erro());
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to write HL7 results", e);
+                parte.forEach(item -> situacoes[origem.get((int) item.numero())].rejeicao =
+                        "Falha ao gravar medições: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Splits a message into OBR groups. PID and ORC apply to the OBR segments that follow them;
+     * OBX and NTE segments belong to the preceding OBR.
+     */
+    private List<Grupo> agrupar(Hl7Mensagem mensagem) {
+        List<Grupo> grupos = new ArrayList<>();
+        int pid = -1;
+        int orc = -1;
+        Grupo atual = null;
+        for (int s = 1; s < mensagem.totalSegmentos(); s++) {
+            if (mensagem.segmentoE(s, "PID")) {
+                pid = s;
+            } else if (mensagem.segmentoE(s, "ORC")) {
+                orc = s;
+            } else if (mensagem.segmentoE(s, "OBR")) {
+                atual = new Grupo(pid, orc, s);
+                grupos.add(atual);
+            } else if (atual != null && mensagem.segmentoE(s, "OBX")) {
+                atual.obx.add(s);
+            } else if (atual != null && mensagem.segmentoE(s, "NTE")) {
+                atual.nte.add(s);
+            }
+        }
+        if (grupos.isEmpty()) {
+            throw new IllegalArgumentException("Mensagem sem segmento OBR");
+        }
+        return grupos;
+    }
+
+    /**
+     * Maps each order (OBR) of an ORM^O01 message to a sample.
+     *
+     * PID-3 patient ID, ORC-12 (or OBR-16) ordering provider ID, OBR-3 (or OBR-2) tracking code,
+     * OBR-15.1 specimen source as tissue type, OBR-15.4 body site, OBR-7 collection date,
+     * OBR-14 received date and NTE-3 notes. Groups that cannot be mapped are reported in {@code erros} and left out.
+     */
+    private List<AmostraRequestDTO> mapearOrdens(Hl7Mensagem mensagem, List<String> erros) {
+        List<AmostraRequestDTO> amostras = new ArrayList<>();
+        List<Grupo> grupos = agrupar(mensagem);
+        for (int g = 0; g < grupos.size(); g++) {
+            Grupo grupo = grupos.get(g);
+            int obr = grupo.obr;
+            try {
+                String medico = grupo.orc >= 0 ? mensagem.componente(grupo.orc, 12, 1) : null;
+                amostras.add(new AmostraRequestDTO(
+                        codigoRastreio(mensagem, obr),
+                        identificador(grupo.pid >= 0 ? mensagem.componente(grupo.pid, 3, 1) : null, "PID-3"),
+                        identificador(medico != null ? medico : mensagem.componente(obr, 16, 1), "ORC-12"),
+                        texto(mensagem, obr, 15, 1),
+                        texto(mensagem, obr, 15, 4),
+                        data(mensagem.campo(obr, 7), "OBR-7"),
+                        data(mensagem.campo(obr, 14), "OBR-14"),
+                        notas(mensagem, grupo)
+                ));
+            } catch (IllegalArgumentException e) {
+                erros.add("OBR " + (g + 1) + ": " + e.getMessage());
+            }
+        }
+        return amostras;
+    }
+
+    /**
+     * Maps each result group (OBR) of an ORU^R01 message carrying dimensions to a measurement.
+     *
+     * OBR-3 (or OBR-2) tracking code and one OBX per dimension, identified by OBX-3.1 LARGURA, ALTURA or
+     * PROFUNDIDADE, with the value in OBX-5 and the unit in OBX-6 (mm or cm). OBX-17 gives the method,
+     * OBX-18 the equipment, OBX-16 the responsible observer and NTE-3 the notes. Other observations are ignored.
+     * Groups that cannot be mapped are reported in {@code erros} and left out.
+     */
+    private List<ItemImportacao> mapearResultados(Hl7Mensagem mensagem, int primeiroNumero, List<String> erros) {
+        List<ItemImportacao> itens = new ArrayList<>();
+        List<Grupo> grupos = agrupar(mensagem);
+        for (int g = 0; g < grupos.size(); g++) {
+            try {
+                ItemImportacao item = mapearResultado(mensagem, grupos.get(g), primeiroNumero + itens.size());
+                if (item != null) {
+                    itens.add(item);
+                }
+            } catch (IllegalArgumentException e) {
+                erros.add("OBR " + (g + 1) + ": " + e.getMessage());
+            }
+        }
+        return itens;
+    }
+
+    /**
+     * Maps one result group, or returns null if it carries no dimension.
+     */
+    private ItemImportacao mapearResultado(Hl7Mensagem mensagem, Grupo grupo, long numero) {
+        BigDecimal largura = null;
+        BigDecimal altura = null;
+        BigDecimal profundidade = null;
+        String metodo = null;
+        String equipamento = null;
+        String responsavel = null;
+
+        for (int obx : grupo.obx) {
+            String codigo = mensagem.componente(obx, 3, 1);
+            if (codigo == null) {
+                continue;
+            }
+            switch (codigo.toUpperCase(Locale.ROOT)) {
+                case "LARGURA" -> largura = milimetros(mensagem, obx);
+                case "ALTURA" -> altura = milimetros(mensagem, obx);
+                case "PROFUNDIDADE" -> profundidade = milimetros(mensagem, obx);
+                default -> {
+                    continue;
+                }
+            }
+            metodo = primeiroNaoNulo(metodo, texto(mensagem, obx, 17, 0));
+            equipamento = primeiroNaoNulo(equipamento, texto(mensagem, obx, 18, 0));
+            responsavel = primeiroNaoNulo(responsavel, nomePessoa(mensagem, obx, 16));
+        }
+
+        if (largura == null && altura == null && profundidade == null) {
+            return null;
+        }
+
+        String codigoRastreio = codigoRastreio(mensagem, grupo.obr);
+        MedicaoRequestDTO dto = new MedicaoRequestDTO(largura, altura, profundidade, metodo, equipamento,
+                responsavel, notas(mensagem, grupo));
+        String erro = medicaoImportacaoService.validar(dto);
+        if (erro != null) {
+            throw new IllegalArgumentException(codigoRastreio + ": " + erro);
+        }
+        return new ItemImportacao(numero, codigoRastreio, dto);
+    }
+
+    private String codigoRastreio(Hl7Mensagem mensagem, int obr) {
+        String codigo = primeiroNaoNulo(mensagem.componente(obr, 3, 1), mensagem.componente(obr, 2, 1));
+        if (codigo == null) {
+            throw new IllegalArgumentException("OBR-3: código de rastreio é obrigatório");
+        }
+        return codigo;
+    }
+
+    /**
+     * Reads a coded or free-text value: the text of a CWE (subcomponent 2), falling back to its code.
+     * Component 0 reads the field itself as a CWE.
+     */
+    private String texto(Hl7Mensagem mensagem, int segmento, int campo, int componente) {
+        if (componente == 0) {
+            return primeiroNaoNulo(mensagem.componente(segmento, campo, 2), mensagem.componente(segmento, campo, 1));
+        }
+        return primeiroNaoNulo(mensagem.subcomponente(segmento, campo, componente, 2),
+                mensagem.subcomponente(segmento, campo, componente, 1));
+    }
+
+    /**
+     * Reads an XCN person name as "given family", falling back to the ID number.
+     */
+    private String nomePessoa(Hl7Mensagem mensagem, int segmento, int campo) {
+        String sobrenome = mensagem.componente(segmento, campo, 2);
+        String nome = mensagem.componente(segmento, campo, 3);
+        if (sobrenome == null && nome == null) {
+            return mensagem.componente(segmento, campo, 1);
+        }
+        return nome == null ? sobrenome : sobrenome == null ? nome : nome + " " + sobrenome;
+    }
+
+    private String notas(Hl7Mensagem mensagem, Grupo grupo) {
+        List<String> notas = new ArrayList<>(grupo.nte.size());
+        for (int nte : grupo.nte) {
+            String nota = mensagem.campo(nte, 3);
+            if (nota != null) {
+                notas.add(nota);
+            }
+        }
+        return notas.isEmpty() ? null : String.join(" ", notas);
+    }
+
+    private Long identificador(String valor, String campo) {
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(campo + ": identificador numérico inválido '" + valor + "'");
+        }
+    }
+
+    /**
+     * Reads the date part (YYYYMMDD) of an HL7 timestamp.
+     */
+    private LocalDate data(String valor, String campo) {
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(valor.substring(0, Math.min(8, valor.length())), DateTimeFormatter.BASIC_ISO_DATE);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(campo + ": data inválida '" + valor + "'");
+        }
+    }
+
+    private BigDecimal milimetros(Hl7Mensagem mensagem, int obx) {
+        String valor = mensagem.campo(obx, 5);
+        String unidade = mensagem.componente(obx, 6, 1);
+        if (valor == null) {
+            return null;
+        }
+        BigDecimal numero;
+        try {
+            numero = new BigDecimal(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("OBX-5: valor numérico inválido '" + valor + "'");
+        }
+        if (unidade == null || unidade.equalsIgnoreCase("mm")) {
+            return numero;
+        }
+        if (unidade.equalsIgnoreCase("cm")) {
+            return numero.movePointRight(1);
+        }
+        throw new IllegalArgumentException("OBX-6: unidade não suportada '" + unidade + "' (use mm ou cm)");
+    }
+
+    private static String primeiroNaoNulo(String valor, String alternativa) {
+        return valor != null ? valor : alternativa;
+    }
+
+    private void responder(MensagemRecebida recebida, String codigo, String texto) {
+        String ack = recebida.mensagem().ack(codigo, texto, proximoIdAck());
+        recebida.resposta().accept(ack.getBytes(charset));
+    }
+
+    private String proximoIdAck() {
+        return "AP" + sequenciaAck.incrementAndGet();
+    }
+}
@@ -0,0 +1,287 @@
+package br.com.dasa.analisepatologica.hl7;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Non-blocking MLLP (Minimal Lower Layer Protocol) listener for HL7 v2 feeds.
+ *
+ * A single thread multiplexes every connection through a {@link Selector}. Frames ({@code <VT> message <FS><CR>})
+ * are cut from a per-connection buffer and handed to {@link Hl7MensagemProcessor}; acknowledgments come back
+ * from the processor thread and are written by the selector thread, in the order they are produced.
+ * Disabled unless {@code analisepatologica.hl7.mllp.habilitado} is true.
+ */
+@Component
+@ConditionalOnProperty(prefix = "analisepatologica.hl7.mllp", name = "habilitado", havingValue = "true")
+@Slf4j
+public class MllpServer implements SmartLifecycle {
+
+    static final int FASE = SmartLifecycle.DEFAULT_PHASE;
+
+    private static final byte INICIO_BLOCO = 0x0B;
+    private static final byte FIM_BLOCO = 0x1C;
+    private static final byte RETORNO = 0x0D;
+    private static final int TAMANHO_INICIAL_BUFFER = 8 * 1024;
+
+    private final Hl7MensagemProcessor processor;
+    private final String host;
+    private final int porta;
+    private final int tamanhoMaximoMensagem;
+    private final Queue<Runnable> tarefas = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean executando;
+    private Selector selector;
+    private ServerSocketChannel servidor;
+    private Thread thread;
+
+    /**
+     * State of an accepted connection, only touched by the selector thread.
+     */
+    private static final class Conexao {
+        private ByteBuffer leitura = ByteBuffer.allocate(TAMANHO_INICIAL_BUFFER);
+        private final Queue<ByteBuffer> escrita = new ArrayDeque<>();
+    }
+
+    public MllpServer(Hl7MensagemProcessor processor,
+                      @Value("${analisepatologica.hl7.mllp.host:0.0.0.0}") String host,
+                      @Value("${analisepatologica.hl7.mllp.porta:2575}") int porta,
+                      @Value("${analisepatologica.hl7.mllp.tamanho-maximo-mensagem:1048576}") int tamanhoMaximoMensagem) {
+        this.processor = processor;
+        this.host = host;
+        this.porta = porta;
+        this.tamanhoMaximoMensagem = tamanhoMaximoMensagem;
+    }
+
+    @Override
+    public void start() {
+        try {
+            selector = Selector.open();
+            servidor = ServerSocketChannel.open();
+            servidor.bind(new InetSocketAddress(host, porta));
+            servidor.configureBlocking(false);
+            servidor.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao abrir listener MLLP na porta " + porta, e);
+        }
+
+        executando = true;
+        thread = new Thread(this::executar, "mllp-listener");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("MLLP listener started on {}:{}", host, getPortaLocal());
+    }
+
+    @Override
+    public void stop() {
+        executando = false;
+        selector.wakeup();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("MLLP listener stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return executando;
+    }
+
+    @Override
+    public int getPhase() {
+        return FASE;
+    }
+
+    /**
+     * Port actually bound, useful when {@code porta} is 0.
+     */
+    public int getPortaLocal() {
+        return servidor.socket().getLocalPort();
+    }
+
+    private void executar() {
+        try {
+            while (executando) {
+                selector.select();
+                Runnable tarefa;
+                while ((tarefa = tarefas.poll()) != null) {
+                    tarefa.run();
+                }
+
+                Iterator<SelectionKey> chaves = selector.selectedKeys().iterator();
+                while (chaves.hasNext()) {
+                    SelectionKey chave = chaves.next();
+                    chaves.remove();
+                    try {
+                        if (!chave.isValid()) {
+                            continue;
+                        }
+                        if (chave.isAcceptable()) {
+                            aceitar();
+                        }
+                        if (chave.isValid() && chave.isReadable()) {
+                            ler(chave);
+                        }
+                        if (chave.isValid() && chave.isWritable()) {
+                            escrever(chave);
+                        }
+                    } catch (IOException e) {
+                        log.debug("Closing MLLP connection {}: {}", chave.channel(), e.getMessage());
+                        fechar(chave);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            log.error("MLLP listener failed", e);
+        } finally {
+            fecharTudo();
+        }
+    }
+
+    private void aceitar() throws IOException {
+        SocketChannel canal = servidor.accept();
+        if (canal == null) {
+            return;
+        }
+        canal.configureBlocking(false);
+        canal.register(selector, SelectionKey.OP_READ, new Conexao());
+        log.debug("MLLP connection accepted from {}", canal.getRemoteAddress());
+    }
+
+    private void ler(SelectionKey chave) throws IOException {
+        SocketChannel canal = (SocketChannel) chave.channel();
+        Conexao conexao = (Conexao) chave.attachment();
+
+        if (!conexao.leitura.hasRemaining()) {
+            if (conexao.leitura.capacity() >= tamanhoMaximoMensagem) {
+                throw new IOException("Mensagem excede " + tamanhoMaximoMensagem + " bytes");
+            }
+            ByteBuffer maior = ByteBuffer.allocate(Math.min(conexao.leitura.capacity() * 2, tamanhoMaximoMensagem));
+            conexao.leitura.flip();
+            maior.put(conexao.leitura);
+            conexao.leitura = maior;
+        }
+
+        if (canal.read(conexao.leitura) < 0) {
+            fechar(chave);
+            return;
+        }
+        extrairMensagens(chave, conexao);
+    }
+
+    /**
+     * Hands every complete frame in the buffer to the processor and keeps the incomplete tail.
+     * Bytes before a start block are discarded, as MLLP requires.
+     */
+    private void extrairMensagens(SelectionKey chave, Conexao conexao) {
+        ByteBuffer buffer = conexao.leitura;
+        buffer.flip();
+        byte[] dados = buffer.array();
+        int consumido = 0;
+        int limite = buffer.limit();
+
+        while (true) {
+            int inicio = -1;
+            for (int i = consumido; i < limite; i++) {
+                if (dados[i] == INICIO_BLOCO) {
+                    inicio = i;
+                    break;
+                }
+            }
+            if (inicio < 0) {
+                consumido = limite;
+                break;
+            }
+
+            int fim = -1;
+            for (int i = inicio + 1; i < limite - 1; i++) {
+                if (dados[i] == FIM_BLOCO && dados[i + 1] == RETORNO) {
+                    fim = i;
+                    break;
+                }
+            }
+            if (fim < 0) {
+                consumido = inicio;
+                break;
+            }
+
+            byte[] conteudo = new byte[fim - inicio - 1];
+            System.arraycopy(dados, inicio + 1, conteudo, 0, conteudo.length);
+            processor.receber(conteudo, resposta -> responder(chave, resposta));
+            consumido = fim + 2;
+        }
+
+        buffer.position(consumido);
+        buffer.compact();
+    }
+
+    /**
+     * Queues an acknowledgment for the connection. Safe to call from any thread.
+     */
+    private void responder(SelectionKey chave, byte[] resposta) {
+        ByteBuffer quadro = ByteBuffer.allocate(resposta.length + 3);
+        quadro.put(INICIO_BLOCO).put(resposta).put(FIM_BLOCO).put(RETORNO).flip();
+
+        tarefas.add(() -> {
+            if (!chave.isValid()) {
+                log.warn("MLLP connection closed before the acknowledgment could be sent");
+                return;
+            }
+            ((Conexao) chave.attachment()).escrita.add(quadro);
+            chave.interestOps(chave.interestOps() | SelectionKey.OP_WRITE);
+        });
+        selector.wakeup();
+    }
+
+    private void escrever(SelectionKey chave) throws IOException {
+        SocketChannel canal = (SocketChannel) chave.channel();
+        Queue<ByteBuffer> escrita = ((Conexao) chave.attachment()).escrita;
+        while (!escrita.isEmpty()) {
+            ByteBuffer quadro = escrita.peek();
+            canal.write(quadro);
+            if (quadro.hasRemaining()) {
+                return;
+            }
+            escrita.poll();
+        }
+        chave.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void fechar(SelectionKey chave) {
+        chave.cancel();
+        try {
+            chave.channel().close();
+        } catch (IOException e) {
+            log.debug("Error closing MLLP connection", e);
+        }
+    }
+
+    private void fecharTudo() {
+        for (SelectionKey chave : selector.keys()) {
+            fechar(chave);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.debug("Error closing MLLP selector", e);
+        }
+    }
+}
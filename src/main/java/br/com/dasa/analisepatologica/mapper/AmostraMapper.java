@@ -35,6 +35,10 @@ public class AmostraMapper {
         return amostra;
     }
 
+    /**
+     * Maps a sample reading the denormalized counters, so the medicoes and imagens
+     * collections are never initialized.
+     */
     public AmostraResponseDTO toResponseDTO(Amostra entity) {
         // Map patient to basic DTO
         PacienteBasicDTO pacienteDTO = null;
@@ -76,7 +80,7 @@ public class AmostraMapper {
             entity.getStatusProcessamento(),
             entity.getObservacoes(),
             entity.getTotalMedicoes(),
-            entity.getTotalImagens(),
+            entity.getTotalImagensAtivas(),
             entity.temLaudo(),
             entity.estaProntaParaAnalise(),
             entity.getCreatedAt(),
@@ -2,11 +2,13 @@ package br.com.dasa.analisepatologica.mapper;
 
 import br.com.dasa.analisepatologica.dto.ImagemAmostraRequestDTO;
 import br.com.dasa.analisepatologica.dto.ImagemAmostraResponseDTO;
+import br.com.dasa.analisepatologica.dto.ImagemSemelhanteDTO;
 import br.com.dasa.analisepatologica.entity.Amostra;
 import br.com.dasa.analisepatologica.entity.ImagemAmostra;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 
 /**
  * Mapper for converting between ImagemAmostra entity and DTOs.
@@ -23,10 +25,11 @@ public class ImagemAmostraMapper {
                 .tamanhoBytes(dto.getTamanhoBytes())
                 .descricao(dto.getDescricao())
                 .equipamentoCaptura(dto.getEquipamentoCaptura())
-                .resolucao(dto.getResolucao())
                 .dataCaptura(dto.getDataCaptura() != null ? dto.getDataCaptura() : LocalDateTime.now())
                 .ativa('S')
                 .build();
+        // Through the setter, which also parses width and height
+        imagem.setResolucao(dto.getResolucao());
 
         // Set relationship - JPA will derive the IDs automatically
         // from @JoinColumn mapping (insertable=false, updatable=false)
@@ -36,9 +39,17 @@ public class ImagemAmostraMapper {
     }
 
     public ImagemAmostraResponseDTO toResponseDTO(ImagemAmostra entity) {
+        return toResponseDTO(entity, entity.getAmostra() != null ? entity.getAmostra().getCodigoRastreio() : null);
+    }
+
+    /**
+     * Maps an image whose sample tracking code is already known,
+     * without initializing the lazy amostra association.
+     */
+    public ImagemAmostraResponseDTO toResponseDTO(ImagemAmostra entity, String codigoRastreio) {
         return ImagemAmostraResponseDTO.builder()
                 .imagemId(entity.getImagemId())
-                .codigoRastreioAmostra(entity.getAmostra() != null ? entity.getAmostra().getCodigoRastreio() : null)
+                .codigoRastreioAmostra(codigoRastreio)
                 .nomeArquivo(entity.getNomeArquivo())
                 .caminhoArquivo(entity.getCaminhoArquivo())
                 .urlAcesso(entity.getUrlAcesso())
@@ -49,9 +60,21 @@ public class ImagemAmostraMapper {
                 .dataCaptura(entity.getDataCaptura())
                 .equipamentoCaptura(entity.getEquipamentoCaptura())
                 .resolucao(entity.getResolucao())
+                .larguraPx(entity.getLarguraPx())
+                .alturaPx(entity.getAlturaPx())
                 .ativa(entity.isAtiva())
                 .altaResolucao(entity.isAltaResolucao())
                 .qualidadeValida(entity.validarQualidade())
+                .statusMetadados(entity.getStatusMetadados())
+                .motivoMetadados(entity.getMotivoMetadados())
+                .statusAnaliseQualidade(entity.getStatusAnaliseQualidade())
+                .nitidez(entity.getNitidez())
+                .fracaoDesfocada(entity.getFracaoDesfocada())
+                .coberturaTecido(entity.getCoberturaTecido())
+                .saturacaoMedia(entity.getSaturacaoMedia())
+                .brilhoMedio(entity.getBrilhoMedio())
+                .alertasQualidade(entity.getAlertasQualidade())
+                .hashPerceptual(hexadecimal(entity.getHashPerceptual()))
                 .createdAt(entity.getCreatedAt())
                 .build();
     }
@@ -69,4 +92,23 @@ public class ImagemAmostraMapper {
             entity.setDataCaptura(dto.getDataCaptura());
         }
     }
+
+    /**
+     * Maps an image found near another one; the sample must be loaded.
+     */
+    public ImagemSemelhanteDTO toSemelhanteDTO(ImagemAmostra entity, int distancia, boolean outraAmostra) {
+        return new ImagemSemelhanteDTO(
+                entity.getImagemId(),
+                entity.getAmostra().getCodigoRastreio(),
+                entity.getNomeArquivo(),
+                entity.isAtiva(),
+                hexadecimal(entity.getHashPerceptual()),
+                distancia,
+                outraAmostra
+        );
+    }
+
+    private static String hexadecimal(Long hash) {
+        return hash != null ? HexFormat.of().toHexDigits(hash) : null;
+    }
 }
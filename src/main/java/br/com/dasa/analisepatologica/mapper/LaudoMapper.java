@@ -34,6 +34,14 @@ public class LaudoMapper {
     }
 
     public LaudoResponseDTO toResponseDTO(Laudo entity) {
+        return toResponseDTO(entity, entity.getAmostra() != null ? entity.getAmostra().getCodigoRastreio() : null);
+    }
+
+    /**
+     * Maps a report whose sample tracking code is already known,
+     * without initializing the lazy amostra association.
+     */
+    public LaudoResponseDTO toResponseDTO(Laudo entity, String codigoRastreio) {
         // Map pathologist to basic DTO
         MedicoBasicDTO patologistaDTO = null;
         if (entity.getPatologista() != null) {
@@ -50,7 +58,7 @@ public class LaudoMapper {
 
         return new LaudoResponseDTO(
             entity.getLaudoId(),
-            entity.getAmostra() != null ? entity.getAmostra().getCodigoRastreio() : null,
+            codigoRastreio,
             patologistaDTO,
             entity.getDiagnosticoPrincipal(),
             entity.getDiagnosticosSecundarios(),
@@ -36,13 +36,21 @@ public class MedicaoMapper {
     }
 
     public MedicaoResponseDTO toResponseDTO(Medicao entity) {
+        return toResponseDTO(entity, entity.getAmostra() != null ? entity.getAmostra().getCodigoRastreio() : null);
+    }
+
+    /**
+     * Maps a measurement whose sample tracking code is already known,
+     * without initializing the lazy amostra association.
+     */
+    public MedicaoResponseDTO toResponseDTO(Medicao entity, String codigoRastreio) {
         return new MedicaoResponseDTO(
                 entity.getMedicaoId(),
-                entity.getAmostra() != null ? entity.getAmostra().getCodigoRastreio() : null,
+                codigoRastreio,
                 entity.getLarguraMm(),
                 entity.getAlturaMm(),
                 entity.getProfundidadeMm(),
-                entity.calcularVolume(),
+                entity.getVolumeMm3(),
                 entity.getMetodoMedicao(),
                 entity.getEquipamentoUtilizado(),
                 entity.getVersao(),
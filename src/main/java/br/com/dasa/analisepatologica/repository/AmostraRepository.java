@@ -3,15 +3,23 @@ package br.com.dasa.analisepatologica.repository;
 import br.com.dasa.analisepatologica.entity.Amostra;
 import br.com.dasa.analisepatologica.entity.AmostraId;
 import br.com.dasa.analisepatologica.enums.StatusProcessamento;
+import br.com.dasa.analisepatologica.repository.projection.ContagemProjection;
+import br.com.dasa.analisepatologica.repository.projection.VersaoMedicaoProjection;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Amostra entity.
@@ -25,11 +33,37 @@ public interface AmostraRepository extends JpaRepository<Amostra, AmostraId>, Jp
      */
     Optional<Amostra> findByCodigoRastreio(String codigoRastreio);
 
+    /**
+     * Finds the samples with the given tracking codes in a single query.
+     */
+    List<Amostra> findByCodigoRastreioIn(Collection<String> codigosRastreio);
+
+    /**
+     * Finds only the composite key of a sample by its tracking code.
+     */
+    @Query("SELECT new br.com.dasa.analisepatologica.entity.AmostraId(a.amostraId, a.pacienteId, a.medicoId) "
+            + "FROM Amostra a WHERE a.codigoRastreio = :codigoRastreio")
+    Optional<AmostraId> findIdByCodigoRastreio(@Param("codigoRastreio") String codigoRastreio);
+
     /**
      * Checks if a sample exists with the given tracking code.
      */
     boolean existsByCodigoRastreio(String codigoRastreio);
 
+    /**
+     * Returns which of the given tracking codes are already registered.
+     * Used by bulk intake to check uniqueness with a single query.
+     */
+    @Query("SELECT a.codigoRastreio FROM Amostra a WHERE a.codigoRastreio IN :codigos")
+    List<String> findCodigosRastreioExistentes(@Param("codigos") Collection<String> codigos);
+
+    /**
+     * Streams every registered tracking code. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT a.codigoRastreio FROM Amostra a")
+    Stream<String> streamCodigosRastreio();
+
     /**
      * Counts samples by status.
      */
@@ -44,4 +78,75 @@ public interface AmostraRepository extends JpaRepository<Amostra, AmostraId>, Jp
      * Counts samples by doctor.
      */
     long countByMedicoId(Long medicoId);
+
+    /**
+     * Atomically reserves the next measurement version of the sample and counts the new measurement.
+     * The row lock taken by the UPDATE serializes concurrent creations for the same sample until commit;
+     * read the reserved number with {@link #findUltimaVersaoMedicao(Amostra)} in the same transaction.
+     */
+    @Modifying
+    @Query("UPDATE Amostra a SET a.ultimaVersaoMedicao = a.ultimaVersaoMedicao + 1, "
+            + "a.totalMedicoes = a.totalMedicoes + 1 WHERE a = :amostra")
+    int alocarVersaoMedicao(@Param("amostra") Amostra amostra);
+
+    /**
+     * Locks the sample row until commit without changing it, taking the same lock as
+     * {@link #alocarVersaoMedicao(Amostra)} so changes to the sample's measurement versions run one at a time.
+     */
+    @Modifying
+    @Query("UPDATE Amostra a SET a.ultimaVersaoMedicao = a.ultimaVersaoMedicao WHERE a = :amostra")
+    int bloquearVersoesMedicao(@Param("amostra") Amostra amostra);
+
+    /**
+     * Gets the last measurement version reserved for the sample.
+     */
+    @Query("SELECT a.ultimaVersaoMedicao FROM Amostra a WHERE a = :amostra")
+    Integer findUltimaVersaoMedicao(@Param("amostra") Amostra amostra);
+
+    /**
+     * Bulk variant of {@link #alocarVersaoMedicao(Amostra)}: reserves the next quantidade versions
+     * of every given sample; read them back with {@link #findUltimasVersoesMedicao(Collection)}.
+     */
+    @Modifying
+    @Query("UPDATE Amostra a SET a.ultimaVersaoMedicao = a.ultimaVersaoMedicao + :quantidade, "
+            + "a.totalMedicoes = a.totalMedicoes + :quantidade WHERE a.amostraId IN :amostraIds")
+    int alocarVersoesMedicao(@Param("amostraIds") Collection<Long> amostraIds, @Param("quantidade") int quantidade);
+
+    /**
+     * Gets the last measurement version reserved for each of the given samples.
+     */
+    @Query("SELECT a.amostraId AS amostraId, a.ultimaVersaoMedicao AS ultimaVersaoMedicao "
+            + "FROM Amostra a WHERE a.amostraId IN :amostraIds")
+    List<VersaoMedicaoProjection> findUltimasVersoesMedicao(@Param("amostraIds") Collection<Long> amostraIds);
+
+    /**
+     * Atomically adds delta to the sample's active image counter.
+     */
+    @Modifying
+    @Query("UPDATE Amostra a SET a.totalImagensAtivas = a.totalImagensAtivas + :delta WHERE a = :amostra")
+    int incrementarTotalImagensAtivas(@Param("amostra") Amostra amostra, @Param("delta") int delta);
+
+    /**
+     * Counts samples grouped by processing status.
+     */
+    @Query("SELECT a.statusProcessamento AS chave, COUNT(a) AS total FROM Amostra a GROUP BY a.statusProcessamento")
+    List<ContagemProjection<StatusProcessamento>> countGroupByStatusProcessamento();
+
+    /**
+     * Counts samples grouped by tissue type.
+     */
+    @Query("SELECT a.tipoTecido AS chave, COUNT(a) AS total FROM Amostra a GROUP BY a.tipoTecido")
+    List<ContagemProjection<String>> countGroupByTipoTecido();
+
+    /**
+     * Counts samples grouped by tissue type, for the given tissue types only.
+     */
+    @Query("SELECT a.tipoTecido AS chave, COUNT(a) AS total FROM Amostra a WHERE a.tipoTecido IN :tiposTecido GROUP BY a.tipoTecido")
+    List<ContagemProjection<String>> countGroupByTipoTecidoIn(@Param("tiposTecido") Collection<String> tiposTecido);
+
+    /**
+     * Counts samples grouped by requesting doctor.
+     */
+    @Query("SELECT a.medicoId AS chave, COUNT(a) AS total FROM Amostra a GROUP BY a.medicoId")
+    List<ContagemProjection<Long>> countGroupByMedicoId();
 }
@@ -0,0 +1,103 @@
+package br.com.dasa.analisepatologica.repository;
+
+import br.com.dasa.analisepatologica.entity.ConteudoImagem;
+import br.com.dasa.analisepatologica.enums.StatusIntegridade;
+import br.com.dasa.analisepatologica.repository.projection.ArmazenamentoProjection;
+import br.com.dasa.analisepatologica.repository.projection.ContagemProjection;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for ConteudoImagem entity.
+ */
+@Repository
+public interface ConteudoImagemRepository extends JpaRepository<ConteudoImagem, String> {
+
+    /**
+     * Adds {@code delta} to the reference count of a content. The row stays locked until commit,
+     * which serializes concurrent changes to the same content.
+     *
+     * @return 1 if the content is indexed, 0 otherwise
+     */
+    @Modifying
+    @Query("UPDATE ConteudoImagem c SET c.referencias = c.referencias + :delta WHERE c.sha256 = :sha256")
+    int incrementarReferencias(@Param("sha256") String sha256, @Param("delta") int delta);
+
+    /**
+     * Indexes a content with no references yet. Fails on the primary key if it is already indexed.
+     */
+    @Modifying
+    @Query("INSERT INTO ConteudoImagem (sha256, tamanhoBytes, referencias, statusIntegridade, createdAt) "
+            + "VALUES (:sha256, :tamanhoBytes, 0, :status, :criadoEm)")
+    int inserir(@Param("sha256") String sha256, @Param("tamanhoBytes") Long tamanhoBytes,
+                @Param("status") StatusIntegridade status, @Param("criadoEm") LocalDateTime criadoEm);
+
+    /**
+     * Reads the reference count of a content, as changed by this transaction.
+     */
+    @Query("SELECT c.referencias FROM ConteudoImagem c WHERE c.sha256 = :sha256")
+    Optional<Integer> findReferenciasBySha256(@Param("sha256") String sha256);
+
+    /**
+     * Finds a content and locks its row until commit, so references cannot be added while it is deleted.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM ConteudoImagem c WHERE c.sha256 = :sha256")
+    Optional<ConteudoImagem> findForUpdateBySha256(@Param("sha256") String sha256);
+
+    /**
+     * Removes a content from the index if no image points at it anymore.
+     *
+     * @return 1 if it was removed
+     */
+    @Modifying
+    @Query("DELETE FROM ConteudoImagem c WHERE c.sha256 = :sha256 AND c.referencias = 0")
+    int removerSemReferencias(@Param("sha256") String sha256);
+
+    /**
+     * Totals of the index: bytes referenced by images versus bytes actually stored.
+     */
+    @Query("SELECT COUNT(c) AS objetos, COALESCE(SUM(c.referencias), 0) AS referencias, "
+            + "COALESCE(SUM(c.tamanhoBytes), 0) AS bytesArmazenados, "
+            + "COALESCE(SUM(c.tamanhoBytes * c.referencias), 0) AS bytesReferenciados "
+            + "FROM ConteudoImagem c")
+    ArmazenamentoProjection totalizar();
+
+    /**
+     * Finds the first contents in hash order, to start an integrity scrub.
+     */
+    List<ConteudoImagem> findAllByOrderBySha256Asc(Pageable pageable);
+
+    /**
+     * Finds the contents after a hash, in hash order, to continue an integrity scrub from its checkpoint.
+     */
+    List<ConteudoImagem> findBySha256GreaterThanOrderBySha256Asc(String sha256, Pageable pageable);
+
+    /**
+     * Records the outcome of the integrity check of a content.
+     *
+     * @return 1 if the content is still indexed, 0 if it was deleted meanwhile
+     */
+    @Modifying
+    @Query("UPDATE ConteudoImagem c SET c.statusIntegridade = :status, c.integridadeVerificadaEm = :verificadaEm "
+            + "WHERE c.sha256 = :sha256")
+    int registrarIntegridade(@Param("sha256") String sha256, @Param("status") StatusIntegridade status,
+                             @Param("verificadaEm") LocalDateTime verificadaEm);
+
+    /**
+     * Counts contents grouped by the outcome of their last integrity check.
+     * Served by CONTEUDO_IMAGEM_integridade_IX.
+     */
+    @Query("SELECT c.statusIntegridade AS chave, COUNT(c) AS total FROM ConteudoImagem c GROUP BY c.statusIntegridade")
+    List<ContagemProjection<StatusIntegridade>> countGroupByStatusIntegridade();
+}
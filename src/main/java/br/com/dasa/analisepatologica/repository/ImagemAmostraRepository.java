@@ -2,21 +2,32 @@ package br.com.dasa.analisepatologica.repository;
 
 import br.com.dasa.analisepatologica.entity.Amostra;
 import br.com.dasa.analisepatologica.entity.ImagemAmostra;
+import br.com.dasa.analisepatologica.enums.StatusAnaliseQualidade;
+import br.com.dasa.analisepatologica.enums.StatusMetadados;
 import br.com.dasa.analisepatologica.enums.TipoArquivo;
+import br.com.dasa.analisepatologica.repository.projection.HashPerceptualProjection;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for ImagemAmostra entity.
+ * Extends JpaSpecificationExecutor for filtering the images of a sample.
  */
 @Repository
-public interface ImagemAmostraRepository extends JpaRepository<ImagemAmostra, Long> {
+public interface ImagemAmostraRepository extends JpaRepository<ImagemAmostra, Long>, JpaSpecificationExecutor<ImagemAmostra> {
 
     /**
      * Finds all images for a sample.
@@ -42,4 +53,35 @@ public interface ImagemAmostraRepository extends JpaRepository<ImagemAmostra, Lo
      */
     List<ImagemAmostra> findByAmostra_AmostraIdAndAmostra_PacienteIdAndAmostra_MedicoIdAndAtiva(
             Long amostraId, Long pacienteId, Long medicoId, Character ativa);
+
+    /**
+     * Finds the keys of the images in a metadata state, in key order.
+     * Served by IMAGEM_AMOSTRA_metadados_IX.
+     */
+    @Query("SELECT i.imagemId FROM ImagemAmostra i WHERE i.statusMetadados = :status ORDER BY i.imagemId")
+    List<Long> findIdsByStatusMetadados(@Param("status") StatusMetadados status, Pageable pageable);
+
+    /**
+     * Finds the keys of the images awaiting quality analysis whose file header was read, in key order.
+     * Served by IMAGEM_AMOSTRA_analise_IX.
+     */
+    @Query("SELECT i.imagemId FROM ImagemAmostra i WHERE i.statusAnaliseQualidade = :status "
+            + "AND i.statusMetadados IN :statusMetadados ORDER BY i.imagemId")
+    List<Long> findIdsByStatusAnaliseQualidade(@Param("status") StatusAnaliseQualidade status,
+                                               @Param("statusMetadados") Collection<StatusMetadados> statusMetadados,
+                                               Pageable pageable);
+
+    /**
+     * Streams the perceptual hash of every analyzed image. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT i.imagemId AS imagemId, i.hashPerceptual AS hashPerceptual FROM ImagemAmostra i "
+            + "WHERE i.hashPerceptual IS NOT NULL")
+    Stream<HashPerceptualProjection> streamHashesPerceptuais();
+
+    /**
+     * Finds images by key with their sample, in one query.
+     */
+    @Query("SELECT i FROM ImagemAmostra i JOIN FETCH i.amostra WHERE i.imagemId IN :ids")
+    List<ImagemAmostra> findAllWithAmostraByImagemIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,31 @@
+package br.com.dasa.analisepatologica.repository;
+
+import br.com.dasa.analisepatologica.entity.Amostra;
+import br.com.dasa.analisepatologica.entity.ImagemUpload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for ImagemUpload entity.
+ */
+@Repository
+public interface ImagemUploadRepository extends JpaRepository<ImagemUpload, String> {
+
+    /**
+     * Finds an upload with its sample, whose tracking code is part of every upload response.
+     * The sample is fetched in the same query so the upload can be used outside a transaction
+     * while its bytes are streamed.
+     */
+    @Query("SELECT u FROM ImagemUpload u JOIN FETCH u.amostra WHERE u.uploadId = :uploadId")
+    Optional<ImagemUpload> findWithAmostraByUploadId(@Param("uploadId") String uploadId);
+
+    /**
+     * Finds the open uploads of a sample.
+     */
+    List<ImagemUpload> findByAmostra(Amostra amostra);
+}
@@ -4,6 +4,7 @@ import br.com.dasa.analisepatologica.entity.Amostra;
 import br.com.dasa.analisepatologica.entity.Laudo;
 import br.com.dasa.analisepatologica.entity.Medico;
 import br.com.dasa.analisepatologica.enums.StatusLaudo;
+import br.com.dasa.analisepatologica.repository.projection.ContagemProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -59,4 +60,10 @@ public interface LaudoRepository extends JpaRepository<Laudo, Long> {
      */
     @Query("SELECT l FROM Laudo l WHERE l.statusLaudo = 'EMITIDO'")
     List<Laudo> findLaudosProntosParaLiberacao();
+
+    /**
+     * Counts reports grouped by status.
+     */
+    @Query("SELECT l.statusLaudo AS chave, COUNT(l) AS total FROM Laudo l GROUP BY l.statusLaudo")
+    List<ContagemProjection<StatusLaudo>> countGroupByStatusLaudo();
 }
@@ -3,13 +3,16 @@ package br.com.dasa.analisepatologica.repository;
 import br.com.dasa.analisepatologica.entity.Amostra;
 import br.com.dasa.analisepatologica.entity.Medicao;
 import br.com.dasa.analisepatologica.entity.MedicaoId;
+import br.com.dasa.analisepatologica.repository.projection.DistribuicaoVolumeProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,11 +39,60 @@ public interface MedicaoRepository extends JpaRepository<Medicao, MedicaoId> {
     List<Medicao> findByAmostraOrderByVersaoDesc(Amostra amostra);
 
     /**
-     * Gets the maximum version number for a sample.
-     * Custom query is justified here for aggregation function.
+     * Deactivates every active measurement of a sample in a single statement.
      */
-    @Query("SELECT MAX(m.versao) FROM Medicao m WHERE m.amostra = :amostra")
-    Integer findMaxVersaoByAmostra(@Param("amostra") Amostra amostra);
+    @Modifying
+    @Query("UPDATE Medicao m SET m.ativa = 'N' WHERE m.amostra = :amostra AND m.ativa = 'S'")
+    int desativarTodasByAmostra(@Param("amostra") Amostra amostra);
+
+    /**
+     * Deactivates every active measurement of the given samples in a single statement.
+     */
+    @Modifying
+    @Query("UPDATE Medicao m SET m.ativa = 'N' WHERE m.amostraId IN :amostraIds AND m.ativa = 'S'")
+    int desativarTodasByAmostraIdIn(@Param("amostraIds") Collection<Long> amostraIds);
+
+    /**
+     * Deactivates the active measurement of a sample unless it is the given version.
+     * Must run before {@link #ativarVersao(Amostra, Integer)}: a unique index allows a single active version per sample.
+     */
+    @Modifying
+    @Query("UPDATE Medicao m SET m.ativa = 'N' WHERE m.amostra = :amostra AND m.ativa = 'S' AND m.versao <> :versao")
+    int desativarOutrasVersoes(@Param("amostra") Amostra amostra, @Param("versao") Integer versao);
+
+    /**
+     * Activates a measurement version of a sample.
+     *
+     * @return number of rows updated (0 when the version does not exist)
+     */
+    @Modifying
+    @Query("UPDATE Medicao m SET m.ativa = 'S' WHERE m.amostra = :amostra AND m.versao = :versao")
+    int ativarVersao(@Param("amostra") Amostra amostra, @Param("versao") Integer versao);
+
+    /**
+     * Finds a specific measurement version of a sample.
+     */
+    Optional<Medicao> findByAmostraAndVersao(Amostra amostra, Integer versao);
+
+    /**
+     * Volume distribution of the active measurements per sample tissue type, computed in the database.
+     */
+    @Query("SELECT a.tipoTecido AS chave, COUNT(m) AS total, MIN(m.volumeMm3) AS minimo, MAX(m.volumeMm3) AS maximo, "
+            + "AVG(m.volumeMm3) AS media, "
+            + "PERCENTILE_CONT(0.5) WITHIN GROUP (ORDER BY m.volumeMm3) AS p50, "
+            + "PERCENTILE_CONT(0.95) WITHIN GROUP (ORDER BY m.volumeMm3) AS p95 "
+            + "FROM Medicao m JOIN m.amostra a WHERE m.ativa = 'S' GROUP BY a.tipoTecido ORDER BY a.tipoTecido")
+    List<DistribuicaoVolumeProjection> findDistribuicaoVolumeByTipoTecido();
+
+    /**
+     * Volume distribution of the active measurements per measurement method, computed in the database.
+     */
+    @Query("SELECT m.metodoMedicao AS chave, COUNT(m) AS total, MIN(m.volumeMm3) AS minimo, MAX(m.volumeMm3) AS maximo, "
+            + "AVG(m.volumeMm3) AS media, "
+            + "PERCENTILE_CONT(0.5) WITHIN GROUP (ORDER BY m.volumeMm3) AS p50, "
+            + "PERCENTILE_CONT(0.95) WITHIN GROUP (ORDER BY m.volumeMm3) AS p95 "
+            + "FROM Medicao m WHERE m.ativa = 'S' GROUP BY m.metodoMedicao ORDER BY m.metodoMedicao")
+    List<DistribuicaoVolumeProjection> findDistribuicaoVolumeByMetodoMedicao();
 
     /**
      * Alternative methods using composite key components (if needed when you don't have the entity).
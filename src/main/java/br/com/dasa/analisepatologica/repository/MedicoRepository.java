@@ -2,6 +2,7 @@ package br.com.dasa.analisepatologica.repository;
 
 import br.com.dasa.analisepatologica.entity.Medico;
 import br.com.dasa.analisepatologica.enums.TipoMedico;
+import br.com.dasa.analisepatologica.repository.projection.ContagemProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
@@ -51,4 +52,10 @@ public interface MedicoRepository extends JpaRepository<Medico, Long>, JpaSpecif
      * Counts doctors by type.
      */
     long countByTipoMedico(TipoMedico tipoMedico);
+
+    /**
+     * Counts doctors grouped by type.
+     */
+    @Query("SELECT m.tipoMedico AS chave, COUNT(m) AS total FROM Medico m GROUP BY m.tipoMedico")
+    List<ContagemProjection<TipoMedico>> countGroupByTipoMedico();
 }
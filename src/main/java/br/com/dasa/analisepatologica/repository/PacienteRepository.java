@@ -2,6 +2,7 @@ package br.com.dasa.analisepatologica.repository;
 
 import br.com.dasa.analisepatologica.entity.Paciente;
 import br.com.dasa.analisepatologica.enums.Sexo;
+import br.com.dasa.analisepatologica.repository.projection.ContagemProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
@@ -53,4 +54,10 @@ public interface PacienteRepository extends JpaRepository<Paciente, Long>, JpaSp
      * Counts patients by gender.
      */
     long countBySexo(Sexo sexo);
+
+    /**
+     * Counts patients grouped by gender.
+     */
+    @Query("SELECT p.sexo AS chave, COUNT(p) AS total FROM Paciente p GROUP BY p.sexo")
+    List<ContagemProjection<Sexo>> countGroupBySexo();
 }
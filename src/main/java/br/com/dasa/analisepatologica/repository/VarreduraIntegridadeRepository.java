@@ -0,0 +1,12 @@
+package br.com.dasa.analisepatologica.repository;
+
+import br.com.dasa.analisepatologica.entity.VarreduraIntegridade;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository interface for the checkpoint of the integrity scrub (VarreduraIntegridade, single row).
+ */
+@Repository
+public interface VarreduraIntegridadeRepository extends JpaRepository<VarreduraIntegridade, Integer> {
+}
@@ -0,0 +1,15 @@
+package br.com.dasa.analisepatologica.repository.projection;
+
+/**
+ * Projection with the totals of the image content index.
+ */
+public interface ArmazenamentoProjection {
+
+    Long getObjetos();
+
+    Long getReferencias();
+
+    Long getBytesArmazenados();
+
+    Long getBytesReferenciados();
+}
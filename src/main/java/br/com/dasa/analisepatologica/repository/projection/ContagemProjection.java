@@ -0,0 +1,13 @@
+package br.com.dasa.analisepatologica.repository.projection;
+
+/**
+ * Projection with one row of a GROUP BY count: the grouping key and its number of rows.
+ *
+ * @param <K> type of the grouping column
+ */
+public interface ContagemProjection<K> {
+
+    K getChave();
+
+    Long getTotal();
+}
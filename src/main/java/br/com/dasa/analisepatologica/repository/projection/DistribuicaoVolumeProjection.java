@@ -0,0 +1,23 @@
+package br.com.dasa.analisepatologica.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Projection with one row of the measurement volume distribution: the grouping key and its aggregates.
+ */
+public interface DistribuicaoVolumeProjection {
+
+    String getChave();
+
+    Long getTotal();
+
+    BigDecimal getMinimo();
+
+    BigDecimal getMaximo();
+
+    Double getMedia();
+
+    Double getP50();
+
+    Double getP95();
+}
@@ -0,0 +1,11 @@
+package br.com.dasa.analisepatologica.repository.projection;
+
+/**
+ * Projection with the perceptual hash of an image, for loading the near-duplicate index.
+ */
+public interface HashPerceptualProjection {
+
+    Long getImagemId();
+
+    Long getHashPerceptual();
+}
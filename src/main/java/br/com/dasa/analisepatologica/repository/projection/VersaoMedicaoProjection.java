@@ -0,0 +1,11 @@
+package br.com.dasa.analisepatologica.repository.projection;
+
+/**
+ * Projection with the last measurement version reserved for a sample.
+ */
+public interface VersaoMedicaoProjection {
+
+    Long getAmostraId();
+
+    Integer getUltimaVersaoMedicao();
+}
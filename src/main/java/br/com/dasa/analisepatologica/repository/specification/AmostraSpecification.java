@@ -1,13 +1,16 @@
 package br.com.dasa.analisepatologica.repository.specification;
 
+import br.com.dasa.analisepatologica.dto.AmostraCursor;
 import br.com.dasa.analisepatologica.dto.AmostraFilterDTO;
 import br.com.dasa.analisepatologica.entity.Amostra;
 import br.com.dasa.analisepatologica.enums.StatusProcessamento;
 import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -16,6 +19,11 @@ import java.util.List;
  */
 public class AmostraSpecification {
 
+    /**
+     * Stable ordering used by keyset pagination: creation time, then sample ID as tie-breaker.
+     */
+    public static final Sort KEYSET_SORT = Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("amostraId"));
+
     private AmostraSpecification() {
         // Private constructor to prevent instantiation
     }
@@ -28,13 +36,26 @@ public class AmostraSpecification {
      * @return Specification for querying Amostra entities
      */
     public static Specification<Amostra> buildSpecification(AmostraFilterDTO filter) {
+        return buildSpecification(filter, null);
+    }
+
+    /**
+     * Builds a Specification from AmostraFilterDTO, with the tissue type filter already
+     * resolved to exact values (see TipoTecidoIndex). When tiposTecido is null the
+     * tissue type filter falls back to a case-insensitive LIKE.
+     *
+     * @param filter Filter criteria
+     * @param tiposTecido Tissue type values matching filter.tipoTecido(), or null
+     * @return Specification for querying Amostra entities
+     */
+    public static Specification<Amostra> buildSpecification(AmostraFilterDTO filter, Collection<String> tiposTecido) {
         return (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
 
             // Filter by patient ID
             if (filter.pacienteId() != null) {
                 predicates.add(criteriaBuilder.equal(
-                    root.get("paciente").get("id"),
+                    root.get("pacienteId"),
                     filter.pacienteId()
                 ));
             }
@@ -42,7 +63,7 @@ public class AmostraSpecification {
             // Filter by doctor ID
             if (filter.medicoId() != null) {
                 predicates.add(criteriaBuilder.equal(
-                    root.get("medicoSolicitante").get("id"),
+                    root.get("medicoId"),
                     filter.medicoId()
                 ));
             }
@@ -55,8 +76,12 @@ public class AmostraSpecification {
                 ));
             }
 
-            // Filter by tissue type (partial match, case-insensitive)
-            if (filter.tipoTecido() != null) {
+            // Filter by tissue type: exact values resolved by the trigram index, or partial match
+            if (filter.tipoTecido() != null && tiposTecido != null) {
+                predicates.add(tiposTecido.isEmpty()
+                    ? criteriaBuilder.disjunction()
+                    : root.get("tipoTecido").in(tiposTecido));
+            } else if (filter.tipoTecido() != null) {
                 predicates.add(criteriaBuilder.like(
                     criteriaBuilder.lower(root.get("tipoTecido")),
                     "%" + filter.tipoTecido().toLowerCase() + "%"
@@ -82,11 +107,11 @@ public class AmostraSpecification {
                 ));
             }
 
-            // Filter samples ready for analysis (has measurements and images)
+            // Filter samples ready for analysis (has measurements and active images)
             if (Boolean.TRUE.equals(filter.prontaParaAnalise())) {
                 predicates.add(criteriaBuilder.and(
-                    criteriaBuilder.isNotEmpty(root.get("medicoes")),
-                    criteriaBuilder.isNotEmpty(root.get("imagens"))
+                    criteriaBuilder.greaterThan(root.get("totalMedicoes"), 0),
+                    criteriaBuilder.greaterThan(root.get("totalImagensAtivas"), 0)
                 ));
             }
 
@@ -105,7 +130,7 @@ public class AmostraSpecification {
      */
     public static Specification<Amostra> byPacienteId(Long pacienteId) {
         return (root, query, criteriaBuilder) ->
-            criteriaBuilder.equal(root.get("paciente").get("id"), pacienteId);
+            criteriaBuilder.equal(root.get("pacienteId"), pacienteId);
     }
 
     /**
@@ -113,7 +138,7 @@ public class AmostraSpecification {
      */
     public static Specification<Amostra> byMedicoId(Long medicoId) {
         return (root, query, criteriaBuilder) ->
-            criteriaBuilder.equal(root.get("medicoSolicitante").get("id"), medicoId);
+            criteriaBuilder.equal(root.get("medicoId"), medicoId);
     }
 
     /**
@@ -124,6 +149,14 @@ public class AmostraSpecification {
             criteriaBuilder.equal(root.get("statusProcessamento"), status);
     }
 
+    /**
+     * Creates a Specification to find samples whose tissue type is one of the given values.
+     */
+    public static Specification<Amostra> byTipoTecidoIn(Collection<String> tiposTecido) {
+        return (root, query, criteriaBuilder) ->
+            tiposTecido.isEmpty() ? criteriaBuilder.disjunction() : root.get("tipoTecido").in(tiposTecido);
+    }
+
     /**
      * Creates a Specification to find samples by tissue type.
      */
@@ -149,8 +182,8 @@ public class AmostraSpecification {
     public static Specification<Amostra> prontasParaAnalise() {
         return (root, query, criteriaBuilder) ->
             criteriaBuilder.and(
-                criteriaBuilder.isNotEmpty(root.get("medicoes")),
-                criteriaBuilder.isNotEmpty(root.get("imagens"))
+                criteriaBuilder.greaterThan(root.get("totalMedicoes"), 0),
+                criteriaBuilder.greaterThan(root.get("totalImagensAtivas"), 0)
             );
     }
 
@@ -161,4 +194,20 @@ public class AmostraSpecification {
         return (root, query, criteriaBuilder) ->
             criteriaBuilder.isNull(root.get("laudo"));
     }
+
+    /**
+     * Creates a Specification to find samples positioned after the given cursor,
+     * following {@link #KEYSET_SORT}. Seeks directly on (created_at, amostra_id)
+     * instead of skipping rows, so deep pages cost the same as the first one.
+     */
+    public static Specification<Amostra> afterCursor(AmostraCursor cursor) {
+        return (root, query, criteriaBuilder) ->
+            criteriaBuilder.or(
+                criteriaBuilder.greaterThan(root.get("createdAt"), cursor.createdAt()),
+                criteriaBuilder.and(
+                    criteriaBuilder.equal(root.get("createdAt"), cursor.createdAt()),
+                    criteriaBuilder.greaterThan(root.get("amostraId"), cursor.amostraId())
+                )
+            );
+    }
 }
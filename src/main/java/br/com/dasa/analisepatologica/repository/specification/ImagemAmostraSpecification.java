@@ -0,0 +1,69 @@
+package br.com.dasa.analisepatologica.repository.specification;
+
+import br.com.dasa.analisepatologica.dto.ImagemAmostraFilterDTO;
+import br.com.dasa.analisepatologica.entity.Amostra;
+import br.com.dasa.analisepatologica.entity.ImagemAmostra;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JPA Specification builder for filtering the images of a sample.
+ * The flags are materialized columns covered by IMAGEM_AMOSTRA_qualidade_IX, so the
+ * filters run in the database instead of parsing the resolution of every row.
+ */
+public class ImagemAmostraSpecification {
+
+    private ImagemAmostraSpecification() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Builds a Specification for the images of a sample matching ImagemAmostraFilterDTO.
+     * Combines all filter criteria with AND logic.
+     *
+     * @param amostra Sample the images belong to
+     * @param filter Filter criteria
+     * @return Specification for querying ImagemAmostra entities
+     */
+    public static Specification<ImagemAmostra> buildSpecification(Amostra amostra, ImagemAmostraFilterDTO filter) {
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            predicates.add(criteriaBuilder.equal(root.get("amostra"), amostra));
+
+            if (filter.ativa() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("ativa"), indicador(filter.ativa())));
+            }
+
+            if (filter.altaResolucao() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("altaResolucao"), indicador(filter.altaResolucao())));
+            }
+
+            if (filter.qualidadeValida() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("qualidadeValida"), indicador(filter.qualidadeValida())));
+            }
+
+            if (filter.larguraMinima() != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("larguraPx"), filter.larguraMinima()));
+            }
+
+            if (filter.alturaMinima() != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("alturaPx"), filter.alturaMinima()));
+            }
+
+            if (filter.analiseQualidade() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("statusAnaliseQualidade"), filter.analiseQualidade()));
+            }
+
+            // Combine all predicates with AND
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static Character indicador(boolean valor) {
+        return valor ? 'S' : 'N';
+    }
+}
@@ -1,9 +1,25 @@
 package br.com.dasa.analisepatologica.service;
 
+import br.com.dasa.analisepatologica.cache.AmostraIdCache;
+import br.com.dasa.analisepatologica.cache.CodigoRastreioBloomFilter;
+import br.com.dasa.analisepatologica.cache.ContadoresEstatisticas;
+import br.com.dasa.analisepatologica.cache.HashPerceptualIndex;
+import br.com.dasa.analisepatologica.cache.TipoTecidoIndex;
+import br.com.dasa.analisepatologica.dto.AmostraBatchItemResultDTO;
+import br.com.dasa.analisepatologica.dto.AmostraBatchResponseDTO;
+import br.com.dasa.analisepatologica.dto.AmostraCursor;
 import br.com.dasa.analisepatologica.dto.AmostraFilterDTO;
+import br.com.dasa.analisepatologica.dto.AmostraPageResponseDTO;
 import br.com.dasa.analisepatologica.dto.AmostraRequestDTO;
 import br.com.dasa.analisepatologica.dto.AmostraResponseDTO;
+import br.com.dasa.analisepatologica.dto.BloomFilterStatsDTO;
+import br.com.dasa.analisepatologica.dto.CacheStatsDTO;
+import br.com.dasa.analisepatologica.dto.TipoTecidoSugestaoDTO;
 import br.com.dasa.analisepatologica.entity.Amostra;
+import br.com.dasa.analisepatologica.entity.AmostraId;
+import br.com.dasa.analisepatologica.entity.ImagemAmostra;
+import br.com.dasa.analisepatologica.entity.ImagemUpload;
+import br.com.dasa.analisepatologica.entity.Laudo;
 import br.com.dasa.analisepatologica.entity.Medico;
 import br.com.dasa.analisepatologica.entity.Paciente;
 import br.com.dasa.analisepatologica.enums.StatusProcessamento;
@@ -12,18 +28,43 @@ import br.com.dasa.analisepatologica.exception.BusinessException;
 import br.com.dasa.analisepatologica.exception.ResourceNotFoundException;
 import br.com.dasa.analisepatologica.mapper.AmostraMapper;
 import br.com.dasa.analisepatologica.repository.AmostraRepository;
+import br.com.dasa.analisepatologica.repository.ImagemUploadRepository;
 import br.com.dasa.analisepatologica.repository.MedicoRepository;
 import br.com.dasa.analisepatologica.repository.PacienteRepository;
 import br.com.dasa.analisepatologica.repository.specification.AmostraSpecification;
+import br.com.dasa.analisepatologica.storage.ArmazenamentoConteudo;
+import br.com.dasa.analisepatologica.util.TransacaoUtils;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service class for managing samples (Amostra).
@@ -34,10 +75,50 @@ import java.util.stream.Collectors;
 @Transactional
 public class AmostraService {
 
+    /**
+     * Upper bound for a single page of samples.
+     */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /**
+     * Associations fetched together with samples on listing paths.
+     */
+    private static final List<String> DETALHES_LISTAGEM = List.of("paciente", "medicoSolicitante", "laudo");
+
+    /**
+     * JDBC fetch size and chunk size used when streaming exports.
+     */
+    private static final int EXPORT_FETCH_SIZE = 500;
+
+    /**
+     * Upper bound for the number of samples accepted by a single bulk intake request.
+     */
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Largest tissue type IN list sent to the database (Oracle limit); beyond it the LIKE predicate is used.
+     */
+    private static final int MAX_TIPOS_TECIDO_IN = 1000;
+
+    /**
+     * Upper bound for tissue type autocomplete suggestions.
+     */
+    public static final int MAX_SUGESTOES_TIPO_TECIDO = 50;
+
     private final AmostraRepository amostraRepository;
     private final PacienteRepository pacienteRepository;
     private final MedicoRepository medicoRepository;
     private final AmostraMapper amostraMapper;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final AmostraIdCache amostraIdCache;
+    private final CodigoRastreioBloomFilter codigoRastreioBloomFilter;
+    private final ContadoresEstatisticas contadoresEstatisticas;
+    private final TipoTecidoIndex tipoTecidoIndex;
+    private final ImagemUploadRepository imagemUploadRepository;
+    private final ConteudoImagemService conteudoImagemService;
+    private final HashPerceptualIndex hashPerceptualIndex;
+    private final ArmazenamentoConteudo armazenamentoConteudo;
 
     /**
      * Creates a new sample.
@@ -45,8 +126,9 @@ public class AmostraService {
     public AmostraResponseDTO create(AmostraRequestDTO requestDTO) {
         log.info("Creating new amostra: {}", requestDTO.codigoRastreio());
 
-        // Validate tracking code uniqueness
-        if (amostraRepository.existsByCodigoRastreio(requestDTO.codigoRastreio())) {
+        // Validate tracking code uniqueness (the Bloom filter skips the query for codes that are definitely new)
+        if (codigoRastreioBloomFilter.podeExistir(requestDTO.codigoRastreio())
+                && amostraRepository.existsByCodigoRastreio(requestDTO.codigoRastreio())) {
             throw new BusinessException("Código de rastreio já cadastrado: " + requestDTO.codigoRastreio());
         }
 
@@ -77,9 +159,146 @@ public class AmostraService {
         Amostra savedAmostra = amostraRepository.save(amostra);
         log.info("Amostra created successfully with ID: {}", savedAmostra.getAmostraId());
 
+        amostraIdCache.put(savedAmostra.getCodigoRastreio(), toAmostraId(savedAmostra));
+        codigoRastreioBloomFilter.adicionar(savedAmostra.getCodigoRastreio());
+        contadoresEstatisticas.amostraCriada(savedAmostra.getStatusProcessamento(), savedAmostra.getMedicoId());
+        tipoTecidoIndex.registrar(savedAmostra.getTipoTecido());
+
         return amostraMapper.toResponseDTO(savedAmostra);
     }
 
+    /**
+     * Creates samples in bulk.
+     * Tracking codes, patients and doctors are resolved with one query each for the whole
+     * batch, and the inserts are flushed through JDBC batches (hibernate.jdbc.batch_size).
+     * Invalid items are rejected individually; the remaining items are still created.
+     */
+    public AmostraBatchResponseDTO createBatch(List<AmostraRequestDTO> requestDTOs) {
+        log.info("Creating {} amostras in batch", requestDTOs.size());
+
+        if (requestDTOs.isEmpty() || requestDTOs.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Lote deve conter entre 1 e " + MAX_BATCH_SIZE + " amostras");
+        }
+
+        Set<String> codigos = new HashSet<>();
+        Set<Long> pacienteIds = new HashSet<>();
+        Set<Long> medicoIds = new HashSet<>();
+        for (AmostraRequestDTO dto : requestDTOs) {
+            if (dto == null) {
+                continue;
+            }
+            if (dto.codigoRastreio() != null) {
+                codigos.add(dto.codigoRastreio());
+            }
+            if (dto.pacienteId() != null) {
+                pacienteIds.add(dto.pacienteId());
+            }
+            if (dto.medicoSolicitanteId() != null) {
+                medicoIds.add(dto.medicoSolicitanteId());
+            }
+        }
+
+        // Resolve every reference of the batch with one round-trip per table.
+        // Only codes the Bloom filter cannot rule out need the uniqueness query.
+        Set<String> codigosSuspeitos = codigos.stream()
+                .filter(codigoRastreioBloomFilter::podeExistir)
+                .collect(Collectors.toSet());
+        Set<String> codigosExistentes = codigosSuspeitos.isEmpty()
+                ? Set.of()
+                : new HashSet<>(amostraRepository.findCodigosRastreioExistentes(codigosSuspeitos));
+        Map<Long, Paciente> pacientes = pacienteRepository.findAllById(pacienteIds).stream()
+                .collect(Collectors.toMap(Paciente::getPacienteId, Function.identity()));
+        Map<Long, Medico> medicos = medicoRepository.findAllById(medicoIds).stream()
+                .collect(Collectors.toMap(Medico::getMedicoId, Function.identity()));
+
+        AmostraBatchItemResultDTO[] resultados = new AmostraBatchItemResultDTO[requestDTOs.size()];
+        Map<Integer, Amostra> novas = new LinkedHashMap<>();
+        Set<String> codigosDoLote = new HashSet<>();
+
+        for (int i = 0; i < requestDTOs.size(); i++) {
+            AmostraRequestDTO dto = requestDTOs.get(i);
+            String erro = validarItemLote(dto, codigosExistentes, codigosDoLote, pacientes, medicos);
+            if (erro != null) {
+                resultados[i] = AmostraBatchItemResultDTO.erro(i, dto != null ? dto.codigoRastreio() : null, erro);
+                continue;
+            }
+
+            Paciente paciente = pacientes.get(dto.pacienteId());
+            Medico medico = medicos.get(dto.medicoSolicitanteId());
+
+            Amostra amostra = amostraMapper.toEntity(dto, paciente, medico);
+            amostra.setCreatedBy("SYSTEM");
+            amostra.setPacienteId(paciente.getPacienteId());
+            amostra.setMedicoId(medico.getMedicoId());
+
+            // persist() (not save()) so new rows are never merged and the inserts can be batched
+            entityManager.persist(amostra);
+            novas.put(i, amostra);
+        }
+
+        entityManager.flush();
+
+        novas.forEach((indice, amostra) -> {
+            resultados[indice] = AmostraBatchItemResultDTO.sucesso(indice, amostra.getCodigoRastreio(), amostra.getAmostraId());
+            amostraIdCache.put(amostra.getCodigoRastreio(), toAmostraId(amostra));
+            codigoRastreioBloomFilter.adicionar(amostra.getCodigoRastreio());
+            contadoresEstatisticas.amostraCriada(amostra.getStatusProcessamento(), amostra.getMedicoId());
+            tipoTecidoIndex.registrar(amostra.getTipoTecido());
+        });
+
+        log.info("Batch finished: {} amostras created, {} rejected", novas.size(), requestDTOs.size() - novas.size());
+
+        return new AmostraBatchResponseDTO(requestDTOs.size(), novas.size(), requestDTOs.size() - novas.size(),
+                Arrays.asList(resultados));
+    }
+
+    /**
+     * Validates one item of a bulk intake against the references preloaded for the batch.
+     *
+     * @return The rejection reason, or null if the item is valid
+     */
+    private String validarItemLote(AmostraRequestDTO dto, Set<String> codigosExistentes, Set<String> codigosDoLote,
+                                   Map<Long, Paciente> pacientes, Map<Long, Medico> medicos) {
+        if (dto == null) {
+            return "Item do lote não pode ser nulo";
+        }
+
+        Set<ConstraintViolation<AmostraRequestDTO>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+
+        if (codigosExistentes.contains(dto.codigoRastreio()) || !codigosDoLote.add(dto.codigoRastreio())) {
+            return "Código de rastreio já cadastrado: " + dto.codigoRastreio();
+        }
+
+        if (!pacientes.containsKey(dto.pacienteId())) {
+            return String.format("Paciente not found with ID: '%s'", dto.pacienteId());
+        }
+
+        Medico medico = medicos.get(dto.medicoSolicitanteId());
+        if (medico == null) {
+            return String.format("Medico not found with ID: '%s'", dto.medicoSolicitanteId());
+        }
+
+        if (medico.getTipoMedico() != TipoMedico.SOLICITANTE) {
+            return "Médico deve ser do tipo SOLICITANTE";
+        }
+
+        if (!medico.isAtivo()) {
+            return "Médico solicitante não está ativo";
+        }
+
+        if (dto.dataRecebimento() != null && dto.dataRecebimento().isBefore(dto.dataColeta())) {
+            return "Data de recebimento não pode ser anterior à data de coleta";
+        }
+
+        return null;
+    }
+
     /**
      * Retrieves a sample by tracking code.
      */
@@ -92,26 +311,49 @@ public class AmostraService {
     }
 
     /**
-     * Retrieves all samples.
+     * Finds one page of samples matching the filter criteria using keyset pagination.
+     * Filtering runs at the database level through JPA Specifications and the page is
+     * positioned with a (createdAt, amostraId) seek predicate, so only size + 1 rows are
+     * read regardless of how deep the cursor is.
      */
     @Transactional(readOnly = true)
-    public List<AmostraResponseDTO> findAll() {
-        log.info("Finding all amostras");
-        return amostraRepository.findAll().stream()
-                .map(amostraMapper::toResponseDTO)
-                .collect(Collectors.toList());
+    public AmostraPageResponseDTO findByFilters(AmostraFilterDTO filter, String cursor, int size) {
+        log.info("Finding amostras with filters: {}, cursor: {}, size: {}", filter, cursor, size);
+
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Tamanho da página deve estar entre 1 e " + MAX_PAGE_SIZE);
+        }
+
+        validarFiltros(filter);
+
+        // Build Specification at database level and seek past the cursor if present
+        Specification<Amostra> spec = buildSpecification(filter);
+        if (cursor != null && !cursor.isBlank()) {
+            spec = spec.and(AmostraSpecification.afterCursor(AmostraCursor.decode(cursor)));
+        }
+
+        // Fetch one extra row to know whether there is a next page without a COUNT query.
+        // The fetch graph joins patient, doctor and report so mapping triggers no lazy loads.
+        List<Amostra> amostras = amostraRepository.findBy(spec, query -> query
+                .sortBy(AmostraSpecification.KEYSET_SORT)
+                .project(DETALHES_LISTAGEM)
+                .limit(size + 1)
+                .all());
+
+        boolean hasNext = amostras.size() > size;
+        List<Amostra> pagina = hasNext ? amostras.subList(0, size) : amostras;
+        String nextCursor = hasNext ? AmostraCursor.of(pagina.get(pagina.size() - 1)).encode() : null;
+
+        return new AmostraPageResponseDTO(toResponseDTOs(pagina), size, hasNext, nextCursor);
     }
 
     /**
-     * Finds samples by multiple filter criteria using JPA Specifications.
-     * Executes filtering at the database level for optimal performance.
-     * If no filters are provided, returns all samples.
+     * Checks that the patient and doctor a filter refers to exist.
+     *
+     * @throws ResourceNotFoundException if either is unknown
      */
     @Transactional(readOnly = true)
-    public List<AmostraResponseDTO> findByFilters(AmostraFilterDTO filter) {
-        log.info("Finding amostras with filters: {}", filter);
-
-        // Validate related entities exist if filtering by them
+    public void validarFiltros(AmostraFilterDTO filter) {
         if (filter.pacienteId() != null && !pacienteRepository.existsById(filter.pacienteId())) {
             throw new ResourceNotFoundException("Paciente", "ID", filter.pacienteId());
         }
@@ -119,16 +361,101 @@ public class AmostraService {
         if (filter.medicoId() != null && !medicoRepository.existsById(filter.medicoId())) {
             throw new ResourceNotFoundException("Medico", "ID", filter.medicoId());
         }
+    }
+
+    /**
+     * Streams every sample matching the filter criteria to the given consumer.
+     * Rows are read through a database cursor (JDBC fetch size {@value #EXPORT_FETCH_SIZE})
+     * and the persistence context is cleared after each chunk, so memory stays flat
+     * regardless of how many samples are exported.
+     *
+     * @return Number of exported samples
+     */
+    @Transactional(readOnly = true)
+    public long exportar(AmostraFilterDTO filter, Consumer<AmostraResponseDTO> consumer) {
+        log.info("Exporting amostras with filters: {}", filter);
+
+        Specification<Amostra> spec = buildSpecification(filter);
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Amostra> criteriaQuery = criteriaBuilder.createQuery(Amostra.class);
+        Root<Amostra> root = criteriaQuery.from(Amostra.class);
+        Predicate predicate = spec.toPredicate(root, criteriaQuery, criteriaBuilder);
+        if (predicate != null) {
+            criteriaQuery.where(predicate);
+        }
+        criteriaQuery.orderBy(QueryUtils.toOrders(AmostraSpecification.KEYSET_SORT, root, criteriaBuilder));
+
+        EntityGraph<Amostra> detalhes = entityManager.createEntityGraph(Amostra.class);
+        detalhes.addAttributeNodes(DETALHES_LISTAGEM.toArray(new String[0]));
+
+        long total = 0;
+        List<Amostra> chunk = new ArrayList<>(EXPORT_FETCH_SIZE);
+        try (Stream<Amostra> amostras = entityManager.createQuery(criteriaQuery)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, detalhes)
+                .getResultStream()) {
+
+            Iterator<Amostra> iterator = amostras.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == EXPORT_FETCH_SIZE) {
+                    total += exportarChunk(chunk, consumer);
+                }
+            }
+            total += exportarChunk(chunk, consumer);
+        }
+
+        log.info("Exported {} amostras", total);
+        return total;
+    }
+
+    /**
+     * Writes one chunk of an export and detaches its rows, so the persistence
+     * context does not grow with the result.
+     */
+    private int exportarChunk(List<Amostra> chunk, Consumer<AmostraResponseDTO> consumer) {
+        int exportados = chunk.size();
+        toResponseDTOs(chunk).forEach(consumer);
+        chunk.clear();
+        entityManager.clear();
+        return exportados;
+    }
+
+    /**
+     * Suggests distinct tissue types containing the given term, served from the in-memory trigram index.
+     */
+    @Transactional(readOnly = true)
+    public List<TipoTecidoSugestaoDTO> autocompletarTipoTecido(String termo, int limite) {
+        log.info("Autocompleting tipoTecido: {}, limite: {}", termo, limite);
 
-        // If no filters, return all samples
-        if (!filter.hasAnyFilter()) {
-            return findAll();
+        if (limite < 1 || limite > MAX_SUGESTOES_TIPO_TECIDO) {
+            throw new IllegalArgumentException("Limite deve estar entre 1 e " + MAX_SUGESTOES_TIPO_TECIDO);
         }
 
-        // Build and execute Specification at database level
-        Specification<Amostra> spec = AmostraSpecification.buildSpecification(filter);
-        List<Amostra> amostras = amostraRepository.findAll(spec);
+        return tipoTecidoIndex.autocompletar(termo != null ? termo : "", limite);
+    }
+
+    /**
+     * Builds the filter Specification, resolving the tissue type substring through the trigram index
+     * so the database sees an indexable IN list instead of a leading-wildcard LIKE.
+     */
+    private Specification<Amostra> buildSpecification(AmostraFilterDTO filter) {
+        Set<String> tiposTecido = null;
+        if (filter.tipoTecido() != null) {
+            tiposTecido = tipoTecidoIndex.buscar(filter.tipoTecido());
+            if (tiposTecido != null && tiposTecido.size() > MAX_TIPOS_TECIDO_IN) {
+                tiposTecido = null;
+            }
+        }
+        return AmostraSpecification.buildSpecification(filter, tiposTecido);
+    }
 
+    /**
+     * Maps a batch of samples; counts come from the denormalized columns, so no extra query is issued.
+     */
+    private List<AmostraResponseDTO> toResponseDTOs(List<Amostra> amostras) {
         return amostras.stream()
                 .map(amostraMapper::toResponseDTO)
                 .collect(Collectors.toList());
@@ -143,8 +470,10 @@ public class AmostraService {
         Amostra amostra = amostraRepository.findByCodigoRastreio(codigoRastreio)
                 .orElseThrow(() -> new ResourceNotFoundException("Amostra", "codigo_rastreio", codigoRastreio));
 
+        StatusProcessamento statusAnterior = amostra.getStatusProcessamento();
         amostra.atualizarStatus(novoStatus);
         Amostra updatedAmostra = amostraRepository.save(amostra);
+        contadoresEstatisticas.statusAmostraAlterado(statusAnterior, updatedAmostra.getStatusProcessamento());
 
         return amostraMapper.toResponseDTO(updatedAmostra);
     }
@@ -158,8 +487,10 @@ public class AmostraService {
         Amostra amostra = amostraRepository.findByCodigoRastreio(codigoRastreio)
                 .orElseThrow(() -> new ResourceNotFoundException("Amostra", "codigo_rastreio", codigoRastreio));
 
+        String tipoTecidoAnterior = amostra.getTipoTecido();
         amostraMapper.updateEntityFromDTO(requestDTO, amostra);
         Amostra updatedAmostra = amostraRepository.save(amostra);
+        tipoTecidoIndex.alterar(tipoTecidoAnterior, updatedAmostra.getTipoTecido());
 
         return amostraMapper.toResponseDTO(updatedAmostra);
     }
@@ -178,34 +509,88 @@ public class AmostraService {
             throw new BusinessException("Não é possível excluir amostra com laudo cadastrado");
         }
 
+        // Open uploads reference the sample; their received bytes are discarded once the delete commits
+        List<ImagemUpload> uploads = imagemUploadRepository.findByAmostra(amostra);
+        imagemUploadRepository.deleteAll(uploads);
+        for (ImagemUpload upload : uploads) {
+            TransacaoUtils.aposCommit(() -> descartarUpload(upload.getUploadId()));
+        }
+
+        // Images are removed by the cascade; release their stored content and perceptual hash as a single delete would
+        for (ImagemAmostra imagem : amostra.getImagens()) {
+            String sha256 = armazenamentoConteudo.hashDoCaminho(imagem.getCaminhoArquivo());
+            if (sha256 != null) {
+                conteudoImagemService.removerReferencia(sha256);
+            }
+            hashPerceptualIndex.remover(imagem.getImagemId(), imagem.getHashPerceptual());
+        }
+
         amostraRepository.delete(amostra);
+        amostraIdCache.invalidar(codigoRastreio);
+        codigoRastreioBloomFilter.registrarRemocao(codigoRastreio);
+        contadoresEstatisticas.amostraExcluida(amostra.getStatusProcessamento(), amostra.getMedicoId());
+        // The report, if any, is removed by the cascade
+        Laudo laudo = amostra.getLaudo();
+        if (laudo != null) {
+            contadoresEstatisticas.laudoExcluido(laudo.getStatusLaudo());
+        }
+        tipoTecidoIndex.remover(amostra.getTipoTecido());
         log.info("Amostra deleted successfully: {}", codigoRastreio);
     }
 
     /**
-     * Counts samples with optional filters.
+     * Returns hit/miss statistics of the tracking code resolution cache.
+     */
+    public CacheStatsDTO cacheStats() {
+        return amostraIdCache.stats();
+    }
+
+    /**
+     * Returns memory usage and saturation of the tracking code Bloom filter.
+     */
+    public BloomFilterStatsDTO bloomFilterStats() {
+        return codigoRastreioBloomFilter.stats();
+    }
+
+    private void descartarUpload(String uploadId) {
+        try {
+            armazenamentoConteudo.descartar(uploadId);
+        } catch (IOException e) {
+            log.warn("Could not discard the bytes of upload {}: {}", uploadId, e.getMessage());
+        }
+    }
+
+    private AmostraId toAmostraId(Amostra amostra) {
+        return new AmostraId(amostra.getAmostraId(), amostra.getPacienteId(), amostra.getMedicoId());
+    }
+
+    /**
+     * Counts samples with optional filters, combined with AND logic.
      * If no filters are provided, returns total count.
      */
     @Transactional(readOnly = true)
     public long count(StatusProcessamento status, Long pacienteId, Long medicoId) {
         log.info("Counting amostras - status: {}, pacienteId: {}, medicoId: {}", status, pacienteId, medicoId);
 
-        // Return appropriate count based on provided filters
+        if (pacienteId != null && !pacienteRepository.existsById(pacienteId)) {
+            throw new ResourceNotFoundException("Paciente", "ID", pacienteId);
+        }
+        if (medicoId != null && !medicoRepository.existsById(medicoId)) {
+            throw new ResourceNotFoundException("Medico", "ID", medicoId);
+        }
+
+        List<Specification<Amostra>> specs = new ArrayList<>();
         if (status != null) {
-            return amostraRepository.countByStatusProcessamento(status);
-        } else if (pacienteId != null) {
-            if (!pacienteRepository.existsById(pacienteId)) {
-                throw new ResourceNotFoundException("Paciente", "ID", pacienteId);
-            }
-            return amostraRepository.countByPacienteId(pacienteId);
-        } else if (medicoId != null) {
-            if (!medicoRepository.existsById(medicoId)) {
-                throw new ResourceNotFoundException("Medico", "ID", medicoId);
-            }
-            return amostraRepository.countByMedicoId(medicoId);
+            specs.add(AmostraSpecification.byStatus(status));
+        }
+        if (pacienteId != null) {
+            specs.add(AmostraSpecification.byPacienteId(pacienteId));
+        }
+        if (medicoId != null) {
+            specs.add(AmostraSpecification.byMedicoId(medicoId));
         }
 
         // No filters - return total count
-        return amostraRepository.count();
+        return specs.isEmpty() ? amostraRepository.count() : amostraRepository.count(Specification.allOf(specs));
     }
 }
@@ -0,0 +1,234 @@
+package br.com.dasa.analisepatologica.service;
+
+import br.com.dasa.analisepatologica.cache.HashPerceptualIndex;
+import br.com.dasa.analisepatologica.entity.ImagemAmostra;
+import br.com.dasa.analisepatologica.enums.AlertaQualidade;
+import br.com.dasa.analisepatologica.enums.StatusAnaliseQualidade;
+import br.com.dasa.analisepatologica.enums.StatusMetadados;
+import br.com.dasa.analisepatologica.repository.ImagemAmostraRepository;
+import br.com.dasa.analisepatologica.storage.AnalisadorQualidade;
+import br.com.dasa.analisepatologica.storage.ArmazenamentoConteudo;
+import br.com.dasa.analisepatologica.storage.MetricasQualidade;
+import br.com.dasa.analisepatologica.util.TransacaoUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service that analyzes focus, staining and tissue coverage of stored images and flags bad captures.
+ *
+ * The analysis of an image is queued once its file header has been checked (see {@link MetadadosImagemService}).
+ * Each analysis is itself parallel ({@link AnalisadorQualidade} splits the tiles of a band over a fork/join pool),
+ * so only a few run at once. The metrics are stored on the image and the capture is marked
+ * {@link StatusAnaliseQualidade#REPROVADA}, with its {@link AlertaQualidade alerts}, when a metric is out of bounds.
+ * The perceptual hash computed in the same pass is stored and added to the {@link HashPerceptualIndex}.
+ *
+ * As with the metadata check, images that do not fit in the queue, or are left pending by a restart,
+ * are queued again in key order by {@link #retomarPendentes()}.
+ */
+@Service
+@Slf4j
+public class AnaliseQualidadeService implements DisposableBean {
+
+    private static final List<StatusMetadados> METADADOS_VERIFICADOS =
+            List.of(StatusMetadados.CONFIRMADO, StatusMetadados.CORRIGIDO);
+
+    private final ImagemAmostraRepository imagemAmostraRepository;
+    private final ArmazenamentoConteudo armazenamentoConteudo;
+    private final AnalisadorQualidade analisadorQualidade;
+    private final HashPerceptualIndex hashPerceptualIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final double fracaoDesfocadaMaxima;
+    private final double coberturaMinima;
+    private final double saturacaoMinima;
+    private final double brilhoMinimo;
+    private final ThreadPoolExecutor executor;
+    private final Set<Long> emAndamento = ConcurrentHashMap.newKeySet();
+
+    public AnaliseQualidadeService(ImagemAmostraRepository imagemAmostraRepository,
+                                   ArmazenamentoConteudo armazenamentoConteudo,
+                                   AnalisadorQualidade analisadorQualidade,
+                                   HashPerceptualIndex hashPerceptualIndex,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${analisepatologica.qualidade.threads:1}") int threads,
+                                   @Value("${analisepatologica.qualidade.capacidade-fila:1000}") int capacidadeFila,
+                                   @Value("${analisepatologica.qualidade.fracao-desfocada-maxima:0.3}") double fracaoDesfocadaMaxima,
+                                   @Value("${analisepatologica.qualidade.cobertura-minima:0.05}") double coberturaMinima,
+                                   @Value("${analisepatologica.qualidade.saturacao-minima:0.08}") double saturacaoMinima,
+                                   @Value("${analisepatologica.qualidade.brilho-minimo:0.3}") double brilhoMinimo) {
+        this.imagemAmostraRepository = imagemAmostraRepository;
+        this.armazenamentoConteudo = armazenamentoConteudo;
+        this.analisadorQualidade = analisadorQualidade;
+        this.hashPerceptualIndex = hashPerceptualIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.fracaoDesfocadaMaxima = fracaoDesfocadaMaxima;
+        this.coberturaMinima = coberturaMinima;
+        this.saturacaoMinima = saturacaoMinima;
+        this.brilhoMinimo = brilhoMinimo;
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila), tarefa -> {
+                    Thread thread = new Thread(tarefa, "qualidade-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queues the analysis of an image once the current transaction commits (or right away outside a transaction).
+     */
+    public void agendarAposCommit(Long imagemId) {
+        TransacaoUtils.aposCommit(() -> agendar(imagemId));
+    }
+
+    /**
+     * Queues the analysis of an image unless it is already queued.
+     * When the queue is full the image stays pending and is queued again by {@link #retomarPendentes()}.
+     */
+    public void agendar(Long imagemId) {
+        if (!emAndamento.add(imagemId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    processar(imagemId);
+                } catch (Exception e) {
+                    // Left pending: retried on the next resume
+                    log.error("Failed to analyze quality of imagem {}", imagemId, e);
+                } finally {
+                    emAndamento.remove(imagemId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            emAndamento.remove(imagemId);
+            log.debug("Quality analysis queue is full; imagem {} stays pending", imagemId);
+        }
+    }
+
+    /**
+     * Queues pending images whose header was checked, oldest key first, up to the free room in the queue.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${analisepatologica.qualidade.intervalo-retomada:PT1M}",
+            initialDelayString = "${analisepatologica.qualidade.intervalo-retomada:PT1M}")
+    public void retomarPendentes() {
+        int vagas = executor.getQueue().remainingCapacity();
+        if (vagas == 0) {
+            return;
+        }
+        List<Long> pendentes = imagemAmostraRepository.findIdsByStatusAnaliseQualidade(
+                StatusAnaliseQualidade.PENDENTE, METADADOS_VERIFICADOS, PageRequest.of(0, vagas));
+        pendentes.forEach(this::agendar);
+        if (!pendentes.isEmpty()) {
+            log.info("Resumed quality analysis of {} pending imagens", pendentes.size());
+        }
+    }
+
+    /**
+     * Analyzes the file of a pending image and records the metrics, in the calling thread.
+     */
+    void processar(Long imagemId) {
+        Optional<ImagemAmostra> pendente = imagemAmostraRepository.findById(imagemId)
+                .filter(imagem -> imagem.getStatusAnaliseQualidade() == StatusAnaliseQualidade.PENDENTE);
+        if (pendente.isEmpty()) {
+            return;
+        }
+        String caminho = pendente.get().getCaminhoArquivo();
+        if (armazenamentoConteudo.hashDoCaminho(caminho) == null) {
+            registrar(imagemId, caminho, StatusAnaliseQualidade.NAO_APLICAVEL, null);
+            return;
+        }
+
+        Path arquivo = armazenamentoConteudo.resolver(caminho);
+        MetricasQualidade metricas;
+        try {
+            metricas = analisadorQualidade.analisar(arquivo);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Could not analyze quality of imagem {}: {}", imagemId, e.getMessage());
+            registrar(imagemId, caminho, StatusAnaliseQualidade.FALHA, null);
+            return;
+        }
+        registrar(imagemId, caminho, null, metricas);
+    }
+
+    /**
+     * Records the outcome in a short transaction, unless the image was deleted, re-pointed at another file
+     * or already analyzed meanwhile. Without metrics, {@code status} is recorded as is.
+     */
+    private void registrar(Long imagemId, String caminho, StatusAnaliseQualidade status, MetricasQualidade metricas) {
+        transactionTemplate.executeWithoutResult(transacao -> imagemAmostraRepository.findById(imagemId)
+                .filter(imagem -> imagem.getStatusAnaliseQualidade() == StatusAnaliseQualidade.PENDENTE
+                        && Objects.equals(caminho, imagem.getCaminhoArquivo()))
+                .ifPresent(imagem -> {
+                    if (metricas != null) {
+                        aplicar(imagem, metricas);
+                    } else {
+                        imagem.setStatusAnaliseQualidade(status);
+                    }
+                    imagem.setQualidadeAnalisadaEm(LocalDateTime.now());
+                }));
+    }
+
+    private void aplicar(ImagemAmostra imagem, MetricasQualidade metricas) {
+        Set<AlertaQualidade> alertas = EnumSet.noneOf(AlertaQualidade.class);
+        if (metricas.coberturaTecido() < coberturaMinima) {
+            alertas.add(AlertaQualidade.POUCO_TECIDO);
+        }
+        if (metricas.fracaoDesfocada() != null && metricas.fracaoDesfocada() > fracaoDesfocadaMaxima) {
+            alertas.add(AlertaQualidade.DESFOCADA);
+        }
+        if (metricas.saturacaoMedia() != null && metricas.saturacaoMedia() < saturacaoMinima) {
+            alertas.add(AlertaQualidade.COLORACAO_FRACA);
+        }
+        if (metricas.brilhoMedio() != null && metricas.brilhoMedio() < brilhoMinimo) {
+            alertas.add(AlertaQualidade.COLORACAO_EXCESSIVA);
+        }
+
+        imagem.setNitidez(decimal(metricas.nitidez(), 2));
+        imagem.setFracaoDesfocada(decimal(metricas.fracaoDesfocada(), 4));
+        imagem.setCoberturaTecido(decimal(metricas.coberturaTecido(), 4));
+        imagem.setSaturacaoMedia(decimal(metricas.saturacaoMedia(), 4));
+        imagem.setBrilhoMedio(decimal(metricas.brilhoMedio(), 4));
+        imagem.setAlertasQualidade(alertas);
+        hashPerceptualIndex.remover(imagem.getImagemId(), imagem.getHashPerceptual());
+        imagem.setHashPerceptual(metricas.hashPerceptual());
+        hashPerceptualIndex.registrar(imagem.getImagemId(), metricas.hashPerceptual());
+        imagem.setStatusAnaliseQualidade(alertas.isEmpty() ? StatusAnaliseQualidade.APROVADA : StatusAnaliseQualidade.REPROVADA);
+        if (!alertas.isEmpty()) {
+            log.warn("Imagem {} flagged for rescan: {} ({})", imagem.getImagemId(), alertas, metricas);
+        }
+    }
+
+    private static BigDecimal decimal(Double valor, int casas) {
+        return valor != null ? BigDecimal.valueOf(valor).setScale(casas, RoundingMode.HALF_UP) : null;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
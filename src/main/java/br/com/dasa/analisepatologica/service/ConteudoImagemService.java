@@ -0,0 +1,176 @@
+package br.com.dasa.analisepatologica.service;
+
+import br.com.dasa.analisepatologica.dto.ArmazenamentoStatsDTO;
+import br.com.dasa.analisepatologica.entity.ConteudoImagem;
+import br.com.dasa.analisepatologica.enums.StatusIntegridade;
+import br.com.dasa.analisepatologica.exception.BusinessException;
+import br.com.dasa.analisepatologica.repository.ConteudoImagemRepository;
+import br.com.dasa.analisepatologica.repository.projection.ArmazenamentoProjection;
+import br.com.dasa.analisepatologica.storage.ArmazenamentoConteudo;
+import br.com.dasa.analisepatologica.storage.GeradorPiramide;
+import br.com.dasa.analisepatologica.util.TransacaoUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Service for the reference counts of the image contents in the content store.
+ *
+ * Every image whose path is a content address holds one reference to it; identical files
+ * registered again share the stored bytes, which are deleted after the last reference is removed.
+ *
+ * Changes to a content are serialized on its CONTEUDO_IMAGEM row: adding a reference updates (and so locks) it,
+ * and a deletion locks it before touching the files. The row is inserted with no references in its own
+ * transaction before the first reference is added, so two first uploads of the same bytes do not both insert it.
+ */
+@Service
+@Slf4j
+@Transactional
+public class ConteudoImagemService {
+
+    /**
+     * Attempts to add a reference while a concurrent deletion keeps removing the row.
+     */
+    private static final int TENTATIVAS_REFERENCIA = 3;
+
+    private final ConteudoImagemRepository conteudoImagemRepository;
+    private final ArmazenamentoConteudo armazenamentoConteudo;
+    private final GeradorPiramide geradorPiramide;
+    private final TransactionTemplate novaTransacao;
+
+    public ConteudoImagemService(ConteudoImagemRepository conteudoImagemRepository,
+                                 ArmazenamentoConteudo armazenamentoConteudo,
+                                 GeradorPiramide geradorPiramide,
+                                 PlatformTransactionManager transactionManager) {
+        this.conteudoImagemRepository = conteudoImagemRepository;
+        this.armazenamentoConteudo = armazenamentoConteudo;
+        this.geradorPiramide = geradorPiramide;
+        this.novaTransacao = new TransactionTemplate(transactionManager);
+        this.novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Finds a stored content by hash.
+     */
+    @Transactional(readOnly = true)
+    public Optional<ConteudoImagem> buscar(String sha256) {
+        return conteudoImagemRepository.findById(sha256);
+    }
+
+    /**
+     * Adds a reference to a stored content, indexing it on the first one.
+     *
+     * @throws BusinessException if the content is not in the store
+     */
+    public void adicionarReferencia(String sha256) {
+        Path arquivo = armazenamentoConteudo.resolver(armazenamentoConteudo.caminho(sha256));
+        for (int tentativa = 1; tentativa <= TENTATIVAS_REFERENCIA; tentativa++) {
+            if (conteudoImagemRepository.incrementarReferencias(sha256, 1) > 0) {
+                // The row is locked now, so a deletion either finished before (and took the file) or waits and keeps it
+                if (!Files.isRegularFile(arquivo)) {
+                    throw new BusinessException("Conteúdo " + sha256 + " não existe no armazenamento");
+                }
+                log.debug("Content {} referenced", sha256);
+                return;
+            }
+            if (indexar(sha256, arquivo)) {
+                // Left with no references if this transaction does not commit
+                TransacaoUtils.aposRollback(() -> descartar(sha256));
+            }
+        }
+        throw new IllegalStateException("Conteúdo " + sha256 + " foi removido durante a inclusão da referência; tente novamente");
+    }
+
+    /**
+     * Removes a reference to a stored content. When it was the last one, the bytes and the files
+     * derived from them are deleted after commit.
+     */
+    public void removerReferencia(String sha256) {
+        conteudoImagemRepository.incrementarReferencias(sha256, -1);
+        if (conteudoImagemRepository.findReferenciasBySha256(sha256).orElse(0) > 0) {
+            return;
+        }
+
+        log.info("Last reference to content {} removed; deleting it after commit", sha256);
+        TransacaoUtils.aposCommit(() -> descartar(sha256));
+    }
+
+    /**
+     * Deletes a stored content that no image references, e.g. after its last image was removed or an upload
+     * failed to commit. Runs in its own transaction, holding the row lock while the files are deleted.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void descartar(String sha256) {
+        Path arquivo = armazenamentoConteudo.resolver(armazenamentoConteudo.caminho(sha256));
+        if (Files.isRegularFile(arquivo)) {
+            // A stored file with no row yet: index it, so there is a row to lock against concurrent references
+            indexar(sha256, arquivo);
+        }
+
+        novaTransacao.executeWithoutResult(status -> {
+            Optional<ConteudoImagem> conteudo = conteudoImagemRepository.findForUpdateBySha256(sha256);
+            if (conteudo.isPresent() && conteudo.get().getReferencias() > 0) {
+                log.info("Content {} was referenced again; keeping it", sha256);
+                return;
+            }
+            try {
+                geradorPiramide.descartar(sha256);
+                armazenamentoConteudo.remover(sha256);
+            } catch (IOException e) {
+                log.error("Failed to delete content {} from the store", sha256, e);
+            }
+            conteudo.ifPresent(c -> conteudoImagemRepository.removerSemReferencias(sha256));
+            log.info("Content {} deleted", sha256);
+        });
+    }
+
+    /**
+     * Returns the bytes stored versus the bytes referenced by images.
+     */
+    @Transactional(readOnly = true)
+    public ArmazenamentoStatsDTO stats() {
+        ArmazenamentoProjection totais = conteudoImagemRepository.totalizar();
+        long economizados = totais.getBytesReferenciados() - totais.getBytesArmazenados();
+        double taxa = totais.getBytesReferenciados() == 0 ? 0.0 : (double) economizados / totais.getBytesReferenciados();
+        return new ArmazenamentoStatsDTO(totais.getObjetos(), totais.getReferencias(), totais.getBytesArmazenados(),
+                totais.getBytesReferenciados(), economizados, taxa);
+    }
+
+    /**
+     * Inserts the row of a stored content with no references, in its own transaction.
+     *
+     * @return false if it was already indexed, e.g. by a concurrent upload of the same bytes
+     * @throws BusinessException if the content is not in the store
+     */
+    private boolean indexar(String sha256, Path arquivo) {
+        long tamanho;
+        try {
+            tamanho = Files.size(arquivo);
+        } catch (NoSuchFileException e) {
+            throw new BusinessException("Conteúdo " + sha256 + " não existe no armazenamento");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            novaTransacao.executeWithoutResult(status -> conteudoImagemRepository.inserir(sha256, tamanho,
+                    StatusIntegridade.PENDENTE, LocalDateTime.now()));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Content {} indexed concurrently", sha256);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package br.com.dasa.analisepatologica.service;
+
+import br.com.dasa.analisepatologica.cache.ContadoresEstatisticas;
+import br.com.dasa.analisepatologica.dto.EstatisticasResponseDTO;
+import br.com.dasa.analisepatologica.repository.AmostraRepository;
+import br.com.dasa.analisepatologica.repository.LaudoRepository;
+import br.com.dasa.analisepatologica.repository.MedicoRepository;
+import br.com.dasa.analisepatologica.repository.PacienteRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Service serving dashboard statistics from in-memory counters.
+ * Reads never touch the database; counters are reconciled with GROUP BY queries
+ * at startup and then periodically.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class EstatisticasService {
+
+    private final ContadoresEstatisticas contadores;
+    private final AmostraRepository amostraRepository;
+    private final LaudoRepository laudoRepository;
+    private final MedicoRepository medicoRepository;
+    private final PacienteRepository pacienteRepository;
+
+    /**
+     * Returns every breakdown from the in-memory counters.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public EstatisticasResponseDTO obter() {
+        log.info("Getting statistics from in-memory counters");
+
+        return new EstatisticasResponseDTO(
+                contadores.amostrasPorStatus().total(),
+                contadores.amostrasPorStatus().snapshot(),
+                contadores.amostrasPorMedico().snapshot(),
+                contadores.laudosPorStatus().total(),
+                contadores.laudosPorStatus().snapshot(),
+                contadores.medicosPorTipo().total(),
+                contadores.medicosPorTipo().snapshot(),
+                contadores.pacientesPorSexo().total(),
+                contadores.pacientesPorSexo().snapshot(),
+                contadores.getUltimaReconciliacao()
+        );
+    }
+
+    /**
+     * Overwrites the counters with GROUP BY counts from the database.
+     * Writes committed while the queries run may be off by one until the next reconciliation.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${analisepatologica.estatisticas.intervalo-reconciliacao:PT5M}",
+            initialDelayString = "${analisepatologica.estatisticas.intervalo-reconciliacao:PT5M}")
+    public void reconciliar() {
+        long inicio = System.currentTimeMillis();
+
+        contadores.amostrasPorStatus().substituir(amostraRepository.countGroupByStatusProcessamento());
+        contadores.amostrasPorMedico().substituir(amostraRepository.countGroupByMedicoId());
+        contadores.laudosPorStatus().substituir(laudoRepository.countGroupByStatusLaudo());
+        contadores.medicosPorTipo().substituir(medicoRepository.countGroupByTipoMedico());
+        contadores.pacientesPorSexo().substituir(pacienteRepository.countGroupBySexo());
+        contadores.reconciliado(LocalDateTime.now());
+
+        log.info("Statistics counters reconciled in {} ms", System.currentTimeMillis() - inicio);
+    }
+}
@@ -1,24 +1,53 @@
 package br.com.dasa.analisepatologica.service;
 
+import br.com.dasa.analisepatologica.cache.AmostraIdCache;
+import br.com.dasa.analisepatologica.cache.HashPerceptualIndex;
+import br.com.dasa.analisepatologica.cache.IndiceHamming;
+import br.com.dasa.analisepatologica.dto.ImagemAmostraFilterDTO;
 import br.com.dasa.analisepatologica.dto.ImagemAmostraRequestDTO;
 import br.com.dasa.analisepatologica.dto.ImagemAmostraResponseDTO;
+import br.com.dasa.analisepatologica.dto.ImagemSemelhanteDTO;
 import br.com.dasa.analisepatologica.entity.Amostra;
 import br.com.dasa.analisepatologica.entity.ImagemAmostra;
+import br.com.dasa.analisepatologica.enums.AlertaQualidade;
+import br.com.dasa.analisepatologica.enums.StatusAnaliseQualidade;
+import br.com.dasa.analisepatologica.enums.StatusMetadados;
+import br.com.dasa.analisepatologica.enums.TipoArquivo;
 import br.com.dasa.analisepatologica.exception.BusinessException;
 import br.com.dasa.analisepatologica.exception.ResourceNotFoundException;
 import br.com.dasa.analisepatologica.mapper.ImagemAmostraMapper;
 import br.com.dasa.analisepatologica.repository.AmostraRepository;
 import br.com.dasa.analisepatologica.repository.ImagemAmostraRepository;
+import br.com.dasa.analisepatologica.repository.specification.ImagemAmostraSpecification;
+import br.com.dasa.analisepatologica.storage.AnalisadorQualidade;
+import br.com.dasa.analisepatologica.storage.ArmazenamentoConteudo;
+import br.com.dasa.analisepatologica.storage.GeradorPiramide;
+import br.com.dasa.analisepatologica.storage.MetricasQualidade;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * Service class for managing sample images (ImagemAmostra).
+ * Images stored in the content store hold a reference to their content (see {@link ConteudoImagemService}),
+ * so identical files are stored once and deleted with the last image pointing at them; their declared
+ * dimensions, size and format are then checked against the file in the background (see {@link MetadadosImagemService}).
+ * Images whose perceptual hash is close to another one's, likely re-scans of the same slide, are found through
+ * the {@link HashPerceptualIndex}.
  */
 @Service
 @RequiredArgsConstructor
@@ -26,31 +55,89 @@ import java.util.stream.Collectors;
 @Transactional
 public class ImagemAmostraService {
 
+    private static final int LIMITE_SEMELHANTES = 100;
+
     private final ImagemAmostraRepository imagemAmostraRepository;
     private final AmostraRepository amostraRepository;
     private final ImagemAmostraMapper imagemAmostraMapper;
+    private final AmostraIdCache amostraIdCache;
+    private final ArmazenamentoConteudo armazenamentoConteudo;
+    private final GeradorPiramide geradorPiramide;
+    private final ConteudoImagemService conteudoImagemService;
+    private final MetadadosImagemService metadadosImagemService;
+    private final AnalisadorQualidade analisadorQualidade;
+    private final HashPerceptualIndex hashPerceptualIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Stored file of an image, ready to be served.
+     *
+     * @param sha256 Hash of the content, used as entity tag
+     */
+    public record ArquivoImagem(Path arquivo, long tamanhoBytes, String sha256, TipoArquivo tipoArquivo, String nomeArquivo) {
+    }
 
     /**
      * Creates a new image for a sample.
      */
     public ImagemAmostraResponseDTO create(String codigoRastreio, ImagemAmostraRequestDTO requestDTO) {
         log.info("Creating new imagem for amostra: {}", codigoRastreio);
+        return criar(codigoRastreio, requestDTO, null);
+    }
+
+    /**
+     * Creates a new image for a sample, optionally rejecting it when it looks like an image of another sample.
+     * The check decodes the whole stored file, so it costs about as much as the quality analysis of the image;
+     * that is done before the transaction opens, which then only compares the hash with the index.
+     *
+     * @param verificarSemelhantes whether to search other samples for images within the default distance
+     * @throws BusinessException if the check finds a similar image in another sample, or cannot read the file
+     * @throws IllegalStateException if the check is requested while the hash index is still loading
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ImagemAmostraResponseDTO create(String codigoRastreio, ImagemAmostraRequestDTO requestDTO,
+                                           boolean verificarSemelhantes) {
+        log.info("Creating new imagem for amostra: {} (checking similar imagens: {})", codigoRastreio, verificarSemelhantes);
+
+        Long hashPerceptual = null;
+        if (verificarSemelhantes) {
+            amostraIdCache.resolver(codigoRastreio);
+            hashPerceptual = calcularHashPerceptual(requestDTO.getCaminhoArquivo());
+        }
+        Long hash = hashPerceptual;
+        return transactionTemplate.execute(status -> criar(codigoRastreio, requestDTO, hash));
+    }
 
-        Amostra amostra = amostraRepository.findByCodigoRastreio(codigoRastreio)
-                .orElseThrow(() -> new ResourceNotFoundException("Amostra", "codigo_rastreio", codigoRastreio));
+    /**
+     * Creates the image. A perceptual hash, computed for the similarity check, is first compared with the
+     * images of other samples and then stored with the image, so it is indexed right after commit.
+     */
+    private ImagemAmostraResponseDTO criar(String codigoRastreio, ImagemAmostraRequestDTO requestDTO, Long hashPerceptual) {
+        Amostra amostra = amostraRepository.getReferenceById(amostraIdCache.resolver(codigoRastreio));
 
         ImagemAmostra imagem = imagemAmostraMapper.toEntity(requestDTO, amostra);
         imagem.setCreatedBy("SYSTEM");
-
-        // Validate image quality
-        if (!imagem.validarQualidade()) {
-            log.warn("Image quality validation failed for: {}", requestDTO.getNomeArquivo());
+        String sha256 = armazenamentoConteudo.hashDoCaminho(imagem.getCaminhoArquivo());
+        marcarMetadados(imagem, sha256);
+        marcarAnaliseQualidade(imagem, sha256);
+        if (hashPerceptual != null) {
+            rejeitarSemelhantes(codigoRastreio, hashPerceptual);
+            imagem.setHashPerceptual(hashPerceptual);
         }
 
         ImagemAmostra savedImagem = imagemAmostraRepository.save(imagem);
+        if (savedImagem.isAtiva()) {
+            amostraRepository.incrementarTotalImagensAtivas(amostra, 1);
+        }
+        hashPerceptualIndex.registrar(savedImagem.getImagemId(), savedImagem.getHashPerceptual());
+        if (sha256 != null) {
+            conteudoImagemService.adicionarReferencia(sha256);
+            metadadosImagemService.agendarAposCommit(savedImagem.getImagemId());
+        }
+        agendarPiramide(savedImagem);
         log.info("ImagemAmostra created successfully with ID: {} for amostra: {}", savedImagem.getImagemId(), codigoRastreio);
 
-        return imagemAmostraMapper.toResponseDTO(savedImagem);
+        return imagemAmostraMapper.toResponseDTO(savedImagem, codigoRastreio);
     }
 
     /**
@@ -65,21 +152,77 @@ public class ImagemAmostraService {
     }
 
     /**
-     * Retrieves all images for a sample.
+     * Locates the stored file of an image.
+     *
+     * @throws ResourceNotFoundException if the image does not exist or its file is not in the content store
+     */
+    @Transactional(readOnly = true)
+    public ArquivoImagem localizarArquivo(Long id) {
+        ImagemAmostra imagem = imagemAmostraRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("ImagemAmostra", "ID", id));
+
+        ArquivoImagem arquivo = arquivoArmazenado(imagem);
+        if (arquivo == null) {
+            throw new ResourceNotFoundException("Arquivo da imagem " + id + " não está disponível no armazenamento");
+        }
+        return arquivo;
+    }
+
+    /**
+     * Stored file of an image, or null if its file is external or missing from the content store.
+     */
+    ArquivoImagem arquivoArmazenado(ImagemAmostra imagem) {
+        String sha256 = armazenamentoConteudo.hashDoCaminho(imagem.getCaminhoArquivo());
+        Path arquivo = sha256 != null ? armazenamentoConteudo.resolver(imagem.getCaminhoArquivo()) : null;
+        if (arquivo == null || !Files.isRegularFile(arquivo)) {
+            return null;
+        }
+
+        try {
+            return new ArquivoImagem(arquivo, Files.size(arquivo), sha256, imagem.getTipoArquivo(), imagem.getNomeArquivo());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Retrieves the images of a sample, optionally filtered by status, resolution and quality in the database.
      */
     @Transactional(readOnly = true)
-    public List<ImagemAmostraResponseDTO> findByAmostra(String codigoRastreio) {
-        log.info("Finding imagens for amostra: {}", codigoRastreio);
+    public List<ImagemAmostraResponseDTO> findByAmostra(String codigoRastreio, ImagemAmostraFilterDTO filter) {
+        log.info("Finding imagens for amostra: {} with filters: {}", codigoRastreio, filter);
 
-        Amostra amostra = amostraRepository.findByCodigoRastreio(codigoRastreio)
-                .orElseThrow(() -> new ResourceNotFoundException("Amostra", "codigo_rastreio", codigoRastreio));
+        Amostra amostra = amostraRepository.getReferenceById(amostraIdCache.resolver(codigoRastreio));
 
-        return imagemAmostraRepository.findByAmostra(amostra)
-                .stream()
-                .map(imagemAmostraMapper::toResponseDTO)
+        List<ImagemAmostra> imagens = filter.hasAnyFilter()
+                ? imagemAmostraRepository.findAll(ImagemAmostraSpecification.buildSpecification(amostra, filter))
+                : imagemAmostraRepository.findByAmostra(amostra);
+        return imagens.stream()
+                .map(imagem -> imagemAmostraMapper.toResponseDTO(imagem, codigoRastreio))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Finds the images whose perceptual hash is within a Hamming distance of the given image's, closest first
+     * (at most {@value #LIMITE_SEMELHANTES}).
+     *
+     * @param distancia maximum Hamming distance, or null for the configured default
+     * @throws IllegalStateException if the image has no hash yet or the index is still loading
+     */
+    @Transactional(readOnly = true)
+    public List<ImagemSemelhanteDTO> findSemelhantes(Long id, Integer distancia) {
+        log.info("Finding imagens similar to imagem {} within distance {}", id, distancia);
+        ImagemAmostra imagem = imagemAmostraRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("ImagemAmostra", "ID", id));
+        if (imagem.getHashPerceptual() == null) {
+            throw new IllegalStateException("Imagem " + id + " ainda não tem hash perceptual "
+                    + "(análise de qualidade " + imagem.getStatusAnaliseQualidade() + ")");
+        }
+
+        return semelhantes(imagem.getHashPerceptual(), distancia != null ? distancia : hashPerceptualIndex.getDistanciaPadrao(),
+                imagem.getAmostra().getCodigoRastreio(), id);
+    }
+
     /**
      * Retrieves active images for a sample.
      */
@@ -87,12 +230,11 @@ public class ImagemAmostraService {
     public List<ImagemAmostraResponseDTO> findImagensAtivas(String codigoRastreio) {
         log.info("Finding active imagens for amostra: {}", codigoRastreio);
 
-        Amostra amostra = amostraRepository.findByCodigoRastreio(codigoRastreio)
-                .orElseThrow(() -> new ResourceNotFoundException("Amostra", "codigo_rastreio", codigoRastreio));
+        Amostra amostra = amostraRepository.getReferenceById(amostraIdCache.resolver(codigoRastreio));
 
         return imagemAmostraRepository.findByAmostraAndAtiva(amostra, 'S')
                 .stream()
-                .map(imagemAmostraMapper::toResponseDTO)
+                .map(imagem -> imagemAmostraMapper.toResponseDTO(imagem, codigoRastreio))
                 .collect(Collectors.toList());
     }
 
@@ -105,9 +247,28 @@ public class ImagemAmostraService {
         ImagemAmostra imagem = imagemAmostraRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("ImagemAmostra", "ID", id));
 
+        String sha256Anterior = armazenamentoConteudo.hashDoCaminho(imagem.getCaminhoArquivo());
         imagemAmostraMapper.updateEntityFromDTO(requestDTO, imagem);
+        String sha256 = armazenamentoConteudo.hashDoCaminho(imagem.getCaminhoArquivo());
+        // The declared values were overwritten: check them against the file again
+        marcarMetadados(imagem, sha256);
+        if (!Objects.equals(sha256Anterior, sha256)) {
+            marcarAnaliseQualidade(imagem, sha256);
+        }
 
         ImagemAmostra updatedImagem = imagemAmostraRepository.save(imagem);
+        if (sha256 != null) {
+            metadadosImagemService.agendarAposCommit(updatedImagem.getImagemId());
+        }
+        if (!Objects.equals(sha256Anterior, sha256)) {
+            if (sha256 != null) {
+                conteudoImagemService.adicionarReferencia(sha256);
+            }
+            if (sha256Anterior != null) {
+                conteudoImagemService.removerReferencia(sha256Anterior);
+            }
+        }
+        agendarPiramide(updatedImagem);
         log.info("ImagemAmostra updated successfully with ID: {}", updatedImagem.getImagemId());
 
         return imagemAmostraMapper.toResponseDTO(updatedImagem);
@@ -122,8 +283,12 @@ public class ImagemAmostraService {
         ImagemAmostra imagem = imagemAmostraRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("ImagemAmostra", "ID", id));
 
+        boolean estavaAtiva = imagem.isAtiva();
         imagem.ativar();
         ImagemAmostra updatedImagem = imagemAmostraRepository.save(imagem);
+        if (!estavaAtiva) {
+            amostraRepository.incrementarTotalImagensAtivas(updatedImagem.getAmostra(), 1);
+        }
 
         return imagemAmostraMapper.toResponseDTO(updatedImagem);
     }
@@ -137,8 +302,12 @@ public class ImagemAmostraService {
         ImagemAmostra imagem = imagemAmostraRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("ImagemAmostra", "ID", id));
 
+        boolean estavaAtiva = imagem.isAtiva();
         imagem.desativar();
         ImagemAmostra updatedImagem = imagemAmostraRepository.save(imagem);
+        if (estavaAtiva) {
+            amostraRepository.incrementarTotalImagensAtivas(updatedImagem.getAmostra(), -1);
+        }
 
         return imagemAmostraMapper.toResponseDTO(updatedImagem);
     }
@@ -153,6 +322,111 @@ public class ImagemAmostraService {
                 .orElseThrow(() -> new ResourceNotFoundException("ImagemAmostra", "ID", id));
 
         imagemAmostraRepository.delete(imagem);
+        if (imagem.isAtiva()) {
+            amostraRepository.incrementarTotalImagensAtivas(imagem.getAmostra(), -1);
+        }
+        String sha256 = armazenamentoConteudo.hashDoCaminho(imagem.getCaminhoArquivo());
+        if (sha256 != null) {
+            conteudoImagemService.removerReferencia(sha256);
+        }
+        hashPerceptualIndex.remover(id, imagem.getHashPerceptual());
         log.info("ImagemAmostra deleted successfully with ID: {}", id);
     }
+
+    /**
+     * Marks the declared metadata of an image as pending a check against its stored file,
+     * or as unverifiable when the file is not in the content store.
+     */
+    private void marcarMetadados(ImagemAmostra imagem, String sha256) {
+        imagem.setStatusMetadados(sha256 != null ? StatusMetadados.PENDENTE : StatusMetadados.SEM_ARQUIVO);
+        imagem.setMotivoMetadados(null);
+        imagem.setMetadadosVerificadosEm(null);
+        imagem.setTentativasMetadados(0);
+    }
+
+    /**
+     * Clears the quality metrics of an image whose file changed; they are computed again after its header check.
+     */
+    private void marcarAnaliseQualidade(ImagemAmostra imagem, String sha256) {
+        imagem.setStatusAnaliseQualidade(sha256 != null ? StatusAnaliseQualidade.PENDENTE : StatusAnaliseQualidade.NAO_APLICAVEL);
+        imagem.setNitidez(null);
+        imagem.setFracaoDesfocada(null);
+        imagem.setCoberturaTecido(null);
+        imagem.setSaturacaoMedia(null);
+        imagem.setBrilhoMedio(null);
+        imagem.setAlertasQualidade(EnumSet.noneOf(AlertaQualidade.class));
+        imagem.setQualidadeAnalisadaEm(null);
+        hashPerceptualIndex.remover(imagem.getImagemId(), imagem.getHashPerceptual());
+        imagem.setHashPerceptual(null);
+    }
+
+    /**
+     * Decodes the stored file of a new image to compute its perceptual hash.
+     *
+     * @return the hash, or null for images without tissue, which pass the check
+     */
+    private Long calcularHashPerceptual(String caminhoArquivo) {
+        if (armazenamentoConteudo.hashDoCaminho(caminhoArquivo) == null) {
+            throw new BusinessException("A verificação de imagens semelhantes exige o arquivo no armazenamento de imagens");
+        }
+        MetricasQualidade metricas;
+        try {
+            metricas = analisadorQualidade.analisar(armazenamentoConteudo.resolver(caminhoArquivo));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new BusinessException("Não foi possível ler o arquivo para verificar imagens semelhantes: " + e.getMessage(), e);
+        }
+        return metricas.hashPerceptual();
+    }
+
+    /**
+     * Rejects a new image if an image of another sample is within the default distance of its hash.
+     */
+    private void rejeitarSemelhantes(String codigoRastreio, long hashPerceptual) {
+        semelhantes(hashPerceptual, hashPerceptualIndex.getDistanciaPadrao(), codigoRastreio, null).stream()
+                .filter(ImagemSemelhanteDTO::outraAmostra)
+                .findFirst()
+                .ifPresent(semelhante -> {
+                    throw new BusinessException(String.format(
+                            "Imagem semelhante à imagem %d (%s) da amostra %s, distância %d: verifique se a lâmina pertence a esta amostra",
+                            semelhante.imagemId(), semelhante.nomeArquivo(), semelhante.codigoRastreio(), semelhante.distancia()));
+                });
+    }
+
+    /**
+     * Resolves the index entries near a hash to images, skipping the given one and images deleted meanwhile.
+     */
+    private List<ImagemSemelhanteDTO> semelhantes(long hashPerceptual, int distancia, String codigoRastreio, Long ignorar) {
+        List<IndiceHamming.Vizinho> vizinhos = hashPerceptualIndex.buscar(hashPerceptual, distancia);
+        if (vizinhos == null) {
+            throw new IllegalStateException("Índice de hashes perceptuais ainda está em carga");
+        }
+        List<IndiceHamming.Vizinho> candidatos = vizinhos.stream()
+                .filter(vizinho -> !Objects.equals(vizinho.valor(), ignorar))
+                .limit(LIMITE_SEMELHANTES)
+                .toList();
+
+        Map<Long, ImagemAmostra> imagens = imagemAmostraRepository.findAllWithAmostraByImagemIdIn(
+                        candidatos.stream().map(IndiceHamming.Vizinho::valor).toList())
+                .stream()
+                .collect(Collectors.toMap(ImagemAmostra::getImagemId, Function.identity()));
+        return candidatos.stream()
+                .filter(vizinho -> imagens.containsKey(vizinho.valor()))
+                .map(vizinho -> {
+                    ImagemAmostra imagem = imagens.get(vizinho.valor());
+                    return imagemAmostraMapper.toSemelhanteDTO(imagem, vizinho.distancia(),
+                            !codigoRastreio.equals(imagem.getAmostra().getCodigoRastreio()));
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Schedules the tile pyramid of a whole-slide TIFF stored in the content store, after commit.
+     * Images with an external path are skipped; the generator ignores content whose pyramid exists.
+     */
+    private void agendarPiramide(ImagemAmostra imagem) {
+        String sha256 = armazenamentoConteudo.hashDoCaminho(imagem.getCaminhoArquivo());
+        if (imagem.getTipoArquivo() == TipoArquivo.TIFF && sha256 != null) {
+            geradorPiramide.agendarAposCommit(sha256, armazenamentoConteudo.resolver(imagem.getCaminhoArquivo()));
+        }
+    }
 }
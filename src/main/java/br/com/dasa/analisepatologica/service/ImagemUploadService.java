@@ -0,0 +1,236 @@
+package br.com.dasa.analisepatologica.service;
+
+import br.com.dasa.analisepatologica.cache.AmostraIdCache;
+import br.com.dasa.analisepatologica.dto.ImagemAmostraRequestDTO;
+import br.com.dasa.analisepatologica.dto.ImagemAmostraResponseDTO;
+import br.com.dasa.analisepatologica.dto.ImagemUploadRequestDTO;
+import br.com.dasa.analisepatologica.dto.ImagemUploadResponseDTO;
+import br.com.dasa.analisepatologica.entity.Amostra;
+import br.com.dasa.analisepatologica.entity.ImagemUpload;
+import br.com.dasa.analisepatologica.exception.BusinessException;
+import br.com.dasa.analisepatologica.exception.ResourceNotFoundException;
+import br.com.dasa.analisepatologica.repository.AmostraRepository;
+import br.com.dasa.analisepatologica.repository.ImagemUploadRepository;
+import br.com.dasa.analisepatologica.storage.ArmazenamentoConteudo;
+import br.com.dasa.analisepatologica.storage.ObjetoArmazenado;
+import br.com.dasa.analisepatologica.util.TransacaoUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Service for chunked, resumable uploads of sample images.
+ *
+ * An upload is started with the image metadata and its total size; parts are then sent in order, each
+ * starting at the number of bytes already received, and streamed straight to the content store.
+ * No transaction is held while a part is being received. When the last byte arrives the content is moved
+ * to its SHA-256 address and the ImagemAmostra is created with the stored path and size; if that transaction
+ * does not commit, a content stored by this upload is discarded again.
+ * A client that sends the SHA-256 of a file already stored skips most of the transfer: it is asked for a randomly
+ * placed range of the file instead, and the image references the stored bytes once that range matches them.
+ * The hash alone is not enough, since knowing it does not mean holding the file.
+ */
+@Service
+@Slf4j
+public class ImagemUploadService {
+
+    /**
+     * Maximum length of the range requested as proof of possession of an already stored file.
+     */
+    static final int TAMANHO_PROVA = 64 * 1024;
+
+    private static final SecureRandom SORTEIO = new SecureRandom();
+
+    private final ImagemUploadRepository imagemUploadRepository;
+    private final AmostraRepository amostraRepository;
+    private final AmostraIdCache amostraIdCache;
+    private final ImagemAmostraService imagemAmostraService;
+    private final ConteudoImagemService conteudoImagemService;
+    private final ArmazenamentoConteudo armazenamentoConteudo;
+    private final TransactionTemplate transactionTemplate;
+    private final long tamanhoMaximoBytes;
+
+    public ImagemUploadService(ImagemUploadRepository imagemUploadRepository,
+                               AmostraRepository amostraRepository,
+                               AmostraIdCache amostraIdCache,
+                               ImagemAmostraService imagemAmostraService,
+                               ConteudoImagemService conteudoImagemService,
+                               ArmazenamentoConteudo armazenamentoConteudo,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${analisepatologica.armazenamento.tamanho-maximo-imagem:4GB}") DataSize tamanhoMaximo) {
+        this.imagemUploadRepository = imagemUploadRepository;
+        this.amostraRepository = amostraRepository;
+        this.amostraIdCache = amostraIdCache;
+        this.imagemAmostraService = imagemAmostraService;
+        this.conteudoImagemService = conteudoImagemService;
+        this.armazenamentoConteudo = armazenamentoConteudo;
+        this.transactionTemplate = transactionTemplate;
+        this.tamanhoMaximoBytes = tamanhoMaximo.toBytes();
+    }
+
+    /**
+     * Starts an upload for a sample.
+     */
+    @Transactional
+    public ImagemUploadResponseDTO iniciar(String codigoRastreio, ImagemUploadRequestDTO requestDTO) {
+        log.info("Starting upload of {} ({} bytes) for amostra: {}", requestDTO.nomeArquivo(), requestDTO.tamanhoBytes(), codigoRastreio);
+
+        if (requestDTO.tamanhoBytes() > tamanhoMaximoBytes) {
+            throw new BusinessException("Imagem excede o tamanho máximo de " + tamanhoMaximoBytes + " bytes");
+        }
+
+        Amostra amostra = amostraRepository.getReferenceById(amostraIdCache.resolver(codigoRastreio));
+
+        ImagemUpload upload = ImagemUpload.builder()
+                .uploadId(UUID.randomUUID().toString())
+                .nomeArquivo(requestDTO.nomeArquivo())
+                .tipoArquivo(requestDTO.tipoArquivo())
+                .tamanhoBytes(requestDTO.tamanhoBytes())
+                .descricao(requestDTO.descricao())
+                .equipamentoCaptura(requestDTO.equipamentoCaptura())
+                .resolucao(requestDTO.resolucao())
+                .dataCaptura(requestDTO.dataCaptura() != null ? requestDTO.dataCaptura() : LocalDateTime.now())
+                .createdBy("SYSTEM")
+                .amostra(amostra)
+                .build();
+        if (requestDTO.sha256() != null && conteudoImagemService.buscar(requestDTO.sha256())
+                .filter(conteudo -> conteudo.getTamanhoBytes().equals(requestDTO.tamanhoBytes()))
+                .isPresent()) {
+            // Same bytes already stored: ask for a random range of them instead of another copy
+            long tamanhoProva = Math.min(TAMANHO_PROVA, requestDTO.tamanhoBytes());
+            long provaInicio = SORTEIO.nextLong(requestDTO.tamanhoBytes() - tamanhoProva + 1);
+            upload.setSha256(requestDTO.sha256());
+            upload.setProvaInicio(provaInicio);
+            upload.setProvaFim(provaInicio + tamanhoProva - 1);
+            log.info("Content {} already stored; upload {} only needs bytes {}-{}", requestDTO.sha256(),
+                    upload.getUploadId(), upload.getProvaInicio(), upload.getProvaFim());
+        }
+        imagemUploadRepository.save(upload);
+
+        return toResponseDTO(upload, codigoRastreio, 0, null);
+    }
+
+    /**
+     * Returns how many bytes of an upload were received, so an interrupted client knows where to resume.
+     */
+    @Transactional(readOnly = true)
+    public ImagemUploadResponseDTO status(String uploadId) {
+        ImagemUpload upload = buscar(uploadId);
+        return toResponseDTO(upload, upload.getAmostra().getCodigoRastreio(), tamanhoParcial(uploadId), null);
+    }
+
+    /**
+     * Receives the part {@code inicio..fim} (inclusive) of an upload of {@code total} bytes.
+     * Completes the upload when the last byte is received, or when the part is the proof range of an
+     * already stored file and matches it.
+     *
+     * @throws IllegalArgumentException if the range does not match the declared size
+     * @throws IllegalStateException if the part does not start at the bytes already received
+     * @throws BusinessException if the proof range does not match the stored file
+     */
+    public ImagemUploadResponseDTO receberParte(String uploadId, long inicio, long fim, long total, InputStream conteudo) throws IOException {
+        ImagemUpload upload = buscar(uploadId);
+        String codigoRastreio = upload.getAmostra().getCodigoRastreio();
+
+        if (total != upload.getTamanhoBytes()) {
+            throw new IllegalArgumentException("Tamanho total informado (" + total + ") difere do declarado no início do upload ("
+                    + upload.getTamanhoBytes() + ")");
+        }
+        if (inicio < 0 || fim < inicio || fim >= total) {
+            throw new IllegalArgumentException("Intervalo de bytes inválido: " + inicio + "-" + fim + "/" + total);
+        }
+
+        if (upload.getSha256() != null && inicio == upload.getProvaInicio() && fim == upload.getProvaFim()) {
+            if (!armazenamentoConteudo.confere(upload.getSha256(), inicio, fim - inicio + 1, conteudo)) {
+                throw new BusinessException("Os bytes " + inicio + "-" + fim + " não conferem com o arquivo de SHA-256 "
+                        + upload.getSha256() + "; envie o arquivo completo");
+            }
+            ImagemAmostraResponseDTO imagem = transactionTemplate.execute(status ->
+                    criarImagem(upload, codigoRastreio, armazenamentoConteudo.caminho(upload.getSha256()), total));
+            armazenamentoConteudo.descartar(uploadId);
+            log.info("Upload {} completed by proof of possession: imagem {} references content {}", uploadId,
+                    imagem.getImagemId(), upload.getSha256());
+            return toResponseDTO(upload, codigoRastreio, total, imagem);
+        }
+
+        long recebidos = armazenamentoConteudo.anexar(uploadId, inicio, fim - inicio + 1, conteudo);
+        log.debug("Upload {}: {} of {} bytes received", uploadId, recebidos, total);
+        if (recebidos < total) {
+            return toResponseDTO(upload, codigoRastreio, recebidos, null);
+        }
+
+        ObjetoArmazenado objeto = armazenamentoConteudo.concluir(uploadId, total);
+        ImagemAmostraResponseDTO imagem = transactionTemplate.execute(status -> {
+            if (objeto.novo()) {
+                // The bytes reached the store first: drop them again if the image is not committed
+                TransacaoUtils.aposRollback(() -> conteudoImagemService.descartar(objeto.sha256()));
+            }
+            return criarImagem(upload, codigoRastreio, objeto.caminho(), objeto.tamanhoBytes());
+        });
+        log.info("Upload {} completed: imagem {} stored at {}", uploadId, imagem.getImagemId(), objeto.caminho());
+
+        return toResponseDTO(upload, codigoRastreio, total, imagem);
+    }
+
+    /**
+     * Cancels an upload and discards the bytes received.
+     */
+    @Transactional
+    public void cancelar(String uploadId) {
+        log.info("Cancelling upload: {}", uploadId);
+        ImagemUpload upload = buscar(uploadId);
+        imagemUploadRepository.delete(upload);
+        try {
+            armazenamentoConteudo.descartar(uploadId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates the image of a finished upload and removes the upload. Must run in a transaction.
+     */
+    private ImagemAmostraResponseDTO criarImagem(ImagemUpload upload, String codigoRastreio, String caminho, long tamanhoBytes) {
+        ImagemAmostraResponseDTO criada = imagemAmostraService.create(codigoRastreio, ImagemAmostraRequestDTO.builder()
+                .nomeArquivo(upload.getNomeArquivo())
+                .caminhoArquivo(caminho)
+                .tipoArquivo(upload.getTipoArquivo())
+                .tamanhoBytes(tamanhoBytes)
+                .descricao(upload.getDescricao())
+                .equipamentoCaptura(upload.getEquipamentoCaptura())
+                .resolucao(upload.getResolucao())
+                .dataCaptura(upload.getDataCaptura())
+                .build());
+        imagemUploadRepository.deleteById(upload.getUploadId());
+        return criada;
+    }
+
+    private ImagemUpload buscar(String uploadId) {
+        return imagemUploadRepository.findWithAmostraByUploadId(uploadId)
+                .orElseThrow(() -> new ResourceNotFoundException("ImagemUpload", "ID", uploadId));
+    }
+
+    private long tamanhoParcial(String uploadId) {
+        try {
+            return armazenamentoConteudo.tamanhoParcial(uploadId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ImagemUploadResponseDTO toResponseDTO(ImagemUpload upload, String codigoRastreio, long recebidos,
+                                                  ImagemAmostraResponseDTO imagem) {
+        return new ImagemUploadResponseDTO(upload.getUploadId(), codigoRastreio, upload.getNomeArquivo(),
+                upload.getTamanhoBytes(), recebidos, imagem != null, upload.getProvaInicio(), upload.getProvaFim(), imagem);
+    }
+}
@@ -1,11 +1,14 @@
 package br.com.dasa.analisepatologica.service;
 
+import br.com.dasa.analisepatologica.cache.AmostraIdCache;
+import br.com.dasa.analisepatologica.cache.ContadoresEstatisticas;
 import br.com.dasa.analisepatologica.dto.LaudoRequestDTO;
 import br.com.dasa.analisepatologica.dto.LaudoResponseDTO;
 import br.com.dasa.analisepatologica.entity.Amostra;
 import br.com.dasa.analisepatologica.entity.Laudo;
 import br.com.dasa.analisepatologica.entity.Medico;
 import br.com.dasa.analisepatologica.enums.StatusLaudo;
+import br.com.dasa.analisepatologica.enums.StatusProcessamento;
 import br.com.dasa.analisepatologica.enums.TipoMedico;
 import br.com.dasa.analisepatologica.exception.BusinessException;
 import br.com.dasa.analisepatologica.exception.ResourceNotFoundException;
@@ -34,6 +37,8 @@ public class LaudoService {
     private final AmostraRepository amostraRepository;
     private final MedicoRepository medicoRepository;
     private final LaudoMapper laudoMapper;
+    private final AmostraIdCache amostraIdCache;
+    private final ContadoresEstatisticas contadoresEstatisticas;
 
     /**
      * Creates a new report for a sample.
@@ -71,6 +76,7 @@ public class LaudoService {
         laudo.setCreatedBy("SYSTEM");
 
         Laudo savedLaudo = laudoRepository.save(laudo);
+        contadoresEstatisticas.laudoCriado(savedLaudo.getStatusLaudo());
         log.info("Laudo created successfully with ID: {} for amostra: {}", savedLaudo.getLaudoId(), codigoRastreio);
 
         return laudoMapper.toResponseDTO(savedLaudo);
@@ -94,13 +100,12 @@ public class LaudoService {
     public LaudoResponseDTO findByAmostra(String codigoRastreio) {
         log.info("Finding laudo for amostra: {}", codigoRastreio);
 
-        Amostra amostra = amostraRepository.findByCodigoRastreio(codigoRastreio)
-                .orElseThrow(() -> new ResourceNotFoundException("Amostra", "codigo_rastreio", codigoRastreio));
+        Amostra amostra = amostraRepository.getReferenceById(amostraIdCache.resolver(codigoRastreio));
 
         Laudo laudo = laudoRepository.findByAmostra(amostra)
                 .orElseThrow(() -> new ResourceNotFoundException("Laudo não encontrado para amostra: " + codigoRastreio));
 
-        return laudoMapper.toResponseDTO(laudo);
+        return laudoMapper.toResponseDTO(laudo, codigoRastreio);
     }
 
     /**
@@ -199,8 +204,11 @@ public class LaudoService {
             throw new BusinessException("Laudo incompleto. Verifique se todos os campos obrigatórios foram preenchidos.");
         }
 
+        StatusLaudo statusAnterior = laudo.getStatusLaudo();
+        StatusProcessamento statusAmostraAnterior = statusAmostra(laudo);
         laudo.emitir();
         Laudo updatedLaudo = laudoRepository.save(laudo);
+        registrarTransicao(updatedLaudo, statusAnterior, statusAmostraAnterior);
 
         return laudoMapper.toResponseDTO(updatedLaudo);
     }
@@ -214,8 +222,11 @@ public class LaudoService {
         Laudo laudo = laudoRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Laudo", "ID", id));
 
+        StatusLaudo statusAnterior = laudo.getStatusLaudo();
+        StatusProcessamento statusAmostraAnterior = statusAmostra(laudo);
         laudo.liberar();
         Laudo updatedLaudo = laudoRepository.save(laudo);
+        registrarTransicao(updatedLaudo, statusAnterior, statusAmostraAnterior);
 
         return laudoMapper.toResponseDTO(updatedLaudo);
     }
@@ -229,8 +240,11 @@ public class LaudoService {
         Laudo laudo = laudoRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Laudo", "ID", id));
 
+        StatusLaudo statusAnterior = laudo.getStatusLaudo();
+        StatusProcessamento statusAmostraAnterior = statusAmostra(laudo);
         laudo.cancelar();
         Laudo updatedLaudo = laudoRepository.save(laudo);
+        registrarTransicao(updatedLaudo, statusAnterior, statusAmostraAnterior);
 
         return laudoMapper.toResponseDTO(updatedLaudo);
     }
@@ -244,8 +258,11 @@ public class LaudoService {
         Laudo laudo = laudoRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Laudo", "ID", id));
 
+        StatusLaudo statusAnterior = laudo.getStatusLaudo();
+        StatusProcessamento statusAmostraAnterior = statusAmostra(laudo);
         laudo.enviarParaRevisao();
         Laudo updatedLaudo = laudoRepository.save(laudo);
+        registrarTransicao(updatedLaudo, statusAnterior, statusAmostraAnterior);
 
         return laudoMapper.toResponseDTO(updatedLaudo);
     }
@@ -266,9 +283,22 @@ public class LaudoService {
         }
 
         laudoRepository.delete(laudo);
+        contadoresEstatisticas.laudoExcluido(laudo.getStatusLaudo());
         log.info("Laudo deleted successfully with ID: {}", id);
     }
 
+    /**
+     * Reports a status transition of the report (and of its sample) to the statistics counters.
+     */
+    private void registrarTransicao(Laudo laudo, StatusLaudo statusAnterior, StatusProcessamento statusAmostraAnterior) {
+        contadoresEstatisticas.statusLaudoAlterado(statusAnterior, laudo.getStatusLaudo());
+        contadoresEstatisticas.statusAmostraAlterado(statusAmostraAnterior, statusAmostra(laudo));
+    }
+
+    private StatusProcessamento statusAmostra(Laudo laudo) {
+        return laudo.getAmostra() != null ? laudo.getAmostra().getStatusProcessamento() : null;
+    }
+
     /**
      * Counts reports by status.
      */
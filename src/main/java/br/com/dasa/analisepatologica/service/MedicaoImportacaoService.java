@@ -0,0 +1,412 @@
+package br.com.dasa.analisepatologica.service;
+
+import br.com.dasa.analisepatologica.cache.ContadoresEstatisticas;
+import br.com.dasa.analisepatologica.dto.MedicaoImportacaoErroDTO;
+import br.com.dasa.analisepatologica.dto.MedicaoImportacaoResponseDTO;
+import br.com.dasa.analisepatologica.dto.MedicaoRequestDTO;
+import br.com.dasa.analisepatologica.entity.Amostra;
+import br.com.dasa.analisepatologica.entity.Medicao;
+import br.com.dasa.analisepatologica.enums.StatusProcessamento;
+import br.com.dasa.analisepatologica.mapper.MedicaoMapper;
+import br.com.dasa.analisepatologica.repository.AmostraRepository;
+import br.com.dasa.analisepatologica.repository.MedicaoRepository;
+import br.com.dasa.analisepatologica.repository.projection.VersaoMedicaoProjection;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service importing measurement batches exported by grossing-station instruments as CSV.
+ *
+ * The file is read line by line and written in chunks of {@link #TAMANHO_LOTE} lines, each chunk in its
+ * own transaction: tracking codes are resolved with one query, versions are reserved with one UPDATE per
+ * distinct row count and the measurements are inserted in JDBC batches. Invalid lines are reported
+ * without stopping the import.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MedicaoImportacaoService {
+
+    /**
+     * Lines written per transaction. Also bounds the IN lists (Oracle accepts up to 1000 items).
+     */
+    public static final int TAMANHO_LOTE = 1000;
+
+    /**
+     * Maximum number of rejected lines detailed in the response; the counters always cover the whole file.
+     */
+    public static final int MAX_ERROS_DETALHADOS = 1000;
+
+    private static final int TAMANHO_BATCH_JDBC = 100;
+
+    private static final String CODIGO_RASTREIO = "codigoRastreio";
+    private static final String LARGURA = "larguraMm";
+    private static final String ALTURA = "alturaMm";
+    private static final String PROFUNDIDADE = "profundidadeMm";
+    private static final String METODO = "metodoMedicao";
+    private static final String EQUIPAMENTO = "equipamentoUtilizado";
+    private static final String RESPONSAVEL = "responsavelMedicao";
+    private static final String OBSERVACOES = "observacoes";
+
+    private static final List<String> COLUNAS_OBRIGATORIAS = List.of(CODIGO_RASTREIO, LARGURA, ALTURA, METODO, RESPONSAVEL);
+    private static final Set<String> COLUNAS = Set.of(CODIGO_RASTREIO, LARGURA, ALTURA, PROFUNDIDADE, METODO,
+            EQUIPAMENTO, RESPONSAVEL, OBSERVACOES);
+
+    private final AmostraRepository amostraRepository;
+    private final MedicaoRepository medicaoRepository;
+    private final MedicaoMapper medicaoMapper;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ContadoresEstatisticas contadoresEstatisticas;
+
+    /**
+     * A validated measurement to import. The number identifies the item in the rejections
+     * (the line number for CSV files).
+     */
+    public record ItemImportacao(long numero, String codigoRastreio, MedicaoRequestDTO dto) {
+    }
+
+    /**
+     * Outcome of a committed chunk: number of measurements written and items rejected because of their sample.
+     */
+    public record ResultadoLote(int importadas, List<MedicaoImportacaoErroDTO> erros) {
+    }
+
+    /**
+     * Accumulates the outcome of the whole file.
+     */
+    private static final class ResultadoImportacao {
+        private long totalLinhas;
+        private long importadas;
+        private long rejeitadas;
+        private final List<MedicaoImportacaoErroDTO> erros = new ArrayList<>();
+
+        private void rejeitar(MedicaoImportacaoErroDTO erro) {
+            rejeitadas++;
+            if (erros.size() < MAX_ERROS_DETALHADOS) {
+                erros.add(erro);
+            }
+        }
+
+        private MedicaoImportacaoResponseDTO toResponseDTO() {
+            return new MedicaoImportacaoResponseDTO(totalLinhas, importadas, rejeitadas, List.copyOf(erros));
+        }
+    }
+
+    /**
+     * Imports the measurements of a CSV file.
+     *
+     * The first line is a header naming the columns (any order): codigoRastreio, larguraMm, alturaMm,
+     * metodoMedicao and responsavelMedicao are required; profundidadeMm, equipamentoUtilizado and observacoes
+     * are optional. The separator is ';' when the header contains one (decimal comma accepted), ',' otherwise.
+     * Several lines for the same sample become consecutive versions; the last one stays active.
+     *
+     * @throws IllegalArgumentException if the file is empty or the header is invalid
+     */
+    public MedicaoImportacaoResponseDTO importar(InputStream csv) {
+        long inicio = System.currentTimeMillis();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            String cabecalho = reader.readLine();
+            if (cabecalho == null || cabecalho.isBlank()) {
+                throw new IllegalArgumentException("Arquivo CSV vazio");
+            }
+            if (cabecalho.startsWith("\uFEFF")) {
+                cabecalho = cabecalho.substring(1);
+            }
+            char separador = cabecalho.indexOf(';') >= 0 ? ';' : ',';
+            Map<String, Integer> colunas = lerCabecalho(cabecalho, separador);
+
+            ResultadoImportacao resultado = new ResultadoImportacao();
+            List<ItemImportacao> lote = new ArrayList<>(TAMANHO_LOTE);
+            long numero = 1;
+            String linha;
+            while ((linha = reader.readLine()) != null) {
+                numero++;
+                if (linha.isBlank()) {
+                    continue;
+                }
+                resultado.totalLinhas++;
+
+                List<String> campos = null;
+                try {
+                    campos = separarCampos(linha, separador);
+                    lote.add(lerLinha(numero, campos, colunas, separador));
+                } catch (IllegalArgumentException e) {
+                    String codigo = campos != null ? campo(campos, colunas, CODIGO_RASTREIO) : null;
+                    resultado.rejeitar(new MedicaoImportacaoErroDTO(numero, codigo, e.getMessage()));
+                }
+
+                if (lote.size() == TAMANHO_LOTE) {
+                    gravarLote(lote, resultado);
+                    lote.clear();
+                }
+            }
+            if (!lote.isEmpty()) {
+                gravarLote(lote, resultado);
+            }
+
+            log.info("CSV import finished in {} ms: {} lines, {} medicoes imported, {} rejected",
+                    System.currentTimeMillis() - inicio, resultado.totalLinhas, resultado.importadas, resultado.rejeitadas);
+
+            return resultado.toResponseDTO();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler arquivo CSV", e);
+        }
+    }
+
+    /**
+     * Maps each known column name of the header to its position.
+     */
+    private Map<String, Integer> lerCabecalho(String cabecalho, char separador) {
+        List<String> nomes = separarCampos(cabecalho, separador);
+        Map<String, Integer> colunas = new HashMap<>();
+        for (int i = 0; i < nomes.size(); i++) {
+            String nome = nomes.get(i);
+            if (!COLUNAS.contains(nome)) {
+                throw new IllegalArgumentException("Coluna desconhecida no cabeçalho do CSV: " + nome);
+            }
+            if (colunas.put(nome, i) != null) {
+                throw new IllegalArgumentException("Coluna repetida no cabeçalho do CSV: " + nome);
+            }
+        }
+
+        List<String> ausentes = COLUNAS_OBRIGATORIAS.stream()
+                .filter(nome -> !colunas.containsKey(nome))
+                .toList();
+        if (!ausentes.isEmpty()) {
+            throw new IllegalArgumentException("Colunas obrigatórias ausentes no cabeçalho do CSV: " + String.join(", ", ausentes));
+        }
+        return colunas;
+    }
+
+    /**
+     * Builds and validates the measurement of a data line.
+     *
+     * @throws IllegalArgumentException with the rejection reason if the line is invalid
+     */
+    private ItemImportacao lerLinha(long numero, List<String> campos, Map<String, Integer> colunas, char separador) {
+        String codigoRastreio = campo(campos, colunas, CODIGO_RASTREIO);
+        if (codigoRastreio == null) {
+            throw new IllegalArgumentException("Código de rastreio é obrigatório");
+        }
+
+        MedicaoRequestDTO dto = new MedicaoRequestDTO(
+                decimal(campos, colunas, LARGURA, separador),
+                decimal(campos, colunas, ALTURA, separador),
+                decimal(campos, colunas, PROFUNDIDADE, separador),
+                campo(campos, colunas, METODO),
+                campo(campos, colunas, EQUIPAMENTO),
+                campo(campos, colunas, RESPONSAVEL),
+                campo(campos, colunas, OBSERVACOES)
+        );
+
+        String erro = validar(dto);
+        if (erro != null) {
+            throw new IllegalArgumentException(erro);
+        }
+
+        return new ItemImportacao(numero, codigoRastreio, dto);
+    }
+
+    /**
+     * Applies the bean validation constraints of a measurement.
+     *
+     * @return The violations joined in a single message, or null if the measurement is valid
+     */
+    public String validar(MedicaoRequestDTO dto) {
+        Set<ConstraintViolation<MedicaoRequestDTO>> violations = validator.validate(dto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    /**
+     * Returns the trimmed value of a column, or null if the column is absent or the value is empty.
+     */
+    private String campo(List<String> campos, Map<String, Integer> colunas, String nome) {
+        Integer indice = colunas.get(nome);
+        if (indice == null || indice >= campos.size() || campos.get(indice).isEmpty()) {
+            return null;
+        }
+        return campos.get(indice);
+    }
+
+    private BigDecimal decimal(List<String> campos, Map<String, Integer> colunas, String nome, char separador) {
+        String valor = campo(campos, colunas, nome);
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(separador == ';' ? valor.replace(',', '.') : valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(nome + ": valor numérico inválido '" + valor + "'");
+        }
+    }
+
+    /**
+     * Splits a CSV line, honoring double-quoted fields and escaped quotes ("").
+     */
+    static List<String> separarCampos(String linha, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (entreAspas) {
+                if (c != '"') {
+                    atual.append(c);
+                } else if (i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                    atual.append('"');
+                    i++;
+                } else {
+                    entreAspas = false;
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == separador) {
+                campos.add(atual.toString().trim());
+                atual.setLength(0);
+            } else {
+                atual.append(c);
+            }
+        }
+
+        if (entreAspas) {
+            throw new IllegalArgumentException("Linha com aspas não fechadas");
+        }
+        campos.add(atual.toString().trim());
+        return campos;
+    }
+
+    /**
+     * Writes a chunk in its own transaction. If the transaction fails, every line of the chunk is rejected.
+     */
+    private void gravarLote(List<ItemImportacao> lote, ResultadoImportacao resultado) {
+        try {
+            ResultadoLote resultadoLote = gravar(lote);
+            resultado.importadas += resultadoLote.importadas();
+            resultadoLote.erros().forEach(resultado::rejeitar);
+        } catch (DataAccessException | PersistenceException | TransactionException e) {
+            log.error("Failed to write CSV import chunk starting at line {}", lote.get(0).numero(), e);
+            lote.forEach(linha -> resultado.rejeitar(new MedicaoImportacaoErroDTO(linha.numero(), linha.codigoRastreio(),
+                    "Falha ao gravar o lote: " + e.getMessage())));
+        }
+    }
+
+    /**
+     * Writes validated measurements in a single transaction and returns after commit.
+     * Items whose sample is unknown or closed are rejected; the others are written.
+     *
+     * @param lote Up to {@link #TAMANHO_LOTE} items
+     * @throws DataAccessException if the transaction fails; nothing is written in that case
+     */
+    public ResultadoLote gravar(List<ItemImportacao> lote) {
+        if (lote.size() > TAMANHO_LOTE) {
+            throw new IllegalArgumentException("Lote deve conter no máximo " + TAMANHO_LOTE + " medições");
+        }
+        return transactionTemplate.execute(status -> gravarLoteNaTransacao(lote));
+    }
+
+    private ResultadoLote gravarLoteNaTransacao(List<ItemImportacao> lote) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(TAMANHO_BATCH_JDBC);
+
+        Set<String> codigos = lote.stream().map(ItemImportacao::codigoRastreio).collect(Collectors.toSet());
+        Map<String, Amostra> amostras = amostraRepository.findByCodigoRastreioIn(codigos).stream()
+                .collect(Collectors.toMap(Amostra::getCodigoRastreio, Function.identity()));
+
+        List<MedicaoImportacaoErroDTO> erros = new ArrayList<>();
+        Map<Long, List<ItemImportacao>> linhasPorAmostra = new LinkedHashMap<>();
+        Map<Long, Amostra> amostrasPorId = new HashMap<>();
+        for (ItemImportacao linha : lote) {
+            Amostra amostra = amostras.get(linha.codigoRastreio());
+            if (amostra == null) {
+                erros.add(new MedicaoImportacaoErroDTO(linha.numero(), linha.codigoRastreio(),
+                        "Amostra não encontrada: " + linha.codigoRastreio()));
+                continue;
+            }
+            if (amostra.getStatusProcessamento() == StatusProcessamento.CANCELADA ||
+                amostra.getStatusProcessamento() == StatusProcessamento.LIBERADA) {
+                erros.add(new MedicaoImportacaoErroDTO(linha.numero(), linha.codigoRastreio(),
+                        "Não é possível adicionar medição a amostra com status: " + amostra.getStatusProcessamento()));
+                continue;
+            }
+            amostrasPorId.put(amostra.getAmostraId(), amostra);
+            linhasPorAmostra.computeIfAbsent(amostra.getAmostraId(), id -> new ArrayList<>()).add(linha);
+        }
+
+        if (linhasPorAmostra.isEmpty()) {
+            return new ResultadoLote(0, erros);
+        }
+
+        // Reserve the versions first (one UPDATE per distinct line count, locking the sample rows until commit),
+        // then deactivate the current versions before inserting the new ones
+        linhasPorAmostra.entrySet().stream()
+                .collect(Collectors.groupingBy(entry -> entry.getValue().size(),
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                .forEach((quantidade, amostraIds) -> amostraRepository.alocarVersoesMedicao(amostraIds, quantidade));
+        Map<Long, Integer> ultimasVersoes = amostraRepository.findUltimasVersoesMedicao(linhasPorAmostra.keySet()).stream()
+                .collect(Collectors.toMap(VersaoMedicaoProjection::getAmostraId, VersaoMedicaoProjection::getUltimaVersaoMedicao));
+        medicaoRepository.desativarTodasByAmostraIdIn(linhasPorAmostra.keySet());
+
+        int importadas = 0;
+        for (Map.Entry<Long, List<ItemImportacao>> entry : linhasPorAmostra.entrySet()) {
+            Amostra amostra = amostrasPorId.get(entry.getKey());
+            List<ItemImportacao> linhas = entry.getValue();
+            int versao = ultimasVersoes.get(entry.getKey()) - linhas.size() + 1;
+
+            for (int i = 0; i < linhas.size(); i++) {
+                Medicao medicao = medicaoMapper.toEntity(linhas.get(i).dto(), amostra, versao + i);
+                medicao.setAtiva(i == linhas.size() - 1 ? 'S' : 'N');
+                medicao.setCreatedBy("SYSTEM");
+                medicao.setAmostraId(amostra.getAmostraId());
+                medicao.setPacienteId(amostra.getPacienteId());
+                medicao.setMedicoId(amostra.getMedicoId());
+
+                // persist() (not save()) so new rows are never merged and the inserts can be batched
+                entityManager.persist(medicao);
+                importadas++;
+            }
+
+            if (amostra.getStatusProcessamento() == StatusProcessamento.RECEBIDA ||
+                amostra.getStatusProcessamento() == StatusProcessamento.EM_PROCESSAMENTO) {
+                StatusProcessamento statusAnterior = amostra.getStatusProcessamento();
+                amostra.atualizarStatus(StatusProcessamento.MEDIDA);
+                contadoresEstatisticas.statusAmostraAlterado(statusAnterior, StatusProcessamento.MEDIDA);
+            }
+        }
+
+        return new ResultadoLote(importadas, erros);
+    }
+}
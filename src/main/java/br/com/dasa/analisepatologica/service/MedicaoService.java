@@ -1,5 +1,9 @@
 package br.com.dasa.analisepatologica.service;
 
+import br.com.dasa.analisepatologica.cache.AmostraIdCache;
+import br.com.dasa.analisepatologica.cache.ContadoresEstatisticas;
+import br.com.dasa.analisepatologica.dto.DistribuicaoVolumeDTO;
+import br.com.dasa.analisepatologica.dto.EstatisticasVolumeResponseDTO;
 import br.com.dasa.analisepatologica.dto.MedicaoRequestDTO;
 import br.com.dasa.analisepatologica.dto.MedicaoResponseDTO;
 import br.com.dasa.analisepatologica.entity.Amostra;
@@ -10,11 +14,14 @@ import br.com.dasa.analisepatologica.exception.ResourceNotFoundException;
 import br.com.dasa.analisepatologica.mapper.MedicaoMapper;
 import br.com.dasa.analisepatologica.repository.AmostraRepository;
 import br.com.dasa.analisepatologica.repository.MedicaoRepository;
+import br.com.dasa.analisepatologica.repository.projection.DistribuicaoVolumeProjection;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -31,6 +38,8 @@ public class MedicaoService {
     private final MedicaoRepository medicaoRepository;
     private final AmostraRepository amostraRepository;
     private final MedicaoMapper medicaoMapper;
+    private final AmostraIdCache amostraIdCache;
+    private final ContadoresEstatisticas contadoresEstatisticas;
 
     /**
      * Creates a new measurement for a sample.
@@ -47,14 +56,13 @@ public class MedicaoService {
             throw new BusinessException("Não é possível adicionar medição a amostra com status: " + amostra.getStatusProcessamento());
         }
 
-        // Deactivate previous measurements
-        List<Medicao> previousMedicoes = medicaoRepository.findByAmostra(amostra);
-        previousMedicoes.forEach(Medicao::desativar);
-        medicaoRepository.saveAll(previousMedicoes);
+        // Reserve the next version first: the sample row stays locked until commit,
+        // so concurrent creations for the same sample cannot get the same number
+        amostraRepository.alocarVersaoMedicao(amostra);
+        Integer novaVersao = amostraRepository.findUltimaVersaoMedicao(amostra);
 
-        // Calculate next version
-        Integer maxVersao = medicaoRepository.findMaxVersaoByAmostra(amostra);
-        Integer novaVersao = (maxVersao != null ? maxVersao : 0) + 1;
+        // Deactivate previous measurements
+        medicaoRepository.desativarTodasByAmostra(amostra);
 
         Medicao medicao = medicaoMapper.toEntity(requestDTO, amostra, novaVersao);
         medicao.setCreatedBy("SYSTEM");
@@ -70,8 +78,10 @@ public class MedicaoService {
         // Update sample status if needed
         if (amostra.getStatusProcessamento() == StatusProcessamento.RECEBIDA ||
             amostra.getStatusProcessamento() == StatusProcessamento.EM_PROCESSAMENTO) {
+            StatusProcessamento statusAnterior = amostra.getStatusProcessamento();
             amostra.atualizarStatus(StatusProcessamento.MEDIDA);
             amostraRepository.save(amostra);
+            contadoresEstatisticas.statusAmostraAlterado(statusAnterior, StatusProcessamento.MEDIDA);
         }
 
         return medicaoMapper.toResponseDTO(savedMedicao);
@@ -84,12 +94,11 @@ public class MedicaoService {
     public List<MedicaoResponseDTO> findByAmostra(String codigoRastreio) {
         log.info("Finding medicoes for amostra: {}", codigoRastreio);
 
-        Amostra amostra = amostraRepository.findByCodigoRastreio(codigoRastreio)
-                .orElseThrow(() -> new ResourceNotFoundException("Amostra", "codigo_rastreio", codigoRastreio));
+        Amostra amostra = amostraRepository.getReferenceById(amostraIdCache.resolver(codigoRastreio));
 
         return medicaoRepository.findByAmostraOrderByVersaoDesc(amostra)
                 .stream()
-                .map(medicaoMapper::toResponseDTO)
+                .map(medicao -> medicaoMapper.toResponseDTO(medicao, codigoRastreio))
                 .collect(Collectors.toList());
     }
 
@@ -100,13 +109,12 @@ public class MedicaoService {
     public MedicaoResponseDTO findMedicaoAtiva(String codigoRastreio) {
         log.info("Finding active medicao for amostra: {}", codigoRastreio);
 
-        Amostra amostra = amostraRepository.findByCodigoRastreio(codigoRastreio)
-                .orElseThrow(() -> new ResourceNotFoundException("Amostra", "codigo_rastreio", codigoRastreio));
+        Amostra amostra = amostraRepository.getReferenceById(amostraIdCache.resolver(codigoRastreio));
 
         Medicao medicaoAtiva = medicaoRepository.findByAmostraAndAtiva(amostra, 'S')
                 .orElseThrow(() -> new ResourceNotFoundException("Medicao ativa não encontrada para amostra: " + codigoRastreio));
 
-        return medicaoMapper.toResponseDTO(medicaoAtiva);
+        return medicaoMapper.toResponseDTO(medicaoAtiva, codigoRastreio);
     }
 
     /**
@@ -115,26 +123,56 @@ public class MedicaoService {
     public MedicaoResponseDTO ativarVersao(String codigoRastreio, Integer versao) {
         log.info("Activating medicao version {} for amostra: {}", versao, codigoRastreio);
 
-        Amostra amostra = amostraRepository.findByCodigoRastreio(codigoRastreio)
-                .orElseThrow(() -> new ResourceNotFoundException("Amostra", "codigo_rastreio", codigoRastreio));
+        Amostra amostra = amostraRepository.getReferenceById(amostraIdCache.resolver(codigoRastreio));
+
+        // Waits for version switches and creations in flight on the same sample, so the active version
+        // is changed against committed versions only
+        amostraRepository.bloquearVersoesMedicao(amostra);
 
-        List<Medicao> medicoes = medicaoRepository.findByAmostra(amostra);
+        // Two targeted updates, independent of how many versions exist. The current version is deactivated
+        // before the requested one is activated, so the one-active-version index never sees two active rows;
+        // if the requested version does not exist the exception rolls the deactivation back.
+        medicaoRepository.desativarOutrasVersoes(amostra, versao);
+        if (medicaoRepository.ativarVersao(amostra, versao) == 0) {
+            throw new ResourceNotFoundException("Medicao", "versao", versao);
+        }
 
-        // Find the measurement with the specified version
-        Medicao medicaoToActivate = medicoes.stream()
-                .filter(m -> m.getVersao().equals(versao))
-                .findFirst()
+        Medicao medicaoToActivate = medicaoRepository.findByAmostraAndVersao(amostra, versao)
                 .orElseThrow(() -> new ResourceNotFoundException("Medicao", "versao", versao));
 
-        // Deactivate all measurements
-        medicoes.forEach(Medicao::desativar);
+        return medicaoMapper.toResponseDTO(medicaoToActivate, codigoRastreio);
+    }
 
-        // Activate the selected one
-        medicaoToActivate.ativar();
+    /**
+     * Returns the volume distribution (min/max/mean/p50/p95) of the active measurements
+     * by tissue type and by measurement method. Aggregation runs in the database over the
+     * persisted volume column, so only one row per group is transferred.
+     */
+    @Transactional(readOnly = true)
+    public EstatisticasVolumeResponseDTO estatisticasVolume() {
+        log.info("Computing volume distribution of active medicoes");
 
-        medicaoRepository.saveAll(medicoes);
+        return new EstatisticasVolumeResponseDTO(
+                toDistribuicaoVolumeDTOs(medicaoRepository.findDistribuicaoVolumeByTipoTecido()),
+                toDistribuicaoVolumeDTOs(medicaoRepository.findDistribuicaoVolumeByMetodoMedicao())
+        );
+    }
+
+    private List<DistribuicaoVolumeDTO> toDistribuicaoVolumeDTOs(List<DistribuicaoVolumeProjection> linhas) {
+        return linhas.stream()
+                .map(linha -> new DistribuicaoVolumeDTO(
+                        linha.getChave(),
+                        linha.getTotal(),
+                        linha.getMinimo(),
+                        linha.getMaximo(),
+                        arredondarVolume(linha.getMedia()),
+                        arredondarVolume(linha.getP50()),
+                        arredondarVolume(linha.getP95())))
+                .collect(Collectors.toList());
+    }
 
-        return medicaoMapper.toResponseDTO(medicaoToActivate);
+    private BigDecimal arredondarVolume(Double valor) {
+        return valor != null ? BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_UP) : null;
     }
 
     /**
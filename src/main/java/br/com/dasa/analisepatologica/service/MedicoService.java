@@ -1,5 +1,6 @@
 package br.com.dasa.analisepatologica.service;
 
+import br.com.dasa.analisepatologica.cache.ContadoresEstatisticas;
 import br.com.dasa.analisepatologica.dto.MedicoFilterDTO;
 import br.com.dasa.analisepatologica.dto.MedicoRequestDTO;
 import br.com.dasa.analisepatologica.dto.MedicoResponseDTO;
@@ -30,6 +31,7 @@ public class MedicoService {
 
     private final MedicoRepository medicoRepository;
     private final MedicoMapper medicoMapper;
+    private final ContadoresEstatisticas contadoresEstatisticas;
 
     /**
      * Creates a new doctor.
@@ -51,6 +53,7 @@ public class MedicoService {
         }
 
         Medico savedMedico = medicoRepository.save(medico);
+        contadoresEstatisticas.medicoCriado(savedMedico.getTipoMedico());
         log.info("Medico created successfully with ID: {}", savedMedico.getMedicoId());
 
         return medicoMapper.toResponseDTO(savedMedico);
@@ -167,6 +170,7 @@ public class MedicoService {
             }
         }
 
+        TipoMedico tipoAnterior = medico.getTipoMedico();
         medicoMapper.updateEntityFromDTO(requestDTO, medico);
 
         if (!medico.validarCrm()) {
@@ -174,6 +178,7 @@ public class MedicoService {
         }
 
         Medico updatedMedico = medicoRepository.save(medico);
+        contadoresEstatisticas.tipoMedicoAlterado(tipoAnterior, updatedMedico.getTipoMedico());
         log.info("Medico updated successfully with ID: {}", updatedMedico.getMedicoId());
 
         return medicoMapper.toResponseDTO(updatedMedico);
@@ -222,6 +227,7 @@ public class MedicoService {
         }
 
         medicoRepository.delete(medico);
+        contadoresEstatisticas.medicoExcluido(medico.getTipoMedico());
         log.info("Medico deleted successfully with ID: {}", id);
     }
 
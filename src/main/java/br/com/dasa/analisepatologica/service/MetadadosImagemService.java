@@ -0,0 +1,296 @@
+package br.com.dasa.analisepatologica.service;
+
+import br.com.dasa.analisepatologica.entity.ImagemAmostra;
+import br.com.dasa.analisepatologica.enums.StatusAnaliseQualidade;
+import br.com.dasa.analisepatologica.enums.StatusMetadados;
+import br.com.dasa.analisepatologica.enums.TipoArquivo;
+import br.com.dasa.analisepatologica.repository.ImagemAmostraRepository;
+import br.com.dasa.analisepatologica.storage.ArmazenamentoConteudo;
+import br.com.dasa.analisepatologica.storage.CabecalhoImagem;
+import br.com.dasa.analisepatologica.storage.GeradorPiramide;
+import br.com.dasa.analisepatologica.storage.LeitorCabecalho;
+import br.com.dasa.analisepatologica.util.TransacaoUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Service that checks the metadata declared for stored images against the header of their files.
+ *
+ * Registering an image only marks it {@link StatusMetadados#PENDENTE}; after commit, a bounded pool of workers
+ * (one per core by default) reads the header with {@link LeitorCabecalho} and corrects the dimensions, size and
+ * format, fills the capture equipment from the EXIF/TIFF tags when missing, and records the outcome; readable
+ * files then go on to the quality analysis ({@link AnaliseQualidadeService}).
+ * The file is read outside any transaction; only the final update takes a short one.
+ *
+ * The queue is bounded: when it is full, or after a restart, images simply stay pending and are queued again,
+ * in key order, by {@link #retomarPendentes()} as room frees up. A check that ends in an unexpected error is
+ * retried the same way, until the image has used up its attempts and is marked {@link StatusMetadados#FALHA}.
+ */
+@Service
+@Slf4j
+public class MetadadosImagemService implements DisposableBean {
+
+    private static final int TAMANHO_MAXIMO_MOTIVO = 500;
+
+    private final ImagemAmostraRepository imagemAmostraRepository;
+    private final ArmazenamentoConteudo armazenamentoConteudo;
+    private final GeradorPiramide geradorPiramide;
+    private final AnaliseQualidadeService analiseQualidadeService;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final int tentativasMaximas;
+    private final Set<Long> emAndamento = ConcurrentHashMap.newKeySet();
+
+    public MetadadosImagemService(ImagemAmostraRepository imagemAmostraRepository,
+                                  ArmazenamentoConteudo armazenamentoConteudo,
+                                  GeradorPiramide geradorPiramide,
+                                  AnaliseQualidadeService analiseQualidadeService,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${analisepatologica.metadados.threads:0}") int threads,
+                                  @Value("${analisepatologica.metadados.capacidade-fila:10000}") int capacidadeFila,
+                                  @Value("${analisepatologica.metadados.tentativas-maximas:5}") int tentativasMaximas) {
+        if (tentativasMaximas < 1) {
+            throw new IllegalArgumentException("Tentativas máximas de verificação de metadados devem ser ao menos 1");
+        }
+        this.imagemAmostraRepository = imagemAmostraRepository;
+        this.armazenamentoConteudo = armazenamentoConteudo;
+        this.geradorPiramide = geradorPiramide;
+        this.analiseQualidadeService = analiseQualidadeService;
+        this.transactionTemplate = transactionTemplate;
+        this.tentativasMaximas = tentativasMaximas;
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila), tarefa -> {
+                    Thread thread = new Thread(tarefa, "metadados-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queues the header read of an image once the current transaction commits
+     * (or right away outside a transaction), so workers never look for an uncommitted row.
+     */
+    public void agendarAposCommit(Long imagemId) {
+        TransacaoUtils.aposCommit(() -> agendar(imagemId));
+    }
+
+    /**
+     * Queues the header read of an image unless it is already queued.
+     * When the queue is full the image stays pending and is queued again by {@link #retomarPendentes()}.
+     */
+    public void agendar(Long imagemId) {
+        if (!emAndamento.add(imagemId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    processar(imagemId);
+                } catch (Exception e) {
+                    log.error("Failed to check metadata of imagem {}", imagemId, e);
+                    registrarTentativa(imagemId, e);
+                } finally {
+                    emAndamento.remove(imagemId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            emAndamento.remove(imagemId);
+            log.debug("Metadata queue is full; imagem {} stays pending", imagemId);
+        }
+    }
+
+    /**
+     * Queues pending images, oldest key first, up to the free room in the queue.
+     * Covers images registered while the queue was full and images left pending by a restart.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${analisepatologica.metadados.intervalo-retomada:PT1M}",
+            initialDelayString = "${analisepatologica.metadados.intervalo-retomada:PT1M}")
+    public void retomarPendentes() {
+        int vagas = executor.getQueue().remainingCapacity();
+        if (vagas == 0) {
+            return;
+        }
+        List<Long> pendentes = imagemAmostraRepository.findIdsByStatusMetadados(StatusMetadados.PENDENTE,
+                PageRequest.of(0, vagas));
+        pendentes.forEach(this::agendar);
+        if (!pendentes.isEmpty()) {
+            log.info("Resumed metadata check of {} pending imagens", pendentes.size());
+        }
+    }
+
+    /**
+     * Reads the header of the file of a pending image and records the outcome, in the calling thread.
+     */
+    void processar(Long imagemId) {
+        Optional<ImagemAmostra> pendente = imagemAmostraRepository.findById(imagemId)
+                .filter(imagem -> imagem.getStatusMetadados() == StatusMetadados.PENDENTE);
+        if (pendente.isEmpty()) {
+            return;
+        }
+        String caminho = pendente.get().getCaminhoArquivo();
+        String sha256 = armazenamentoConteudo.hashDoCaminho(caminho);
+        if (sha256 == null) {
+            registrar(imagemId, caminho, imagem -> {
+                imagem.setStatusMetadados(StatusMetadados.SEM_ARQUIVO);
+                imagem.setStatusAnaliseQualidade(StatusAnaliseQualidade.NAO_APLICAVEL);
+            });
+            return;
+        }
+
+        Path arquivo = armazenamentoConteudo.resolver(caminho);
+        long tamanhoBytes;
+        CabecalhoImagem cabecalho;
+        try {
+            tamanhoBytes = Files.size(arquivo);
+            cabecalho = LeitorCabecalho.ler(arquivo);
+        } catch (IOException | IllegalArgumentException e) {
+            String motivo = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            log.warn("Could not read header of imagem {}: {}", imagemId, motivo);
+            registrar(imagemId, caminho, imagem -> falha(imagem, motivo));
+            return;
+        }
+        registrar(imagemId, caminho, imagem -> aplicar(imagem, cabecalho, tamanhoBytes, sha256, arquivo));
+    }
+
+    /**
+     * Counts a check that ended in an unexpected error. The image stays pending, to be retried on the next resume,
+     * until it reaches the maximum attempts and is marked as failed.
+     */
+    private void registrarTentativa(Long imagemId, Exception erro) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> imagemAmostraRepository.findById(imagemId)
+                    .filter(imagem -> imagem.getStatusMetadados() == StatusMetadados.PENDENTE)
+                    .ifPresent(imagem -> {
+                        int tentativas = imagem.getTentativasMetadados() + 1;
+                        imagem.setTentativasMetadados(tentativas);
+                        if (tentativas >= tentativasMaximas) {
+                            log.warn("Giving up metadata check of imagem {} after {} attempts", imagemId, tentativas);
+                            String motivo = erro.getMessage() != null ? erro.getMessage() : erro.getClass().getSimpleName();
+                            falha(imagem, "Falha após " + tentativas + " tentativas: " + motivo);
+                            imagem.setMetadadosVerificadosEm(LocalDateTime.now());
+                        }
+                    }));
+        } catch (RuntimeException e) {
+            // Not counted: the image stays pending and is retried
+            log.error("Failed to record metadata check attempt of imagem {}", imagemId, e);
+        }
+    }
+
+    /**
+     * Applies a change to an image in a short transaction, unless it was deleted, re-pointed at another file
+     * or already checked while its header was being read.
+     */
+    private void registrar(Long imagemId, String caminho, Consumer<ImagemAmostra> alteracao) {
+        transactionTemplate.executeWithoutResult(status -> imagemAmostraRepository.findById(imagemId)
+                .filter(imagem -> imagem.getStatusMetadados() == StatusMetadados.PENDENTE
+                        && Objects.equals(caminho, imagem.getCaminhoArquivo()))
+                .ifPresent(imagem -> {
+                    alteracao.accept(imagem);
+                    imagem.setMetadadosVerificadosEm(LocalDateTime.now());
+                }));
+    }
+
+    private void aplicar(ImagemAmostra imagem, CabecalhoImagem cabecalho, long tamanhoBytes, String sha256, Path arquivo) {
+        TipoArquivo tipoArquivo = tipoArquivo(cabecalho.formato(), imagem.getTipoArquivo());
+        if (tipoArquivo == null) {
+            falha(imagem, "Formato " + cabecalho.formato() + " não suportado");
+            return;
+        }
+
+        List<String> divergencias = new ArrayList<>();
+        if (tipoArquivo != imagem.getTipoArquivo()) {
+            divergencias.add("tipoArquivo informado " + imagem.getTipoArquivo() + ", arquivo " + tipoArquivo);
+            imagem.setTipoArquivo(tipoArquivo);
+            if (tipoArquivo == TipoArquivo.TIFF) {
+                geradorPiramide.agendarAposCommit(sha256, arquivo);
+            }
+        }
+        if (!cabecalho.resolucao().equals(imagem.getResolucao())) {
+            if (imagem.getResolucao() != null && !imagem.getResolucao().isEmpty()) {
+                divergencias.add("resolucao informada " + imagem.getResolucao() + ", arquivo " + cabecalho.resolucao());
+            }
+            imagem.setResolucao(cabecalho.resolucao());
+        }
+        if (imagem.getTamanhoBytes() == null || imagem.getTamanhoBytes() != tamanhoBytes) {
+            divergencias.add("tamanhoBytes informado " + imagem.getTamanhoBytes() + ", arquivo " + tamanhoBytes);
+            imagem.setTamanhoBytes(tamanhoBytes);
+        }
+        // Equipment typed by the user is kept; the tags only fill it in
+        if ((imagem.getEquipamentoCaptura() == null || imagem.getEquipamentoCaptura().isBlank())
+                && cabecalho.equipamento() != null) {
+            imagem.setEquipamentoCaptura(cabecalho.equipamento());
+        }
+
+        if (divergencias.isEmpty()) {
+            imagem.setStatusMetadados(StatusMetadados.CONFIRMADO);
+            imagem.setMotivoMetadados(null);
+        } else {
+            log.warn("Metadata of imagem {} corrected from file header: {}", imagem.getImagemId(), divergencias);
+            imagem.setStatusMetadados(StatusMetadados.CORRIGIDO);
+            imagem.setMotivoMetadados(limitar(String.join("; ", divergencias)));
+        }
+        if (!imagem.validarQualidade()) {
+            log.warn("Image quality validation failed for: {}", imagem.getNomeArquivo());
+        }
+        if (imagem.getStatusAnaliseQualidade() == StatusAnaliseQualidade.PENDENTE) {
+            analiseQualidadeService.agendarAposCommit(imagem.getImagemId());
+        }
+    }
+
+    private static void falha(ImagemAmostra imagem, String motivo) {
+        imagem.setStatusMetadados(StatusMetadados.FALHA);
+        imagem.setMotivoMetadados(limitar(motivo));
+        // A file whose header cannot be read cannot be decoded either
+        imagem.setStatusAnaliseQualidade(StatusAnaliseQualidade.NAO_APLICAVEL);
+    }
+
+    /**
+     * Maps an ImageIO format name to a file type; JPEG files keep whichever of JPG/JPEG was declared.
+     */
+    private static TipoArquivo tipoArquivo(String formato, TipoArquivo informado) {
+        return switch (formato) {
+            case "jpeg", "jpg" -> informado == TipoArquivo.JPG ? TipoArquivo.JPG : TipoArquivo.JPEG;
+            case "tif", "tiff" -> TipoArquivo.TIFF;
+            case "png" -> TipoArquivo.PNG;
+            case "bmp" -> TipoArquivo.BMP;
+            case "gif" -> TipoArquivo.GIF;
+            default -> null;
+        };
+    }
+
+    private static String limitar(String motivo) {
+        return motivo.length() > TAMANHO_MAXIMO_MOTIVO ? motivo.substring(0, TAMANHO_MAXIMO_MOTIVO) : motivo;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -1,5 +1,6 @@
 package br.com.dasa.analisepatologica.service;
 
+import br.com.dasa.analisepatologica.cache.ContadoresEstatisticas;
 import br.com.dasa.analisepatologica.dto.PacienteFilterDTO;
 import br.com.dasa.analisepatologica.dto.PacienteRequestDTO;
 import br.com.dasa.analisepatologica.dto.PacienteResponseDTO;
@@ -31,6 +32,7 @@ public class PacienteService {
 
     private final PacienteRepository pacienteRepository;
     private final PacienteMapper pacienteMapper;
+    private final ContadoresEstatisticas contadoresEstatisticas;
 
     /**
      * Creates a new patient.
@@ -52,6 +54,7 @@ public class PacienteService {
         }
 
         Paciente savedPaciente = pacienteRepository.save(paciente);
+        contadoresEstatisticas.pacienteCriado(savedPaciente.getSexo());
         log.info("Patient created successfully with ID: {}", savedPaciente.getPacienteId());
 
         return pacienteMapper.toResponseDTO(savedPaciente);
@@ -166,6 +169,7 @@ public class PacienteService {
             }
         }
 
+        Sexo sexoAnterior = paciente.getSexo();
         pacienteMapper.updateEntityFromDTO(requestDTO, paciente);
 
         // Validate CPF checksum if provided
@@ -174,6 +178,7 @@ public class PacienteService {
         }
 
         Paciente updatedPaciente = pacienteRepository.save(paciente);
+        contadoresEstatisticas.sexoPacienteAlterado(sexoAnterior, updatedPaciente.getSexo());
         log.info("Patient updated successfully with ID: {}", updatedPaciente.getPacienteId());
 
         return pacienteMapper.toResponseDTO(updatedPaciente);
@@ -194,6 +199,7 @@ public class PacienteService {
         }
 
         pacienteRepository.delete(paciente);
+        contadoresEstatisticas.pacienteExcluido(paciente.getSexo());
         log.info("Patient deleted successfully with ID: {}", id);
     }
 
@@ -0,0 +1,151 @@
+package br.com.dasa.analisepatologica.service;
+
+import br.com.dasa.analisepatologica.cache.AmostraIdCache;
+import br.com.dasa.analisepatologica.dto.ImagemAmostraResponseDTO;
+import br.com.dasa.analisepatologica.dto.LaudoResponseDTO;
+import br.com.dasa.analisepatologica.dto.MedicaoResponseDTO;
+import br.com.dasa.analisepatologica.entity.Amostra;
+import br.com.dasa.analisepatologica.entity.ImagemAmostra;
+import br.com.dasa.analisepatologica.mapper.ImagemAmostraMapper;
+import br.com.dasa.analisepatologica.mapper.LaudoMapper;
+import br.com.dasa.analisepatologica.mapper.MedicaoMapper;
+import br.com.dasa.analisepatologica.repository.AmostraRepository;
+import br.com.dasa.analisepatologica.repository.ImagemAmostraRepository;
+import br.com.dasa.analisepatologica.repository.LaudoRepository;
+import br.com.dasa.analisepatologica.repository.MedicaoRepository;
+import br.com.dasa.analisepatologica.storage.EscritorZip;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service class for case bundles: the report, the active measurement and the files of the active images of a
+ * sample in one ZIP archive, for referring physicians and second-opinion partners.
+ *
+ * The database is read up front in {@link #preparar(String)}; {@link #escrever(PacoteCaso, OutputStream)} then
+ * builds the archive on the response stream with no transaction open, copying each image from the content store
+ * as it goes (see {@link EscritorZip}).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class PacoteCasoService {
+
+    private final AmostraRepository amostraRepository;
+    private final LaudoRepository laudoRepository;
+    private final MedicaoRepository medicaoRepository;
+    private final ImagemAmostraRepository imagemAmostraRepository;
+    private final LaudoMapper laudoMapper;
+    private final MedicaoMapper medicaoMapper;
+    private final ImagemAmostraMapper imagemAmostraMapper;
+    private final AmostraIdCache amostraIdCache;
+    private final ImagemAmostraService imagemAmostraService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Contents of a case bundle.
+     *
+     * @param laudo Report of the sample, null if it has none
+     * @param medicao Active measurement, null if there is none
+     * @param imagens Active images, listed in imagens.json whether or not their file can be bundled
+     * @param arquivos Stored files of the active images, in the order they are written
+     */
+    public record PacoteCaso(String codigoRastreio, LaudoResponseDTO laudo, MedicaoResponseDTO medicao,
+                             List<ImagemAmostraResponseDTO> imagens, List<ArquivoPacote> arquivos) {
+    }
+
+    /**
+     * Image file to bundle.
+     *
+     * @param nome Entry name, imagens/{imagemId}-{nomeArquivo}
+     */
+    public record ArquivoPacote(String nome, ImagemAmostraService.ArquivoImagem arquivo) {
+    }
+
+    /**
+     * Collects what goes in the bundle of a sample.
+     *
+     * @throws br.com.dasa.analisepatologica.exception.ResourceNotFoundException if the sample does not exist
+     */
+    public PacoteCaso preparar(String codigoRastreio) {
+        log.info("Preparing case bundle for amostra: {}", codigoRastreio);
+
+        Amostra amostra = amostraRepository.getReferenceById(amostraIdCache.resolver(codigoRastreio));
+
+        LaudoResponseDTO laudo = laudoRepository.findByAmostra(amostra)
+                .map(entity -> laudoMapper.toResponseDTO(entity, codigoRastreio))
+                .orElse(null);
+        MedicaoResponseDTO medicao = medicaoRepository.findByAmostraAndAtiva(amostra, 'S')
+                .map(entity -> medicaoMapper.toResponseDTO(entity, codigoRastreio))
+                .orElse(null);
+
+        List<ImagemAmostraResponseDTO> imagens = new ArrayList<>();
+        List<ArquivoPacote> arquivos = new ArrayList<>();
+        for (ImagemAmostra imagem : imagemAmostraRepository.findByAmostraAndAtiva(amostra, 'S')) {
+            imagens.add(imagemAmostraMapper.toResponseDTO(imagem, codigoRastreio));
+            ImagemAmostraService.ArquivoImagem arquivo = imagemAmostraService.arquivoArmazenado(imagem);
+            if (arquivo != null) {
+                arquivos.add(new ArquivoPacote(nomeEntrada(imagem), arquivo));
+            } else {
+                log.warn("Imagem {} of amostra {} has no stored file and is left out of the case bundle",
+                        imagem.getImagemId(), codigoRastreio);
+            }
+        }
+
+        return new PacoteCaso(codigoRastreio, laudo, medicao, imagens, arquivos);
+    }
+
+    /**
+     * Writes the bundle as a ZIP archive: laudo.json, medicao.json, imagens.json and the image files.
+     * Already compressed images are stored as they are; the stream is closed at the end.
+     *
+     * @return number of image files written
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int escrever(PacoteCaso pacote, OutputStream saida) throws IOException {
+        ObjectWriter writer = objectMapper.writerWithDefaultPrettyPrinter();
+        LocalDateTime agora = LocalDateTime.now();
+        int escritos = 0;
+        try (EscritorZip zip = new EscritorZip(saida)) {
+            if (pacote.laudo() != null) {
+                zip.adicionar("laudo.json", writer.writeValueAsBytes(pacote.laudo()), agora);
+            }
+            if (pacote.medicao() != null) {
+                zip.adicionar("medicao.json", writer.writeValueAsBytes(pacote.medicao()), agora);
+            }
+            zip.adicionar("imagens.json", writer.writeValueAsBytes(pacote.imagens()), agora);
+
+            for (ArquivoPacote arquivo : pacote.arquivos()) {
+                try {
+                    zip.adicionarArquivo(arquivo.nome(), arquivo.arquivo().arquivo(),
+                            !arquivo.arquivo().tipoArquivo().isComprimido());
+                    escritos++;
+                } catch (NoSuchFileException e) {
+                    // Deleted since the bundle was prepared; nothing of the entry was written yet
+                    log.warn("File {} removed while writing the case bundle of amostra {}", arquivo.nome(),
+                            pacote.codigoRastreio());
+                }
+            }
+        }
+        return escritos;
+    }
+
+    /**
+     * Entry name of an image file. The id keeps names unique; path separators in the original name are replaced.
+     */
+    private static String nomeEntrada(ImagemAmostra imagem) {
+        return "imagens/" + imagem.getImagemId() + "-" + imagem.getNomeArquivo().replaceAll("[/\\\\:]", "_");
+    }
+}
@@ -0,0 +1,112 @@
+package br.com.dasa.analisepatologica.service;
+
+import br.com.dasa.analisepatologica.cache.TileCache;
+import br.com.dasa.analisepatologica.dto.PiramideImagemDTO;
+import br.com.dasa.analisepatologica.entity.ImagemAmostra;
+import br.com.dasa.analisepatologica.enums.StatusPiramide;
+import br.com.dasa.analisepatologica.enums.TipoArquivo;
+import br.com.dasa.analisepatologica.exception.BusinessException;
+import br.com.dasa.analisepatologica.exception.ResourceNotFoundException;
+import br.com.dasa.analisepatologica.repository.ImagemAmostraRepository;
+import br.com.dasa.analisepatologica.storage.ArmazenamentoConteudo;
+import br.com.dasa.analisepatologica.storage.GeradorPiramide;
+import br.com.dasa.analisepatologica.storage.InfoPiramide;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+
+/**
+ * Service for the tile pyramids of whole-slide TIFF images, which let a viewer pan and zoom
+ * fetching only the 256x256 JPEG tiles in view instead of the whole file.
+ *
+ * Pyramids are built in the background when the image is registered (see {@link ImagemAmostraService});
+ * images registered before that, or whose build was dropped, are scheduled on the first request.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class PiramideImagemService {
+
+    private final ImagemAmostraRepository imagemAmostraRepository;
+    private final ArmazenamentoConteudo armazenamentoConteudo;
+    private final GeradorPiramide geradorPiramide;
+    private final TileCache tileCache;
+
+    /**
+     * Encoded JPEG tile.
+     *
+     * @param sha256 Hash of the source content; with the tile position, identifies the tile
+     */
+    public record Tile(String sha256, byte[] conteudo) {
+    }
+
+    /**
+     * Returns the state and geometry of the pyramid of an image, scheduling it if missing.
+     */
+    public PiramideImagemDTO piramide(Long id) {
+        log.info("Finding tile pyramid of imagem: {}", id);
+        String caminho = caminhoArquivo(id);
+        String sha256 = armazenamentoConteudo.hashDoCaminho(caminho);
+
+        Optional<InfoPiramide> info = geradorPiramide.info(sha256);
+        if (info.isPresent()) {
+            InfoPiramide piramide = info.get();
+            return new PiramideImagemDTO(id, StatusPiramide.CONCLUIDA, piramide.largura(), piramide.altura(),
+                    piramide.tamanhoTile(), piramide.nivelMaximo(), null);
+        }
+        String falha = geradorPiramide.falha(sha256);
+        if (falha != null) {
+            return new PiramideImagemDTO(id, StatusPiramide.FALHA, null, null, null, null, falha);
+        }
+        geradorPiramide.agendar(sha256, armazenamentoConteudo.resolver(caminho));
+        return new PiramideImagemDTO(id, StatusPiramide.EM_GERACAO, null, null, null, null, null);
+    }
+
+    /**
+     * Returns a tile of the pyramid of an image.
+     *
+     * @throws IllegalStateException while the pyramid is being built
+     * @throws ResourceNotFoundException if the tile is outside the image
+     */
+    public Tile tile(Long id, int nivel, int x, int y) throws IOException {
+        String caminho = caminhoArquivo(id);
+        String sha256 = armazenamentoConteudo.hashDoCaminho(caminho);
+
+        InfoPiramide info = geradorPiramide.info(sha256).orElseThrow(() -> {
+            String falha = geradorPiramide.falha(sha256);
+            if (falha != null) {
+                return new BusinessException("Não foi possível gerar a pirâmide de tiles da imagem " + id + ": " + falha);
+            }
+            geradorPiramide.agendar(sha256, armazenamentoConteudo.resolver(caminho));
+            return new IllegalStateException("Pirâmide de tiles da imagem " + id + " ainda está em geração");
+        });
+        if (!info.contem(nivel, x, y)) {
+            throw new ResourceNotFoundException("Tile " + nivel + "/" + x + "/" + y + " não existe na pirâmide da imagem "
+                    + id + " (níveis 0 a " + info.nivelMaximo() + ")");
+        }
+
+        return new Tile(sha256, tileCache.obter(sha256, nivel, x, y,
+                () -> Files.readAllBytes(geradorPiramide.tile(sha256, nivel, x, y))));
+    }
+
+    /**
+     * Returns the path of a TIFF image in the content store.
+     */
+    private String caminhoArquivo(Long id) {
+        ImagemAmostra imagem = imagemAmostraRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("ImagemAmostra", "ID", id));
+        if (imagem.getTipoArquivo() != TipoArquivo.TIFF) {
+            throw new BusinessException("Pirâmide de tiles disponível apenas para imagens TIFF");
+        }
+        if (armazenamentoConteudo.hashDoCaminho(imagem.getCaminhoArquivo()) == null) {
+            throw new ResourceNotFoundException("Arquivo da imagem " + id + " não está disponível no armazenamento");
+        }
+        return imagem.getCaminhoArquivo();
+    }
+}
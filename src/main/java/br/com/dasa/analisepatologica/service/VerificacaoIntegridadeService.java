@@ -0,0 +1,283 @@
+package br.com.dasa.analisepatologica.service;
+
+import br.com.dasa.analisepatologica.dto.IntegridadeArmazenamentoDTO;
+import br.com.dasa.analisepatologica.entity.ConteudoImagem;
+import br.com.dasa.analisepatologica.entity.VarreduraIntegridade;
+import br.com.dasa.analisepatologica.enums.StatusIntegridade;
+import br.com.dasa.analisepatologica.repository.ConteudoImagemRepository;
+import br.com.dasa.analisepatologica.repository.VarreduraIntegridadeRepository;
+import br.com.dasa.analisepatologica.repository.projection.ArmazenamentoProjection;
+import br.com.dasa.analisepatologica.storage.ArmazenamentoConteudo;
+import br.com.dasa.analisepatologica.storage.LeituraLimitada;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service that scrubs the content store in the background, detecting missing, truncated and corrupted image files.
+ *
+ * A cycle walks every stored content (CONTEUDO_IMAGEM) in hash order, one file at a time on a single thread:
+ * the size is compared with the registered one and the file is re-read sequentially to recompute its SHA-256,
+ * which is its address in the store. Reads are throttled to {@code taxa-bytes-por-segundo}, or to the lower
+ * {@code taxa-horario-comercial} on weekdays during working hours (a rate of 0 pauses the scrub).
+ *
+ * The outcome is recorded on the content and the last content checked is saved as checkpoint in the same
+ * transaction, so a restart resumes right after it. A new cycle starts {@code intervalo-ciclos} after the
+ * previous one ends.
+ */
+@Service
+@Slf4j
+public class VerificacaoIntegridadeService implements DisposableBean {
+
+    private static final int TAMANHO_LOTE = 100;
+
+    private final ConteudoImagemRepository conteudoImagemRepository;
+    private final VarreduraIntegridadeRepository varreduraIntegridadeRepository;
+    private final ArmazenamentoConteudo armazenamentoConteudo;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean habilitada;
+    private final long taxaBytesPorSegundo;
+    private final long taxaHorarioComercial;
+    private final int inicioHorarioComercial;
+    private final int fimHorarioComercial;
+    private final Duration intervaloCiclos;
+    private final ThreadPoolExecutor executor;
+    private final AtomicBoolean emExecucao = new AtomicBoolean();
+
+    public VerificacaoIntegridadeService(ConteudoImagemRepository conteudoImagemRepository,
+                                         VarreduraIntegridadeRepository varreduraIntegridadeRepository,
+                                         ArmazenamentoConteudo armazenamentoConteudo,
+                                         TransactionTemplate transactionTemplate,
+                                         @Value("${analisepatologica.integridade.habilitada:true}") boolean habilitada,
+                                         @Value("${analisepatologica.integridade.taxa-bytes-por-segundo:52428800}") long taxaBytesPorSegundo,
+                                         @Value("${analisepatologica.integridade.taxa-horario-comercial:5242880}") long taxaHorarioComercial,
+                                         @Value("${analisepatologica.integridade.horario-comercial-inicio:7}") int inicioHorarioComercial,
+                                         @Value("${analisepatologica.integridade.horario-comercial-fim:19}") int fimHorarioComercial,
+                                         @Value("${analisepatologica.integridade.intervalo-ciclos:P7D}") Duration intervaloCiclos) {
+        this.conteudoImagemRepository = conteudoImagemRepository;
+        this.varreduraIntegridadeRepository = varreduraIntegridadeRepository;
+        this.armazenamentoConteudo = armazenamentoConteudo;
+        this.transactionTemplate = transactionTemplate;
+        this.habilitada = habilitada;
+        this.taxaBytesPorSegundo = taxaBytesPorSegundo;
+        this.taxaHorarioComercial = taxaHorarioComercial;
+        this.inicioHorarioComercial = inicioHorarioComercial;
+        this.fimHorarioComercial = fimHorarioComercial;
+        this.intervaloCiclos = intervaloCiclos;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1), tarefa -> {
+                    Thread thread = new Thread(tarefa, "integridade-1");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    /**
+     * Resumes the scrub from its checkpoint unless it is running, paused at this time, or the next cycle is not due.
+     */
+    @Scheduled(fixedDelayString = "${analisepatologica.integridade.intervalo-retomada:PT1M}",
+            initialDelayString = "${analisepatologica.integridade.intervalo-retomada:PT1M}")
+    public void retomar() {
+        if (!habilitada || taxaAtual(LocalDateTime.now()) == 0 || !emExecucao.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    varrer();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.error("Integrity scrub stopped; it resumes from its checkpoint", e);
+                } finally {
+                    emExecucao.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            emExecucao.set(false);
+        }
+    }
+
+    /**
+     * Returns the progress of the current cycle and the outcome of the last check of every content.
+     */
+    @Transactional(readOnly = true)
+    public IntegridadeArmazenamentoDTO progresso() {
+        VarreduraIntegridade estado = estado();
+        ArmazenamentoProjection totais = conteudoImagemRepository.totalizar();
+        Map<StatusIntegridade, Long> porStatus = new EnumMap<>(StatusIntegridade.class);
+        conteudoImagemRepository.countGroupByStatusIntegridade()
+                .forEach(contagem -> porStatus.put(contagem.getChave(), contagem.getTotal()));
+
+        LocalDateTime concluidoEm = estado.getCicloConcluidoEm();
+        double progresso = concluidoEm != null ? 1.0 : totais.getBytesArmazenados() == 0 ? 0.0
+                : Math.min(1.0, (double) estado.getBytesVerificados() / totais.getBytesArmazenados());
+        return new IntegridadeArmazenamentoDTO(
+                emExecucao.get(),
+                habilitada ? taxaAtual(LocalDateTime.now()) : 0,
+                estado.getCiclo(),
+                estado.getCicloIniciadoEm(),
+                concluidoEm,
+                concluidoEm != null ? concluidoEm.plus(intervaloCiclos) : null,
+                estado.getUltimoSha256(),
+                estado.getObjetosVerificados(),
+                estado.getBytesVerificados(),
+                estado.getFalhas(),
+                totais.getObjetos(),
+                totais.getBytesArmazenados(),
+                progresso,
+                porStatus
+        );
+    }
+
+    /**
+     * Checks contents after the checkpoint, in the calling thread, until the cycle ends or the scrub is paused.
+     */
+    void varrer() throws InterruptedException {
+        VarreduraIntegridade estado = transactionTemplate.execute(transacao -> iniciarCicloSeDevido());
+        if (estado == null) {
+            return;
+        }
+
+        String ultimo = estado.getUltimoSha256();
+        while (true) {
+            String depoisDe = ultimo;
+            List<ConteudoImagem> lote = transactionTemplate.execute(transacao -> depoisDe == null
+                    ? conteudoImagemRepository.findAllByOrderBySha256Asc(PageRequest.of(0, TAMANHO_LOTE))
+                    : conteudoImagemRepository.findBySha256GreaterThanOrderBySha256Asc(depoisDe, PageRequest.of(0, TAMANHO_LOTE)));
+            if (lote.isEmpty()) {
+                concluirCiclo();
+                return;
+            }
+            for (ConteudoImagem conteudo : lote) {
+                long taxa = taxaAtual(LocalDateTime.now());
+                if (taxa == 0) {
+                    log.info("Integrity scrub paused after content {}", ultimo);
+                    return;
+                }
+                registrar(conteudo, verificar(conteudo, taxa));
+                ultimo = conteudo.getSha256();
+            }
+        }
+    }
+
+    /**
+     * Returns the cycle to continue: the one in progress, or a new one if the previous ended long enough ago.
+     *
+     * @return null if the next cycle is not due yet
+     */
+    private VarreduraIntegridade iniciarCicloSeDevido() {
+        VarreduraIntegridade estado = estado();
+        if (estado.isEmAndamento()) {
+            return estado;
+        }
+        LocalDateTime agora = LocalDateTime.now();
+        if (estado.getCicloConcluidoEm() != null && estado.getCicloConcluidoEm().plus(intervaloCiclos).isAfter(agora)) {
+            return null;
+        }
+
+        estado.setCiclo(estado.getCiclo() + 1);
+        estado.setCicloIniciadoEm(agora);
+        estado.setCicloConcluidoEm(null);
+        estado.setUltimoSha256(null);
+        estado.setObjetosVerificados(0L);
+        estado.setBytesVerificados(0L);
+        estado.setFalhas(0L);
+        estado.setAtualizadoEm(agora);
+        log.info("Integrity scrub cycle {} started", estado.getCiclo());
+        return estado;
+    }
+
+    private StatusIntegridade verificar(ConteudoImagem conteudo, long taxa) throws InterruptedException {
+        Path arquivo = armazenamentoConteudo.resolver(armazenamentoConteudo.caminho(conteudo.getSha256()));
+        try {
+            if (!Files.isRegularFile(arquivo)) {
+                return StatusIntegridade.AUSENTE;
+            }
+            if (Files.size(arquivo) != conteudo.getTamanhoBytes()) {
+                return StatusIntegridade.TAMANHO_DIVERGENTE;
+            }
+            return LeituraLimitada.sha256(arquivo, taxa).equals(conteudo.getSha256())
+                    ? StatusIntegridade.INTEGRO : StatusIntegridade.CORROMPIDO;
+        } catch (IOException e) {
+            log.warn("Could not read content {} for its integrity check: {}", conteudo.getSha256(), e.getMessage());
+            return StatusIntegridade.FALHA_LEITURA;
+        }
+    }
+
+    /**
+     * Records the outcome on the content and moves the checkpoint past it, in one short transaction.
+     * Contents deleted while being checked only move the checkpoint.
+     */
+    private void registrar(ConteudoImagem conteudo, StatusIntegridade status) {
+        Boolean indexado = transactionTemplate.execute(transacao -> {
+            LocalDateTime agora = LocalDateTime.now();
+            boolean existe = conteudoImagemRepository.registrarIntegridade(conteudo.getSha256(), status, agora) > 0;
+            VarreduraIntegridade estado = estado();
+            estado.setUltimoSha256(conteudo.getSha256());
+            if (existe) {
+                estado.setObjetosVerificados(estado.getObjetosVerificados() + 1);
+                estado.setBytesVerificados(estado.getBytesVerificados() + conteudo.getTamanhoBytes());
+                if (status.isFalha()) {
+                    estado.setFalhas(estado.getFalhas() + 1);
+                }
+            }
+            estado.setAtualizadoEm(agora);
+            return existe;
+        });
+        if (Boolean.TRUE.equals(indexado) && status.isFalha()) {
+            log.error("Stored content {} failed its integrity check: {} ({})", conteudo.getSha256(), status, status.getDescricao());
+        }
+    }
+
+    private void concluirCiclo() {
+        VarreduraIntegridade estado = transactionTemplate.execute(transacao -> {
+            VarreduraIntegridade atual = estado();
+            atual.setCicloConcluidoEm(LocalDateTime.now());
+            atual.setAtualizadoEm(atual.getCicloConcluidoEm());
+            return atual;
+        });
+        log.info("Integrity scrub cycle {} finished: {} contents, {} bytes, {} failures", estado.getCiclo(),
+                estado.getObjetosVerificados(), estado.getBytesVerificados(), estado.getFalhas());
+    }
+
+    private VarreduraIntegridade estado() {
+        return varreduraIntegridadeRepository.findById(VarreduraIntegridade.ID)
+                .orElseThrow(() -> new IllegalStateException("Registro de controle da varredura de integridade não encontrado"));
+    }
+
+    /**
+     * Read rate allowed at a given time: the working-hours rate on weekdays within working hours, the full rate otherwise.
+     */
+    private long taxaAtual(LocalDateTime agora) {
+        boolean diaUtil = agora.getDayOfWeek() != DayOfWeek.SATURDAY && agora.getDayOfWeek() != DayOfWeek.SUNDAY;
+        boolean horarioComercial = diaUtil && agora.getHour() >= inicioHorarioComercial && agora.getHour() < fimHorarioComercial;
+        return horarioComercial ? taxaHorarioComercial : taxaBytesPorSegundo;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
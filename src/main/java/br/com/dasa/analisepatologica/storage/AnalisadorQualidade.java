@@ -0,0 +1,327 @@
+package br.com.dasa.analisepatologica.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes focus, stain and tissue metrics of stored images with fork/join parallelism.
+ *
+ * The image is read a band at a time (256 rows by up to 16 tiles, ~4 MB), like {@link GeradorPiramide}, so a
+ * whole-slide TIFF is never held in the heap. The tiles of a band are split among the workers of a
+ * {@link ForkJoinPool} while the next band is decoded; each task returns partial sums (tissue pixels,
+ * luminance and saturation histograms, per-tile Laplacian variances) that are merged up the task tree.
+ *
+ * A pixel is tissue when it is saturated enough and not black: slide glass is close to grey-white, and pen
+ * marks or the slide edge are close to black.
+ *
+ * The same pass averages the luminance over a 9x8 grid of the whole image, from which the perceptual hash is
+ * taken (dHash: one bit per pair of horizontally adjacent cells, set when the right one is brighter). Box
+ * averages over the full resolution make the hash stable across re-scans, resizes and recompressions.
+ */
+@Component
+@Slf4j
+public class AnalisadorQualidade implements DisposableBean {
+
+    public static final int TAMANHO_TILE = 256;
+
+    private static final int TILES_POR_LEITURA = 16;
+    private static final int TILES_POR_TAREFA = 2;
+    private static final int FAIXAS_HISTOGRAMA = 64;
+    private static final double SATURACAO_MINIMA_TECIDO = 0.07;
+    private static final double BRILHO_MINIMO_TECIDO = 0.1;
+    /** Tiles mostly of glass have no edges whatever the focus, so they do not count for sharpness. */
+    private static final double COBERTURA_MINIMA_TILE = 0.25;
+    private static final int COLUNAS_GRADE = 9;
+    private static final int LINHAS_GRADE = 8;
+
+    private final ForkJoinPool pool;
+    private final double nitidezMinima;
+
+    public AnalisadorQualidade(@Value("${analisepatologica.qualidade.paralelismo:0}") int paralelismo,
+                               @Value("${analisepatologica.qualidade.nitidez-minima:100}") double nitidezMinima) {
+        this.pool = new ForkJoinPool(paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors());
+        this.nitidezMinima = nitidezMinima;
+    }
+
+    /**
+     * Analyzes an image file; the calling thread decodes the bands and the pool analyzes them.
+     *
+     * @throws IllegalArgumentException if no installed ImageIO reader can decode the file
+     */
+    public MetricasQualidade analisar(Path arquivo) throws IOException {
+        long inicio = System.nanoTime();
+        Parcial total = new Parcial();
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(arquivo.toFile())) {
+            Iterator<ImageReader> readers = entrada != null ? ImageIO.getImageReaders(entrada) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Formato de imagem não suportado: " + arquivo.getFileName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(entrada, true, true);
+                int largura = reader.getWidth(0);
+                int altura = reader.getHeight(0);
+                ImageReadParam parametros = reader.getDefaultReadParam();
+                int larguraLeitura = TAMANHO_TILE * TILES_POR_LEITURA;
+
+                ForkJoinTask<Parcial> anterior = null;
+                for (int topo = 0; topo < altura; topo += TAMANHO_TILE) {
+                    for (int esquerda = 0; esquerda < largura; esquerda += larguraLeitura) {
+                        parametros.setSourceRegion(new Rectangle(esquerda, topo,
+                                Math.min(larguraLeitura, largura - esquerda), Math.min(TAMANHO_TILE, altura - topo)));
+                        BufferedImage faixa = reader.read(0, parametros);
+                        ForkJoinTask<Parcial> atual = pool.submit(new AnaliseTiles(faixa, esquerda, topo, largura, altura,
+                                0, (faixa.getWidth() + TAMANHO_TILE - 1) / TAMANHO_TILE));
+                        // At most two bands are alive: the one being analyzed and the one being decoded
+                        if (anterior != null) {
+                            total.somar(anterior.join());
+                        }
+                        anterior = atual;
+                    }
+                }
+                if (anterior != null) {
+                    total.somar(anterior.join());
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        MetricasQualidade metricas = total.metricas(nitidezMinima);
+        log.debug("Quality of {} analyzed in {} ms: {}", arquivo.getFileName(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), metricas);
+        return metricas;
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Analyzes the tiles [inicio, fim) of a band, splitting the range until a few tiles remain.
+     */
+    private static final class AnaliseTiles extends RecursiveTask<Parcial> {
+
+        private final BufferedImage faixa;
+        private final int esquerda;
+        private final int topo;
+        private final int larguraImagem;
+        private final int alturaImagem;
+        private final int inicio;
+        private final int fim;
+
+        private AnaliseTiles(BufferedImage faixa, int esquerda, int topo, int larguraImagem, int alturaImagem,
+                             int inicio, int fim) {
+            this.faixa = faixa;
+            this.esquerda = esquerda;
+            this.topo = topo;
+            this.larguraImagem = larguraImagem;
+            this.alturaImagem = alturaImagem;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected Parcial compute() {
+            if (fim - inicio <= TILES_POR_TAREFA) {
+                Parcial parcial = new Parcial();
+                for (int tile = inicio; tile < fim; tile++) {
+                    analisarTile(tile, parcial);
+                }
+                return parcial;
+            }
+            int meio = (inicio + fim) >>> 1;
+            AnaliseTiles primeira = new AnaliseTiles(faixa, esquerda, topo, larguraImagem, alturaImagem, inicio, meio);
+            primeira.fork();
+            Parcial parcial = new AnaliseTiles(faixa, esquerda, topo, larguraImagem, alturaImagem, meio, fim).compute();
+            parcial.somar(primeira.join());
+            return parcial;
+        }
+
+        private void analisarTile(int tile, Parcial parcial) {
+            int x0 = tile * TAMANHO_TILE;
+            int largura = Math.min(TAMANHO_TILE, faixa.getWidth() - x0);
+            int altura = faixa.getHeight();
+            int[] rgb = faixa.getRGB(x0, 0, largura, altura, null, 0, largura);
+            float[] luminancia = new float[rgb.length];
+            long tecido = 0;
+
+            for (int i = 0; i < rgb.length; i++) {
+                int r = (rgb[i] >> 16) & 0xFF;
+                int g = (rgb[i] >> 8) & 0xFF;
+                int b = rgb[i] & 0xFF;
+                float y = 0.299f * r + 0.587f * g + 0.114f * b;
+                luminancia[i] = y;
+                int maximo = Math.max(r, Math.max(g, b));
+                int minimo = Math.min(r, Math.min(g, b));
+                double saturacao = maximo == 0 ? 0 : (maximo - minimo) / (double) maximo;
+                if (saturacao >= SATURACAO_MINIMA_TECIDO && maximo >= BRILHO_MINIMO_TECIDO * 255) {
+                    tecido++;
+                    parcial.histogramaSaturacao[faixaHistograma(saturacao)]++;
+                    parcial.histogramaBrilho[faixaHistograma(y / 255.0)]++;
+                }
+            }
+            parcial.pixels += rgb.length;
+            parcial.tecido += tecido;
+            parcial.tiles++;
+            somarGrade(luminancia, esquerda + x0, largura, altura, parcial);
+
+            if (largura >= 3 && altura >= 3 && tecido >= COBERTURA_MINIMA_TILE * rgb.length) {
+                parcial.adicionarNitidez(varianciaLaplaciano(luminancia, largura, altura));
+            }
+        }
+
+        /**
+         * Variance of the 4-neighbour Laplacian over the interior of a tile: sharp edges give large responses.
+         */
+        private static double varianciaLaplaciano(float[] luminancia, int largura, int altura) {
+            double soma = 0;
+            double somaQuadrados = 0;
+            for (int y = 1; y < altura - 1; y++) {
+                int linha = y * largura;
+                for (int x = 1; x < largura - 1; x++) {
+                    int i = linha + x;
+                    double laplaciano = 4 * luminancia[i] - luminancia[i - 1] - luminancia[i + 1]
+                            - luminancia[i - largura] - luminancia[i + largura];
+                    soma += laplaciano;
+                    somaQuadrados += laplaciano * laplaciano;
+                }
+            }
+            long n = (long) (largura - 2) * (altura - 2);
+            double media = soma / n;
+            return somaQuadrados / n - media * media;
+        }
+
+        /**
+         * Adds the luminance of a tile to the cells of the hash grid its pixels fall in.
+         */
+        private void somarGrade(float[] luminancia, int x0, int largura, int altura, Parcial parcial) {
+            for (int y = 0; y < altura; y++) {
+                int linhaGrade = (int) ((long) (topo + y) * LINHAS_GRADE / alturaImagem) * COLUNAS_GRADE;
+                int linha = y * largura;
+                for (int x = 0; x < largura; x++) {
+                    int celula = linhaGrade + (int) ((long) (x0 + x) * COLUNAS_GRADE / larguraImagem);
+                    parcial.somaGrade[celula] += luminancia[linha + x];
+                    parcial.pixelsGrade[celula]++;
+                }
+            }
+        }
+
+        private static int faixaHistograma(double valor) {
+            return Math.min(FAIXAS_HISTOGRAMA - 1, (int) (valor * FAIXAS_HISTOGRAMA));
+        }
+    }
+
+    /**
+     * Partial sums of a range of tiles; merged pairwise, so only the owning task writes to it.
+     */
+    private static final class Parcial {
+
+        private long pixels;
+        private long tecido;
+        private int tiles;
+        private final long[] histogramaBrilho = new long[FAIXAS_HISTOGRAMA];
+        private final long[] histogramaSaturacao = new long[FAIXAS_HISTOGRAMA];
+        private double[] nitidezTiles = new double[8];
+        private int tilesComTecido;
+        private final double[] somaGrade = new double[COLUNAS_GRADE * LINHAS_GRADE];
+        private final long[] pixelsGrade = new long[COLUNAS_GRADE * LINHAS_GRADE];
+
+        private void adicionarNitidez(double nitidez) {
+            if (tilesComTecido == nitidezTiles.length) {
+                nitidezTiles = Arrays.copyOf(nitidezTiles, tilesComTecido * 2);
+            }
+            nitidezTiles[tilesComTecido++] = nitidez;
+        }
+
+        private void somar(Parcial outra) {
+            pixels += outra.pixels;
+            tecido += outra.tecido;
+            tiles += outra.tiles;
+            for (int i = 0; i < FAIXAS_HISTOGRAMA; i++) {
+                histogramaBrilho[i] += outra.histogramaBrilho[i];
+                histogramaSaturacao[i] += outra.histogramaSaturacao[i];
+            }
+            for (int i = 0; i < outra.tilesComTecido; i++) {
+                adicionarNitidez(outra.nitidezTiles[i]);
+            }
+            for (int i = 0; i < somaGrade.length; i++) {
+                somaGrade[i] += outra.somaGrade[i];
+                pixelsGrade[i] += outra.pixelsGrade[i];
+            }
+        }
+
+        private MetricasQualidade metricas(double nitidezMinima) {
+            Double nitidez = null;
+            Double fracaoDesfocada = null;
+            if (tilesComTecido > 0) {
+                double[] ordenadas = Arrays.copyOf(nitidezTiles, tilesComTecido);
+                Arrays.sort(ordenadas);
+                nitidez = ordenadas[tilesComTecido / 2];
+                int desfocados = 0;
+                while (desfocados < tilesComTecido && ordenadas[desfocados] < nitidezMinima) {
+                    desfocados++;
+                }
+                fracaoDesfocada = desfocados / (double) tilesComTecido;
+            }
+            return new MetricasQualidade(tiles, tilesComTecido, nitidez, fracaoDesfocada,
+                    pixels > 0 ? tecido / (double) pixels : 0,
+                    media(histogramaSaturacao, tecido), media(histogramaBrilho, tecido), hashPerceptual());
+        }
+
+        /**
+         * Difference hash of the grid, or null without tissue or when the image is smaller than the grid.
+         */
+        private Long hashPerceptual() {
+            if (tecido == 0) {
+                return null;
+            }
+            for (long pixelsCelula : pixelsGrade) {
+                if (pixelsCelula == 0) {
+                    return null;
+                }
+            }
+            long hash = 0;
+            for (int linha = 0; linha < LINHAS_GRADE; linha++) {
+                for (int coluna = 0; coluna < COLUNAS_GRADE - 1; coluna++) {
+                    int celula = linha * COLUNAS_GRADE + coluna;
+                    boolean maisClara = somaGrade[celula + 1] / pixelsGrade[celula + 1] > somaGrade[celula] / pixelsGrade[celula];
+                    hash = (hash << 1) | (maisClara ? 1 : 0);
+                }
+            }
+            return hash;
+        }
+
+        /**
+         * Mean of a histogram of values in [0, 1], taking each bin at its centre.
+         */
+        private static Double media(long[] histograma, long total) {
+            if (total == 0) {
+                return null;
+            }
+            double soma = 0;
+            for (int i = 0; i < histograma.length; i++) {
+                soma += histograma[i] * (i + 0.5) / histograma.length;
+            }
+            return soma / total;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package br.com.dasa.analisepatologica.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed file store for sample images.
+ *
+ * Uploads are appended to a partial file under {@code tmp/}, whose size is the resume point, and hashed
+ * (SHA-256) while the bytes are written, so large scans are never held in the heap nor read twice.
+ * When complete, the partial file is moved to {@code sha256/<2 chars>/<2 chars>/<hash>}; identical
+ * content always ends up at the same path and is stored once.
+ * Files derived from a content (e.g. tile pyramids) live under {@code derivados/}.
+ */
+@Component
+@Slf4j
+public class ArmazenamentoConteudo {
+
+    private static final String ALGORITMO = "SHA-256";
+    private static final String PREFIXO = "sha256/";
+    private static final int TAMANHO_BUFFER = 256 * 1024;
+    private static final Pattern ID_UPLOAD = Pattern.compile("[0-9a-fA-F-]{36}");
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path raiz;
+    private final Path temporarios;
+    private final Map<String, Parcial> parciais = new ConcurrentHashMap<>();
+
+    /**
+     * Hash state of a partial upload. The digest covers the first {@code digerido} bytes of the file;
+     * after a restart (or a failed write) it is rebuilt from the file before more bytes are appended.
+     */
+    private static final class Parcial {
+        private final ReentrantLock lock = new ReentrantLock();
+        private MessageDigest digest;
+        private long digerido;
+    }
+
+    public ArmazenamentoConteudo(@Value("${analisepatologica.armazenamento.diretorio:./armazenamento}") Path raiz) {
+        this.raiz = raiz.toAbsolutePath().normalize();
+        this.temporarios = this.raiz.resolve("tmp");
+        try {
+            Files.createDirectories(temporarios);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao criar diretório de armazenamento " + this.raiz, e);
+        }
+        log.info("Content store at {}", this.raiz);
+    }
+
+    /**
+     * Number of bytes already received for an upload.
+     */
+    public long tamanhoParcial(String uploadId) throws IOException {
+        Path arquivo = arquivoParcial(uploadId);
+        return Files.exists(arquivo) ? Files.size(arquivo) : 0;
+    }
+
+    /**
+     * Appends up to {@code quantidade} bytes of a stream to an upload, starting at byte {@code posicao}.
+     * Fewer bytes are written if the stream ends first (e.g. the client disconnected); the caller resumes
+     * from the returned size.
+     *
+     * @return Number of bytes received so far
+     * @throws IllegalStateException if {@code posicao} is not the current size, or another part is being written
+     */
+    public long anexar(String uploadId, long posicao, long quantidade, InputStream conteudo) throws IOException {
+        Parcial parcial = parciais.computeIfAbsent(uploadId, id -> new Parcial());
+        if (!parcial.lock.tryLock()) {
+            throw new IllegalStateException("Outra parte deste upload está sendo recebida");
+        }
+        try (FileChannel canal = FileChannel.open(arquivoParcial(uploadId),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long tamanho = canal.size();
+            if (posicao != tamanho) {
+                throw new IllegalStateException("Upload já possui " + tamanho + " bytes; a próxima parte deve começar nesse byte, não em " + posicao);
+            }
+
+            MessageDigest digest = digestAte(parcial, canal, tamanho);
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_BUFFER);
+            long restante = quantidade;
+            while (restante > 0) {
+                int lidos = conteudo.read(buffer.array(), 0, (int) Math.min(buffer.capacity(), restante));
+                if (lidos < 0) {
+                    break;
+                }
+                buffer.limit(lidos);
+                try {
+                    while (buffer.hasRemaining()) {
+                        tamanho += canal.write(buffer, tamanho);
+                    }
+                } catch (IOException e) {
+                    // Part of the buffer may be on disk: rebuild the hash from the file next time
+                    parcial.digest = null;
+                    throw e;
+                }
+                digest.update(buffer.array(), 0, lidos);
+                parcial.digerido = tamanho;
+                restante -= lidos;
+                buffer.clear();
+            }
+            return tamanho;
+        } finally {
+            parcial.lock.unlock();
+        }
+    }
+
+    /**
+     * Moves a complete upload to its content address.
+     *
+     * @throws IllegalStateException if the upload does not have exactly {@code tamanhoEsperado} bytes
+     */
+    public ObjetoArmazenado concluir(String uploadId, long tamanhoEsperado) throws IOException {
+        Parcial parcial = parciais.computeIfAbsent(uploadId, id -> new Parcial());
+        if (!parcial.lock.tryLock()) {
+            throw new IllegalStateException("Outra parte deste upload está sendo recebida");
+        }
+        try {
+            Path arquivo = arquivoParcial(uploadId);
+            String sha256;
+            try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long tamanho = canal.size();
+                if (tamanho != tamanhoEsperado) {
+                    throw new IllegalStateException("Upload possui " + tamanho + " de " + tamanhoEsperado + " bytes");
+                }
+                sha256 = HexFormat.of().formatHex(digestAte(parcial, canal, tamanho).digest());
+                parcial.digest = null;
+                canal.force(true);
+            }
+
+            String caminho = caminho(sha256);
+            Path destino = raiz.resolve(caminho);
+            Files.createDirectories(destino.getParent());
+            boolean novo = !Files.exists(destino);
+            try {
+                // Depending on the platform an existing target is either replaced or reported;
+                // both are fine, since it holds the same content
+                Files.move(arquivo, destino, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                Files.delete(arquivo);
+            }
+
+            parciais.remove(uploadId);
+            log.debug("Upload {} stored at {} ({} bytes)", uploadId, caminho, tamanhoEsperado);
+            return new ObjetoArmazenado(sha256, caminho, tamanhoEsperado, novo);
+        } finally {
+            parcial.lock.unlock();
+        }
+    }
+
+    /**
+     * Checks that a stream holds the {@code quantidade} bytes at {@code posicao} of a stored content.
+     *
+     * @return false if the bytes differ, the stream ends first or the content is not stored
+     */
+    public boolean confere(String sha256, long posicao, long quantidade, InputStream conteudo) throws IOException {
+        byte[] esperado = new byte[TAMANHO_BUFFER];
+        try (FileChannel canal = FileChannel.open(raiz.resolve(caminho(sha256)), StandardOpenOption.READ)) {
+            long restante = quantidade;
+            while (restante > 0) {
+                int tamanho = (int) Math.min(esperado.length, restante);
+                ByteBuffer buffer = ByteBuffer.wrap(esperado, 0, tamanho);
+                while (buffer.hasRemaining()) {
+                    if (canal.read(buffer, posicao + buffer.position()) < 0) {
+                        return false;
+                    }
+                }
+                byte[] recebido = conteudo.readNBytes(tamanho);
+                if (!Arrays.equals(esperado, 0, tamanho, recebido, 0, recebido.length)) {
+                    return false;
+                }
+                posicao += tamanho;
+                restante -= tamanho;
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Discards the bytes received for an upload.
+     */
+    public void descartar(String uploadId) throws IOException {
+        parciais.remove(uploadId);
+        Files.deleteIfExists(arquivoParcial(uploadId));
+    }
+
+    /**
+     * Path, relative to the store root, of the content with the given SHA-256.
+     */
+    public String caminho(String sha256) {
+        if (!HASH.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("Hash de conteúdo inválido: " + sha256);
+        }
+        return PREFIXO + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256;
+    }
+
+    /**
+     * Deletes a stored content. Derived files must be removed first, so their directory is left empty.
+     */
+    public void remover(String sha256) throws IOException {
+        Files.deleteIfExists(raiz.resolve(caminho(sha256)));
+        try {
+            Files.deleteIfExists(diretorioDerivados(sha256));
+        } catch (DirectoryNotEmptyException e) {
+            log.warn("Derived files of {} are still being written; left in {}", sha256, e.getFile());
+        }
+        log.debug("Content {} removed from the store", sha256);
+    }
+
+    /**
+     * Resolves a path returned by {@link #concluir} against the store root.
+     *
+     * @throws IllegalArgumentException if the path points outside the store
+     */
+    public Path resolver(String caminho) {
+        Path arquivo = raiz.resolve(caminho).normalize();
+        if (!arquivo.startsWith(raiz)) {
+            throw new IllegalArgumentException("Caminho fora do armazenamento: " + caminho);
+        }
+        return arquivo;
+    }
+
+    /**
+     * Returns the SHA-256 of the content at a path returned by {@link #concluir}, or null if the path
+     * is not a content address (e.g. images registered with an external path).
+     */
+    public String hashDoCaminho(String caminho) {
+        if (caminho == null || !caminho.startsWith(PREFIXO)) {
+            return null;
+        }
+        String hash = caminho.substring(caminho.lastIndexOf('/') + 1);
+        return HASH.matcher(hash).matches() ? hash : null;
+    }
+
+    /**
+     * Directory holding the files derived from a stored content (e.g. its tile pyramid),
+     * {@code derivados/<2 chars>/<hash>}. Derived files are shared by every image with that content.
+     */
+    public Path diretorioDerivados(String sha256) {
+        if (!HASH.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("Hash de conteúdo inválido: " + sha256);
+        }
+        return raiz.resolve("derivados").resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    private Path arquivoParcial(String uploadId) {
+        if (!ID_UPLOAD.matcher(uploadId).matches()) {
+            throw new IllegalArgumentException("Identificador de upload inválido: " + uploadId);
+        }
+        return temporarios.resolve(uploadId + ".part");
+    }
+
+    /**
+     * Returns the digest of the first {@code tamanho} bytes of the partial file, reusing the running
+     * digest when it is up to date.
+     */
+    private MessageDigest digestAte(Parcial parcial, FileChannel canal, long tamanho) throws IOException {
+        if (parcial.digest != null && parcial.digerido == tamanho) {
+            return parcial.digest;
+        }
+
+        MessageDigest digest = novoDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_BUFFER);
+        long posicao = 0;
+        while (posicao < tamanho) {
+            int lidos = canal.read(buffer, posicao);
+            if (lidos < 0) {
+                break;
+            }
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+            posicao += lidos;
+        }
+        parcial.digest = digest;
+        parcial.digerido = tamanho;
+        return digest;
+    }
+
+    private static MessageDigest novoDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITMO);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITMO + " não disponível", e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package br.com.dasa.analisepatologica.storage;
+
+/**
+ * Facts read from the header of an image file.
+ *
+ * @param formato ImageIO format name of the reader that recognized the file, in lower case (jpeg, png, tif, ...)
+ * @param equipamento Capture equipment from the EXIF/TIFF Make and Model tags, or null when absent
+ */
+public record CabecalhoImagem(String formato, int largura, int altura, String equipamento) {
+
+    /**
+     * Resolution in the "larguraxaltura" form stored on the image.
+     */
+    public String resolucao() {
+        return largura + "x" + altura;
+    }
+}
@@ -0,0 +1,149 @@
+package br.com.dasa.analisepatologica.storage;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Serves stored files over HTTP with conditional and partial requests.
+ *
+ * Supports {@code If-None-Match} (304), a single {@code Range} (206, or 416 when unsatisfiable) and
+ * {@code If-Range}, all keyed by the content ETag. The bytes never go through the heap: on connectors
+ * that support it Tomcat sends the file with sendfile after the handler returns; otherwise
+ * {@link FileChannel#transferTo} copies it to the response.
+ */
+@Component
+public class EnvioArquivo {
+
+    private static final String SENDFILE_SUPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARQUIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIM = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Writes the file, or the requested part of it, to the response.
+     * Content-Type and other representation headers must be set by the caller.
+     *
+     * @param etag Strong entity tag of the content, quoted
+     */
+    public void enviar(Path arquivo, long tamanho, String etag, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (corresponde(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long inicio = 0;
+        long fim = tamanho - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] intervalo = intervalo(range, tamanho);
+            if (intervalo != null && intervalo.length == 0) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + tamanho);
+                return;
+            }
+            if (intervalo != null) {
+                inicio = intervalo[0];
+                fim = intervalo[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fim + "/" + tamanho);
+            }
+        }
+
+        long quantidade = fim - inicio + 1;
+        response.setContentLengthLong(quantidade);
+        if ("HEAD".equals(request.getMethod()) || quantidade == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPORTADO))) {
+            // Tomcat requires the canonical path and writes the file itself once the handler returns
+            request.setAttribute(SENDFILE_ARQUIVO, arquivo.toRealPath().toString());
+            request.setAttribute(SENDFILE_INICIO, inicio);
+            request.setAttribute(SENDFILE_FIM, fim + 1);
+            return;
+        }
+
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            WritableByteChannel saida = Channels.newChannel(response.getOutputStream());
+            long posicao = inicio;
+            while (posicao <= fim) {
+                long enviados = canal.transferTo(posicao, fim - posicao + 1, saida);
+                if (enviados <= 0) {
+                    throw new IOException("Arquivo " + arquivo + " terminou antes do byte " + posicao);
+                }
+                posicao += enviados;
+            }
+        }
+    }
+
+    /**
+     * Parses a single byte range ("bytes=a-b", "bytes=a-" or "bytes=-n").
+     *
+     * @return The inclusive first and last positions; an empty array if the range cannot be satisfied;
+     * or null if the header should be ignored (malformed or multiple ranges), serving the whole file
+     */
+    static long[] intervalo(String range, long tamanho) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        String especificacao = range.substring("bytes=".length()).trim();
+        int hifen = especificacao.indexOf('-');
+        if (hifen < 0) {
+            return null;
+        }
+        try {
+            String primeiro = especificacao.substring(0, hifen).trim();
+            String ultimo = especificacao.substring(hifen + 1).trim();
+            if (primeiro.isEmpty()) {
+                // Suffix range: the last n bytes
+                long sufixo = Long.parseLong(ultimo);
+                if (sufixo <= 0 || tamanho == 0) {
+                    return new long[0];
+                }
+                return new long[]{Math.max(0, tamanho - sufixo), tamanho - 1};
+            }
+            long inicio = Long.parseLong(primeiro);
+            long fim = ultimo.isEmpty() ? Long.MAX_VALUE : Long.parseLong(ultimo);
+            if (fim < inicio) {
+                return null;
+            }
+            if (inicio >= tamanho) {
+                return new long[0];
+            }
+            return new long[]{inicio, Math.min(fim, tamanho - 1)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks an If-None-Match header (a list of entity tags or "*") against the current tag,
+     * using weak comparison as required for that header.
+     */
+    static boolean corresponde(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidato : ifNoneMatch.split(",")) {
+            String tag = candidato.trim();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,297 @@
+package br.com.dasa.analisepatologica.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a ZIP archive to a stream as its entries are added, without seeking back and without holding
+ * the entry data in memory or in temporary files.
+ *
+ * Every entry is written with a data descriptor (general purpose bit 3): the local header goes out first,
+ * then the data as it is read, then the CRC and sizes, so a multi-GB file is copied from disk in one pass
+ * through a 64 KB buffer. Entries can be STORED (for content that is already compressed, such as JPEG,
+ * PNG and tiled TIFF) or DEFLATED. ZIP64 fields are used per entry when its size calls for them, and for
+ * the end of the archive when it passes 4 GB or 65535 entries.
+ *
+ * STORED entries with a data descriptor can only be read through the central directory (unzip, 7-Zip,
+ * Windows and macOS archivers, {@link java.util.zip.ZipFile}), not by {@link java.util.zip.ZipInputStream}.
+ *
+ * Not thread-safe. The underlying stream is flushed after each entry and closed by {@link #close()}.
+ */
+public class EscritorZip implements Closeable {
+
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    private static final long LIMITE_32 = 0xFFFFFFFFL;
+    private static final int LIMITE_ENTRADAS_32 = 0xFFFF;
+
+    private static final int ASSINATURA_LOCAL = 0x04034b50;
+    private static final int ASSINATURA_DESCRITOR = 0x08074b50;
+    private static final int ASSINATURA_CENTRAL = 0x02014b50;
+    private static final int ASSINATURA_FIM_ZIP64 = 0x06064b50;
+    private static final int ASSINATURA_LOCALIZADOR_ZIP64 = 0x07064b50;
+    private static final int ASSINATURA_FIM = 0x06054b50;
+    private static final short EXTRA_ZIP64 = 0x0001;
+
+    /** Bit 3: CRC and sizes follow the data; bit 11: names are UTF-8. */
+    private static final short FLAGS = 0x0808;
+    private static final short VERSAO = 20;
+    private static final short VERSAO_ZIP64 = 45;
+    private static final short STORED = 0;
+    private static final short DEFLATED = 8;
+
+    private record Entrada(byte[] nome, short metodo, int dataDos, long crc, long tamanhoComprimido,
+                           long tamanho, long deslocamento, boolean zip64) {
+    }
+
+    private final OutputStream saida;
+    private final List<Entrada> entradas = new ArrayList<>();
+    private final Set<String> nomes = new HashSet<>();
+    private final byte[] buffer = new byte[TAMANHO_BUFFER];
+    private final ByteBuffer cabecalho = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+    private long posicao;
+    private boolean fechado;
+
+    public EscritorZip(OutputStream saida) {
+        this.saida = saida;
+    }
+
+    /**
+     * Adds an entry held in memory (e.g. a small JSON document), deflated.
+     */
+    public void adicionar(String nome, byte[] conteudo, LocalDateTime modificacao) throws IOException {
+        escreverEntrada(nome, new ByteArrayInputStream(conteudo), conteudo.length, true, modificacao);
+    }
+
+    /**
+     * Adds a file read straight from disk. The file is opened before anything of the entry is written, so
+     * a missing file throws {@link java.nio.file.NoSuchFileException} and leaves the archive intact.
+     *
+     * @param comprimir false to STORE content that is already compressed
+     */
+    public void adicionarArquivo(String nome, Path arquivo, boolean comprimir) throws IOException {
+        try (InputStream conteudo = Files.newInputStream(arquivo)) {
+            LocalDateTime modificacao = LocalDateTime.ofInstant(
+                    Files.getLastModifiedTime(arquivo).toInstant(), ZoneId.systemDefault());
+            escreverEntrada(nome, conteudo, Files.size(arquivo), comprimir, modificacao);
+        }
+    }
+
+    /**
+     * Writes the central directory and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (fechado) {
+            return;
+        }
+        fechado = true;
+        try {
+            escreverDiretorioCentral();
+            saida.flush();
+        } finally {
+            saida.close();
+        }
+    }
+
+    private void escreverEntrada(String nome, InputStream conteudo, long tamanhoPrevisto, boolean comprimir,
+                                 LocalDateTime modificacao) throws IOException {
+        if (fechado) {
+            throw new IllegalStateException("Arquivo ZIP já foi finalizado");
+        }
+        if (nome.isEmpty() || nome.startsWith("/") || !nomes.add(nome)) {
+            throw new IllegalArgumentException("Nome de entrada ZIP inválido ou repetido: " + nome);
+        }
+        byte[] nomeBytes = nome.getBytes(StandardCharsets.UTF_8);
+        short metodo = comprimir ? DEFLATED : STORED;
+        // Deflate can expand incompressible data slightly; decide on ZIP64 with some room to spare
+        long margem = comprimir ? tamanhoPrevisto / 64 + 1024 : 0;
+        boolean zip64 = tamanhoPrevisto + margem >= LIMITE_32;
+        int dataDos = dataDos(modificacao);
+        long deslocamento = posicao;
+
+        cabecalho.clear();
+        cabecalho.putInt(ASSINATURA_LOCAL)
+                .putShort(zip64 ? VERSAO_ZIP64 : VERSAO)
+                .putShort(FLAGS)
+                .putShort(metodo)
+                .putInt(dataDos)
+                .putInt(0)
+                .putInt(zip64 ? (int) LIMITE_32 : 0)
+                .putInt(zip64 ? (int) LIMITE_32 : 0)
+                .putShort((short) nomeBytes.length)
+                .putShort((short) (zip64 ? 20 : 0));
+        escreverCabecalho(nomeBytes);
+        if (zip64) {
+            cabecalho.clear();
+            cabecalho.putShort(EXTRA_ZIP64).putShort((short) 16).putLong(0).putLong(0);
+            escreverCabecalho(null);
+        }
+
+        CRC32 crc = new CRC32();
+        long tamanho = 0;
+        long inicioDados = posicao;
+        Deflater deflater = comprimir ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+        try {
+            byte[] comprimido = comprimir ? new byte[TAMANHO_BUFFER] : null;
+            int lidos;
+            while ((lidos = conteudo.read(buffer)) >= 0) {
+                crc.update(buffer, 0, lidos);
+                tamanho += lidos;
+                if (deflater == null) {
+                    escrever(buffer, lidos);
+                } else {
+                    deflater.setInput(buffer, 0, lidos);
+                    while (!deflater.needsInput()) {
+                        escrever(comprimido, deflater.deflate(comprimido));
+                    }
+                }
+            }
+            if (deflater != null) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    escrever(comprimido, deflater.deflate(comprimido));
+                }
+            }
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        long tamanhoComprimido = posicao - inicioDados;
+        if (!zip64 && (tamanho >= LIMITE_32 || tamanhoComprimido >= LIMITE_32)) {
+            throw new IOException("Entrada " + nome + " cresceu durante a leitura além do limite sem ZIP64");
+        }
+
+        cabecalho.clear();
+        cabecalho.putInt(ASSINATURA_DESCRITOR).putInt((int) crc.getValue());
+        if (zip64) {
+            cabecalho.putLong(tamanhoComprimido).putLong(tamanho);
+        } else {
+            cabecalho.putInt((int) tamanhoComprimido).putInt((int) tamanho);
+        }
+        escreverCabecalho(null);
+        saida.flush();
+
+        entradas.add(new Entrada(nomeBytes, metodo, dataDos, crc.getValue(), tamanhoComprimido, tamanho,
+                deslocamento, zip64));
+    }
+
+    private void escreverDiretorioCentral() throws IOException {
+        long inicioDiretorio = posicao;
+        for (Entrada entrada : entradas) {
+            boolean tamanho64 = entrada.zip64();
+            boolean deslocamento64 = entrada.deslocamento() >= LIMITE_32;
+            int tamanhoExtra = (tamanho64 ? 16 : 0) + (deslocamento64 ? 8 : 0);
+            boolean zip64 = tamanhoExtra > 0;
+
+            cabecalho.clear();
+            cabecalho.putInt(ASSINATURA_CENTRAL)
+                    .putShort(zip64 ? VERSAO_ZIP64 : VERSAO)
+                    .putShort(entrada.zip64() ? VERSAO_ZIP64 : VERSAO)
+                    .putShort(FLAGS)
+                    .putShort(entrada.metodo())
+                    .putInt(entrada.dataDos())
+                    .putInt((int) entrada.crc())
+                    .putInt(tamanho64 ? (int) LIMITE_32 : (int) entrada.tamanhoComprimido())
+                    .putInt(tamanho64 ? (int) LIMITE_32 : (int) entrada.tamanho())
+                    .putShort((short) entrada.nome().length)
+                    .putShort((short) (zip64 ? tamanhoExtra + 4 : 0))
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putInt(0)
+                    .putInt(deslocamento64 ? (int) LIMITE_32 : (int) entrada.deslocamento());
+            escreverCabecalho(entrada.nome());
+            if (zip64) {
+                cabecalho.clear();
+                cabecalho.putShort(EXTRA_ZIP64).putShort((short) tamanhoExtra);
+                if (tamanho64) {
+                    cabecalho.putLong(entrada.tamanho()).putLong(entrada.tamanhoComprimido());
+                }
+                if (deslocamento64) {
+                    cabecalho.putLong(entrada.deslocamento());
+                }
+                escreverCabecalho(null);
+            }
+        }
+        long tamanhoDiretorio = posicao - inicioDiretorio;
+
+        if (entradas.size() >= LIMITE_ENTRADAS_32 || inicioDiretorio >= LIMITE_32 || tamanhoDiretorio >= LIMITE_32) {
+            long inicioFim64 = posicao;
+            cabecalho.clear();
+            cabecalho.putInt(ASSINATURA_FIM_ZIP64)
+                    .putLong(44)
+                    .putShort(VERSAO_ZIP64)
+                    .putShort(VERSAO_ZIP64)
+                    .putInt(0)
+                    .putInt(0)
+                    .putLong(entradas.size())
+                    .putLong(entradas.size())
+                    .putLong(tamanhoDiretorio)
+                    .putLong(inicioDiretorio);
+            cabecalho.putInt(ASSINATURA_LOCALIZADOR_ZIP64)
+                    .putInt(0)
+                    .putLong(inicioFim64)
+                    .putInt(1);
+            escreverCabecalho(null);
+        }
+
+        cabecalho.clear();
+        cabecalho.putInt(ASSINATURA_FIM)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) Math.min(entradas.size(), LIMITE_ENTRADAS_32))
+                .putShort((short) Math.min(entradas.size(), LIMITE_ENTRADAS_32))
+                .putInt((int) Math.min(tamanhoDiretorio, LIMITE_32))
+                .putInt((int) Math.min(inicioDiretorio, LIMITE_32))
+                .putShort((short) 0);
+        escreverCabecalho(null);
+    }
+
+    /**
+     * Writes the header assembled in the buffer, followed by the entry name if given.
+     */
+    private void escreverCabecalho(byte[] nome) throws IOException {
+        escrever(cabecalho.array(), cabecalho.position());
+        if (nome != null) {
+            escrever(nome, nome.length);
+        }
+    }
+
+    private void escrever(byte[] dados, int tamanho) throws IOException {
+        saida.write(dados, 0, tamanho);
+        posicao += tamanho;
+    }
+
+    /**
+     * MS-DOS date and time (2-second resolution, years 1980 to 2107).
+     */
+    private static int dataDos(LocalDateTime dataHora) {
+        int ano = Math.max(1980, Math.min(2107, dataHora.getYear()));
+        if (ano != dataHora.getYear()) {
+            dataHora = ano == 1980 ? LocalDateTime.of(1980, 1, 1, 0, 0) : LocalDateTime.of(2107, 12, 31, 23, 59, 58);
+        }
+        return (ano - 1980) << 25
+                | dataHora.getMonthValue() << 21
+                | dataHora.getDayOfMonth() << 16
+                | dataHora.getHour() << 11
+                | dataHora.getMinute() << 5
+                | dataHora.getSecond() >> 1;
+    }
+}
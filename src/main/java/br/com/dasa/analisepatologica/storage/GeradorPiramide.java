@@ -0,0 +1,343 @@
+package br.com.dasa.analisepatologica.storage;
+
+import br.com.dasa.analisepatologica.util.TransacaoUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Builds multi-resolution tile pyramids of stored images on a bounded worker pool.
+ *
+ * The full-resolution level is decoded a band of tiles at a time ({@link ImageReadParam#setSourceRegion}),
+ * so a whole-slide TIFF is never held in the heap; each lower level is then built from the level above,
+ * four tiles into one. Tiles are JPEG files at {@code derivados/<aa>/<hash>/piramide/<z>/<x>_<y>.jpg}.
+ * The pyramid is written to a temporary directory and renamed when complete, so a pyramid that
+ * exists is always whole; being keyed by content hash, it is shared by every image with that content.
+ */
+@Component
+@Slf4j
+public class GeradorPiramide implements DisposableBean {
+
+    public static final int TAMANHO_TILE = 256;
+
+    private static final String DIRETORIO = "piramide";
+    private static final String ARQUIVO_INFO = "piramide.properties";
+    /** Tiles decoded per read of the source image; bounds the heap used by a worker to ~4 MB. */
+    private static final int TILES_POR_LEITURA = 16;
+
+    private final ArmazenamentoConteudo armazenamentoConteudo;
+    private final float qualidadeJpeg;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> emAndamento = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> falhas = new ConcurrentHashMap<>();
+    /** Finished pyramids never change, so their geometry is read once. */
+    private final Map<String, InfoPiramide> concluidas = new ConcurrentHashMap<>();
+
+    public GeradorPiramide(ArmazenamentoConteudo armazenamentoConteudo,
+                           @Value("${analisepatologica.piramide.threads:2}") int threads,
+                           @Value("${analisepatologica.piramide.capacidade-fila:1000}") int capacidadeFila,
+                           @Value("${analisepatologica.piramide.qualidade-jpeg:0.85}") float qualidadeJpeg) {
+        this.armazenamentoConteudo = armazenamentoConteudo;
+        this.qualidadeJpeg = qualidadeJpeg;
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila), tarefa -> {
+                    Thread thread = new Thread(tarefa, "piramide-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    /**
+     * Schedules the pyramid of a stored content once the current transaction commits
+     * (or right away outside a transaction), so a rolled-back image does not cost a pyramid.
+     */
+    public void agendarAposCommit(String sha256, Path arquivo) {
+        TransacaoUtils.aposCommit(() -> agendar(sha256, arquivo));
+    }
+
+    /**
+     * Schedules the pyramid of a stored content unless it exists or is already being built.
+     * When the queue is full the request is dropped; it is scheduled again the next time a tile is requested.
+     * A content whose build failed (e.g. an unsupported TIFF compression) is not retried until a restart.
+     */
+    public void agendar(String sha256, Path arquivo) {
+        if (Files.exists(diretorio(sha256).resolve(ARQUIVO_INFO)) || falhas.containsKey(sha256) || !emAndamento.add(sha256)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    gerar(sha256, arquivo);
+                } catch (Exception e) {
+                    log.error("Failed to build tile pyramid of {}", sha256, e);
+                    falhas.put(sha256, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                } finally {
+                    emAndamento.remove(sha256);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            emAndamento.remove(sha256);
+            log.warn("Tile pyramid queue is full; {} will be scheduled again on demand", sha256);
+        }
+    }
+
+    /**
+     * Geometry of a finished pyramid, or empty while it does not exist.
+     */
+    public Optional<InfoPiramide> info(String sha256) {
+        InfoPiramide cached = concluidas.get(sha256);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Path arquivo = diretorio(sha256).resolve(ARQUIVO_INFO);
+        if (!Files.exists(arquivo)) {
+            return Optional.empty();
+        }
+        Properties propriedades = new Properties();
+        try (InputStream entrada = Files.newInputStream(arquivo)) {
+            propriedades.load(entrada);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        InfoPiramide info = new InfoPiramide(
+                Integer.parseInt(propriedades.getProperty("largura")),
+                Integer.parseInt(propriedades.getProperty("altura")),
+                Integer.parseInt(propriedades.getProperty("tamanhoTile")),
+                Integer.parseInt(propriedades.getProperty("nivelMaximo")));
+        concluidas.put(sha256, info);
+        return Optional.of(info);
+    }
+
+    /**
+     * Whether the pyramid of a content is queued or being built.
+     */
+    public boolean emGeracao(String sha256) {
+        return emAndamento.contains(sha256);
+    }
+
+    /**
+     * Reason why the last attempt to build the pyramid of a content failed, or null.
+     */
+    public String falha(String sha256) {
+        return falhas.get(sha256);
+    }
+
+    /**
+     * File of a tile of a finished pyramid.
+     */
+    public Path tile(String sha256, int nivel, int x, int y) {
+        return diretorio(sha256).resolve(Integer.toString(nivel)).resolve(x + "_" + y + ".jpg");
+    }
+
+    /**
+     * Deletes the pyramid of a content that was removed from the store.
+     */
+    public void descartar(String sha256) throws IOException {
+        concluidas.remove(sha256);
+        apagar(diretorio(sha256));
+    }
+
+    /**
+     * Builds the pyramid of an image file in the calling thread.
+     *
+     * @throws IllegalArgumentException if no installed ImageIO reader can decode the file
+     */
+    InfoPiramide gerar(String sha256, Path arquivo) throws IOException {
+        Path destino = diretorio(sha256);
+        Path temporario = destino.resolveSibling(DIRETORIO + ".tmp");
+        // Leftovers of a build interrupted by a restart
+        apagar(temporario);
+        long inicio = System.nanoTime();
+
+        InfoPiramide info;
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(arquivo.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(entrada);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("Formato de imagem não suportado: " + arquivo.getFileName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(entrada, true, true);
+                info = InfoPiramide.de(reader.getWidth(0), reader.getHeight(0), TAMANHO_TILE);
+                log.info("Building tile pyramid of {} ({}x{}, {} levels)", sha256, info.largura(), info.altura(),
+                        info.nivelMaximo() + 1);
+                gerarNivelMaximo(reader, info, temporario, writer);
+            } finally {
+                reader.dispose();
+            }
+            for (int nivel = info.nivelMaximo() - 1; nivel >= 0; nivel--) {
+                gerarNivel(nivel, info, temporario, writer);
+            }
+        } finally {
+            writer.dispose();
+        }
+
+        Properties propriedades = new Properties();
+        propriedades.setProperty("largura", Integer.toString(info.largura()));
+        propriedades.setProperty("altura", Integer.toString(info.altura()));
+        propriedades.setProperty("tamanhoTile", Integer.toString(info.tamanhoTile()));
+        propriedades.setProperty("nivelMaximo", Integer.toString(info.nivelMaximo()));
+        try (OutputStream saida = Files.newOutputStream(temporario.resolve(ARQUIVO_INFO))) {
+            propriedades.store(saida, null);
+        }
+        try {
+            Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            // Built concurrently by another instance sharing the store
+            apagar(temporario);
+        }
+
+        log.info("Tile pyramid of {} built in {} ms", sha256, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        return info;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void gerarNivelMaximo(ImageReader reader, InfoPiramide info, Path diretorio, ImageWriter writer) throws IOException {
+        int nivel = info.nivelMaximo();
+        Files.createDirectories(diretorio.resolve(Integer.toString(nivel)));
+        ImageReadParam parametros = reader.getDefaultReadParam();
+        int larguraLeitura = TAMANHO_TILE * TILES_POR_LEITURA;
+
+        for (int y = 0; y < info.linhas(nivel); y++) {
+            int topo = y * TAMANHO_TILE;
+            int altura = Math.min(TAMANHO_TILE, info.altura() - topo);
+            for (int esquerda = 0; esquerda < info.largura(); esquerda += larguraLeitura) {
+                // Tiled TIFFs decode only the tiles covering the region; stripped ones the strips crossing it
+                parametros.setSourceRegion(new Rectangle(esquerda, topo, Math.min(larguraLeitura, info.largura() - esquerda), altura));
+                BufferedImage faixa = reader.read(0, parametros);
+                for (int deslocamento = 0; deslocamento < faixa.getWidth(); deslocamento += TAMANHO_TILE) {
+                    int largura = Math.min(TAMANHO_TILE, faixa.getWidth() - deslocamento);
+                    gravar(rgb(faixa.getSubimage(deslocamento, 0, largura, faixa.getHeight())),
+                            diretorio, nivel, (esquerda + deslocamento) / TAMANHO_TILE, y, writer);
+                }
+            }
+        }
+    }
+
+    private void gerarNivel(int nivel, InfoPiramide info, Path diretorio, ImageWriter writer) throws IOException {
+        Files.createDirectories(diretorio.resolve(Integer.toString(nivel)));
+        int metade = TAMANHO_TILE / 2;
+
+        for (int y = 0; y < info.linhas(nivel); y++) {
+            for (int x = 0; x < info.colunas(nivel); x++) {
+                int largura = Math.min(TAMANHO_TILE, info.largura(nivel) - x * TAMANHO_TILE);
+                int altura = Math.min(TAMANHO_TILE, info.altura(nivel) - y * TAMANHO_TILE);
+                BufferedImage tile = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_RGB);
+                Graphics2D graphics = tile.createGraphics();
+                try {
+                    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                    for (int dy = 0; dy < 2; dy++) {
+                        for (int dx = 0; dx < 2; dx++) {
+                            int filhoX = 2 * x + dx;
+                            int filhoY = 2 * y + dy;
+                            if (!info.contem(nivel + 1, filhoX, filhoY)) {
+                                continue;
+                            }
+                            BufferedImage filho = ImageIO.read(diretorio.resolve(Integer.toString(nivel + 1))
+                                    .resolve(filhoX + "_" + filhoY + ".jpg").toFile());
+                            graphics.drawImage(filho, dx * metade, dy * metade,
+                                    (filho.getWidth() + 1) / 2, (filho.getHeight() + 1) / 2, null);
+                        }
+                    }
+                } finally {
+                    graphics.dispose();
+                }
+                gravar(tile, diretorio, nivel, x, y, writer);
+            }
+        }
+    }
+
+    private void gravar(BufferedImage tile, Path diretorio, int nivel, int x, int y, ImageWriter writer) throws IOException {
+        ImageWriteParam parametros = writer.getDefaultWriteParam();
+        parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        parametros.setCompressionQuality(qualidadeJpeg);
+        Path arquivo = diretorio.resolve(Integer.toString(nivel)).resolve(x + "_" + y + ".jpg");
+        // Closing the ImageOutputStream does not close the stream it wraps
+        try (OutputStream arquivoSaida = Files.newOutputStream(arquivo);
+             ImageOutputStream saida = ImageIO.createImageOutputStream(arquivoSaida)) {
+            writer.setOutput(saida);
+            writer.write(null, new IIOImage(tile, null, null), parametros);
+        } finally {
+            writer.reset();
+        }
+    }
+
+    /**
+     * Converts a decoded region to 8-bit RGB, which is what JPEG accepts; transparency becomes white.
+     */
+    private static BufferedImage rgb(BufferedImage imagem) {
+        if (imagem.getType() == BufferedImage.TYPE_INT_RGB || imagem.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            return imagem;
+        }
+        BufferedImage convertida = new BufferedImage(imagem.getWidth(), imagem.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = convertida.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, imagem.getWidth(), imagem.getHeight());
+            graphics.drawImage(imagem, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return convertida;
+    }
+
+    private Path diretorio(String sha256) {
+        return armazenamentoConteudo.diretorioDerivados(sha256).resolve(DIRETORIO);
+    }
+
+    private static void apagar(Path diretorio) throws IOException {
+        if (!Files.exists(diretorio)) {
+            return;
+        }
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            for (Path arquivo : (Iterable<Path>) arquivos.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(arquivo);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package br.com.dasa.analisepatologica.storage;
+
+/**
+ * Geometry of a tile pyramid. Level {@code nivelMaximo} is the full-resolution image and each level
+ * below it halves both dimensions, down to level 0, which fits in a single tile.
+ *
+ * @param largura Width of the source image in pixels
+ * @param altura Height of the source image in pixels
+ * @param tamanhoTile Width and height of a tile in pixels (edge tiles may be smaller)
+ * @param nivelMaximo Zoom level of the full-resolution image
+ */
+public record InfoPiramide(int largura, int altura, int tamanhoTile, int nivelMaximo) {
+
+    /**
+     * Builds the geometry of the pyramid of an image.
+     */
+    public static InfoPiramide de(int largura, int altura, int tamanhoTile) {
+        int nivelMaximo = 0;
+        while (Math.max(largura, altura) > (long) tamanhoTile << nivelMaximo) {
+            nivelMaximo++;
+        }
+        return new InfoPiramide(largura, altura, tamanhoTile, nivelMaximo);
+    }
+
+    /**
+     * Width of the image at a zoom level.
+     */
+    public int largura(int nivel) {
+        return escalar(largura, nivel);
+    }
+
+    /**
+     * Height of the image at a zoom level.
+     */
+    public int altura(int nivel) {
+        return escalar(altura, nivel);
+    }
+
+    /**
+     * Number of tile columns at a zoom level.
+     */
+    public int colunas(int nivel) {
+        return (largura(nivel) + tamanhoTile - 1) / tamanhoTile;
+    }
+
+    /**
+     * Number of tile rows at a zoom level.
+     */
+    public int linhas(int nivel) {
+        return (altura(nivel) + tamanhoTile - 1) / tamanhoTile;
+    }
+
+    /**
+     * Checks whether a tile exists in the pyramid.
+     */
+    public boolean contem(int nivel, int x, int y) {
+        return nivel >= 0 && nivel <= nivelMaximo && x >= 0 && y >= 0 && x < colunas(nivel) && y < linhas(nivel);
+    }
+
+    private int escalar(int tamanho, int nivel) {
+        // Rounding up at every halving is the same as rounding up once, so levels nest exactly
+        int divisor = 1 << (nivelMaximo - nivel);
+        return (tamanho + divisor - 1) / divisor;
+    }
+}
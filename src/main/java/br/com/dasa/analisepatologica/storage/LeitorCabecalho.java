@@ -0,0 +1,192 @@
+package br.com.dasa.analisepatologica.storage;
+
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Reads the dimensions, format and capture equipment of an image file from its header, without decoding pixels.
+ *
+ * The file is opened as a random-access {@link ImageInputStream}, so the reader only touches the bytes it needs:
+ * the markers before the first scan of a JPEG, the IFD of a TIFF, the IHDR chunk of a PNG.
+ * The equipment comes from the Make (271) and Model (272) tags of the TIFF IFD or of the EXIF block
+ * (APP1) of a JPEG; other formats carry no such tags.
+ */
+public final class LeitorCabecalho {
+
+    private static final String METADADOS_JPEG = "javax_imageio_jpeg_image_1.0";
+    private static final String METADADOS_TIFF = "javax_imageio_tiff_image_1.0";
+    private static final int MARCADOR_APP1 = 0xE1;
+    private static final byte[] PREFIXO_EXIF = "Exif\0\0".getBytes(StandardCharsets.ISO_8859_1);
+    private static final int TAG_FABRICANTE = 271;
+    private static final int TAG_MODELO = 272;
+    private static final int TIPO_ASCII = 2;
+    private static final int TAMANHO_MAXIMO_EQUIPAMENTO = 200;
+
+    private LeitorCabecalho() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Reads the header of an image file.
+     *
+     * @throws IllegalArgumentException if no installed ImageIO reader recognizes the file
+     * @throws IOException if the file cannot be read or its header is corrupt
+     */
+    public static CabecalhoImagem ler(Path arquivo) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(arquivo.toFile())) {
+            if (entrada == null) {
+                throw new IOException("Não foi possível abrir " + arquivo);
+            }
+            Iterator<ImageReader> leitores = ImageIO.getImageReaders(entrada);
+            if (!leitores.hasNext()) {
+                throw new IllegalArgumentException("Formato de imagem não reconhecido");
+            }
+            ImageReader leitor = leitores.next();
+            try {
+                leitor.setInput(entrada, true, false);
+                int largura = leitor.getWidth(0);
+                int altura = leitor.getHeight(0);
+                String equipamento;
+                try {
+                    equipamento = equipamento(leitor.getImageMetadata(0));
+                } catch (IIOException e) {
+                    // The JDK JPEG reader rejects valid files whose EXIF segment precedes the JFIF one
+                    equipamento = null;
+                }
+                return new CabecalhoImagem(leitor.getFormatName().toLowerCase(Locale.ROOT), largura, altura, equipamento);
+            } finally {
+                leitor.dispose();
+            }
+        }
+    }
+
+    private static String equipamento(IIOMetadata metadados) {
+        if (metadados == null) {
+            return null;
+        }
+        String[] fabricanteModelo = null;
+        for (String formato : metadados.getMetadataFormatNames()) {
+            if (METADADOS_TIFF.equals(formato)) {
+                fabricanteModelo = equipamentoTiff(metadados.getAsTree(formato));
+            } else if (METADADOS_JPEG.equals(formato)) {
+                fabricanteModelo = equipamentoExif(metadados.getAsTree(formato));
+            }
+        }
+        return fabricanteModelo != null ? juntar(fabricanteModelo[0], fabricanteModelo[1]) : null;
+    }
+
+    /**
+     * Make and Model from the TIFFField nodes of the first IFD.
+     */
+    private static String[] equipamentoTiff(Node raiz) {
+        String[] fabricanteModelo = new String[2];
+        for (Node ifd = raiz.getFirstChild(); ifd != null; ifd = ifd.getNextSibling()) {
+            for (Node campo = ifd.getFirstChild(); campo != null; campo = campo.getNextSibling()) {
+                if (!(campo instanceof IIOMetadataNode elemento) || !"TIFFField".equals(elemento.getNodeName())) {
+                    continue;
+                }
+                int tag = Integer.parseInt(elemento.getAttribute("number"));
+                if (tag == TAG_FABRICANTE || tag == TAG_MODELO) {
+                    IIOMetadataNode valor = (IIOMetadataNode) elemento.getElementsByTagName("TIFFAscii").item(0);
+                    if (valor != null) {
+                        fabricanteModelo[tag == TAG_FABRICANTE ? 0 : 1] = valor.getAttribute("value");
+                    }
+                }
+            }
+        }
+        return fabricanteModelo;
+    }
+
+    /**
+     * Make and Model from the EXIF APP1 segment of a JPEG, kept by the JDK reader as an "unknown" marker.
+     */
+    private static String[] equipamentoExif(Node raiz) {
+        if (!(raiz instanceof IIOMetadataNode elemento)) {
+            return null;
+        }
+        var marcadores = elemento.getElementsByTagName("unknown");
+        for (int i = 0; i < marcadores.getLength(); i++) {
+            IIOMetadataNode marcador = (IIOMetadataNode) marcadores.item(i);
+            if (Integer.parseInt(marcador.getAttribute("MarkerTag")) == MARCADOR_APP1
+                    && marcador.getUserObject() instanceof byte[] dados
+                    && dados.length > PREFIXO_EXIF.length
+                    && Arrays.equals(dados, 0, PREFIXO_EXIF.length, PREFIXO_EXIF, 0, PREFIXO_EXIF.length)) {
+                try {
+                    return ifd0(ByteBuffer.wrap(dados, PREFIXO_EXIF.length, dados.length - PREFIXO_EXIF.length).slice());
+                } catch (RuntimeException e) {
+                    // Malformed EXIF block: the equipment is simply unknown
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the ASCII Make and Model entries of IFD0 of an embedded TIFF structure.
+     */
+    private static String[] ifd0(ByteBuffer tiff) {
+        tiff.order(tiff.getShort(0) == 0x4949 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int ifd = tiff.getInt(4);
+        int entradas = Short.toUnsignedInt(tiff.getShort(ifd));
+        String[] fabricanteModelo = new String[2];
+        for (int i = 0; i < entradas; i++) {
+            int entrada = ifd + 2 + i * 12;
+            int tag = Short.toUnsignedInt(tiff.getShort(entrada));
+            if ((tag != TAG_FABRICANTE && tag != TAG_MODELO) || tiff.getShort(entrada + 2) != TIPO_ASCII) {
+                continue;
+            }
+            int tamanho = tiff.getInt(entrada + 4);
+            // Values of up to 4 bytes are stored in the entry itself
+            int posicao = tamanho <= 4 ? entrada + 8 : tiff.getInt(entrada + 8);
+            byte[] texto = new byte[tamanho];
+            tiff.get(posicao, texto);
+            fabricanteModelo[tag == TAG_FABRICANTE ? 0 : 1] = new String(texto, StandardCharsets.ISO_8859_1);
+        }
+        return fabricanteModelo;
+    }
+
+    /**
+     * Joins Make and Model, dropping the make when the model already starts with it ("Leica" "Leica Aperio GT 450").
+     */
+    private static String juntar(String fabricante, String modelo) {
+        fabricante = limpar(fabricante);
+        modelo = limpar(modelo);
+        String equipamento;
+        if (fabricante == null) {
+            equipamento = modelo;
+        } else if (modelo == null || modelo.toLowerCase(Locale.ROOT).startsWith(fabricante.toLowerCase(Locale.ROOT))) {
+            equipamento = modelo != null ? modelo : fabricante;
+        } else {
+            equipamento = fabricante + " " + modelo;
+        }
+        if (equipamento != null && equipamento.length() > TAMANHO_MAXIMO_EQUIPAMENTO) {
+            equipamento = equipamento.substring(0, TAMANHO_MAXIMO_EQUIPAMENTO);
+        }
+        return equipamento;
+    }
+
+    private static String limpar(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        // ASCII tags are NUL-terminated and often space-padded
+        int fim = valor.indexOf('\0');
+        String limpo = (fim >= 0 ? valor.substring(0, fim) : valor).strip();
+        return limpo.isEmpty() ? null : limpo;
+    }
+}
@@ -0,0 +1,62 @@
+package br.com.dasa.analisepatologica.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential, rate-limited reads of stored files, for background checks that must not compete with
+ * the requests for disk bandwidth.
+ *
+ * The file is read front to back in 1 MB blocks (read-ahead friendly on spinning disks and network
+ * storage), and the reading thread sleeps whenever it gets ahead of the allowed rate.
+ */
+public final class LeituraLimitada {
+
+    private static final int TAMANHO_BLOCO = 1024 * 1024;
+
+    private LeituraLimitada() {
+    }
+
+    /**
+     * Computes the SHA-256 of a file reading at most {@code bytesPorSegundo} bytes per second.
+     *
+     * @return the hash in lower-case hexadecimal
+     * @throws InterruptedException if the thread is interrupted while throttled (e.g. on shutdown)
+     */
+    public static String sha256(Path arquivo, long bytesPorSegundo) throws IOException, InterruptedException {
+        if (bytesPorSegundo <= 0) {
+            throw new IllegalArgumentException("Taxa de leitura deve ser maior que zero");
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        long inicio = System.nanoTime();
+        long lidos = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_BLOCO);
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            while (canal.read(buffer) >= 0) {
+                buffer.flip();
+                lidos += buffer.remaining();
+                digest.update(buffer);
+                buffer.clear();
+
+                long adiantamento = (long) (lidos * 1e9 / bytesPorSegundo) - (System.nanoTime() - inicio);
+                if (adiantamento > 0) {
+                    TimeUnit.NANOSECONDS.sleep(adiantamento);
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,19 @@
+package br.com.dasa.analisepatologica.storage;
+
+/**
+ * Focus, stain and tissue metrics of a whole image, aggregated from its 256x256 tiles.
+ * Focus and stain are measured on tissue only; they are null when no tile has enough tissue.
+ *
+ * @param tilesComTecido Tiles at least a quarter covered by tissue, the ones whose focus is measured
+ * @param nitidez Median variance of the Laplacian of the tissue tiles (grey levels squared); low means blurred
+ * @param fracaoDesfocada Fraction of the tissue tiles whose Laplacian variance is below the focus threshold
+ * @param coberturaTecido Fraction of the pixels that are tissue
+ * @param saturacaoMedia Mean HSV saturation of the tissue pixels (0 to 1); low means pale staining
+ * @param brilhoMedio Mean luminance of the tissue pixels (0 to 1); low means overstaining or thick sections
+ * @param hashPerceptual 64-bit difference hash (dHash) of the whole image, for near-duplicate search;
+ *                       null for images without tissue, whose hashes would all look alike
+ */
+public record MetricasQualidade(int tiles, int tilesComTecido, Double nitidez, Double fracaoDesfocada,
+                                double coberturaTecido, Double saturacaoMedia, Double brilhoMedio,
+                                Long hashPerceptual) {
+}
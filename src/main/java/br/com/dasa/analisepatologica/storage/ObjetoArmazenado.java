@@ -0,0 +1,12 @@
+package br.com.dasa.analisepatologica.storage;
+
+/**
+ * Object written to the content store.
+ *
+ * @param sha256 Hex-encoded SHA-256 of the content
+ * @param caminho Path relative to the store root, derived from the hash
+ * @param tamanhoBytes Content length in bytes
+ * @param novo Whether this write created the object, or the same content was already stored
+ */
+public record ObjetoArmazenado(String sha256, String caminho, long tamanhoBytes, boolean novo) {
+}
@@ -0,0 +1,49 @@
+package br.com.dasa.analisepatologica.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Helpers for work that must only happen once the current transaction's outcome is known,
+ * such as updating in-memory caches or queueing background work for newly written rows.
+ */
+public final class TransacaoUtils {
+
+    private TransacaoUtils() {
+    }
+
+    /**
+     * Runs the action after the current transaction commits, or right away outside a transaction.
+     * Nothing runs if the transaction rolls back.
+     */
+    public static void aposCommit(Runnable acao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    acao.run();
+                }
+            });
+        } else {
+            acao.run();
+        }
+    }
+
+    /**
+     * Runs the action once the current transaction ends without committing (rolled back, or failed with
+     * an unknown outcome), e.g. to discard files written for it. Outside a transaction it never runs.
+     * The transaction is over by then: database work done by the action needs a new one.
+     */
+    public static void aposRollback(Runnable acao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        acao.run();
+                    }
+                }
+            });
+        }
+    }
+}
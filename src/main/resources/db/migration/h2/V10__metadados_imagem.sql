@@ -0,0 +1,14 @@
+-- Situação da leitura do cabeçalho dos arquivos de imagem, que confirma ou corrige as dimensões, o formato e o
+-- equipamento informados pelo cliente (H2).
+-- Manter alinhado com db/migration/oracle/V10__metadados_imagem.sql.
+
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN status_metadados VARCHAR(20) DEFAULT 'PENDENTE' NOT NULL;
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN motivo_metadados VARCHAR(500);
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN metadados_verificados_em TIMESTAMP(6);
+
+-- Imagens já registradas: as armazenadas por conteúdo ficam pendentes e são verificadas em segundo plano
+UPDATE IMAGEM_AMOSTRA SET status_metadados = 'SEM_ARQUIVO'
+WHERE caminho_arquivo IS NULL OR caminho_arquivo NOT LIKE 'sha256/%';
+
+-- Retomada das imagens pendentes, em ordem de chave
+CREATE INDEX IMAGEM_AMOSTRA_metadados_IX ON IMAGEM_AMOSTRA (status_metadados, imagem_id);
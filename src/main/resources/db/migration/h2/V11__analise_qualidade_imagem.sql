@@ -0,0 +1,19 @@
+-- Métricas de foco, coloração e tecido calculadas sobre o arquivo de cada imagem armazenada, e a sinalização
+-- automática das capturas a redigitalizar (H2).
+-- Manter alinhado com db/migration/oracle/V11__analise_qualidade_imagem.sql.
+
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN status_analise_qualidade VARCHAR(20) DEFAULT 'PENDENTE' NOT NULL;
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN nitidez NUMERIC(12, 2);
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN fracao_desfocada NUMERIC(5, 4);
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN cobertura_tecido NUMERIC(5, 4);
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN saturacao_media NUMERIC(5, 4);
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN brilho_medio NUMERIC(5, 4);
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN alertas_qualidade VARCHAR(100);
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN qualidade_analisada_em TIMESTAMP(6);
+
+-- Imagens já registradas fora do armazenamento por conteúdo não têm arquivo para analisar
+UPDATE IMAGEM_AMOSTRA SET status_analise_qualidade = 'NAO_APLICAVEL'
+WHERE status_metadados IN ('SEM_ARQUIVO', 'FALHA');
+
+-- Retomada das análises pendentes, em ordem de chave
+CREATE INDEX IMAGEM_AMOSTRA_analise_IX ON IMAGEM_AMOSTRA (status_analise_qualidade, imagem_id);
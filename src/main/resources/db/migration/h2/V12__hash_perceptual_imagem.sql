@@ -0,0 +1,9 @@
+-- Hash perceptual (dHash de 64 bits) de cada imagem analisada, para localizar redigitalizações e reexportações
+-- da mesma lâmina anexadas a outras amostras (H2).
+-- Manter alinhado com db/migration/oracle/V12__hash_perceptual_imagem.sql.
+
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN hash_perceptual BIGINT;
+
+-- O hash é calculado na mesma passada da análise de qualidade: imagens já analisadas são analisadas de novo
+UPDATE IMAGEM_AMOSTRA SET status_analise_qualidade = 'PENDENTE'
+WHERE status_analise_qualidade IN ('APROVADA', 'REPROVADA');
@@ -0,0 +1,26 @@
+-- Varredura de integridade do armazenamento de imagens (H2): resultado da última verificação de cada conteúdo
+-- (tamanho e SHA-256 relidos do disco) e ponto de retomada da varredura, em ordem de hash.
+-- Manter alinhado com db/migration/oracle/V13__integridade_armazenamento.sql.
+
+ALTER TABLE CONTEUDO_IMAGEM ADD COLUMN status_integridade VARCHAR(20) DEFAULT 'PENDENTE' NOT NULL;
+ALTER TABLE CONTEUDO_IMAGEM ADD COLUMN integridade_verificada_em TIMESTAMP(6);
+
+-- Contagem por resultado no acompanhamento da varredura
+CREATE INDEX CONTEUDO_IMAGEM_integridade_IX ON CONTEUDO_IMAGEM (status_integridade);
+
+CREATE TABLE VARREDURA_INTEGRIDADE (
+    id                  INTEGER       NOT NULL,
+    ciclo               INTEGER       NOT NULL,
+    ultimo_sha256       VARCHAR(64),
+    ciclo_iniciado_em   TIMESTAMP(6),
+    ciclo_concluido_em  TIMESTAMP(6),
+    objetos_verificados BIGINT        NOT NULL,
+    bytes_verificados   BIGINT        NOT NULL,
+    falhas              BIGINT        NOT NULL,
+    atualizado_em       TIMESTAMP(6),
+    CONSTRAINT VARREDURA_INTEGRIDADE_PK PRIMARY KEY (id),
+    CONSTRAINT VARREDURA_INTEGRIDADE_id_CK CHECK (id = 1)
+);
+
+INSERT INTO VARREDURA_INTEGRIDADE (id, ciclo, objetos_verificados, bytes_verificados, falhas)
+VALUES (1, 0, 0, 0, 0);
@@ -0,0 +1,7 @@
+-- Prova de posse no upload de conteúdo já armazenado (H2): o SHA-256 declarado pelo cliente e o trecho sorteado
+-- que ele deve enviar; a imagem só referencia o arquivo existente se os bytes desse trecho conferirem.
+-- Manter alinhado com db/migration/oracle/V14__prova_posse_upload.sql.
+
+ALTER TABLE IMAGEM_UPLOAD ADD COLUMN sha256 VARCHAR(64);
+ALTER TABLE IMAGEM_UPLOAD ADD COLUMN prova_inicio BIGINT;
+ALTER TABLE IMAGEM_UPLOAD ADD COLUMN prova_fim BIGINT;
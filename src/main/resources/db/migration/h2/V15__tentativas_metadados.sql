@@ -0,0 +1,5 @@
+-- Tentativas de leitura do cabeçalho das imagens pendentes que terminaram em erro inesperado (H2); ao atingir
+-- analisepatologica.metadados.tentativas-maximas a imagem passa a FALHA e deixa de ser retomada.
+-- Manter alinhado com db/migration/oracle/V15__tentativas_metadados.sql.
+
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN tentativas_metadados INTEGER DEFAULT 0 NOT NULL;
@@ -0,0 +1,145 @@
+-- Esquema inicial do sistema de análise patológica (H2).
+-- Espelha o mapeamento JPA das entidades; alterações futuras devem entrar em novas versões.
+
+CREATE SEQUENCE SEQ_PACIENTE START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE SEQ_MEDICO START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE SEQ_AMOSTRA START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE SEQ_MEDICAO START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE SEQ_IMAGEM_AMOSTRA START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE SEQ_LAUDO START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE SEQ_AUDIT_LOG START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE PACIENTE (
+    paciente_id       BIGINT       NOT NULL,
+    nome_completo     VARCHAR(255) NOT NULL,
+    data_nascimento   DATE         NOT NULL,
+    sexo              VARCHAR(1)   NOT NULL,
+    cpf               VARCHAR(11),
+    telefone          VARCHAR(20),
+    email             VARCHAR(255),
+    endereco_completo VARCHAR(500),
+    created_at        TIMESTAMP(6) NOT NULL,
+    updated_at        TIMESTAMP(6),
+    created_by        VARCHAR(100) NOT NULL,
+    CONSTRAINT PACIENTE_PK PRIMARY KEY (paciente_id),
+    CONSTRAINT PACIENTE_cpf_UN UNIQUE (cpf)
+);
+
+CREATE TABLE MEDICO (
+    medico_id     BIGINT       NOT NULL,
+    nome_completo VARCHAR(255) NOT NULL,
+    crm           VARCHAR(20)  NOT NULL,
+    uf_crm        CHAR(2)      NOT NULL,
+    especialidade VARCHAR(100),
+    tipo_medico   VARCHAR(20),
+    telefone      VARCHAR(20),
+    email         VARCHAR(255),
+    ativo         CHAR(1),
+    created_at    TIMESTAMP(6) NOT NULL,
+    updated_at    TIMESTAMP(6),
+    created_by    VARCHAR(100) NOT NULL,
+    CONSTRAINT MEDICO_PK PRIMARY KEY (medico_id),
+    CONSTRAINT MEDICO_uf_crm_crm_UN UNIQUE (uf_crm, crm)
+);
+
+CREATE TABLE AMOSTRA (
+    amostra_id            BIGINT       NOT NULL,
+    paciente_id           BIGINT       NOT NULL,
+    medico_id             BIGINT       NOT NULL,
+    codigo_rastreio       VARCHAR(50)  NOT NULL,
+    tipo_tecido           VARCHAR(100) NOT NULL,
+    localizacao_anatomica VARCHAR(200),
+    data_coleta           DATE         NOT NULL,
+    data_recebimento      DATE,
+    status_processamento  VARCHAR(50)  NOT NULL,
+    observacoes           CLOB,
+    created_at            TIMESTAMP(6) NOT NULL,
+    updated_at            TIMESTAMP(6),
+    created_by            VARCHAR(100) NOT NULL,
+    CONSTRAINT AMOSTRA_PK PRIMARY KEY (amostra_id, paciente_id, medico_id),
+    CONSTRAINT AMOSTRA_codigo_rastreio_UN UNIQUE (codigo_rastreio),
+    CONSTRAINT AMOSTRA_PACIENTE_FK FOREIGN KEY (paciente_id) REFERENCES PACIENTE (paciente_id),
+    CONSTRAINT AMOSTRA_MEDICO_FK FOREIGN KEY (medico_id) REFERENCES MEDICO (medico_id)
+);
+
+CREATE TABLE MEDICAO (
+    medicao_id            BIGINT        NOT NULL,
+    medico_id             BIGINT        NOT NULL,
+    amostra_id            BIGINT        NOT NULL,
+    paciente_id           BIGINT        NOT NULL,
+    largura_mm            NUMERIC(8, 2) NOT NULL,
+    altura_mm             NUMERIC(8, 2) NOT NULL,
+    profundidade_mm       NUMERIC(8, 2),
+    metodo_medicao        VARCHAR(100)  NOT NULL,
+    equipamento_utilizado VARCHAR(200),
+    versao                INTEGER       NOT NULL,
+    responsavel_medicao   VARCHAR(255)  NOT NULL,
+    data_hora_medicao     TIMESTAMP(6)  NOT NULL,
+    observacoes           VARCHAR(100),
+    ativa                 CHAR(1)       NOT NULL,
+    created_at            TIMESTAMP(6)  NOT NULL,
+    created_by            VARCHAR(100),
+    CONSTRAINT MEDICAO_PK PRIMARY KEY (medicao_id, medico_id),
+    CONSTRAINT MEDICAO_AMOSTRA_FK FOREIGN KEY (amostra_id, paciente_id, medico_id)
+        REFERENCES AMOSTRA (amostra_id, paciente_id, medico_id)
+);
+
+CREATE TABLE IMAGEM_AMOSTRA (
+    imagem_id           BIGINT        NOT NULL,
+    amostra_id          BIGINT        NOT NULL,
+    paciente_id         BIGINT        NOT NULL,
+    medico_id           BIGINT        NOT NULL,
+    nome_arquivo        VARCHAR(255)  NOT NULL,
+    caminho_arquivo     VARCHAR(500),
+    url_acesso          VARCHAR(1000),
+    tipo_arquivo        VARCHAR(10)   NOT NULL,
+    tamanho_bytes       BIGINT        NOT NULL,
+    descricao           VARCHAR(500),
+    data_captura        TIMESTAMP(6)  NOT NULL,
+    equipamento_captura VARCHAR(200),
+    resolucao           VARCHAR(50),
+    ativa               CHAR(1)       NOT NULL,
+    created_at          TIMESTAMP(6)  NOT NULL,
+    created_by          VARCHAR(100),
+    CONSTRAINT IMAGEM_AMOSTRA_PK PRIMARY KEY (imagem_id),
+    CONSTRAINT IMAGEM_AMOSTRA_AMOSTRA_FK FOREIGN KEY (amostra_id, paciente_id, medico_id)
+        REFERENCES AMOSTRA (amostra_id, paciente_id, medico_id)
+);
+
+CREATE TABLE LAUDO (
+    laudo_id                 BIGINT       NOT NULL,
+    amostra_id               BIGINT       NOT NULL,
+    paciente_id              BIGINT       NOT NULL,
+    medico_id                BIGINT       NOT NULL,
+    diagnostico_principal    CLOB         NOT NULL,
+    diagnosticos_secundarios CLOB,
+    conclusao                CLOB,
+    recomendacoes            CLOB,
+    status_laudo             VARCHAR(50)  NOT NULL,
+    data_emissao             DATE,
+    data_liberacao           DATE,
+    codigo_cid               VARCHAR(20)  NOT NULL,
+    created_at               TIMESTAMP(6) NOT NULL,
+    updated_at               TIMESTAMP(6),
+    created_by               VARCHAR(100),
+    CONSTRAINT LAUDO_PK PRIMARY KEY (laudo_id),
+    CONSTRAINT LAUDO_amostra_UN UNIQUE (amostra_id, paciente_id, medico_id),
+    CONSTRAINT LAUDO_AMOSTRA_FK FOREIGN KEY (amostra_id, paciente_id, medico_id)
+        REFERENCES AMOSTRA (amostra_id, paciente_id, medico_id),
+    CONSTRAINT LAUDO_MEDICO_FK FOREIGN KEY (medico_id) REFERENCES MEDICO (medico_id)
+);
+
+CREATE TABLE AUDIT_LOG (
+    audit_id           BIGINT       NOT NULL,
+    tabela_afetada     VARCHAR(100) NOT NULL,
+    registro_id        BIGINT       NOT NULL,
+    acao               VARCHAR(20)  NOT NULL,
+    valores_anteriores CLOB,
+    valores_novos      CLOB,
+    usuario            VARCHAR(100) NOT NULL,
+    data_hora          TIMESTAMP(6) NOT NULL,
+    ip_origem          VARCHAR(45),
+    aplicacao          VARCHAR(100),
+    sessao_id          VARCHAR(255),
+    CONSTRAINT AUDIT_LOG_PK PRIMARY KEY (audit_id)
+);
@@ -0,0 +1,21 @@
+-- Índices compostos para os caminhos de consulta da aplicação (H2).
+-- Manter alinhado com db/migration/oracle/V2__criar_indices_consultas.sql.
+
+-- Listagens filtradas por status e período de coleta
+CREATE INDEX AMOSTRA_status_data_coleta_IX ON AMOSTRA (status_processamento, data_coleta);
+
+-- Amostras de um médico solicitante por status (painel e contagens)
+CREATE INDEX AMOSTRA_medico_status_IX ON AMOSTRA (medico_id, status_processamento);
+
+-- Amostras de um paciente (a PK começa por amostra_id e não atende a busca por paciente)
+CREATE INDEX AMOSTRA_paciente_IX ON AMOSTRA (paciente_id);
+
+-- Medição/imagens ativas de uma amostra (findByAmostraAndAtiva)
+CREATE INDEX MEDICAO_amostra_ativa_IX ON MEDICAO (amostra_id, paciente_id, medico_id, ativa);
+CREATE INDEX IMAGEM_AMOSTRA_ativa_IX ON IMAGEM_AMOSTRA (amostra_id, paciente_id, medico_id, ativa);
+
+-- Filas de laudos por status
+CREATE INDEX LAUDO_status_laudo_IX ON LAUDO (status_laudo);
+
+-- Histórico de auditoria de um registro em ordem cronológica
+CREATE INDEX AUDIT_LOG_tabela_registro_IX ON AUDIT_LOG (tabela_afetada, registro_id, data_hora);
@@ -0,0 +1,28 @@
+-- Uma única medição ativa por amostra (H2).
+-- Manter alinhado com db/migration/oracle/V4__versao_ativa_unica_medicao.sql.
+
+-- Corrige amostras com mais de uma versão ativa, mantendo apenas a mais recente
+UPDATE MEDICAO m SET ativa = 'N'
+ WHERE m.ativa = 'S'
+   AND EXISTS (
+       SELECT 1
+         FROM MEDICAO o
+        WHERE o.amostra_id = m.amostra_id
+          AND o.paciente_id = m.paciente_id
+          AND o.medico_id = m.medico_id
+          AND o.ativa = 'S'
+          AND (o.versao > m.versao OR (o.versao = m.versao AND o.medicao_id > m.medicao_id)));
+
+-- H2 não tem índice parcial: colunas geradas ficam nulas nas versões inativas e
+-- a restrição única ignora linhas com valores nulos
+ALTER TABLE MEDICAO ADD COLUMN ativa_amostra_id BIGINT
+    GENERATED ALWAYS AS (CASE WHEN ativa = 'S' THEN amostra_id END);
+ALTER TABLE MEDICAO ADD COLUMN ativa_paciente_id BIGINT
+    GENERATED ALWAYS AS (CASE WHEN ativa = 'S' THEN paciente_id END);
+ALTER TABLE MEDICAO ADD COLUMN ativa_medico_id BIGINT
+    GENERATED ALWAYS AS (CASE WHEN ativa = 'S' THEN medico_id END);
+ALTER TABLE MEDICAO ADD CONSTRAINT MEDICAO_versao_ativa_UN
+    UNIQUE (ativa_amostra_id, ativa_paciente_id, ativa_medico_id);
+
+-- Localiza uma versão específica sem percorrer o histórico da amostra
+CREATE INDEX MEDICAO_amostra_versao_IX ON MEDICAO (amostra_id, paciente_id, medico_id, versao);
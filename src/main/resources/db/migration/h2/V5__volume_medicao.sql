@@ -0,0 +1,12 @@
+-- Volume calculado gravado na medição para agregações no banco (H2).
+-- Manter alinhado com db/migration/oracle/V5__volume_medicao.sql.
+
+ALTER TABLE MEDICAO ADD COLUMN volume_mm3 NUMERIC(20, 2);
+
+-- Mesma regra de Medicao.calcularVolume(): profundidade ausente não entra no produto
+UPDATE MEDICAO SET volume_mm3 = ROUND(largura_mm * altura_mm * COALESCE(profundidade_mm, 1), 2);
+
+ALTER TABLE MEDICAO ALTER COLUMN volume_mm3 SET NOT NULL;
+
+-- Cobre as estatísticas de volume das medições ativas sem acessar a tabela
+CREATE INDEX MEDICAO_volume_ativa_IX ON MEDICAO (ativa, metodo_medicao, volume_mm3, amostra_id, paciente_id, medico_id);
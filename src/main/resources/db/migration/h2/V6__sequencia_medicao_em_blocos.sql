@@ -0,0 +1,5 @@
+-- SEQ_MEDICAO passa a reservar blocos de 50 identificadores, alinhado ao allocationSize da
+-- entidade Medicao, para que importações em lote não consultem a sequência a cada linha (H2).
+-- Manter alinhado com db/migration/oracle/V6__sequencia_medicao_em_blocos.sql.
+
+ALTER SEQUENCE SEQ_MEDICAO INCREMENT BY 50;
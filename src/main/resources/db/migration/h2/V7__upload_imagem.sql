@@ -0,0 +1,25 @@
+-- Sessões de upload em partes de imagens de amostra (H2). Os bytes recebidos ficam em um arquivo
+-- temporário do armazenamento, cujo tamanho é o ponto de retomada; a linha é removida quando o upload
+-- termina e a IMAGEM_AMOSTRA é criada.
+-- Manter alinhado com db/migration/oracle/V7__upload_imagem.sql.
+
+CREATE TABLE IMAGEM_UPLOAD (
+    upload_id           VARCHAR(36)   NOT NULL,
+    amostra_id          BIGINT        NOT NULL,
+    paciente_id         BIGINT        NOT NULL,
+    medico_id           BIGINT        NOT NULL,
+    nome_arquivo        VARCHAR(255)  NOT NULL,
+    tipo_arquivo        VARCHAR(10)   NOT NULL,
+    tamanho_bytes       BIGINT        NOT NULL,
+    descricao           VARCHAR(500),
+    data_captura        TIMESTAMP(6)  NOT NULL,
+    equipamento_captura VARCHAR(200),
+    resolucao           VARCHAR(50),
+    created_at          TIMESTAMP(6)  NOT NULL,
+    created_by          VARCHAR(100),
+    CONSTRAINT IMAGEM_UPLOAD_PK PRIMARY KEY (upload_id),
+    CONSTRAINT IMAGEM_UPLOAD_AMOSTRA_FK FOREIGN KEY (amostra_id, paciente_id, medico_id)
+        REFERENCES AMOSTRA (amostra_id, paciente_id, medico_id)
+);
+
+CREATE INDEX IMAGEM_UPLOAD_amostra_IX ON IMAGEM_UPLOAD (amostra_id, paciente_id, medico_id);
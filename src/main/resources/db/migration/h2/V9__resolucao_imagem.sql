@@ -0,0 +1,26 @@
+-- Largura e altura da imagem extraídas de resolucao ("larguraxaltura") e indicadores de qualidade gravados
+-- na escrita, para filtrar imagens no banco sem interpretar o texto de cada linha (H2).
+-- Manter alinhado com db/migration/oracle/V9__resolucao_imagem.sql.
+
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN largura_px INTEGER;
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN altura_px INTEGER;
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN alta_resolucao CHAR(1) DEFAULT 'N' NOT NULL;
+ALTER TABLE IMAGEM_AMOSTRA ADD COLUMN qualidade_valida CHAR(1) DEFAULT 'N' NOT NULL;
+
+UPDATE IMAGEM_AMOSTRA SET
+    largura_px = CAST(SUBSTR(resolucao, 1, INSTR(resolucao, 'x') - 1) AS INTEGER),
+    altura_px = CAST(SUBSTR(resolucao, INSTR(resolucao, 'x') + 1) AS INTEGER)
+WHERE REGEXP_LIKE(resolucao, '^[0-9]{1,9}x[0-9]{1,9}$');
+
+-- Mesmas regras de ImagemAmostra.isAltaResolucao() e ImagemAmostra.validarQualidade()
+UPDATE IMAGEM_AMOSTRA SET
+    alta_resolucao = CASE WHEN largura_px >= 1920 AND altura_px >= 1080 THEN 'S' ELSE 'N' END,
+    qualidade_valida = CASE
+        WHEN tamanho_bytes BETWEEN 100000 AND 50000000
+             AND (resolucao IS NULL OR resolucao = '' OR (largura_px >= 640 AND altura_px >= 480)) THEN 'S'
+        ELSE 'N' END;
+
+-- Substitui IMAGEM_AMOSTRA_ativa_IX: mesmo prefixo, mais os indicadores filtrados por amostra
+CREATE INDEX IMAGEM_AMOSTRA_qualidade_IX ON IMAGEM_AMOSTRA
+    (amostra_id, paciente_id, medico_id, ativa, alta_resolucao, qualidade_valida);
+DROP INDEX IMAGEM_AMOSTRA_ativa_IX;
@@ -0,0 +1,16 @@
+-- Situação da leitura do cabeçalho dos arquivos de imagem, que confirma ou corrige as dimensões, o formato e o
+-- equipamento informados pelo cliente (Oracle).
+-- Manter alinhado com db/migration/h2/V10__metadados_imagem.sql.
+
+ALTER TABLE IMAGEM_AMOSTRA ADD (
+    status_metadados         VARCHAR2(20 CHAR) DEFAULT 'PENDENTE' NOT NULL,
+    motivo_metadados         VARCHAR2(500 CHAR),
+    metadados_verificados_em TIMESTAMP(6)
+);
+
+-- Imagens já registradas: as armazenadas por conteúdo ficam pendentes e são verificadas em segundo plano
+UPDATE IMAGEM_AMOSTRA SET status_metadados = 'SEM_ARQUIVO'
+WHERE caminho_arquivo IS NULL OR caminho_arquivo NOT LIKE 'sha256/%';
+
+-- Retomada das imagens pendentes, em ordem de chave
+CREATE INDEX IMAGEM_AMOSTRA_metadados_IX ON IMAGEM_AMOSTRA (status_metadados, imagem_id);
@@ -0,0 +1,21 @@
+-- Métricas de foco, coloração e tecido calculadas sobre o arquivo de cada imagem armazenada, e a sinalização
+-- automática das capturas a redigitalizar (Oracle).
+-- Manter alinhado com db/migration/h2/V11__analise_qualidade_imagem.sql.
+
+ALTER TABLE IMAGEM_AMOSTRA ADD (
+    status_analise_qualidade VARCHAR2(20 CHAR)  DEFAULT 'PENDENTE' NOT NULL,
+    nitidez                  NUMBER(12, 2),
+    fracao_desfocada         NUMBER(5, 4),
+    cobertura_tecido         NUMBER(5, 4),
+    saturacao_media          NUMBER(5, 4),
+    brilho_medio             NUMBER(5, 4),
+    alertas_qualidade        VARCHAR2(100 CHAR),
+    qualidade_analisada_em   TIMESTAMP(6)
+);
+
+-- Imagens já registradas fora do armazenamento por conteúdo não têm arquivo para analisar
+UPDATE IMAGEM_AMOSTRA SET status_analise_qualidade = 'NAO_APLICAVEL'
+WHERE status_metadados IN ('SEM_ARQUIVO', 'FALHA');
+
+-- Retomada das análises pendentes, em ordem de chave
+CREATE INDEX IMAGEM_AMOSTRA_analise_IX ON IMAGEM_AMOSTRA (status_analise_qualidade, imagem_id);
@@ -0,0 +1,28 @@
+-- Varredura de integridade do armazenamento de imagens (Oracle): resultado da última verificação de cada conteúdo
+-- (tamanho e SHA-256 relidos do disco) e ponto de retomada da varredura, em ordem de hash.
+-- Manter alinhado com db/migration/h2/V13__integridade_armazenamento.sql.
+
+ALTER TABLE CONTEUDO_IMAGEM ADD (
+    status_integridade        VARCHAR2(20 CHAR)  DEFAULT 'PENDENTE' NOT NULL,
+    integridade_verificada_em TIMESTAMP(6)
+);
+
+-- Contagem por resultado no acompanhamento da varredura
+CREATE INDEX CONTEUDO_IMAGEM_integridade_IX ON CONTEUDO_IMAGEM (status_integridade);
+
+CREATE TABLE VARREDURA_INTEGRIDADE (
+    id                  NUMBER(10)         NOT NULL,
+    ciclo               NUMBER(10)         NOT NULL,
+    ultimo_sha256       VARCHAR2(64 CHAR),
+    ciclo_iniciado_em   TIMESTAMP(6),
+    ciclo_concluido_em  TIMESTAMP(6),
+    objetos_verificados NUMBER(19)         NOT NULL,
+    bytes_verificados   NUMBER(19)         NOT NULL,
+    falhas              NUMBER(19)         NOT NULL,
+    atualizado_em       TIMESTAMP(6),
+    CONSTRAINT VARREDURA_INTEGRIDADE_PK PRIMARY KEY (id),
+    CONSTRAINT VARREDURA_INTEGRIDADE_id_CK CHECK (id = 1)
+);
+
+INSERT INTO VARREDURA_INTEGRIDADE (id, ciclo, objetos_verificados, bytes_verificados, falhas)
+VALUES (1, 0, 0, 0, 0);
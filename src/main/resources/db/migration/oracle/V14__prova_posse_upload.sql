@@ -0,0 +1,9 @@
+-- Prova de posse no upload de conteúdo já armazenado (Oracle): o SHA-256 declarado pelo cliente e o trecho
+-- sorteado que ele deve enviar; a imagem só referencia o arquivo existente se os bytes desse trecho conferirem.
+-- Manter alinhado com db/migration/h2/V14__prova_posse_upload.sql.
+
+ALTER TABLE IMAGEM_UPLOAD ADD (
+    sha256       VARCHAR2(64 CHAR),
+    prova_inicio NUMBER(19),
+    prova_fim    NUMBER(19)
+);
@@ -0,0 +1,7 @@
+-- Tentativas de leitura do cabeçalho das imagens pendentes que terminaram em erro inesperado (Oracle); ao atingir
+-- analisepatologica.metadados.tentativas-maximas a imagem passa a FALHA e deixa de ser retomada.
+-- Manter alinhado com db/migration/h2/V15__tentativas_metadados.sql.
+
+ALTER TABLE IMAGEM_AMOSTRA ADD (
+    tentativas_metadados NUMBER(10) DEFAULT 0 NOT NULL
+);
@@ -0,0 +1,35 @@
+-- Contadores de prontidão da amostra, sequência em blocos e índices das listagens de amostras (Oracle).
+-- Manter alinhado com db/migration/h2/V16__contadores_indices_amostra.sql.
+
+-- SEQ_AMOSTRA reserva blocos de 50 identificadores, alinhado ao allocationSize da entidade Amostra
+ALTER SEQUENCE SEQ_AMOSTRA INCREMENT BY 50;
+
+-- Medições e imagens ativas de cada amostra, mantidos pela aplicação a partir daqui
+ALTER TABLE AMOSTRA ADD (
+    total_medicoes       NUMBER(10) DEFAULT 0 NOT NULL,
+    total_imagens_ativas NUMBER(10) DEFAULT 0 NOT NULL
+);
+
+UPDATE AMOSTRA a SET
+    total_medicoes = (
+        SELECT COUNT(*)
+          FROM MEDICAO m
+         WHERE m.amostra_id = a.amostra_id
+           AND m.paciente_id = a.paciente_id
+           AND m.medico_id = a.medico_id),
+    total_imagens_ativas = (
+        SELECT COUNT(*)
+          FROM IMAGEM_AMOSTRA i
+         WHERE i.amostra_id = a.amostra_id
+           AND i.paciente_id = a.paciente_id
+           AND i.medico_id = a.medico_id
+           AND i.ativa = 'S');
+
+-- Paginação por cursor (created_at, amostra_id)
+CREATE INDEX AMOSTRA_created_at_IX ON AMOSTRA (created_at, amostra_id);
+
+-- Amostras prontas para análise (com medição e imagem ativa)
+CREATE INDEX AMOSTRA_prontidao_IX ON AMOSTRA (total_medicoes, total_imagens_ativas);
+
+-- Sugestões e filtros por tipo de tecido
+CREATE INDEX AMOSTRA_tipo_tecido_IX ON AMOSTRA (tipo_tecido);
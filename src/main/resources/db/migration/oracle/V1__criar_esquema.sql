@@ -0,0 +1,145 @@
+-- Esquema inicial do sistema de análise patológica (Oracle).
+-- Espelha o mapeamento JPA das entidades; alterações futuras devem entrar em novas versões.
+
+CREATE SEQUENCE SEQ_PACIENTE START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE SEQ_MEDICO START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE SEQ_AMOSTRA START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE SEQ_MEDICAO START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE SEQ_IMAGEM_AMOSTRA START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE SEQ_LAUDO START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE SEQ_AUDIT_LOG START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE PACIENTE (
+    paciente_id       NUMBER(19)         NOT NULL,
+    nome_completo     VARCHAR2(255 CHAR) NOT NULL,
+    data_nascimento   DATE               NOT NULL,
+    sexo              VARCHAR2(1 CHAR)   NOT NULL,
+    cpf               VARCHAR2(11 CHAR),
+    telefone          VARCHAR2(20 CHAR),
+    email             VARCHAR2(255 CHAR),
+    endereco_completo VARCHAR2(500 CHAR),
+    created_at        TIMESTAMP(6)       NOT NULL,
+    updated_at        TIMESTAMP(6),
+    created_by        VARCHAR2(100 CHAR) NOT NULL,
+    CONSTRAINT PACIENTE_PK PRIMARY KEY (paciente_id),
+    CONSTRAINT PACIENTE_cpf_UN UNIQUE (cpf)
+);
+
+CREATE TABLE MEDICO (
+    medico_id     NUMBER(19)         NOT NULL,
+    nome_completo VARCHAR2(255 CHAR) NOT NULL,
+    crm           VARCHAR2(20 CHAR)  NOT NULL,
+    uf_crm        CHAR(2 CHAR)       NOT NULL,
+    especialidade VARCHAR2(100 CHAR),
+    tipo_medico   VARCHAR2(20 CHAR),
+    telefone      VARCHAR2(20 CHAR),
+    email         VARCHAR2(255 CHAR),
+    ativo         CHAR(1 CHAR),
+    created_at    TIMESTAMP(6)       NOT NULL,
+    updated_at    TIMESTAMP(6),
+    created_by    VARCHAR2(100 CHAR) NOT NULL,
+    CONSTRAINT MEDICO_PK PRIMARY KEY (medico_id),
+    CONSTRAINT MEDICO_uf_crm_crm_UN UNIQUE (uf_crm, crm)
+);
+
+CREATE TABLE AMOSTRA (
+    amostra_id            NUMBER(19)         NOT NULL,
+    paciente_id           NUMBER(19)         NOT NULL,
+    medico_id             NUMBER(19)         NOT NULL,
+    codigo_rastreio       VARCHAR2(50 CHAR)  NOT NULL,
+    tipo_tecido           VARCHAR2(100 CHAR) NOT NULL,
+    localizacao_anatomica VARCHAR2(200 CHAR),
+    data_coleta           DATE               NOT NULL,
+    data_recebimento      DATE,
+    status_processamento  VARCHAR2(50 CHAR)  NOT NULL,
+    observacoes           CLOB,
+    created_at            TIMESTAMP(6)       NOT NULL,
+    updated_at            TIMESTAMP(6),
+    created_by            VARCHAR2(100 CHAR) NOT NULL,
+    CONSTRAINT AMOSTRA_PK PRIMARY KEY (amostra_id, paciente_id, medico_id),
+    CONSTRAINT AMOSTRA_codigo_rastreio_UN UNIQUE (codigo_rastreio),
+    CONSTRAINT AMOSTRA_PACIENTE_FK FOREIGN KEY (paciente_id) REFERENCES PACIENTE (paciente_id),
+    CONSTRAINT AMOSTRA_MEDICO_FK FOREIGN KEY (medico_id) REFERENCES MEDICO (medico_id)
+);
+
+CREATE TABLE MEDICAO (
+    medicao_id            NUMBER(19)         NOT NULL,
+    medico_id             NUMBER(19)         NOT NULL,
+    amostra_id            NUMBER(19)         NOT NULL,
+    paciente_id           NUMBER(19)         NOT NULL,
+    largura_mm            NUMBER(8, 2)       NOT NULL,
+    altura_mm             NUMBER(8, 2)       NOT NULL,
+    profundidade_mm       NUMBER(8, 2),
+    metodo_medicao        VARCHAR2(100 CHAR) NOT NULL,
+    equipamento_utilizado VARCHAR2(200 CHAR),
+    versao                NUMBER(10)         NOT NULL,
+    responsavel_medicao   VARCHAR2(255 CHAR) NOT NULL,
+    data_hora_medicao     TIMESTAMP(6)       NOT NULL,
+    observacoes           VARCHAR2(100 CHAR),
+    ativa                 CHAR(1 CHAR)       NOT NULL,
+    created_at            TIMESTAMP(6)       NOT NULL,
+    created_by            VARCHAR2(100 CHAR),
+    CONSTRAINT MEDICAO_PK PRIMARY KEY (medicao_id, medico_id),
+    CONSTRAINT MEDICAO_AMOSTRA_FK FOREIGN KEY (amostra_id, paciente_id, medico_id)
+        REFERENCES AMOSTRA (amostra_id, paciente_id, medico_id)
+);
+
+CREATE TABLE IMAGEM_AMOSTRA (
+    imagem_id           NUMBER(19)          NOT NULL,
+    amostra_id          NUMBER(19)          NOT NULL,
+    paciente_id         NUMBER(19)          NOT NULL,
+    medico_id           NUMBER(19)          NOT NULL,
+    nome_arquivo        VARCHAR2(255 CHAR)  NOT NULL,
+    caminho_arquivo     VARCHAR2(500 CHAR),
+    url_acesso          VARCHAR2(1000 CHAR),
+    tipo_arquivo        VARCHAR2(10 CHAR)   NOT NULL,
+    tamanho_bytes       NUMBER(19)          NOT NULL,
+    descricao           VARCHAR2(500 CHAR),
+    data_captura        TIMESTAMP(6)        NOT NULL,
+    equipamento_captura VARCHAR2(200 CHAR),
+    resolucao           VARCHAR2(50 CHAR),
+    ativa               CHAR(1 CHAR)        NOT NULL,
+    created_at          TIMESTAMP(6)        NOT NULL,
+    created_by          VARCHAR2(100 CHAR),
+    CONSTRAINT IMAGEM_AMOSTRA_PK PRIMARY KEY (imagem_id),
+    CONSTRAINT IMAGEM_AMOSTRA_AMOSTRA_FK FOREIGN KEY (amostra_id, paciente_id, medico_id)
+        REFERENCES AMOSTRA (amostra_id, paciente_id, medico_id)
+);
+
+CREATE TABLE LAUDO (
+    laudo_id                 NUMBER(19)         NOT NULL,
+    amostra_id               NUMBER(19)         NOT NULL,
+    paciente_id              NUMBER(19)         NOT NULL,
+    medico_id                NUMBER(19)         NOT NULL,
+    diagnostico_principal    CLOB               NOT NULL,
+    diagnosticos_secundarios CLOB,
+    conclusao                CLOB,
+    recomendacoes            CLOB,
+    status_laudo             VARCHAR2(50 CHAR)  NOT NULL,
+    data_emissao             DATE,
+    data_liberacao           DATE,
+    codigo_cid               VARCHAR2(20 CHAR)  NOT NULL,
+    created_at               TIMESTAMP(6)       NOT NULL,
+    updated_at               TIMESTAMP(6),
+    created_by               VARCHAR2(100 CHAR),
+    CONSTRAINT LAUDO_PK PRIMARY KEY (laudo_id),
+    CONSTRAINT LAUDO_amostra_UN UNIQUE (amostra_id, paciente_id, medico_id),
+    CONSTRAINT LAUDO_AMOSTRA_FK FOREIGN KEY (amostra_id, paciente_id, medico_id)
+        REFERENCES AMOSTRA (amostra_id, paciente_id, medico_id),
+    CONSTRAINT LAUDO_MEDICO_FK FOREIGN KEY (medico_id) REFERENCES MEDICO (medico_id)
+);
+
+CREATE TABLE AUDIT_LOG (
+    audit_id           NUMBER(19)         NOT NULL,
+    tabela_afetada     VARCHAR2(100 CHAR) NOT NULL,
+    registro_id        NUMBER(19)         NOT NULL,
+    acao               VARCHAR2(20 CHAR)  NOT NULL,
+    valores_anteriores CLOB,
+    valores_novos      CLOB,
+    usuario            VARCHAR2(100 CHAR) NOT NULL,
+    data_hora          TIMESTAMP(6)       NOT NULL,
+    ip_origem          VARCHAR2(45 CHAR),
+    aplicacao          VARCHAR2(100 CHAR),
+    sessao_id          VARCHAR2(255 CHAR),
+    CONSTRAINT AUDIT_LOG_PK PRIMARY KEY (audit_id)
+);
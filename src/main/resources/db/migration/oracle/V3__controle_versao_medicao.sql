@@ -0,0 +1,11 @@
+-- Contador de versões de medição por amostra (Oracle).
+-- Manter alinhado com db/migration/h2/V3__controle_versao_medicao.sql.
+
+ALTER TABLE AMOSTRA ADD ultima_versao_medicao NUMBER(10) DEFAULT 0 NOT NULL;
+
+UPDATE AMOSTRA a SET ultima_versao_medicao = COALESCE((
+    SELECT MAX(m.versao)
+      FROM MEDICAO m
+     WHERE m.amostra_id = a.amostra_id
+       AND m.paciente_id = a.paciente_id
+       AND m.medico_id = a.medico_id), 0);
@@ -0,0 +1,23 @@
+-- Uma única medição ativa por amostra (Oracle).
+-- Manter alinhado com db/migration/h2/V4__versao_ativa_unica_medicao.sql.
+
+-- Corrige amostras com mais de uma versão ativa, mantendo apenas a mais recente
+UPDATE MEDICAO m SET ativa = 'N'
+ WHERE m.ativa = 'S'
+   AND EXISTS (
+       SELECT 1
+         FROM MEDICAO o
+        WHERE o.amostra_id = m.amostra_id
+          AND o.paciente_id = m.paciente_id
+          AND o.medico_id = m.medico_id
+          AND o.ativa = 'S'
+          AND (o.versao > m.versao OR (o.versao = m.versao AND o.medicao_id > m.medicao_id)));
+
+-- Índice único parcial: chaves totalmente nulas (versões inativas) não entram no índice
+CREATE UNIQUE INDEX MEDICAO_versao_ativa_UX ON MEDICAO (
+    CASE WHEN ativa = 'S' THEN amostra_id END,
+    CASE WHEN ativa = 'S' THEN paciente_id END,
+    CASE WHEN ativa = 'S' THEN medico_id END);
+
+-- Localiza uma versão específica sem percorrer o histórico da amostra
+CREATE INDEX MEDICAO_amostra_versao_IX ON MEDICAO (amostra_id, paciente_id, medico_id, versao);
@@ -0,0 +1,5 @@
+-- SEQ_MEDICAO passa a reservar blocos de 50 identificadores, alinhado ao allocationSize da
+-- entidade Medicao, para que importações em lote não consultem a sequência a cada linha (Oracle).
+-- Manter alinhado com db/migration/h2/V6__sequencia_medicao_em_blocos.sql.
+
+ALTER SEQUENCE SEQ_MEDICAO INCREMENT BY 50;
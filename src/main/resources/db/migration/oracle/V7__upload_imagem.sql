@@ -0,0 +1,25 @@
+-- Sessões de upload em partes de imagens de amostra (Oracle). Os bytes recebidos ficam em um arquivo
+-- temporário do armazenamento, cujo tamanho é o ponto de retomada; a linha é removida quando o upload
+-- termina e a IMAGEM_AMOSTRA é criada.
+-- Manter alinhado com db/migration/h2/V7__upload_imagem.sql.
+
+CREATE TABLE IMAGEM_UPLOAD (
+    upload_id           VARCHAR2(36 CHAR)   NOT NULL,
+    amostra_id          NUMBER(19)          NOT NULL,
+    paciente_id         NUMBER(19)          NOT NULL,
+    medico_id           NUMBER(19)          NOT NULL,
+    nome_arquivo        VARCHAR2(255 CHAR)  NOT NULL,
+    tipo_arquivo        VARCHAR2(10 CHAR)   NOT NULL,
+    tamanho_bytes       NUMBER(19)          NOT NULL,
+    descricao           VARCHAR2(500 CHAR),
+    data_captura        TIMESTAMP(6)        NOT NULL,
+    equipamento_captura VARCHAR2(200 CHAR),
+    resolucao           VARCHAR2(50 CHAR),
+    created_at          TIMESTAMP(6)        NOT NULL,
+    created_by          VARCHAR2(100 CHAR),
+    CONSTRAINT IMAGEM_UPLOAD_PK PRIMARY KEY (upload_id),
+    CONSTRAINT IMAGEM_UPLOAD_AMOSTRA_FK FOREIGN KEY (amostra_id, paciente_id, medico_id)
+        REFERENCES AMOSTRA (amostra_id, paciente_id, medico_id)
+);
+
+CREATE INDEX IMAGEM_UPLOAD_amostra_IX ON IMAGEM_UPLOAD (amostra_id, paciente_id, medico_id);
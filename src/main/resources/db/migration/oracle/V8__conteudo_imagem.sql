@@ -0,0 +1,20 @@
+-- Índice dos conteúdos de imagem armazenados por hash (Oracle). Cada IMAGEM_AMOSTRA cujo caminho_arquivo é um
+-- endereço de conteúdo (sha256/<aa>/<bb>/<hash>) conta uma referência; os bytes só são apagados do
+-- armazenamento quando a última referência é removida.
+-- Manter alinhado com db/migration/h2/V8__conteudo_imagem.sql.
+
+CREATE TABLE CONTEUDO_IMAGEM (
+    sha256        VARCHAR2(64 CHAR)   NOT NULL,
+    tamanho_bytes NUMBER(19)          NOT NULL,
+    referencias   NUMBER(10)          NOT NULL,
+    created_at    TIMESTAMP(6)        NOT NULL,
+    CONSTRAINT CONTEUDO_IMAGEM_PK PRIMARY KEY (sha256),
+    CONSTRAINT CONTEUDO_IMAGEM_referencias_CK CHECK (referencias >= 0)
+);
+
+-- Imagens enviadas antes desta versão
+INSERT INTO CONTEUDO_IMAGEM (sha256, tamanho_bytes, referencias, created_at)
+SELECT SUBSTR(caminho_arquivo, LENGTH(caminho_arquivo) - 63), MAX(tamanho_bytes), COUNT(*), SYSTIMESTAMP
+FROM IMAGEM_AMOSTRA
+WHERE caminho_arquivo LIKE 'sha256/%'
+GROUP BY SUBSTR(caminho_arquivo, LENGTH(caminho_arquivo) - 63);
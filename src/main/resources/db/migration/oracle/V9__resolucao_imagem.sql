@@ -0,0 +1,28 @@
+-- Largura e altura da imagem extraídas de resolucao ("larguraxaltura") e indicadores de qualidade gravados
+-- na escrita, para filtrar imagens no banco sem interpretar o texto de cada linha (Oracle).
+-- Manter alinhado com db/migration/h2/V9__resolucao_imagem.sql.
+
+ALTER TABLE IMAGEM_AMOSTRA ADD (
+    largura_px       NUMBER(10),
+    altura_px        NUMBER(10),
+    alta_resolucao   CHAR(1) DEFAULT 'N' NOT NULL,
+    qualidade_valida CHAR(1) DEFAULT 'N' NOT NULL
+);
+
+UPDATE IMAGEM_AMOSTRA SET
+    largura_px = TO_NUMBER(SUBSTR(resolucao, 1, INSTR(resolucao, 'x') - 1)),
+    altura_px = TO_NUMBER(SUBSTR(resolucao, INSTR(resolucao, 'x') + 1))
+WHERE REGEXP_LIKE(resolucao, '^[0-9]{1,9}x[0-9]{1,9}$');
+
+-- Mesmas regras de ImagemAmostra.isAltaResolucao() e ImagemAmostra.validarQualidade()
+UPDATE IMAGEM_AMOSTRA SET
+    alta_resolucao = CASE WHEN largura_px >= 1920 AND altura_px >= 1080 THEN 'S' ELSE 'N' END,
+    qualidade_valida = CASE
+        WHEN tamanho_bytes BETWEEN 100000 AND 50000000
+             AND (resolucao IS NULL OR (largura_px >= 640 AND altura_px >= 480)) THEN 'S'
+        ELSE 'N' END;
+
+-- Substitui IMAGEM_AMOSTRA_ativa_IX: mesmo prefixo, mais os indicadores filtrados por amostra
+CREATE INDEX IMAGEM_AMOSTRA_qualidade_IX ON IMAGEM_AMOSTRA
+    (amostra_id, paciente_id, medico_id, ativa, alta_resolucao, qualidade_valida);
+DROP INDEX IMAGEM_AMOSTRA_ativa_IX;
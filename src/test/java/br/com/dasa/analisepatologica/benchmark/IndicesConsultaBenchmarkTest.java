@@ -0,0 +1,234 @@
+package br.com.dasa.analisepatologica.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Compares plans and latencies of the application query paths before (V1) and after (V2)
+ * the index migrations, on an H2 database seeded with synthetic data. The schema is pinned to V2
+ * so later migrations do not blur the effect of these indexes.
+ *
+ * Run with: mvn test -Dtest=IndicesConsultaBenchmarkTest -Dbenchmark=true [-Dbenchmark.amostras=200000]
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class IndicesConsultaBenchmarkTest {
+
+    private static final int TOTAL_AMOSTRAS = Integer.getInteger("benchmark.amostras", 100_000);
+    private static final int TOTAL_PACIENTES = Math.max(1, TOTAL_AMOSTRAS / 5);
+    private static final int TOTAL_MEDICOS = 200;
+    private static final int AQUECIMENTO = 20;
+    private static final int EXECUCOES = 100;
+    private static final int LOTE = 5_000;
+
+    private static final String[] STATUS_AMOSTRA = {
+        "RECEBIDA", "EM PROCESSAMENTO", "MEDIDA", "ANALISADA", "LAUDADA", "LIBERADA", "CANCELADA"
+    };
+    private static final String[] STATUS_LAUDO = {"RASCUNHO", "REVISAO", "EMITIDO", "LIBERADO", "CANCELADO"};
+    private static final String[] TABELAS_AUDITADAS = {"AMOSTRA", "MEDICAO", "IMAGEM_AMOSTRA", "LAUDO"};
+    private static final LocalDate INICIO_COLETA = LocalDate.of(2023, 1, 1);
+    private static final LocalDateTime AGORA = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private record Consulta(String nome, String sql, Object... parametros) {
+    }
+
+    private record Medida(String plano, long medianaMicros, long p95Micros, Object resultado) {
+    }
+
+    @Test
+    void comparaPlanosELatenciasAntesEDepoisDosIndices() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:benchmark-indices;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        flyway(dataSource, "1").migrate();
+        popular(jdbc);
+        jdbc.execute("ANALYZE");
+        Map<String, Medida> antes = medir(jdbc);
+
+        flyway(dataSource, "2").migrate();
+        jdbc.execute("ANALYZE");
+        Map<String, Medida> depois = medir(jdbc);
+
+        registrarRelatorio(antes, depois);
+        antes.forEach((nome, medida) -> {
+            Medida nova = depois.get(nome);
+            assertEquals(medida.resultado(), nova.resultado(), "Resultado divergente em " + nome);
+            assertFalse(nova.plano().contains("tableScan"), "Consulta sem índice após V2: " + nome + "\n" + nova.plano());
+        });
+    }
+
+    private static Flyway flyway(JdbcDataSource dataSource, String versaoAlvo) {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/h2")
+                .target(versaoAlvo)
+                .load();
+    }
+
+    private static List<Consulta> consultas() {
+        LocalDate inicio = INICIO_COLETA.plusDays(100);
+        return List.of(
+            new Consulta("Amostras por status e período de coleta",
+                "SELECT COUNT(*) FROM AMOSTRA WHERE status_processamento = ? AND data_coleta BETWEEN ? AND ?",
+                "ANALISADA", Date.valueOf(inicio), Date.valueOf(inicio.plusDays(30))),
+            new Consulta("Amostras de um médico por status",
+                "SELECT COUNT(*) FROM AMOSTRA WHERE medico_id = ? AND status_processamento = ?",
+                42L, "RECEBIDA"),
+            new Consulta("Amostras de um paciente",
+                "SELECT COUNT(*) FROM AMOSTRA WHERE paciente_id = ?",
+                (long) TOTAL_PACIENTES / 2),
+            new Consulta("Medição ativa de uma amostra",
+                "SELECT COUNT(*) FROM MEDICAO WHERE amostra_id = ? AND paciente_id = ? AND medico_id = ? AND ativa = 'S'",
+                chaveAmostra(TOTAL_AMOSTRAS / 2)),
+            new Consulta("Imagens ativas de uma amostra",
+                "SELECT COUNT(*) FROM IMAGEM_AMOSTRA WHERE amostra_id = ? AND paciente_id = ? AND medico_id = ? AND ativa = 'S'",
+                chaveAmostra(TOTAL_AMOSTRAS / 2)),
+            new Consulta("Laudos por status",
+                "SELECT COUNT(*) FROM LAUDO WHERE status_laudo = ?",
+                "REVISAO"),
+            new Consulta("Histórico de auditoria de um registro",
+                "SELECT COUNT(*) FROM AUDIT_LOG WHERE tabela_afetada = ? AND registro_id = ? AND data_hora >= ?",
+                "AMOSTRA", (long) TOTAL_AMOSTRAS / 3, Timestamp.valueOf(AGORA.minusYears(1)))
+        );
+    }
+
+    private static Object[] chaveAmostra(long amostraId) {
+        return new Object[] {amostraId, pacienteDa(amostraId), medicoDa(amostraId)};
+    }
+
+    private static long pacienteDa(long amostraId) {
+        return amostraId % TOTAL_PACIENTES + 1;
+    }
+
+    private static long medicoDa(long amostraId) {
+        return amostraId % TOTAL_MEDICOS + 1;
+    }
+
+    private static void popular(JdbcTemplate jdbc) {
+        Timestamp criacao = Timestamp.valueOf(AGORA);
+
+        inserirEmLotes(jdbc, "INSERT INTO MEDICO (medico_id, nome_completo, crm, uf_crm, tipo_medico, ativo, created_at, created_by) "
+                + "VALUES (?, ?, ?, 'SP', ?, 'S', ?, 'benchmark')", TOTAL_MEDICOS,
+            id -> new Object[] {id, "Médico " + id, "CRM" + id, id % 2 == 0 ? "PATOLOGISTA" : "SOLICITANTE", criacao});
+
+        inserirEmLotes(jdbc, "INSERT INTO PACIENTE (paciente_id, nome_completo, data_nascimento, sexo, created_at, created_by) "
+                + "VALUES (?, ?, ?, ?, ?, 'benchmark')", TOTAL_PACIENTES,
+            id -> new Object[] {id, "Paciente " + id, Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(id % 20_000)),
+                id % 2 == 0 ? "F" : "M", criacao});
+
+        inserirEmLotes(jdbc, "INSERT INTO AMOSTRA (amostra_id, paciente_id, medico_id, codigo_rastreio, tipo_tecido, "
+                + "data_coleta, status_processamento, created_at, created_by) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 'benchmark')", TOTAL_AMOSTRAS,
+            id -> new Object[] {id, pacienteDa(id), medicoDa(id), "BENCH-" + id, "Tecido " + (id % 300),
+                Date.valueOf(INICIO_COLETA.plusDays(id % 365)), STATUS_AMOSTRA[(int) (id % STATUS_AMOSTRA.length)],
+                Timestamp.valueOf(AGORA.minusMinutes(TOTAL_AMOSTRAS - id))});
+
+        // Duas versões por amostra: a primeira inativa, a segunda ativa
+        inserirEmLotes(jdbc, "INSERT INTO MEDICAO (medicao_id, medico_id, amostra_id, paciente_id, largura_mm, altura_mm, "
+                + "metodo_medicao, versao, responsavel_medicao, data_hora_medicao, ativa, created_at) "
+                + "VALUES (?, ?, ?, ?, 10.5, 8.25, 'Paquímetro', ?, 'benchmark', ?, ?, ?)", TOTAL_AMOSTRAS * 2L,
+            id -> {
+                long amostraId = (id + 1) / 2;
+                boolean ativa = id % 2 == 0;
+                return new Object[] {id, medicoDa(amostraId), amostraId, pacienteDa(amostraId), ativa ? 2 : 1,
+                    criacao, ativa ? "S" : "N", criacao};
+            });
+
+        inserirEmLotes(jdbc, "INSERT INTO IMAGEM_AMOSTRA (imagem_id, amostra_id, paciente_id, medico_id, nome_arquivo, "
+                + "tipo_arquivo, tamanho_bytes, data_captura, ativa, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, 'tiff', 1048576, ?, ?, ?)", TOTAL_AMOSTRAS * 2L,
+            id -> {
+                long amostraId = (id + 1) / 2;
+                return new Object[] {id, amostraId, pacienteDa(amostraId), medicoDa(amostraId), "imagem-" + id + ".tiff",
+                    criacao, id % 2 == 0 ? "S" : "N", criacao};
+            });
+
+        inserirEmLotes(jdbc, "INSERT INTO LAUDO (laudo_id, amostra_id, paciente_id, medico_id, diagnostico_principal, "
+                + "status_laudo, codigo_cid, created_at) VALUES (?, ?, ?, ?, 'Diagnóstico', ?, 'C50.9', ?)",
+            TOTAL_AMOSTRAS / 2,
+            id -> {
+                long amostraId = id * 2;
+                return new Object[] {id, amostraId, pacienteDa(amostraId), medicoDa(amostraId),
+                    STATUS_LAUDO[(int) (id % STATUS_LAUDO.length)], criacao};
+            });
+
+        inserirEmLotes(jdbc, "INSERT INTO AUDIT_LOG (audit_id, tabela_afetada, registro_id, acao, usuario, data_hora) "
+                + "VALUES (?, ?, ?, 'UPDATE', 'benchmark', ?)", TOTAL_AMOSTRAS * 4L,
+            id -> new Object[] {id, TABELAS_AUDITADAS[(int) (id % TABELAS_AUDITADAS.length)], id / TABELAS_AUDITADAS.length,
+                Timestamp.valueOf(AGORA.minusHours(id % 20_000))});
+    }
+
+    private interface Linha {
+        Object[] para(long id);
+    }
+
+    private static void inserirEmLotes(JdbcTemplate jdbc, String sql, long total, Linha linha) {
+        List<Object[]> lote = new ArrayList<>(LOTE);
+        for (long id = 1; id <= total; id++) {
+            lote.add(linha.para(id));
+            if (lote.size() == LOTE || id == total) {
+                jdbc.batchUpdate(sql, lote);
+                lote.clear();
+            }
+        }
+    }
+
+    private static Map<String, Medida> medir(JdbcTemplate jdbc) {
+        Map<String, Medida> medidas = new LinkedHashMap<>();
+        for (Consulta consulta : consultas()) {
+            String plano = jdbc.queryForObject("EXPLAIN " + consulta.sql(), String.class, consulta.parametros());
+            Object resultado = null;
+            for (int i = 0; i < AQUECIMENTO; i++) {
+                resultado = jdbc.queryForObject(consulta.sql(), Long.class, consulta.parametros());
+            }
+            long[] tempos = new long[EXECUCOES];
+            for (int i = 0; i < EXECUCOES; i++) {
+                long inicio = System.nanoTime();
+                jdbc.queryForObject(consulta.sql(), Long.class, consulta.parametros());
+                tempos[i] = (System.nanoTime() - inicio) / 1_000;
+            }
+            Arrays.sort(tempos);
+            medidas.put(consulta.nome(), new Medida(plano, tempos[EXECUCOES / 2],
+                tempos[(int) Math.ceil(EXECUCOES * 0.95) - 1], resultado));
+        }
+        return medidas;
+    }
+
+    private static void registrarRelatorio(Map<String, Medida> antes, Map<String, Medida> depois) {
+        StringBuilder relatorio = new StringBuilder()
+            .append("\nÍndices de consulta - H2, ").append(TOTAL_AMOSTRAS).append(" amostras\n\n")
+            .append("| Consulta | Mediana antes (µs) | Mediana depois (µs) | p95 antes (µs) | p95 depois (µs) |\n")
+            .append("|---|---:|---:|---:|---:|\n");
+        antes.forEach((nome, medida) -> {
+            Medida nova = depois.get(nome);
+            relatorio.append("| ").append(nome)
+                .append(" | ").append(medida.medianaMicros())
+                .append(" | ").append(nova.medianaMicros())
+                .append(" | ").append(medida.p95Micros())
+                .append(" | ").append(nova.p95Micros())
+                .append(" |\n");
+        });
+        antes.forEach((nome, medida) -> relatorio.append("\n### ").append(nome)
+            .append("\nAntes:\n").append(medida.plano())
+            .append("\nDepois:\n").append(depois.get(nome).plano()).append('\n'));
+        log.info("{}", relatorio);
+    }
+}
@@ -0,0 +1,137 @@
+package br.com.dasa.analisepatologica.hl7;
+
+import br.com.dasa.analisepatologica.dto.AmostraResponseDTO;
+import br.com.dasa.analisepatologica.entity.Medico;
+import br.com.dasa.analisepatologica.entity.Paciente;
+import br.com.dasa.analisepatologica.enums.Sexo;
+import br.com.dasa.analisepatologica.enums.StatusProcessamento;
+import br.com.dasa.analisepatologica.enums.TipoMedico;
+import br.com.dasa.analisepatologica.repository.MedicoRepository;
+import br.com.dasa.analisepatologica.repository.PacienteRepository;
+import br.com.dasa.analisepatologica.service.AmostraService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "analisepatologica.hl7.mllp.habilitado=true",
+        "analisepatologica.hl7.mllp.porta=0"
+})
+@ActiveProfiles("local")
+class MllpServerTest {
+
+    @Autowired
+    private MllpServer mllpServer;
+
+    @Autowired
+    private AmostraService amostraService;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @Autowired
+    private MedicoRepository medicoRepository;
+
+    @Test
+    void ordersAndResultsAreAppliedAndAcknowledged() throws IOException {
+        Paciente paciente = pacienteRepository.save(Paciente.builder()
+                .nomeCompleto("Ana Pereira")
+                .dataNascimento(LocalDate.of(1975, 8, 22))
+                .sexo(Sexo.FEMININO)
+                .createdBy("TEST")
+                .build());
+
+        Medico medico = medicoRepository.save(Medico.builder()
+                .nomeCompleto("Dr. Paulo Souza")
+                .crm("654321")
+                .ufCrm("RJ")
+                .tipoMedico(TipoMedico.SOLICITANTE)
+                .createdBy("TEST")
+                .build());
+
+        String hoje = LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE);
+        String orm = "MSH|^~\\&|LIS|HOSP|ANALISEPATOLOGICA|DASA|" + hoje + "1200||ORM^O01|MSG001|P|2.5\r"
+                + "PID|1||" + paciente.getPacienteId() + "||Pereira^Ana\r"
+                + "ORC|NW|HL7-0001||||||||||" + medico.getMedicoId() + "^Souza^Paulo\r"
+                + "OBR|1|HL7-0001|HL7-0001||||" + hoje + "|||||||" + hoje + "|&Tecido mamário^^^Mama esquerda\r"
+                + "NTE|1||Amostra recebida via HL7\r";
+        String oru = "MSH|^~\\&|INSTR|LAB|ANALISEPATOLOGICA|DASA|" + hoje + "1300||ORU^R01|MSG002|P|2.5\r"
+                + "PID|1||" + paciente.getPacienteId() + "\r"
+                + "OBR|1||HL7-0001\r"
+                + "OBX|1|NM|LARGURA||1.5|cm|||||F|||||^Silva^Joana|Paquímetro digital|CD-6\r"
+                + "OBX|2|NM|ALTURA||12.30|mm|||||F\r"
+                + "OBX|3|NM|PROFUNDIDADE||8.75|mm|||||F\r"
+                + "OBR|2||HL7-INEXISTENTE\r"
+                + "OBX|1|NM|LARGURA||10|mm|||||F|||||^Silva^Joana|Paquímetro digital\r"
+                + "OBX|2|NM|ALTURA||10|mm|||||F\r"
+                + "OBR|3||HL7-0001\r"
+                + "OBX|1|NM|LARGURA||abc|mm|||||F\r";
+        String oruInvalida = "MSH|^~\\&|INSTR|LAB|ANALISEPATOLOGICA|DASA|" + hoje + "1400||ORU^R01|MSG003|P|2.5\r"
+                + "OBR|1||HL7-0001\r"
+                + "OBX|1|NM|LARGURA||10|pol|||||F\r";
+
+        try (Socket socket = new Socket("localhost", mllpServer.getPortaLocal())) {
+            socket.setSoTimeout(10_000);
+            OutputStream saida = socket.getOutputStream();
+            InputStream entrada = socket.getInputStream();
+
+            enviar(saida, orm);
+            String ackOrdem = receber(entrada);
+            assertTrue(ackOrdem.contains("MSA|AA|MSG001"), ackOrdem);
+
+            enviar(saida, oru);
+            String ackResultado = receber(entrada);
+            assertTrue(ackResultado.contains("MSA|AE|MSG002"), ackResultado);
+            assertTrue(ackResultado.contains("HL7-INEXISTENTE"), ackResultado);
+            assertTrue(ackResultado.contains("OBR 3: OBX-5"), ackResultado);
+
+            // No valid group: nothing is stored and the whole message is rejected
+            enviar(saida, oruInvalida);
+            String ackInvalida = receber(entrada);
+            assertTrue(ackInvalida.contains("MSA|AR|MSG003"), ackInvalida);
+            assertTrue(ackInvalida.contains("OBR 1: OBX-6"), ackInvalida);
+
+            enviar(saida, "INVALIDO");
+            assertTrue(receber(entrada).contains("MSA|AR"));
+        }
+
+        // The acknowledgment is only sent after commit, so the data is already visible
+        AmostraResponseDTO amostra = amostraService.findByCodigoRastreio("HL7-0001");
+        assertEquals("Tecido mamário", amostra.tipoTecido());
+        assertEquals("Mama esquerda", amostra.localizacaoAnatomica());
+        assertEquals(StatusProcessamento.MEDIDA, amostra.statusProcessamento());
+        assertEquals(1, amostra.totalMedicoes());
+    }
+
+    private static void enviar(OutputStream saida, String mensagem) throws IOException {
+        saida.write(0x0B);
+        saida.write(mensagem.getBytes(StandardCharsets.UTF_8));
+        saida.write(new byte[]{0x1C, 0x0D});
+        saida.flush();
+    }
+
+    private static String receber(InputStream entrada) throws IOException {
+        assertEquals(0x0B, entrada.read());
+        ByteArrayOutputStream conteudo = new ByteArrayOutputStream();
+        int b;
+        while ((b = entrada.read()) != 0x1C) {
+            assertTrue(b >= 0, "Conexão encerrada antes do fim do quadro");
+            conteudo.write(b);
+        }
+        assertEquals(0x0D, entrada.read());
+        return conteudo.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,107 @@
+package br.com.dasa.analisepatologica.service;
+
+import br.com.dasa.analisepatologica.dto.AmostraFilterDTO;
+import br.com.dasa.analisepatologica.dto.AmostraPageResponseDTO;
+import br.com.dasa.analisepatologica.dto.AmostraRequestDTO;
+import br.com.dasa.analisepatologica.dto.AmostraResponseDTO;
+import br.com.dasa.analisepatologica.dto.ImagemAmostraRequestDTO;
+import br.com.dasa.analisepatologica.dto.MedicaoRequestDTO;
+import br.com.dasa.analisepatologica.entity.Medico;
+import br.com.dasa.analisepatologica.entity.Paciente;
+import br.com.dasa.analisepatologica.enums.Sexo;
+import br.com.dasa.analisepatologica.enums.TipoArquivo;
+import br.com.dasa.analisepatologica.enums.TipoMedico;
+import br.com.dasa.analisepatologica.repository.MedicoRepository;
+import br.com.dasa.analisepatologica.repository.PacienteRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Own in-memory database: the unfiltered query below must only see the samples created here,
+// whatever other test contexts wrote to the shared jdbc:h2:mem:analisepatologica
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.datasource.url=jdbc:h2:mem:amostra-service-test"
+})
+@ActiveProfiles("local")
+class AmostraServiceTest {
+
+    private static final int TOTAL_AMOSTRAS = 20;
+
+    @Autowired
+    private AmostraService amostraService;
+
+    @Autowired
+    private MedicaoService medicaoService;
+
+    @Autowired
+    private ImagemAmostraService imagemAmostraService;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @Autowired
+    private MedicoRepository medicoRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void findByFiltersUsesConstantNumberOfStatements() {
+        Paciente paciente = pacienteRepository.save(Paciente.builder()
+                .nomeCompleto("Maria da Silva")
+                .dataNascimento(LocalDate.of(1980, 3, 10))
+                .sexo(Sexo.FEMININO)
+                .createdBy("TEST")
+                .build());
+
+        Medico medico = medicoRepository.save(Medico.builder()
+                .nomeCompleto("Dr. Carlos Mendes")
+                .crm("123456")
+                .ufCrm("SP")
+                .tipoMedico(TipoMedico.SOLICITANTE)
+                .createdBy("TEST")
+                .build());
+
+        for (int i = 0; i < TOTAL_AMOSTRAS; i++) {
+            String codigo = "N1-" + i;
+            amostraService.create(new AmostraRequestDTO(codigo, paciente.getPacienteId(), medico.getMedicoId(),
+                    "Tecido mamário", null, LocalDate.now(), LocalDate.now(), null));
+            medicaoService.create(codigo, new MedicaoRequestDTO(new BigDecimal("10.00"), new BigDecimal("5.00"),
+                    new BigDecimal("2.00"), "Paquímetro digital", null, "Técnico", null));
+            imagemAmostraService.create(codigo, ImagemAmostraRequestDTO.builder()
+                    .nomeArquivo(codigo + ".jpg")
+                    .tipoArquivo(TipoArquivo.JPEG)
+                    .tamanhoBytes(500_000L)
+                    .resolucao("1920x1080")
+                    .dataCaptura(LocalDateTime.now())
+                    .build());
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        AmostraFilterDTO semFiltros = new AmostraFilterDTO(null, null, null, null, null, null, null, null);
+        AmostraPageResponseDTO page = amostraService.findByFilters(semFiltros, null, AmostraService.MAX_PAGE_SIZE);
+
+        // One query for the samples (with patient, doctor and report joined); counts are columns of AMOSTRA
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(TOTAL_AMOSTRAS, page.content().size());
+        for (AmostraResponseDTO amostra : page.content()) {
+            assertEquals(1, amostra.totalMedicoes());
+            assertEquals(1, amostra.totalImagens());
+            assertTrue(amostra.prontaParaAnalise());
+        }
+    }
+}
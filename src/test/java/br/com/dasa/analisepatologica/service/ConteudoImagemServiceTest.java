@@ -0,0 +1,234 @@
+package br.com.dasa.analisepatologica.service;
+
+import br.com.dasa.analisepatologica.dto.AmostraRequestDTO;
+import br.com.dasa.analisepatologica.dto.ArmazenamentoStatsDTO;
+import br.com.dasa.analisepatologica.dto.ImagemUploadRequestDTO;
+import br.com.dasa.analisepatologica.dto.ImagemUploadResponseDTO;
+import br.com.dasa.analisepatologica.entity.Medico;
+import br.com.dasa.analisepatologica.entity.Paciente;
+import br.com.dasa.analisepatologica.enums.Sexo;
+import br.com.dasa.analisepatologica.enums.TipoArquivo;
+import br.com.dasa.analisepatologica.enums.TipoMedico;
+import br.com.dasa.analisepatologica.exception.BusinessException;
+import br.com.dasa.analisepatologica.exception.ResourceNotFoundException;
+import br.com.dasa.analisepatologica.repository.MedicoRepository;
+import br.com.dasa.analisepatologica.repository.PacienteRepository;
+import br.com.dasa.analisepatologica.storage.ArmazenamentoConteudo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("local")
+class ConteudoImagemServiceTest {
+
+    @TempDir
+    private static Path armazenamento;
+
+    @Autowired
+    private AmostraService amostraService;
+
+    @Autowired
+    private ImagemUploadService imagemUploadService;
+
+    @Autowired
+    private ImagemAmostraService imagemAmostraService;
+
+    @Autowired
+    private ConteudoImagemService conteudoImagemService;
+
+    @Autowired
+    private ArmazenamentoConteudo armazenamentoConteudo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @Autowired
+    private MedicoRepository medicoRepository;
+
+    @DynamicPropertySource
+    static void propriedades(DynamicPropertyRegistry registry) {
+        registry.add("analisepatologica.armazenamento.diretorio", armazenamento::toString);
+    }
+
+    @Test
+    void identicalFilesAreStoredOnceAndDeletedWithTheLastImage() throws Exception {
+        Paciente paciente = pacienteRepository.save(Paciente.builder()
+                .nomeCompleto("Helena Costa")
+                .dataNascimento(LocalDate.of(1968, 1, 30))
+                .sexo(Sexo.FEMININO)
+                .createdBy("TEST")
+                .build());
+        Medico medico = medicoRepository.save(Medico.builder()
+                .nomeCompleto("Dra. Beatriz Lima")
+                .crm("777111")
+                .ufCrm("MG")
+                .tipoMedico(TipoMedico.SOLICITANTE)
+                .createdBy("TEST")
+                .build());
+        for (String codigo : new String[]{"DEDUP-0001", "DEDUP-0002"}) {
+            amostraService.create(new AmostraRequestDTO(codigo, paciente.getPacienteId(), medico.getMedicoId(),
+                    "Tecido mamário", null, LocalDate.now(), LocalDate.now(), null));
+        }
+
+        byte[] dados = new byte[200_000];
+        new Random(7).nextBytes(dados);
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(dados));
+        ArmazenamentoStatsDTO antes = conteudoImagemService.stats();
+
+        ImagemUploadResponseDTO original = imagemUploadService.iniciar("DEDUP-0001", requisicao(dados.length, sha256));
+        assertFalse(original.concluido());
+        original = imagemUploadService.receberParte(original.uploadId(), 0, dados.length - 1, dados.length,
+                new ByteArrayInputStream(dados));
+        assertTrue(original.concluido());
+
+        // The re-cut gets the same capture: only the proof range is sent
+        ImagemUploadResponseDTO copia = imagemUploadService.iniciar("DEDUP-0002", requisicao(dados.length, sha256));
+        assertFalse(copia.concluido());
+        int inicio = copia.provaInicio().intValue();
+        int fim = copia.provaFim().intValue();
+        assertTrue(fim - inicio + 1 <= ImagemUploadService.TAMANHO_PROVA);
+
+        // Knowing the hash is not enough: bytes that differ from the stored file are refused
+        String uploadId = copia.uploadId();
+        assertThrows(BusinessException.class, () -> imagemUploadService.receberParte(uploadId, inicio, fim, dados.length,
+                new ByteArrayInputStream(new byte[fim - inicio + 1])));
+
+        copia = imagemUploadService.receberParte(uploadId, inicio, fim, dados.length,
+                new ByteArrayInputStream(dados, inicio, fim - inicio + 1));
+        assertTrue(copia.concluido());
+        assertEquals(original.imagem().getCaminhoArquivo(), copia.imagem().getCaminhoArquivo());
+
+        ArmazenamentoStatsDTO depois = conteudoImagemService.stats();
+        assertEquals(antes.objetos() + 1, depois.objetos());
+        assertEquals(antes.bytesArmazenados() + dados.length, depois.bytesArmazenados());
+        assertEquals(antes.bytesEconomizados() + dados.length, depois.bytesEconomizados());
+
+        Path arquivo = armazenamentoConteudo.resolver(armazenamentoConteudo.caminho(sha256));
+        imagemAmostraService.delete(original.imagem().getImagemId());
+        assertTrue(Files.exists(arquivo));
+        assertEquals(1, conteudoImagemService.buscar(sha256).orElseThrow().getReferencias());
+
+        imagemAmostraService.delete(copia.imagem().getImagemId());
+        assertFalse(Files.exists(arquivo));
+        assertTrue(conteudoImagemService.buscar(sha256).isEmpty());
+    }
+
+    @Test
+    void deletingASampleReleasesTheContentOfItsImages() throws Exception {
+        Paciente paciente = pacienteRepository.save(Paciente.builder()
+                .nomeCompleto("Rosa Amaral")
+                .dataNascimento(LocalDate.of(1975, 9, 4))
+                .sexo(Sexo.FEMININO)
+                .createdBy("TEST")
+                .build());
+        Medico medico = medicoRepository.save(Medico.builder()
+                .nomeCompleto("Dr. Paulo Nunes")
+                .crm("777222")
+                .ufCrm("MG")
+                .tipoMedico(TipoMedico.SOLICITANTE)
+                .createdBy("TEST")
+                .build());
+        for (String codigo : new String[]{"DEDUP-0003", "DEDUP-0004"}) {
+            amostraService.create(new AmostraRequestDTO(codigo, paciente.getPacienteId(), medico.getMedicoId(),
+                    "Tecido mamário", null, LocalDate.now(), LocalDate.now(), null));
+        }
+
+        byte[] dados = new byte[100_000];
+        new Random(13).nextBytes(dados);
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(dados));
+        for (String codigo : new String[]{"DEDUP-0003", "DEDUP-0004"}) {
+            ImagemUploadResponseDTO upload = imagemUploadService.iniciar(codigo, requisicao(dados.length, sha256));
+            // The first one sends the whole file, the second only the proof range of the stored one
+            int inicio = upload.provaInicio() == null ? 0 : upload.provaInicio().intValue();
+            int fim = upload.provaFim() == null ? dados.length - 1 : upload.provaFim().intValue();
+            assertTrue(imagemUploadService.receberParte(upload.uploadId(), inicio, fim, dados.length,
+                    new ByteArrayInputStream(dados, inicio, fim - inicio + 1)).concluido());
+        }
+        assertEquals(2, conteudoImagemService.buscar(sha256).orElseThrow().getReferencias());
+
+        // An upload still open on the sample does not block its deletion
+        ImagemUploadResponseDTO aberto = imagemUploadService.iniciar("DEDUP-0003", requisicao(10_000, null));
+        imagemUploadService.receberParte(aberto.uploadId(), 0, 4_999, 10_000, new ByteArrayInputStream(new byte[5_000]));
+        assertEquals(5_000, armazenamentoConteudo.tamanhoParcial(aberto.uploadId()));
+
+        Path arquivo = armazenamentoConteudo.resolver(armazenamentoConteudo.caminho(sha256));
+        amostraService.delete("DEDUP-0003");
+        assertTrue(Files.exists(arquivo));
+        assertEquals(1, conteudoImagemService.buscar(sha256).orElseThrow().getReferencias());
+        assertEquals(0, armazenamentoConteudo.tamanhoParcial(aberto.uploadId()));
+        assertThrows(ResourceNotFoundException.class, () -> imagemUploadService.status(aberto.uploadId()));
+
+        amostraService.delete("DEDUP-0004");
+        assertFalse(Files.exists(arquivo));
+        assertTrue(conteudoImagemService.buscar(sha256).isEmpty());
+    }
+
+    @Test
+    void concurrentFirstReferencesToTheSameContentAreBothCounted() throws Exception {
+        byte[] dados = new byte[50_000];
+        new Random(11).nextBytes(dados);
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(dados));
+        Path arquivo = armazenamentoConteudo.resolver(armazenamentoConteudo.caminho(sha256));
+        Files.createDirectories(arquivo.getParent());
+        Files.write(arquivo, dados);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch largada = new CountDownLatch(1);
+            List<Future<?>> referencias = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                referencias.add(executor.submit(() -> {
+                    largada.await();
+                    transactionTemplate.executeWithoutResult(status -> conteudoImagemService.adicionarReferencia(sha256));
+                    return null;
+                }));
+            }
+            largada.countDown();
+            for (Future<?> referencia : referencias) {
+                referencia.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, conteudoImagemService.buscar(sha256).orElseThrow().getReferencias());
+
+        transactionTemplate.executeWithoutResult(status -> conteudoImagemService.removerReferencia(sha256));
+        assertTrue(Files.exists(arquivo));
+        transactionTemplate.executeWithoutResult(status -> conteudoImagemService.removerReferencia(sha256));
+        assertFalse(Files.exists(arquivo));
+        assertTrue(conteudoImagemService.buscar(sha256).isEmpty());
+    }
+
+    private static ImagemUploadRequestDTO requisicao(long tamanho, String sha256) {
+        return new ImagemUploadRequestDTO("lamina_he.png", TipoArquivo.PNG, tamanho, null, null, null, null, sha256);
+    }
+}
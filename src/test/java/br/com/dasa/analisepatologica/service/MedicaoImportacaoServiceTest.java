@@ -0,0 +1,148 @@
+package br.com.dasa.analisepatologica.service;
+
+import br.com.dasa.analisepatologica.dto.AmostraRequestDTO;
+import br.com.dasa.analisepatologica.dto.MedicaoImportacaoResponseDTO;
+import br.com.dasa.analisepatologica.dto.MedicaoRequestDTO;
+import br.com.dasa.analisepatologica.dto.MedicaoResponseDTO;
+import br.com.dasa.analisepatologica.entity.Medico;
+import br.com.dasa.analisepatologica.entity.Paciente;
+import br.com.dasa.analisepatologica.enums.Sexo;
+import br.com.dasa.analisepatologica.enums.TipoMedico;
+import br.com.dasa.analisepatologica.repository.MedicoRepository;
+import br.com.dasa.analisepatologica.repository.PacienteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:medicao-importacao-test")
+@ActiveProfiles("local")
+class MedicaoImportacaoServiceTest {
+
+    private static final String CABECALHO = "codigoRastreio;larguraMm;alturaMm;profundidadeMm;metodoMedicao;responsavelMedicao\n";
+    private static final AtomicInteger SEQUENCIA = new AtomicInteger();
+
+    @Autowired
+    private MedicaoImportacaoService medicaoImportacaoService;
+
+    @Autowired
+    private MedicaoService medicaoService;
+
+    @Autowired
+    private AmostraService amostraService;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @Autowired
+    private MedicoRepository medicoRepository;
+
+    @Test
+    void splitsQuotedFieldsWithSeparatorsAndEscapedQuotes() {
+        assertEquals(List.of("AMT-1", "10,5", "Régua \"milimetrada\"; calibrada", ""),
+                MedicaoImportacaoService.separarCampos("AMT-1;\"10,5\";\"Régua \"\"milimetrada\"\"; calibrada\";", ';'));
+        assertEquals(List.of("a", "b c", "d"),
+                MedicaoImportacaoService.separarCampos(" a , \"b c\" ,d ", ','));
+        assertThrows(IllegalArgumentException.class,
+                () -> MedicaoImportacaoService.separarCampos("AMT-1;\"sem fechamento;10", ';'));
+    }
+
+    @Test
+    void severalLinesForTheSameSampleBecomeConsecutiveVersionsWithTheLastActive() {
+        String codigo = criarAmostra();
+        medicaoService.create(codigo, new MedicaoRequestDTO(new BigDecimal("9.00"), new BigDecimal("4.00"),
+                null, "Paquímetro digital", null, "Técnico", null));
+
+        MedicaoImportacaoResponseDTO resultado = importar(CABECALHO
+                + codigo + ";10,0;5,0;2,0;Paquímetro digital;Técnico A\n"
+                + codigo + ";11,0;5,0;2,0;Paquímetro digital;Técnico B\n"
+                + codigo + ";12,0;5,0;2,0;Paquímetro digital;Técnico C\n");
+
+        assertEquals(3, resultado.importadas());
+        assertEquals(0, resultado.rejeitadas());
+        assertVersoes(codigo, 4);
+        assertEquals(0, new BigDecimal("12.0").compareTo(medicaoService.findMedicaoAtiva(codigo).larguraMm()));
+    }
+
+    @Test
+    void linesForAnUnknownSampleAreRejectedAndTheOthersImported() {
+        String codigo = criarAmostra();
+
+        MedicaoImportacaoResponseDTO resultado = importar(CABECALHO
+                + codigo + ";10,0;5,0;;Paquímetro digital;Técnico\n"
+                + "INEXISTENTE-" + codigo + ";10,0;5,0;;Paquímetro digital;Técnico\n");
+
+        assertEquals(2, resultado.totalLinhas());
+        assertEquals(1, resultado.importadas());
+        assertEquals(1, resultado.rejeitadas());
+        assertEquals(3, resultado.erros().get(0).linha());
+        assertEquals("INEXISTENTE-" + codigo, resultado.erros().get(0).codigoRastreio());
+        assertTrue(resultado.erros().get(0).erro().startsWith("Amostra não encontrada"));
+        assertVersoes(codigo, 1);
+    }
+
+    @Test
+    void versionsStayConsecutiveAcrossTheChunkBoundary() {
+        String codigo = criarAmostra();
+        int total = MedicaoImportacaoService.TAMANHO_LOTE + 2;
+
+        StringBuilder csv = new StringBuilder(CABECALHO);
+        for (int i = 0; i < total; i++) {
+            csv.append(codigo).append(";10,0;5,0;;Paquímetro digital;Técnico\n");
+        }
+        MedicaoImportacaoResponseDTO resultado = importar(csv.toString());
+
+        assertEquals(total, resultado.importadas());
+        assertVersoes(codigo, total);
+    }
+
+    /**
+     * Checks that the sample has versions 1..total and that only the last one is active.
+     */
+    private void assertVersoes(String codigo, int total) {
+        List<MedicaoResponseDTO> medicoes = medicaoService.findByAmostra(codigo);
+        assertEquals(total, medicoes.size());
+        for (int i = 0; i < total; i++) {
+            MedicaoResponseDTO medicao = medicoes.get(i);
+            assertEquals(total - i, medicao.versao());
+            assertEquals(i == 0, medicao.ativa(), "versão " + medicao.versao());
+        }
+    }
+
+    private MedicaoImportacaoResponseDTO importar(String csv) {
+        return medicaoImportacaoService.importar(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String criarAmostra() {
+        int numero = SEQUENCIA.incrementAndGet();
+        Paciente paciente = pacienteRepository.save(Paciente.builder()
+                .nomeCompleto("Paciente Importação " + numero)
+                .dataNascimento(LocalDate.of(1975, 6, 1))
+                .sexo(Sexo.MASCULINO)
+                .createdBy("TEST")
+                .build());
+        Medico medico = medicoRepository.save(Medico.builder()
+                .nomeCompleto("Dr. Importação " + numero)
+                .crm("55" + numero)
+                .ufCrm("RJ")
+                .tipoMedico(TipoMedico.SOLICITANTE)
+                .createdBy("TEST")
+                .build());
+
+        String codigo = "IMP-" + numero;
+        amostraService.create(new AmostraRequestDTO(codigo, paciente.getPacienteId(), medico.getMedicoId(),
+                "Tecido gástrico", null, LocalDate.now(), LocalDate.now(), null));
+        return codigo;
+    }
+}
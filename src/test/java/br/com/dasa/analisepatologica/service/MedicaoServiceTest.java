@@ -0,0 +1,122 @@
+package br.com.dasa.analisepatologica.service;
+
+import br.com.dasa.analisepatologica.dto.AmostraRequestDTO;
+import br.com.dasa.analisepatologica.dto.DistribuicaoVolumeDTO;
+import br.com.dasa.analisepatologica.dto.EstatisticasVolumeResponseDTO;
+import br.com.dasa.analisepatologica.dto.MedicaoRequestDTO;
+import br.com.dasa.analisepatologica.dto.MedicaoResponseDTO;
+import br.com.dasa.analisepatologica.entity.Medicao;
+import br.com.dasa.analisepatologica.entity.MedicaoId;
+import br.com.dasa.analisepatologica.entity.Medico;
+import br.com.dasa.analisepatologica.entity.Paciente;
+import br.com.dasa.analisepatologica.enums.Sexo;
+import br.com.dasa.analisepatologica.enums.TipoMedico;
+import br.com.dasa.analisepatologica.repository.MedicaoRepository;
+import br.com.dasa.analisepatologica.repository.MedicoRepository;
+import br.com.dasa.analisepatologica.repository.PacienteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Own in-memory database: the statistics aggregate every active measurement, so only the ones created here may exist
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:medicao-service-test")
+@ActiveProfiles("local")
+class MedicaoServiceTest {
+
+    @Autowired
+    private AmostraService amostraService;
+
+    @Autowired
+    private MedicaoService medicaoService;
+
+    @Autowired
+    private MedicaoRepository medicaoRepository;
+
+    @Autowired
+    private PacienteRepository pacienteRepository;
+
+    @Autowired
+    private MedicoRepository medicoRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void volumeDistributionIsComputedOverTheActiveVersions() {
+        Paciente paciente = pacienteRepository.save(Paciente.builder()
+                .nomeCompleto("Joana Prado")
+                .dataNascimento(LocalDate.of(1959, 6, 21))
+                .sexo(Sexo.FEMININO)
+                .createdBy("TEST")
+                .build());
+        Medico medico = medicoRepository.save(Medico.builder()
+                .nomeCompleto("Dr. André Rocha")
+                .crm("445566")
+                .ufCrm("RJ")
+                .tipoMedico(TipoMedico.SOLICITANTE)
+                .createdBy("TEST")
+                .build());
+
+        // Pele: 10, 20, 30, 40, 50 mm³; the first three by caliper, the last two by ruler
+        MedicaoResponseDTO maior = null;
+        for (int i = 1; i <= 5; i++) {
+            String codigo = "VOL-000" + i;
+            criarAmostra(codigo, "Pele", paciente, medico);
+            maior = medicaoService.create(codigo, medicao(10 * i, i <= 3 ? "Paquímetro" : "Régua"));
+        }
+
+        // Mama: only the active version counts, whichever was created last
+        criarAmostra("VOL-0006", "Mama", paciente, medico);
+        medicaoService.create("VOL-0006", medicao(1000, "Micrômetro"));
+        medicaoService.create("VOL-0006", medicao(70, "Micrômetro"));
+        medicaoService.ativarVersao("VOL-0006", 1);
+
+        EstatisticasVolumeResponseDTO estatisticas = medicaoService.estatisticasVolume();
+        List<DistribuicaoVolumeDTO> porTipoTecido = estatisticas.porTipoTecido();
+        assertEquals(List.of("Mama", "Pele"), porTipoTecido.stream().map(DistribuicaoVolumeDTO::grupo).toList());
+        assertDistribuicao(porTipoTecido.get(0), 1, "1000.00", "1000.00", "1000.00", "1000.00", "1000.00");
+        assertDistribuicao(porTipoTecido.get(1), 5, "10.00", "50.00", "30.00", "30.00", "48.00");
+
+        List<DistribuicaoVolumeDTO> porMetodo = estatisticas.porMetodoMedicao();
+        assertEquals(List.of("Micrômetro", "Paquímetro", "Régua"), porMetodo.stream().map(DistribuicaoVolumeDTO::grupo).toList());
+        assertDistribuicao(porMetodo.get(1), 3, "10.00", "30.00", "20.00", "20.00", "29.00");
+        assertDistribuicao(porMetodo.get(2), 2, "40.00", "50.00", "45.00", "45.00", "49.50");
+
+        // Changing a dimension recomputes the stored volume the statistics aggregate
+        MedicaoId id = new MedicaoId(maior.medicaoId(), medico.getMedicoId());
+        transactionTemplate.executeWithoutResult(status ->
+                medicaoRepository.findById(id).orElseThrow().setLarguraMm(new BigDecimal("60.00")));
+        assertEquals(new BigDecimal("60.00"), medicaoRepository.findById(id).map(Medicao::getVolumeMm3).orElseThrow());
+
+        estatisticas = medicaoService.estatisticasVolume();
+        assertDistribuicao(estatisticas.porTipoTecido().get(1), 5, "10.00", "60.00", "32.00", "30.00", "56.00");
+        assertDistribuicao(estatisticas.porMetodoMedicao().get(2), 2, "40.00", "60.00", "50.00", "50.00", "59.00");
+    }
+
+    private void criarAmostra(String codigo, String tipoTecido, Paciente paciente, Medico medico) {
+        amostraService.create(new AmostraRequestDTO(codigo, paciente.getPacienteId(), medico.getMedicoId(),
+                tipoTecido, null, LocalDate.now(), LocalDate.now(), null));
+    }
+
+    private static MedicaoRequestDTO medicao(int volume, String metodo) {
+        return new MedicaoRequestDTO(new BigDecimal(volume), BigDecimal.ONE, BigDecimal.ONE, metodo, null, "Técnico", null);
+    }
+
+    private static void assertDistribuicao(DistribuicaoVolumeDTO distribuicao, long total, String minimo, String maximo,
+                                           String media, String p50, String p95) {
+        assertEquals(total, distribuicao.totalMedicoes(), distribuicao.grupo());
+        assertEquals(new BigDecimal(minimo), distribuicao.minimo(), distribuicao.grupo());
+        assertEquals(new BigDecimal(maximo), distribuicao.maximo(), distribuicao.grupo());
+        assertEquals(new BigDecimal(media), distribuicao.media(), distribuicao.grupo());
+        assertEquals(new BigDecimal(p50), distribuicao.p50(), distribuicao.grupo());
+        assertEquals(new BigDecimal(p95), distribuicao.p95(), distribuicao.grupo());
+    }
+}
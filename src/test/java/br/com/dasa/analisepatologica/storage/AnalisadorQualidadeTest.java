@@ -0,0 +1,128 @@
+package br.com.dasa.analisepatologica.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalisadorQualidadeTest {
+
+    private static final Color HEMATOXILINA = new Color(90, 60, 150);
+    private static final Color EOSINA = new Color(230, 130, 180);
+
+    @TempDir
+    private Path diretorio;
+
+    private final AnalisadorQualidade analisador = new AnalisadorQualidade(4, 100);
+
+    @AfterEach
+    void encerrar() {
+        analisador.destroy();
+    }
+
+    @Test
+    void sharpTissueOnHalfOfTheSlide() throws Exception {
+        // 1104x600 (edge tiles of 80 and 88 px): stained checkerboard on the left half, glass on the right
+        BufferedImage imagem = lamina(1104, 600);
+        Graphics2D graphics = imagem.createGraphics();
+        for (int y = 0; y < 600; y += 4) {
+            for (int x = 0; x < 552; x += 4) {
+                graphics.setColor(((x + y) / 4) % 2 == 0 ? HEMATOXILINA : EOSINA);
+                graphics.fillRect(x, y, 4, 4);
+            }
+        }
+        graphics.dispose();
+
+        MetricasQualidade metricas = analisador.analisar(gravar(imagem, "nitida.png"));
+
+        assertEquals(15, metricas.tiles());
+        assertEquals(0.5, metricas.coberturaTecido(), 0.001);
+        assertTrue(metricas.nitidez() > 1000, "nitidez " + metricas.nitidez());
+        assertEquals(0.0, metricas.fracaoDesfocada());
+        assertTrue(metricas.saturacaoMedia() > 0.3);
+    }
+
+    @Test
+    void uniformTissueHasNoFocusAndGlassHasNoTissue() throws Exception {
+        BufferedImage desfocada = lamina(512, 512);
+        Graphics2D graphics = desfocada.createGraphics();
+        graphics.setColor(EOSINA);
+        graphics.fillRect(0, 0, 512, 512);
+        graphics.dispose();
+
+        MetricasQualidade metricas = analisador.analisar(gravar(desfocada, "desfocada.tiff"));
+        assertEquals(4, metricas.tilesComTecido());
+        assertEquals(1.0, metricas.fracaoDesfocada());
+        assertEquals(1.0, metricas.coberturaTecido(), 0.001);
+
+        MetricasQualidade vazia = analisador.analisar(gravar(lamina(300, 300), "vazia.png"));
+        assertEquals(0, vazia.tilesComTecido());
+        assertEquals(0.0, vazia.coberturaTecido());
+        assertNull(vazia.nitidez());
+        assertNull(vazia.saturacaoMedia());
+        assertNull(vazia.hashPerceptual());
+    }
+
+    @Test
+    void rescanAtAnotherResolutionKeepsThePerceptualHash() throws Exception {
+        BufferedImage original = cortes(1200, 900, 7);
+        Long hash = analisador.analisar(gravar(original, "original.png")).hashPerceptual();
+
+        // Re-exported at 60% of the size as a JPEG
+        BufferedImage reduzida = new BufferedImage(720, 540, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = reduzida.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(original, 0, 0, 720, 540, null);
+        graphics.dispose();
+        Long hashReduzida = analisador.analisar(gravar(reduzida, "reduzida.jpg")).hashPerceptual();
+
+        Long hashOutraLamina = analisador.analisar(gravar(cortes(1200, 900, 8), "outra.png")).hashPerceptual();
+
+        assertNotNull(hash);
+        assertTrue(Long.bitCount(hash ^ hashReduzida) <= 3, "distancia " + Long.bitCount(hash ^ hashReduzida));
+        assertTrue(Long.bitCount(hash ^ hashOutraLamina) > 10, "distancia " + Long.bitCount(hash ^ hashOutraLamina));
+    }
+
+    /**
+     * Slide with tissue sections of random size and stain scattered over the glass.
+     */
+    private static BufferedImage cortes(int largura, int altura, long semente) {
+        Random random = new Random(semente);
+        BufferedImage imagem = lamina(largura, altura);
+        Graphics2D graphics = imagem.createGraphics();
+        for (int i = 0; i < 12; i++) {
+            graphics.setColor(random.nextBoolean() ? HEMATOXILINA : EOSINA);
+            int diametro = 80 + random.nextInt(220);
+            graphics.fillOval(random.nextInt(largura - diametro), random.nextInt(altura - diametro), diametro, diametro);
+        }
+        graphics.dispose();
+        return imagem;
+    }
+
+    private static BufferedImage lamina(int largura, int altura) {
+        BufferedImage imagem = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = imagem.createGraphics();
+        graphics.setColor(new Color(245, 245, 242));
+        graphics.fillRect(0, 0, largura, altura);
+        graphics.dispose();
+        return imagem;
+    }
+
+    private Path gravar(BufferedImage imagem, String nome) throws Exception {
+        Path arquivo = diretorio.resolve(nome);
+        assertTrue(ImageIO.write(imagem, nome.substring(nome.lastIndexOf('.') + 1), arquivo.toFile()));
+        return arquivo;
+    }
+}
@@ -0,0 +1,66 @@
+package br.com.dasa.analisepatologica.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArmazenamentoConteudoTest {
+
+    @TempDir
+    private Path diretorio;
+
+    @Test
+    void resumedUploadIsStoredByContentHash() throws Exception {
+        byte[] dados = new byte[1_000_003];
+        new Random(42).nextBytes(dados);
+        String uploadId = UUID.randomUUID().toString();
+
+        ArmazenamentoConteudo armazenamento = new ArmazenamentoConteudo(diretorio);
+        assertEquals(400_000, armazenamento.anexar(uploadId, 0, 400_000, new ByteArrayInputStream(dados, 0, 400_000)));
+
+        // A new instance has no running hash, as after a restart: it must be rebuilt from the partial file
+        armazenamento = new ArmazenamentoConteudo(diretorio);
+        assertEquals(400_000, armazenamento.tamanhoParcial(uploadId));
+        ArmazenamentoConteudo reiniciado = armazenamento;
+        assertThrows(IllegalStateException.class,
+                () -> reiniciado.anexar(uploadId, 0, 10, new ByteArrayInputStream(dados)));
+
+        armazenamento.anexar(uploadId, 400_000, dados.length - 400_000,
+                new ByteArrayInputStream(dados, 400_000, dados.length - 400_000));
+        ObjetoArmazenado objeto = armazenamento.concluir(uploadId, dados.length);
+
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(dados));
+        assertEquals(sha256, objeto.sha256());
+        assertTrue(objeto.novo());
+        assertEquals("sha256/" + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256, objeto.caminho());
+        assertArrayEquals(dados, Files.readAllBytes(armazenamento.resolver(objeto.caminho())));
+        assertEquals(0, armazenamento.tamanhoParcial(uploadId));
+
+        // Identical content lands on the same object
+        String outroUploadId = UUID.randomUUID().toString();
+        armazenamento.anexar(outroUploadId, 0, dados.length, new ByteArrayInputStream(dados));
+        ObjetoArmazenado repetido = armazenamento.concluir(outroUploadId, dados.length);
+        assertEquals(objeto.caminho(), repetido.caminho());
+        assertFalse(repetido.novo());
+    }
+
+    @Test
+    void pathsOutsideTheStoreAreRejected() {
+        ArmazenamentoConteudo armazenamento = new ArmazenamentoConteudo(diretorio);
+        assertThrows(IllegalArgumentException.class, () -> armazenamento.resolver("../fora.tiff"));
+        assertThrows(IllegalArgumentException.class, () -> armazenamento.tamanhoParcial("../../etc/passwd"));
+    }
+}
@@ -0,0 +1,92 @@
+package br.com.dasa.analisepatologica.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EnvioArquivoTest {
+
+    private static final String ETAG = "\"0123abcd\"";
+
+    private final EnvioArquivo envioArquivo = new EnvioArquivo();
+
+    @TempDir
+    private Path diretorio;
+
+    @Test
+    void servesRangesAndRevalidation() throws Exception {
+        byte[] dados = new byte[10_000];
+        for (int i = 0; i < dados.length; i++) {
+            dados[i] = (byte) i;
+        }
+        Path arquivo = Files.write(diretorio.resolve("imagem.tiff"), dados);
+
+        MockHttpServletResponse completo = enviar(arquivo, dados.length, null, null);
+        assertEquals(200, completo.getStatus());
+        assertEquals(ETAG, completo.getHeader(HttpHeaders.ETAG));
+        assertArrayEquals(dados, completo.getContentAsByteArray());
+
+        MockHttpServletResponse parte = enviar(arquivo, dados.length, "bytes=100-199", null);
+        assertEquals(206, parte.getStatus());
+        assertEquals("bytes 100-199/10000", parte.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(dados, 100, 200), parte.getContentAsByteArray());
+
+        MockHttpServletResponse sufixo = enviar(arquivo, dados.length, "bytes=-10", null);
+        assertArrayEquals(Arrays.copyOfRange(dados, 9_990, 10_000), sufixo.getContentAsByteArray());
+
+        MockHttpServletResponse foraDoArquivo = enviar(arquivo, dados.length, "bytes=10000-", null);
+        assertEquals(416, foraDoArquivo.getStatus());
+        assertEquals("bytes */10000", foraDoArquivo.getHeader(HttpHeaders.CONTENT_RANGE));
+
+        MockHttpServletResponse naoModificado = enviar(arquivo, dados.length, "bytes=0-9", "W/\"outro\", " + ETAG);
+        assertEquals(304, naoModificado.getStatus());
+        assertEquals(0, naoModificado.getContentAsByteArray().length);
+    }
+
+    @Test
+    void usesTomcatSendfileWhenAvailable() throws Exception {
+        Path arquivo = Files.write(diretorio.resolve("imagem.png"), new byte[2_048]);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/imagens/1/conteudo");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=1024-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        envioArquivo.enviar(arquivo, 2_048, ETAG, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(1_024, response.getContentLengthLong());
+        assertEquals(arquivo.toRealPath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(1_024L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(2_048L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void ignoresMultipleRanges() {
+        assertNull(EnvioArquivo.intervalo("bytes=0-1,5-6", 100));
+        assertNull(EnvioArquivo.intervalo("bytes=9-2", 100));
+    }
+
+    private MockHttpServletResponse enviar(Path arquivo, long tamanho, String range, String ifNoneMatch) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/imagens/1/conteudo");
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        envioArquivo.enviar(arquivo, tamanho, ETAG, request, response);
+        return response;
+    }
+}
@@ -0,0 +1,99 @@
+package br.com.dasa.analisepatologica.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EscritorZipTest {
+
+    @TempDir
+    private Path diretorio;
+
+    @Test
+    void writesStoredFilesAndDeflatedDocumentsReadableThroughTheCentralDirectory() throws Exception {
+        byte[] imagem = new byte[300 * 1024 + 7];
+        new Random(42).nextBytes(imagem);
+        Path arquivo = Files.write(diretorio.resolve("lamina.jpg"), imagem);
+        byte[] laudo = "{\"conclusao\":\"benigno\"}".repeat(200).getBytes(StandardCharsets.UTF_8);
+
+        Path zip = diretorio.resolve("caso.zip");
+        try (EscritorZip escritor = new EscritorZip(Files.newOutputStream(zip))) {
+            escritor.adicionar("laudo.json", laudo, LocalDateTime.of(2024, 3, 15, 10, 30, 20));
+            escritor.adicionarArquivo("imagens/1-lâmina.jpg", arquivo, false);
+        }
+
+        try (ZipFile leitor = new ZipFile(zip.toFile())) {
+            assertEquals(2, leitor.size());
+
+            ZipEntry entradaLaudo = leitor.getEntry("laudo.json");
+            assertEquals(ZipEntry.DEFLATED, entradaLaudo.getMethod());
+            assertTrue(entradaLaudo.getCompressedSize() < laudo.length);
+            assertEquals(LocalDateTime.of(2024, 3, 15, 10, 30, 20), entradaLaudo.getTimeLocal());
+            assertArrayEquals(laudo, leitor.getInputStream(entradaLaudo).readAllBytes());
+
+            ZipEntry entradaImagem = leitor.getEntry("imagens/1-lâmina.jpg");
+            assertEquals(ZipEntry.STORED, entradaImagem.getMethod());
+            assertEquals(imagem.length, entradaImagem.getSize());
+            assertEquals(imagem.length, entradaImagem.getCompressedSize());
+            CRC32 crc = new CRC32();
+            crc.update(imagem);
+            assertEquals(crc.getValue(), entradaImagem.getCrc());
+            assertArrayEquals(imagem, leitor.getInputStream(entradaImagem).readAllBytes());
+        }
+    }
+
+    @Test
+    void streamsEachEntryBeforeTheArchiveIsClosed() throws Exception {
+        byte[] imagem = new byte[1024 * 1024];
+        Path arquivo = Files.write(diretorio.resolve("lamina.tiff"), imagem);
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        EscritorZip escritor = new EscritorZip(saida);
+        escritor.adicionarArquivo("lamina.tiff", arquivo, false);
+
+        // local header + data + descriptor are already out; only the central directory is left
+        assertTrue(saida.size() > imagem.length);
+        escritor.close();
+    }
+
+    @Test
+    void missingFileLeavesTheArchiveUsable() throws Exception {
+        Path zip = diretorio.resolve("caso.zip");
+        try (EscritorZip escritor = new EscritorZip(Files.newOutputStream(zip))) {
+            escritor.adicionar("medicao.json", "{}".getBytes(StandardCharsets.UTF_8), LocalDateTime.now());
+            assertThrows(NoSuchFileException.class,
+                    () -> escritor.adicionarArquivo("imagens/2.jpg", diretorio.resolve("removida.jpg"), false));
+        }
+
+        try (ZipFile leitor = new ZipFile(zip.toFile())) {
+            assertEquals(1, leitor.size());
+            assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8),
+                    leitor.getInputStream(leitor.getEntry("medicao.json")).readAllBytes());
+        }
+    }
+
+    @Test
+    void rejectsRepeatedNames() throws Exception {
+        try (EscritorZip escritor = new EscritorZip(OutputStream.nullOutputStream())) {
+            escritor.adicionar("laudo.json", new byte[0], LocalDateTime.now());
+            assertThrows(IllegalArgumentException.class,
+                    () -> escritor.adicionar("laudo.json", new byte[0], LocalDateTime.now()));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package br.com.dasa.analisepatologica.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeradorPiramideTest {
+
+    private static final String SHA256 = "ab".repeat(32);
+
+    @TempDir
+    private Path diretorio;
+
+    @Test
+    void buildsEveryLevelDownToASingleTile() throws Exception {
+        // 600x300: three levels, 3x2 tiles at full resolution (edge tiles 88 px wide, 44 px high)
+        BufferedImage imagem = new BufferedImage(600, 300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = imagem.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 600, 300);
+        graphics.setColor(Color.RED);
+        graphics.fillRect(512, 256, 88, 44);
+        graphics.dispose();
+        Path arquivo = diretorio.resolve("lamina.tiff");
+        assertTrue(ImageIO.write(imagem, "tiff", arquivo.toFile()));
+
+        GeradorPiramide gerador = new GeradorPiramide(new ArmazenamentoConteudo(diretorio), 1, 1, 0.9f);
+        try {
+            InfoPiramide info = gerador.gerar(SHA256, arquivo);
+
+            assertEquals(new InfoPiramide(600, 300, 256, 2), info);
+            assertEquals(info, gerador.info(SHA256).orElseThrow());
+            assertEquals(3, info.colunas(2));
+            assertEquals(2, info.linhas(2));
+            assertFalse(info.contem(2, 3, 0));
+            assertFalse(info.contem(3, 0, 0));
+
+            BufferedImage canto = ImageIO.read(gerador.tile(SHA256, 2, 2, 1).toFile());
+            assertEquals(88, canto.getWidth());
+            assertEquals(44, canto.getHeight());
+            assertTrue(new Color(canto.getRGB(40, 20)).getRed() > 200);
+            assertTrue(new Color(canto.getRGB(40, 20)).getGreen() < 50);
+
+            BufferedImage raiz = ImageIO.read(gerador.tile(SHA256, 0, 0, 0).toFile());
+            assertEquals(150, raiz.getWidth());
+            assertEquals(75, raiz.getHeight());
+            assertTrue(new Color(raiz.getRGB(10, 10)).getGreen() > 200);
+
+            assertFalse(Files.exists(diretorioTemporario()));
+        } finally {
+            gerador.destroy();
+        }
+    }
+
+    private Path diretorioTemporario() {
+        return diretorio.resolve("derivados").resolve(SHA256.substring(0, 2)).resolve(SHA256).resolve("piramide.tmp");
+    }
+}
@@ -0,0 +1,118 @@
+package br.com.dasa.analisepatologica.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.plugins.tiff.BaselineTIFFTagSet;
+import javax.imageio.plugins.tiff.TIFFDirectory;
+import javax.imageio.plugins.tiff.TIFFField;
+import javax.imageio.plugins.tiff.TIFFTag;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LeitorCabecalhoTest {
+
+    @TempDir
+    private Path diretorio;
+
+    @Test
+    void readsDimensionsAndEquipmentFromJpegExif() throws Exception {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB), "jpeg", jpeg);
+        byte[] semExif = jpeg.toByteArray();
+
+        // SOI and the JFIF APP0 segment, then the EXIF APP1 segment, then the rest of the file
+        int fimApp0 = 4 + (((semExif[4] & 0xFF) << 8) | (semExif[5] & 0xFF));
+        byte[] app1 = app1Exif("Hamamatsu", "NanoZoomer S360");
+        byte[] comExif = new byte[semExif.length + app1.length];
+        System.arraycopy(semExif, 0, comExif, 0, fimApp0);
+        System.arraycopy(app1, 0, comExif, fimApp0, app1.length);
+        System.arraycopy(semExif, fimApp0, comExif, fimApp0 + app1.length, semExif.length - fimApp0);
+        Path arquivo = Files.write(diretorio.resolve("lamina.jpg"), comExif);
+
+        CabecalhoImagem cabecalho = LeitorCabecalho.ler(arquivo);
+
+        assertEquals("jpeg", cabecalho.formato());
+        assertEquals("640x480", cabecalho.resolucao());
+        assertEquals("Hamamatsu NanoZoomer S360", cabecalho.equipamento());
+    }
+
+    @Test
+    void readsMakeAndModelFromTiffTags() throws Exception {
+        BufferedImage imagem = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+        ImageWriter escritor = ImageIO.getImageWritersByFormatName("tiff").next();
+        ImageWriteParam parametros = escritor.getDefaultWriteParam();
+        IIOMetadata padrao = escritor.getDefaultImageMetadata(new ImageTypeSpecifier(imagem), parametros);
+        TIFFDirectory diretorioTiff = TIFFDirectory.createFromMetadata(padrao);
+        BaselineTIFFTagSet tags = BaselineTIFFTagSet.getInstance();
+        diretorioTiff.addTIFFField(new TIFFField(tags.getTag(BaselineTIFFTagSet.TAG_MAKE),
+                TIFFTag.TIFF_ASCII, 1, new String[]{"Leica"}));
+        diretorioTiff.addTIFFField(new TIFFField(tags.getTag(BaselineTIFFTagSet.TAG_MODEL),
+                TIFFTag.TIFF_ASCII, 1, new String[]{"Leica Aperio GT 450"}));
+        Path arquivo = diretorio.resolve("lamina.tiff");
+        try (ImageOutputStream saida = ImageIO.createImageOutputStream(arquivo.toFile())) {
+            escritor.setOutput(saida);
+            escritor.write(null, new IIOImage(imagem, null, diretorioTiff.getAsMetadata()), parametros);
+        } finally {
+            escritor.dispose();
+        }
+
+        CabecalhoImagem cabecalho = LeitorCabecalho.ler(arquivo);
+
+        assertEquals("tif", cabecalho.formato());
+        assertEquals("300x200", cabecalho.resolucao());
+        assertEquals("Leica Aperio GT 450", cabecalho.equipamento());
+    }
+
+    @Test
+    void pngHasNoEquipmentAndUnknownBytesAreRejected() throws Exception {
+        Path png = diretorio.resolve("lamina.png");
+        ImageIO.write(new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_RGB), "png", png.toFile());
+
+        CabecalhoImagem cabecalho = LeitorCabecalho.ler(png);
+        assertEquals("png", cabecalho.formato());
+        assertEquals("1920x1080", cabecalho.resolucao());
+        assertNull(cabecalho.equipamento());
+
+        Path texto = Files.writeString(diretorio.resolve("lamina.bin"), "não é uma imagem");
+        assertThrows(IllegalArgumentException.class, () -> LeitorCabecalho.ler(texto));
+    }
+
+    /**
+     * APP1 segment with a big-endian TIFF structure whose IFD0 holds only Make and Model.
+     */
+    private static byte[] app1Exif(String fabricante, String modelo) {
+        byte[] make = (fabricante + "\0").getBytes(StandardCharsets.US_ASCII);
+        byte[] model = (modelo + "\0").getBytes(StandardCharsets.US_ASCII);
+        int ifd = 8;
+        int valores = ifd + 2 + 2 * 12 + 4;
+        ByteBuffer tiff = ByteBuffer.allocate(valores + make.length + model.length);
+        tiff.put((byte) 'M').put((byte) 'M').putShort((short) 42).putInt(ifd);
+        tiff.putShort((short) 2);
+        tiff.putShort((short) 271).putShort((short) 2).putInt(make.length).putInt(valores);
+        tiff.putShort((short) 272).putShort((short) 2).putInt(model.length).putInt(valores + make.length);
+        tiff.putInt(0);
+        tiff.put(make).put(model);
+
+        byte[] exif = "Exif\0\0".getBytes(StandardCharsets.ISO_8859_1);
+        int tamanho = 2 + exif.length + tiff.capacity();
+        ByteBuffer segmento = ByteBuffer.allocate(2 + tamanho);
+        segmento.put((byte) 0xFF).put((byte) 0xE1).putShort((short) tamanho).put(exif).put(tiff.array());
+        return segmento.array();
+    }
+}
@@ -0,0 +1,41 @@
+package br.com.dasa.analisepatologica.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeituraLimitadaTest {
+
+    @TempDir
+    private Path diretorio;
+
+    @Test
+    void hashesTheWholeFileAtTheGivenRate() throws Exception {
+        byte[] conteudo = new byte[3 * 1024 * 1024 + 123];
+        new Random(42).nextBytes(conteudo);
+        Path arquivo = Files.write(diretorio.resolve("lamina.tiff"), conteudo);
+
+        long inicio = System.nanoTime();
+        String sha256 = LeituraLimitada.sha256(arquivo, 6 * 1024 * 1024);
+        long decorridoMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(conteudo)), sha256);
+        // ~3 MB at 6 MB/s
+        assertTrue(decorridoMs >= 450, "decorrido " + decorridoMs + " ms");
+    }
+
+    @Test
+    void rejectsNonPositiveRate() throws Exception {
+        Path arquivo = Files.write(diretorio.resolve("vazio.bin"), new byte[0]);
+        assertThrows(IllegalArgumentException.class, () -> LeituraLimitada.sha256(arquivo, 0));
+    }
+}